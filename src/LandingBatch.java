@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import batch.CommandLineOptions;
+import batch.Distribution;
+import batch.ForkedBatchRunner;
+import batch.LandingStatistics;
+import batch.MonteCarloRunner;
+import batch.OutcomeCache;
+import batch.ResultStoreWriter;
+
+/**
+ * Estimates the automatic landing's success rate by flying many landings
+ * without a window, and prints the crash rate and the distributions of
+ * landing velocity, landing angle, and fuel consumption.
+ */
+public class LandingBatch {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: LandingBatch [options]",
+		"  --runs N            number of landings to fly (default 10000)",
+		"  --fuel DIST         initial fuel (default 10)",
+		"  --height DIST       initial height above the ground (default 500)",
+		"  --speed DIST        initial horizontal velocity (default uniform:-250:250)",
+		"  --threads N         threads to fly landings on (default: all cores)",
+		"  --seed N            seed for the initial conditions (default 1)",
+		"  --max-time SECONDS  flight time after which a landing counts as a crash (default 300)",
+		"  --out DIR           results store to append every landing to, one file per column",
+		"  --progress SECONDS  print the totals so far this often while the batch runs",
+		"  --early-exit        end landings that are certain to crash, and only report",
+		"                      the crash rate; can't be used with --out",
+		"  --validate-early-exit",
+		"                      fly landings that would end early to the end anyway,",
+		"                      and check that they crash",
+		"  --cache FILE        file to remember landing outcomes in, so landings flown",
+		"                      by an earlier run with the same settings aren't flown again",
+		"  --cache-size N      outcomes to keep in memory (default 250000); without",
+		"                      --cache, remembers outcomes for this run only",
+		"  --processes N       fly landings on N worker JVMs instead of threads in this one;",
+		"                      a worker that dies is replaced and its runs are retried",
+		"  --worker-heap SIZE  max heap of each worker JVM (default 256m)",
+		"DIST is a number, uniform:min:max, or normal:mean:deviation");
+
+	public static void main(String [] args) throws InterruptedException {
+
+		MonteCarloRunner runner = new MonteCarloRunner();
+		int runs;
+		String out;
+		double progressInterval;
+		OutcomeCache cache = null;
+		ForkedBatchRunner forked = null;
+
+		try {
+
+			CommandLineOptions options = new CommandLineOptions(args);
+
+			options.requireKnown("runs", "fuel", "height", "speed", "threads",
+				"seed", "max-time", "out", "progress", "early-exit",
+				"validate-early-exit", "cache", "cache-size", "processes",
+				"worker-heap", "help");
+
+			if (options.has("help")) {
+				System.out.println(USAGE);
+				return;
+			}
+
+			runs = options.getInt("runs", 10000);
+			runner.setFuel(options.getDistribution("fuel", runner.getFuel()));
+			runner.setHeight(options.getDistribution("height", runner.getHeight()));
+			runner.setxVelocity(options.getDistribution("speed", runner.getxVelocity()));
+			runner.setThreads(options.getInt("threads", runner.getThreads()));
+			runner.setSeed(options.getLong("seed", runner.getSeed()));
+			runner.setMaxFlightTime(options.getDouble("max-time", runner.getMaxFlightTime()));
+			runner.setEarlyExit(options.has("early-exit") || options.has("validate-early-exit"));
+			runner.setValidatingEarlyExit(options.has("validate-early-exit"));
+			out = options.getString("out", null);
+			progressInterval = options.getDouble("progress", 0);
+
+			if (out != null && runner.isCrashRateOnly()) {
+				throw new IllegalArgumentException("--early-exit only measures the crash rate, so it can't be used with --out");
+			}
+
+			if (options.has("processes")) {
+
+				if (options.has("cache") || options.has("cache-size")) {
+					throw new IllegalArgumentException("--cache can't be used with --processes");
+				}
+
+				forked = new ForkedBatchRunner(runner);
+				forked.setProcesses(options.getInt("processes", forked.getProcesses()));
+				forked.setWorkerHeap(options.getString("worker-heap", forked.getWorkerHeap()));
+
+			}
+
+			cache = options.getOutcomeCache();
+			runner.setOutcomeCache(cache);
+
+		} catch (IllegalArgumentException | IOException e) {
+
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+
+		}
+
+		if (forked == null) {
+			System.out.printf("Flying %d landings on %d threads (fuel %s, height %s, speed %s, seed %d)%n",
+				runs, runner.getThreads(), runner.getFuel(), runner.getHeight(),
+				runner.getxVelocity(), runner.getSeed());
+		} else {
+			System.out.printf("Flying %d landings on %d worker JVMs (fuel %s, height %s, speed %s, seed %d)%n",
+				runs, forked.getProcesses(), runner.getFuel(), runner.getHeight(),
+				runner.getxVelocity(), runner.getSeed());
+		}
+
+		if (progressInterval > 0) {
+			startProgressReports(forked == null ? runner::getProgress : forked::getProgress,
+				runs, progressInterval, runner.isCrashRateOnly());
+		}
+
+		try (ResultStoreWriter results = out != null ? new ResultStoreWriter(Paths.get(out)) : null) {
+
+			System.out.print(forked == null ? runner.run(runs, results) : forked.run(runs, results));
+
+			if (results != null) {
+				System.out.printf("Results store:    %s (%d rows)%n", out, results.getRowCount());
+			}
+
+		} catch (IOException e) {
+
+			System.err.println("Couldn't write results to " + out + ": " + e.getMessage());
+			System.exit(1);
+
+		} catch (IllegalStateException e) {
+
+			System.err.println("Batch failed: " + e.getMessage()
+				+ (e.getCause() != null ? " (" + e.getCause() + ")" : ""));
+			System.exit(1);
+
+		}
+
+		if (forked != null && (forked.getFailedRuns() > 0 || forked.getWorkerRestarts() > 0)) {
+			System.err.printf("Workers restarted: %d, runs left out: %d%n",
+				forked.getWorkerRestarts(), forked.getFailedRuns());
+		}
+
+		if (cache != null) {
+
+			System.err.println(cache);
+
+			try {
+				cache.close();
+			} catch (IOException e) {
+				System.err.println("Couldn't write the outcome cache: " + e.getMessage());
+			}
+
+		}
+
+		// The report is still printed, but a batch with runs left out isn't
+		// a complete one
+		if (forked != null && forked.getFailedRuns() > 0) {
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * Starts a background thread that prints the batch's totals so far at
+	 * a fixed interval, without holding up the landings.
+	 * @param progressSource the totals of the batch so far
+	 * @param runs the number of landings in the batch
+	 * @param interval the time between reports, in seconds
+	 * @param crashRateOnly whether only the crash rate is measured
+	 */
+	private static void startProgressReports(Supplier<LandingStatistics> progressSource,
+			int runs, double interval, boolean crashRateOnly) {
+
+		Thread reporter = new Thread(() -> {
+
+			try {
+
+				while (true) {
+
+					Thread.sleep(Math.max(1, Math.round(interval * 1000)));
+
+					LandingStatistics progress = progressSource.get();
+
+					if (crashRateOnly) {
+						System.err.printf("Progress: %d/%d runs, crash rate %.2f%%%n",
+							progress.getRuns(), runs, progress.getCrashRate() * 100);
+						continue;
+					}
+
+					System.err.printf("Progress: %d/%d runs, crash rate %.2f%%, landing velocity p50 %.2f%n",
+						progress.getRuns(), runs, progress.getCrashRate() * 100,
+						progress.getLandingVelocity().getPercentile(50));
+
+				}
+
+			} catch (InterruptedException e) {
+
+				// Stop reporting
+
+			}
+
+		}, "Batch progress");
+
+		reporter.setDaemon(true);
+		reporter.start();
+
+	}
+
+}
@@ -0,0 +1,108 @@
+import java.util.Locale;
+
+import batch.CommandLineOptions;
+import batch.FleetReport;
+import batch.MonteCarloRunner;
+import batch.RealTimeFleet;
+import util.VirtualThreads;
+
+/**
+ * Runs a fleet of simulations at once, each ticked in real time, and
+ * prints how far behind their clocks the simulations ran.
+ */
+public class LandingFleet {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: LandingFleet [options]",
+		"  --simulations N      simulations to run at once (default 1000)",
+		"  --tick-rate HZ       ticks per second of each simulation (default 60)",
+		"  --duration SECONDS   wall-clock time to run for (default 10)",
+		"  --mode MODE          virtual, platform, or both to compare them (default virtual)",
+		"  --threads N          platform threads in platform mode (default: all cores)",
+		"  --fuel DIST          initial fuel (default 10)",
+		"  --height DIST        initial height above the ground (default 500)",
+		"  --speed DIST         initial horizontal velocity (default uniform:-250:250)",
+		"  --seed N             seed for the initial conditions (default 1)",
+		"DIST is a number, uniform:min:max, or normal:mean:deviation",
+		"Virtual threads need Java 21 or later. On older versions, only platform",
+		"mode can run.");
+
+	public static void main(String [] args) throws InterruptedException {
+
+		RealTimeFleet fleet = new RealTimeFleet();
+		String mode;
+
+		try {
+
+			CommandLineOptions options = new CommandLineOptions(args);
+
+			options.requireKnown("simulations", "tick-rate", "duration", "mode",
+				"threads", "fuel", "height", "speed", "seed", "help");
+
+			if (options.has("help")) {
+				System.out.println(USAGE);
+				return;
+			}
+
+			fleet.setSimulations(options.getInt("simulations", fleet.getSimulations()));
+			fleet.setTickRate(options.getDouble("tick-rate", fleet.getTickRate()));
+			fleet.setDuration(options.getDouble("duration", fleet.getDuration()));
+			fleet.setPlatformThreads(options.getInt("threads", fleet.getPlatformThreads()));
+
+			MonteCarloRunner scenarios = fleet.getScenarios();
+			scenarios.setFuel(options.getDistribution("fuel", scenarios.getFuel()));
+			scenarios.setHeight(options.getDistribution("height", scenarios.getHeight()));
+			scenarios.setxVelocity(options.getDistribution("speed", scenarios.getxVelocity()));
+			scenarios.setSeed(options.getLong("seed", scenarios.getSeed()));
+
+			mode = options.getString("mode", "virtual").toLowerCase(Locale.ROOT);
+
+			if (!mode.equals("virtual") && !mode.equals("platform") && !mode.equals("both")) {
+				throw new IllegalArgumentException("Unknown mode: " + mode);
+			}
+
+			if (!mode.equals("platform") && !VirtualThreads.isAvailable()) {
+				throw new IllegalArgumentException("Virtual threads need Java 21 or later, running " +
+					System.getProperty("java.version") + "; use --mode platform");
+			}
+
+		} catch (IllegalArgumentException e) {
+
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+
+		}
+
+		if (!mode.equals("platform")) {
+			run(fleet, RealTimeFleet.Mode.VIRTUAL);
+		}
+
+		if (!mode.equals("virtual")) {
+			run(fleet, RealTimeFleet.Mode.PLATFORM);
+		}
+
+	}
+
+	/**
+	 * Runs the fleet in the given mode and prints its report.
+	 * @param fleet the fleet to run
+	 * @param mode the kind of threads to run it on
+	 * @throws InterruptedException if interrupted while waiting for the fleet
+	 */
+	private static void run(RealTimeFleet fleet, RealTimeFleet.Mode mode)
+			throws InterruptedException {
+
+		fleet.setMode(mode);
+
+		System.err.printf("Running %d simulations at %.0f Hz for %.1f s in %s mode%n",
+			fleet.getSimulations(), fleet.getTickRate(), fleet.getDuration(),
+			mode.name().toLowerCase(Locale.ROOT));
+
+		FleetReport report = fleet.run();
+		System.out.print(report);
+
+	}
+
+}
@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import batch.CommandLineOptions;
+import batch.LandingVecEnv;
+import batch.MonteCarloRunner;
+import rocket.PolicyController;
+import rocket.PolicyNetwork;
+
+/**
+ * Flies many landings at once with a neural-network policy loaded from a
+ * weight file, and prints how often it landed safely and how long the
+ * policy and the physics took per tick.
+ */
+public class LandingPolicy {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: LandingPolicy --weights FILE [options]",
+		"  --weights FILE       policy weight file (see rocket.PolicyNetwork)",
+		"  --rockets N          rockets flown at once (default 4096)",
+		"  --threads N          threads to step the physics on (default: all cores)",
+		"  --fuel DIST          initial fuel (default 10)",
+		"  --height DIST        initial height above the ground (default 500)",
+		"  --speed DIST         initial horizontal velocity (default uniform:-250:250)",
+		"  --seed N             seed for the initial conditions (default 1)",
+		"  --max-time SECONDS   flight time after which a landing counts as a crash (default 300)",
+		"DIST is a number, uniform:min:max, or normal:mean:deviation");
+
+	public static void main(String [] args) {
+
+		PolicyController policy;
+		LandingVecEnv environments;
+		long seed;
+
+		try {
+
+			CommandLineOptions options = new CommandLineOptions(args);
+
+			options.requireKnown("weights", "rockets", "threads", "fuel", "height", "speed",
+				"seed", "max-time", "help");
+
+			if (options.has("help")) {
+				System.out.println(USAGE);
+				return;
+			}
+
+			String weights = options.getString("weights", null);
+
+			if (weights == null) {
+				throw new IllegalArgumentException("--weights is required");
+			}
+
+			policy = new PolicyController(PolicyNetwork.load(Paths.get(weights)));
+
+			environments = new LandingVecEnv(options.getInt("rockets", 4096),
+				options.getInt("threads", Runtime.getRuntime().availableProcessors()));
+
+			MonteCarloRunner scenarios = environments.getScenarios();
+			scenarios.setFuel(options.getDistribution("fuel", scenarios.getFuel()));
+			scenarios.setHeight(options.getDistribution("height", scenarios.getHeight()));
+			scenarios.setxVelocity(options.getDistribution("speed", scenarios.getxVelocity()));
+			scenarios.setMaxFlightTime(options.getDouble("max-time", scenarios.getMaxFlightTime()));
+			seed = options.getLong("seed", scenarios.getSeed());
+
+		} catch (IllegalArgumentException | IOException e) {
+
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+
+		}
+
+		int count = environments.getCount();
+
+		System.err.printf("Flying %d rockets with %s on %d threads%n", count,
+			policy.getNetwork(), environments.getThreads());
+
+		long [] seeds = new long[count];
+		for (int i = 0; i < count; i++) {
+			seeds[i] = seed + i;
+		}
+
+		boolean [] throttles = new boolean[count];
+		double [] targetAngles = new double[count];
+		long ticks = 0;
+		long policyNanos = 0;
+		long physicsNanos = 0;
+
+		try (environments) {
+
+			environments.reset(seeds);
+
+			while (!isAllDone(environments.getDones())) {
+
+				long startTime = System.nanoTime();
+				policy.act(environments.getObservations(), count, throttles, targetAngles);
+
+				long policyTime = System.nanoTime();
+				environments.step(throttles, targetAngles);
+
+				policyNanos += policyTime - startTime;
+				physicsNanos += System.nanoTime() - policyTime;
+				ticks++;
+
+			}
+
+		}
+
+		int crashes = 0;
+		for (boolean crashed : environments.getCrashed()) {
+			crashes += crashed ? 1 : 0;
+		}
+
+		System.out.printf(Locale.ROOT, "Landed safely:    %d of %d (%.2f%%)%n", count - crashes,
+			count, (count - crashes) * 100.0 / count);
+		System.out.printf(Locale.ROOT, "Ticks:            %d%n", ticks);
+		System.out.printf(Locale.ROOT, "Policy per tick:  %.3f ms (%.1f ns per rocket)%n",
+			policyNanos / 1e6 / ticks, (double) policyNanos / ticks / count);
+		System.out.printf(Locale.ROOT, "Physics per tick: %.3f ms (%.1f ns per rocket)%n",
+			physicsNanos / 1e6 / ticks, (double) physicsNanos / ticks / count);
+
+	}
+
+	/**
+	 * Checks whether every landing is over.
+	 * @param dones each landing's done flag
+	 * @return true if every flag is set
+	 */
+	private static boolean isAllDone(boolean [] dones) {
+
+		for (boolean done : dones) {
+			if (!done) {
+				return false;
+			}
+		}
+
+		return true;
+
+	}
+
+}
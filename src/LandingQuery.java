@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import batch.CommandLineOptions;
+import batch.QueryResult;
+import batch.ResultColumn;
+import batch.ResultIndex;
+import batch.ResultQuery;
+import batch.ResultStoreReader;
+
+/**
+ * Answers questions about the landings in a results store written by
+ * LandingBatch, like the crash rate of fast, low-fuel starts, without
+ * flying them again.
+ */
+public class LandingQuery {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: LandingQuery --store DIR [options]",
+		"  --store DIR           results store written by LandingBatch --out",
+		"  --where CONDITIONS    conditions joined by 'and', like",
+		"                        \"abs(initial_x_velocity) > 200 and initial_fuel < 5\";",
+		"                        a flag alone, like crashed or not crashed, tests it",
+		"  --select AGGREGATES   comma list of count, crash_rate, landing_rate, or",
+		"                        sum, mean, min or max of a column (default count,crash_rate)",
+		"  --group-by COL:WIDTH  groups rows by buckets of a column, like initial_height:50",
+		"  --threads N           threads to scan on (default: all cores)",
+		"Columns: " + getColumnNames());
+
+	public static void main(String [] args) {
+
+		ResultQuery query;
+		String store;
+
+		try {
+
+			CommandLineOptions options = new CommandLineOptions(args);
+
+			options.requireKnown("store", "where", "select", "group-by", "threads", "help");
+
+			if (options.has("help")) {
+				System.out.println(USAGE);
+				return;
+			}
+
+			store = options.getString("store", null);
+
+			if (store == null) {
+				throw new IllegalArgumentException("--store is required");
+			}
+
+			query = ResultQuery.parse(options.getString("where", null),
+				options.getString("select", "count,crash_rate"),
+				options.getString("group-by", null));
+			query.setParallelism(options.getInt("threads", query.getParallelism()));
+
+		} catch (IllegalArgumentException e) {
+
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+
+		}
+
+		try (ResultStoreReader reader = new ResultStoreReader(Paths.get(store))) {
+
+			long startTime = System.nanoTime();
+
+			ResultIndex index = ResultIndex.open(reader);
+
+			double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+			System.err.printf("%s (%.3f s)%n", index, elapsedSeconds);
+
+			QueryResult result = query.execute(reader, index);
+			System.out.println(result);
+
+		} catch (IOException e) {
+
+			System.err.println("Couldn't query " + store + ": " + e.getMessage());
+			System.exit(1);
+
+		}
+
+	}
+
+	/**
+	 * Gets the names of every column, separated by commas.
+	 * @return the column names
+	 */
+	private static String getColumnNames() {
+
+		StringBuilder names = new StringBuilder();
+
+		for (ResultColumn column : ResultColumn.values()) {
+
+			if (names.length() > 0) {
+				names.append(", ");
+			}
+
+			names.append(column.getName());
+
+		}
+
+		return names.toString();
+
+	}
+
+}
@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.io.PrintStream;
+
+import batch.CommandLineOptions;
+import batch.OutcomeCache;
+import batch.ParameterSweep;
+import batch.SweepCellResult;
+import batch.SweepResultTable;
+
+/**
+ * Sweeps the automatic landing over a grid of initial fuel, initial height,
+ * max speed, and autopilot gains, and writes one CSV row per grid cell as
+ * cells finish.
+ */
+public class LandingSweep {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: LandingSweep [options]",
+		"  --fuel LIST           initial fuel amounts (default 10)",
+		"  --height LIST         initial heights above the ground (default 500)",
+		"  --max-speed LIST      max initial horizontal speeds (default 250)",
+		"  --kp LIST             proportional gains (default 0.2)",
+		"  --ki LIST             integral gains (default 0.3)",
+		"  --kd LIST             derivative gains (default 0.01)",
+		"  --runs-per-cell N     landings flown in each cell (default 100)",
+		"  --threads N           threads to fly cells on (default: all cores)",
+		"  --seed N              seed for the initial velocities (default 1)",
+		"  --max-time SECONDS    flight time after which a landing counts as a crash (default 300)",
+		"  --out FILE            CSV file to write (default: standard output)",
+		"  --early-exit          end landings that are certain to crash, and only measure",
+		"                        crash rates; the mean columns are NaN",
+		"  --cache FILE          file to remember landing outcomes in, so landings flown",
+		"                        by an earlier run with the same settings aren't flown again",
+		"  --cache-size N        outcomes to keep in memory (default 250000); without",
+		"                        --cache, remembers outcomes for this run only",
+		"  --checkpoint FILE     save which cells are done to FILE every so often, and when",
+		"                        the sweep is stopped",
+		"  --checkpoint-interval SECONDS",
+		"                        time between checkpoints (default 60)",
+		"  --resume              carry on from the checkpoint instead of starting over; the",
+		"                        CSV still gets a row for every cell",
+		"LIST is numbers separated by commas, or min:max:count for evenly spaced numbers");
+
+	public static void main(String [] args) {
+
+		ParameterSweep sweep = new ParameterSweep();
+		PrintStream output = System.out;
+		OutcomeCache cache = null;
+
+		try {
+
+			CommandLineOptions options = new CommandLineOptions(args);
+
+			options.requireKnown("fuel", "height", "max-speed", "kp", "ki", "kd",
+				"runs-per-cell", "threads", "seed", "max-time", "out", "early-exit", "cache", "cache-size", "checkpoint",
+				"checkpoint-interval", "resume", "help");
+
+			if (options.has("help")) {
+				System.out.println(USAGE);
+				return;
+			}
+
+			sweep.setInitialFuels(options.getDoubleList("fuel", new double[] {10}));
+			sweep.setInitialRocketHeights(options.getDoubleList("height", new double[] {500}));
+			sweep.setMaxSpeeds(options.getDoubleList("max-speed", new double[] {250}));
+			sweep.setKps(options.getDoubleList("kp", new double[] {0.2}));
+			sweep.setKis(options.getDoubleList("ki", new double[] {0.3}));
+			sweep.setKds(options.getDoubleList("kd", new double[] {0.01}));
+			sweep.setRunsPerCell(options.getInt("runs-per-cell", sweep.getRunsPerCell()));
+			sweep.setParallelism(options.getInt("threads", sweep.getParallelism()));
+			sweep.setSeed(options.getLong("seed", sweep.getSeed()));
+			sweep.setMaxFlightTime(options.getDouble("max-time", sweep.getMaxFlightTime()));
+			sweep.setEarlyExit(options.has("early-exit"));
+			cache = options.getOutcomeCache();
+			sweep.setOutcomeCache(cache);
+
+			if (options.has("resume") && !options.has("checkpoint")) {
+				throw new IllegalArgumentException("--resume needs --checkpoint");
+			}
+
+			if (options.has("checkpoint")) {
+				sweep.setCheckpointFile(Paths.get(options.getString("checkpoint", null)));
+				sweep.setCheckpointInterval(options.getDouble("checkpoint-interval",
+					sweep.getCheckpointInterval()));
+				sweep.setResuming(options.has("resume"));
+			}
+
+			if (options.has("out")) {
+				output = new PrintStream(options.getString("out", null));
+			}
+
+		} catch (IllegalArgumentException | IOException e) {
+
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+
+		}
+
+		System.err.printf("Sweeping %d cells of %d landings on %d threads%n",
+			sweep.getCellCount(), sweep.getRunsPerCell(), sweep.getParallelism());
+
+		long startTime = System.nanoTime();
+
+		SweepResultTable table = new SweepResultTable(output);
+
+		try {
+
+			sweep.run(table);
+
+		} catch (UncheckedIOException e) {
+
+			System.err.println("Couldn't resume the sweep: " + e.getCause().getMessage());
+			System.exit(1);
+			return;
+
+		}
+
+		if (sweep.getResumedCellCount() > 0) {
+			System.err.printf("Resumed %d cells from %s%n", sweep.getResumedCellCount(),
+				sweep.getCheckpointFile());
+		}
+
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+		SweepCellResult best = table.getBest();
+
+		System.err.printf("Finished %d cells in %.1f s%n", table.size(), elapsedSeconds);
+		System.err.printf("Lowest crash rate: %.2f%% at %s%n",
+			best.getCrashRate() * 100, best.toCsvRow());
+
+		if (cache != null) {
+
+			System.err.println(cache);
+
+			try {
+				cache.close();
+			} catch (IOException e) {
+				System.err.println("Couldn't write the outcome cache: " + e.getMessage());
+			}
+
+		}
+
+		if (output != System.out) {
+			output.close();
+		}
+
+	}
+
+}
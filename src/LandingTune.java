@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.util.Locale;
+
+import batch.AutopilotTuner;
+import batch.CommandLineOptions;
+import batch.MonteCarloRunner;
+import batch.OutcomeCache;
+import rocket.AutopilotParameters;
+
+/**
+ * Searches for autopilot gains and engine pulsing that crash less than the
+ * simulator's defaults, and checks the result on landings it wasn't tuned
+ * on.
+ */
+public class LandingTune {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: LandingTune [options]",
+		"  --fuel DIST           initial fuel (default 10)",
+		"  --height DIST         initial height above the ground (default 500)",
+		"  --speed DIST          initial horizontal velocity (default uniform:-250:250)",
+		"  --swarm N             candidates in the swarm (default 24)",
+		"  --iterations N        times the swarm moves (default 30)",
+		"  --landings N          landings each candidate flies per iteration (default 200)",
+		"  --threads N           threads to fly landings on (default: all cores)",
+		"  --seed N              seed for the tuning landings and the swarm (default 1)",
+		"  --validation-seed N   seed for the landings the result is checked on (default 1000001)",
+		"  --max-time SECONDS    flight time after which a landing counts as a crash (default 300)",
+		"  --bounds NAME:MIN:MAX range to search a parameter in; may be given as a comma",
+		"                        list. Names: " + String.join(", ", AutopilotTuner.getDimensionNames()),
+		"  --cache FILE          file to remember landing outcomes in, so landings flown",
+		"                        by an earlier run with the same settings aren't flown again",
+		"  --cache-size N        outcomes to keep in memory (default 250000); without",
+		"                        --cache, remembers outcomes for this run only",
+		"DIST is a number, uniform:min:max, or normal:mean:deviation");
+
+	public static void main(String [] args) {
+
+		AutopilotTuner tuner = new AutopilotTuner();
+		long validationSeed = 1_000_001;
+		OutcomeCache cache = null;
+
+		try {
+
+			CommandLineOptions options = new CommandLineOptions(args);
+
+			options.requireKnown("fuel", "height", "speed", "swarm", "iterations",
+				"landings", "threads", "seed", "validation-seed", "max-time", "bounds",
+				"cache", "cache-size", "help");
+
+			if (options.has("help")) {
+				System.out.println(USAGE);
+				return;
+			}
+
+			MonteCarloRunner scenarios = tuner.getScenarios();
+			scenarios.setFuel(options.getDistribution("fuel", scenarios.getFuel()));
+			scenarios.setHeight(options.getDistribution("height", scenarios.getHeight()));
+			scenarios.setxVelocity(options.getDistribution("speed", scenarios.getxVelocity()));
+			scenarios.setSeed(options.getLong("seed", scenarios.getSeed()));
+			scenarios.setMaxFlightTime(options.getDouble("max-time", scenarios.getMaxFlightTime()));
+			cache = options.getOutcomeCache();
+			scenarios.setOutcomeCache(cache);
+
+			tuner.setSwarmSize(options.getInt("swarm", tuner.getSwarmSize()));
+			tuner.setIterations(options.getInt("iterations", tuner.getIterations()));
+			tuner.setLandingsPerCandidate(options.getInt("landings", tuner.getLandingsPerCandidate()));
+			tuner.setParallelism(options.getInt("threads", tuner.getParallelism()));
+			validationSeed = options.getLong("validation-seed", validationSeed);
+
+			if (options.has("bounds")) {
+				for (String bounds : options.getString("bounds", null).split(",")) {
+					setBounds(tuner, bounds);
+				}
+			}
+
+		} catch (IllegalArgumentException | IOException e) {
+
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+
+		}
+
+		System.err.printf("Tuning a swarm of %d for %d iterations, %d landings each, on %d threads%n",
+			tuner.getSwarmSize(), tuner.getIterations(), tuner.getLandingsPerCandidate(),
+			tuner.getParallelism());
+
+		long startTime = System.nanoTime();
+
+		AutopilotTuner.Evaluation best = tuner.tune(System.err);
+
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+		System.err.printf("Finished in %.1f s%n", elapsedSeconds);
+
+		AutopilotTuner.Evaluation defaults = tuner.validate(AutopilotParameters.DEFAULT, validationSeed);
+		AutopilotTuner.Evaluation tuned = tuner.validate(best.getParameters(), validationSeed);
+
+		System.out.printf(Locale.ROOT, "Default crash rate on validation landings: %.2f%%%n",
+			defaults.getCrashRate() * 100);
+		System.out.printf(Locale.ROOT, "Tuned crash rate on validation landings:   %.2f%%%n",
+			tuned.getCrashRate() * 100);
+		System.out.println("Tuned parameters: " + best.getParameters());
+
+		if (cache != null) {
+
+			System.err.println(cache);
+
+			try {
+				cache.close();
+			} catch (IOException e) {
+				System.err.println("Couldn't write the outcome cache: " + e.getMessage());
+			}
+
+		}
+
+	}
+
+	/**
+	 * Sets the search range of one parameter from a NAME:MIN:MAX string.
+	 * @param tuner the tuner to set the range on
+	 * @param bounds the range
+	 */
+	private static void setBounds(AutopilotTuner tuner, String bounds) {
+
+		String [] parts = bounds.split(":");
+
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Bounds must be NAME:MIN:MAX: " + bounds);
+		}
+
+		try {
+
+			tuner.setBounds(parts[0], Double.parseDouble(parts[1]),
+				Double.parseDouble(parts[2]));
+
+		} catch (NumberFormatException e) {
+
+			throw new IllegalArgumentException("Bounds must be NAME:MIN:MAX: " + bounds);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,569 @@
+package batch;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import rocket.AutopilotParameters;
+
+/**
+ * Searches for autopilot parameters that crash less, using particle swarm
+ * optimization over the PID gains and the engine pulsing.
+ *
+ * A swarm of candidates moves through the space of parameters. Each
+ * candidate is pulled towards the best parameters it has found and the
+ * best parameters any candidate has found. Every iteration, each candidate
+ * flies the same set of headless landings, and its cost is its crash rate
+ * plus a small penalty for how far crashes were over the acceptable
+ * landing velocity. The penalty tells candidates with the same crash rate
+ * apart, so the swarm can still tell which way is better.
+ *
+ * All the landings of an iteration are split across a work-stealing pool,
+ * and each worker thread reuses one HeadlessLanding for every landing it
+ * flies. The first candidate starts at the simulator's defaults, so the
+ * result is never worse than the defaults on the landings it was tuned on.
+ */
+public class AutopilotTuner {
+
+	// Standard constriction coefficients, which keep the swarm from diverging
+	private static final double INERTIA = 0.7298;
+	private static final double COGNITIVE_WEIGHT = 1.49618;
+	private static final double SOCIAL_WEIGHT = 1.49618;
+
+	// Candidates move at most this fraction of a dimension's range per step
+	private static final double MAX_STEP = 0.2;
+
+	// Weight of the velocity penalty relative to the crash rate
+	private static final double VELOCITY_PENALTY_WEIGHT = 0.1;
+
+	// Landings flown in one piece of work before splitting stops
+	private static final int LANDINGS_PER_TASK = 16;
+
+	private static final int DIMENSIONS = 7;
+
+	private static final String [] DIMENSION_NAMES = {
+		"kp", "ki", "kd", "maxPulseOff", "pulseOffHeight", "minPulseOn", "pulseOnHeight"
+	};
+
+	private final double [] lowerBounds = {0, 0, 0, 0, 50, 0.5, 20};
+	private final double [] upperBounds = {2, 2, 0.2, 3, 1000, 12, 500};
+
+	private final MonteCarloRunner scenarios = new MonteCarloRunner();
+
+	private int swarmSize = 24;
+	private int iterations = 30;
+	private int landingsPerCandidate = 200;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Gets the runner whose distributions and seed the tuning landings are
+	 * drawn from.
+	 * @return the scenario runner
+	 */
+	public MonteCarloRunner getScenarios() {
+		return scenarios;
+	}
+
+	/**
+	 * Gets the number of candidates in the swarm.
+	 * @return the swarm size
+	 */
+	public int getSwarmSize() {
+		return swarmSize;
+	}
+
+	/**
+	 * Sets the number of candidates in the swarm.
+	 * @param swarmSize the new swarm size
+	 */
+	public void setSwarmSize(int swarmSize) {
+
+		if (swarmSize <= 0) {
+			throw new IllegalArgumentException("Swarm size must be positive");
+		}
+
+		this.swarmSize = swarmSize;
+
+	}
+
+	/**
+	 * Gets the number of times the swarm moves.
+	 * @return the number of iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Sets the number of times the swarm moves.
+	 * @param iterations the new number of iterations
+	 */
+	public void setIterations(int iterations) {
+
+		if (iterations <= 0) {
+			throw new IllegalArgumentException("Iteration count must be positive");
+		}
+
+		this.iterations = iterations;
+
+	}
+
+	/**
+	 * Gets the number of landings each candidate flies per iteration.
+	 * @return the landings per candidate
+	 */
+	public int getLandingsPerCandidate() {
+		return landingsPerCandidate;
+	}
+
+	/**
+	 * Sets the number of landings each candidate flies per iteration.
+	 * @param landingsPerCandidate the new landings per candidate
+	 */
+	public void setLandingsPerCandidate(int landingsPerCandidate) {
+
+		if (landingsPerCandidate <= 0) {
+			throw new IllegalArgumentException("Landings per candidate must be positive");
+		}
+
+		this.landingsPerCandidate = landingsPerCandidate;
+
+	}
+
+	/**
+	 * Gets the number of threads landings are flown on.
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads landings are flown on.
+	 * @param parallelism the new parallelism
+	 */
+	public void setParallelism(int parallelism) {
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+
+		this.parallelism = parallelism;
+
+	}
+
+	/**
+	 * Sets the range a parameter is searched in. No parameter can be
+	 * negative, and the pulse heights must stay above 0.
+	 * @param name the parameter's name, as given by {@link #getDimensionNames()}
+	 * @param lower the smallest value to try
+	 * @param upper the largest value to try
+	 */
+	public void setBounds(String name, double lower, double upper) {
+
+		int dimension = Arrays.asList(DIMENSION_NAMES).indexOf(name);
+
+		if (dimension < 0) {
+			throw new IllegalArgumentException("Unknown parameter: " + name);
+		}
+
+		if (!(lower <= upper)) {
+			throw new IllegalArgumentException("Bounds of " + name + " are reversed");
+		}
+
+		if (!(lower >= 0)) {
+			throw new IllegalArgumentException("Bounds of " + name + " can't be negative");
+		}
+
+		// The autopilot divides by the pulse heights
+		if ((name.equals("pulseOffHeight") || name.equals("pulseOnHeight")) && lower <= 0) {
+			throw new IllegalArgumentException("Bounds of " + name + " must be above 0");
+		}
+
+		lowerBounds[dimension] = lower;
+		upperBounds[dimension] = upper;
+
+	}
+
+	/**
+	 * Gets the names of the parameters that are searched.
+	 * @return the parameter names
+	 */
+	public static String [] getDimensionNames() {
+		return DIMENSION_NAMES.clone();
+	}
+
+	/**
+	 * Runs the swarm and returns the best parameters it found.
+	 * @param log the stream to report each iteration's progress to, or null
+	 * @return the best parameters and their cost
+	 */
+	public Evaluation tune(PrintStream log) {
+
+		LandingScenario [] landings = createScenarios(scenarios.getSeed());
+		// A split stream has its own gamma, so the swarm never draws the
+		// same numbers as the landings
+		SplittableRandom random = new SplittableRandom(scenarios.getSeed()).split();
+
+		double [][] positions = new double[swarmSize][DIMENSIONS];
+		double [][] velocities = new double[swarmSize][DIMENSIONS];
+		double [][] bestPositions = new double[swarmSize][DIMENSIONS];
+		double [] bestCosts = new double[swarmSize];
+
+		for (int i = 0; i < swarmSize; i++) {
+			for (int d = 0; d < DIMENSIONS; d++) {
+
+				double range = upperBounds[d] - lowerBounds[d];
+				positions[i][d] = lowerBounds[d] + random.nextDouble() * range;
+				velocities[i][d] = (random.nextDouble() * 2 - 1) * range * MAX_STEP;
+
+			}
+		}
+
+		clamp(positions[0] = toPosition(AutopilotParameters.DEFAULT));
+		Arrays.fill(bestCosts, Double.POSITIVE_INFINITY);
+
+		Evaluation best = null;
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		ThreadLocal<HeadlessLanding> headlessLandings = createHeadlessLandings();
+
+		try {
+
+			for (int iteration = 0; iteration < iterations; iteration++) {
+
+				Evaluation [] evaluations = evaluate(pool, headlessLandings,
+					positions, landings);
+
+				for (int i = 0; i < swarmSize; i++) {
+
+					if (evaluations[i].getCost() < bestCosts[i]) {
+						bestCosts[i] = evaluations[i].getCost();
+						bestPositions[i] = positions[i].clone();
+					}
+
+					if (best == null || evaluations[i].getCost() < best.getCost()) {
+						best = evaluations[i];
+					}
+
+				}
+
+				if (log != null) {
+					log.printf(Locale.ROOT, "Iteration %d: cost %.4f, crash rate %.2f%%, %s%n",
+						iteration + 1, best.getCost(), best.getCrashRate() * 100,
+						best.getParameters());
+				}
+
+				double [] globalBest = toPosition(best.getParameters());
+				move(random, positions, velocities, bestPositions, globalBest);
+
+			}
+
+		} finally {
+
+			pool.shutdownNow();
+
+		}
+
+		return best;
+
+	}
+
+	/**
+	 * Flies the given parameters over a fresh set of landings, drawn with a
+	 * different seed than the ones they were tuned on.
+	 * @param parameters the parameters to check
+	 * @param seed the seed to draw the landings with
+	 * @return the parameters' cost on the fresh landings
+	 */
+	public Evaluation validate(AutopilotParameters parameters, long seed) {
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try {
+
+			return evaluate(pool, createHeadlessLandings(),
+				new double[][] {toPosition(parameters)}, createScenarios(seed))[0];
+
+		} finally {
+
+			pool.shutdownNow();
+
+		}
+
+	}
+
+	/**
+	 * Draws the initial conditions every candidate is flown from.
+	 * @param seed the seed to draw them with
+	 * @return the landings' initial conditions
+	 */
+	private LandingScenario [] createScenarios(long seed) {
+
+		LandingScenario [] landings = new LandingScenario[landingsPerCandidate];
+		for (int i = 0; i < landings.length; i++) {
+			landings[i] = scenarios.createScenario(seed, i);
+		}
+
+		return landings;
+
+	}
+
+	/**
+	 * Creates each worker thread's HeadlessLanding on first use.
+	 * @return the per-thread HeadlessLandings
+	 */
+	private ThreadLocal<HeadlessLanding> createHeadlessLandings() {
+
+		return ThreadLocal.withInitial(() -> {
+
+			HeadlessLanding landing = new HeadlessLanding();
+			landing.setMaxFlightTime(scenarios.getMaxFlightTime());
+			landing.setOutcomeCache(scenarios.getOutcomeCache());
+			return landing;
+
+		});
+
+	}
+
+	/**
+	 * Flies every candidate over every landing.
+	 * @param pool the pool to fly the landings on
+	 * @param headlessLandings each worker thread's HeadlessLanding
+	 * @param positions the candidates' positions
+	 * @param landings the landings' initial conditions
+	 * @return each candidate's evaluation
+	 */
+	private Evaluation [] evaluate(ForkJoinPool pool,
+			ThreadLocal<HeadlessLanding> headlessLandings, double [][] positions,
+			LandingScenario [] landings) {
+
+		AutopilotParameters [] candidates = new AutopilotParameters[positions.length];
+		for (int i = 0; i < candidates.length; i++) {
+			candidates[i] = toParameters(positions[i]);
+		}
+
+		double [] totals = pool.invoke(new LandingRange(0, candidates.length * landings.length,
+			candidates, landings, headlessLandings));
+
+		Evaluation [] evaluations = new Evaluation[candidates.length];
+		for (int i = 0; i < candidates.length; i++) {
+
+			double crashRate = totals[i * 2] / landings.length;
+			double velocityPenalty = totals[i * 2 + 1] / landings.length;
+			evaluations[i] = new Evaluation(candidates[i], crashRate,
+				crashRate + VELOCITY_PENALTY_WEIGHT * velocityPenalty);
+
+		}
+
+		return evaluations;
+
+	}
+
+	/**
+	 * Moves every candidate one step, pulled towards its own best position
+	 * and the swarm's best position.
+	 * @param random the random numbers to weight the pulls with
+	 * @param positions the candidates' positions
+	 * @param velocities the candidates' velocities
+	 * @param bestPositions each candidate's best position so far
+	 * @param globalBest the swarm's best position so far
+	 */
+	private void move(SplittableRandom random, double [][] positions,
+			double [][] velocities, double [][] bestPositions, double [] globalBest) {
+
+		for (int i = 0; i < positions.length; i++) {
+
+			for (int d = 0; d < DIMENSIONS; d++) {
+
+				double maxStep = (upperBounds[d] - lowerBounds[d]) * MAX_STEP;
+
+				double velocity = INERTIA * velocities[i][d]
+					+ COGNITIVE_WEIGHT * random.nextDouble() * (bestPositions[i][d] - positions[i][d])
+					+ SOCIAL_WEIGHT * random.nextDouble() * (globalBest[d] - positions[i][d]);
+
+				velocities[i][d] = Math.max(-maxStep, Math.min(maxStep, velocity));
+				positions[i][d] += velocities[i][d];
+
+			}
+
+			clamp(positions[i]);
+
+		}
+
+	}
+
+	/**
+	 * Keeps a position inside the search bounds.
+	 * @param position the position to clamp
+	 */
+	private void clamp(double [] position) {
+
+		for (int d = 0; d < DIMENSIONS; d++) {
+			position[d] = Math.max(lowerBounds[d], Math.min(upperBounds[d], position[d]));
+		}
+
+	}
+
+	/**
+	 * Converts a position in the search space to autopilot parameters.
+	 * @param position the position
+	 * @return the parameters at that position
+	 */
+	private static AutopilotParameters toParameters(double [] position) {
+		return new AutopilotParameters(position[0], position[1], position[2],
+			position[3], position[4], position[5], position[6]);
+	}
+
+	/**
+	 * Converts autopilot parameters to a position in the search space.
+	 * @param parameters the parameters
+	 * @return the parameters' position
+	 */
+	private static double [] toPosition(AutopilotParameters parameters) {
+		return new double[] {parameters.getKp(), parameters.getKi(), parameters.getKd(),
+			parameters.getMaxPulseOffTime(), parameters.getPulseOffHeight(),
+			parameters.getMinPulseOnTime(), parameters.getPulseOnHeight()};
+	}
+
+	/**
+	 * How one set of parameters did over a set of landings.
+	 */
+	public static class Evaluation {
+
+		private final AutopilotParameters parameters;
+		private final double crashRate;
+		private final double cost;
+
+		/**
+		 * Creates an Evaluation.
+		 * @param parameters the parameters that were flown
+		 * @param crashRate the fraction of landings that crashed
+		 * @param cost the crash rate plus the velocity penalty
+		 */
+		Evaluation(AutopilotParameters parameters, double crashRate, double cost) {
+
+			this.parameters = parameters;
+			this.crashRate = crashRate;
+			this.cost = cost;
+
+		}
+
+		/**
+		 * Gets the parameters that were flown.
+		 * @return the autopilot parameters
+		 */
+		public AutopilotParameters getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * Gets the fraction of landings that crashed.
+		 * @return the crash rate
+		 */
+		public double getCrashRate() {
+			return crashRate;
+		}
+
+		/**
+		 * Gets the value the swarm minimizes: the crash rate plus the
+		 * velocity penalty.
+		 * @return the cost
+		 */
+		public double getCost() {
+			return cost;
+		}
+
+	}
+
+	/**
+	 * A range of (candidate, landing) pairs, split in half until it is small
+	 * enough to fly on one thread. Returns, for each candidate, the number
+	 * of crashes and the sum of velocity penalties in the range.
+	 */
+	private static class LandingRange extends RecursiveTask<double []> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int end;
+		private final AutopilotParameters [] candidates;
+		private final LandingScenario [] landings;
+		private final ThreadLocal<HeadlessLanding> headlessLandings;
+
+		/**
+		 * Creates a LandingRange covering pairs from start up to, but not
+		 * including, end. Pair i is landing i % landings.length of candidate
+		 * i / landings.length.
+		 * @param start the first pair's index
+		 * @param end the index after the last pair
+		 * @param candidates the candidates' parameters
+		 * @param landings the landings' initial conditions
+		 * @param headlessLandings each worker thread's HeadlessLanding
+		 */
+		LandingRange(int start, int end, AutopilotParameters [] candidates,
+				LandingScenario [] landings, ThreadLocal<HeadlessLanding> headlessLandings) {
+
+			this.start = start;
+			this.end = end;
+			this.candidates = candidates;
+			this.landings = landings;
+			this.headlessLandings = headlessLandings;
+
+		}
+
+		@Override
+		protected double [] compute() {
+
+			if (end - start > LANDINGS_PER_TASK) {
+
+				int middle = (start + end) >>> 1;
+				LandingRange second = new LandingRange(middle, end, candidates,
+					landings, headlessLandings);
+				second.fork();
+
+				double [] totals = new LandingRange(start, middle, candidates,
+					landings, headlessLandings).compute();
+				double [] secondTotals = second.join();
+
+				for (int i = 0; i < totals.length; i++) {
+					totals[i] += secondTotals[i];
+				}
+
+				return totals;
+
+			}
+
+			double [] totals = new double[candidates.length * 2];
+			HeadlessLanding headlessLanding = headlessLandings.get();
+
+			for (int pair = start; pair < end; pair++) {
+
+				int candidate = pair / landings.length;
+				LandingScenario landing = landings[pair % landings.length];
+
+				LandingOutcome outcome = headlessLanding.run(new LandingScenario(
+					landing.getFuel(), landing.getHeight(), landing.getxVelocity(),
+					candidates[candidate]));
+
+				if (outcome.isCrashed()) {
+
+					totals[candidate * 2]++;
+
+					// Rockets that never land count as the worst crash
+					double excess = outcome.isLanded()
+						? outcome.getLandingVelocity() / headlessLanding.getAcceptableLandingVelocity() - 1
+						: 1;
+					totals[candidate * 2 + 1] += Math.min(1, Math.max(0, excess));
+
+				}
+
+			}
+
+			return totals;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,172 @@
+package batch;
+
+/**
+ * The combined results of a batch of landings: how often the Rocket crashed,
+ * and how its landing velocity, landing angle, and fuel consumption were
+ * distributed. A batch flown with early exit only measures the crash rate,
+ * so its report leaves the distributions out.
+ */
+public class BatchReport {
+
+	private final LandingStatistics statistics;
+	private final double elapsedSeconds;
+	private final boolean crashRateOnly;
+
+	/**
+	 * Creates a BatchReport from a batch's totals.
+	 * @param statistics the totals of every landing in the batch
+	 * @param elapsedSeconds the wall-clock time the batch took, in seconds
+	 */
+	public BatchReport(LandingStatistics statistics, double elapsedSeconds) {
+		this(statistics, elapsedSeconds, false);
+	}
+
+	/**
+	 * Creates a BatchReport from a batch's totals, which may only measure
+	 * the crash rate.
+	 * @param statistics the totals of every landing in the batch
+	 * @param elapsedSeconds the wall-clock time the batch took, in seconds
+	 * @param crashRateOnly whether the batch was flown with early exit, so
+	 * only its crash rate is exact
+	 */
+	public BatchReport(LandingStatistics statistics, double elapsedSeconds,
+			boolean crashRateOnly) {
+
+		this.statistics = statistics;
+		this.elapsedSeconds = elapsedSeconds;
+		this.crashRateOnly = crashRateOnly;
+
+	}
+
+	/**
+	 * Returns whether the batch was flown with early exit, so only its crash
+	 * rate is exact. Its distributions leave out the landings ended early,
+	 * and aren't reported.
+	 * @return whether only the crash rate was measured
+	 */
+	public boolean isCrashRateOnly() {
+		return crashRateOnly;
+	}
+
+	/**
+	 * Gets the number of landings flown.
+	 * @return the number of runs
+	 */
+	public long getRuns() {
+		return statistics.getRuns();
+	}
+
+	/**
+	 * Gets the number of Rockets that reached the ground in time.
+	 * @return the number of landings
+	 */
+	public long getLandings() {
+		return statistics.getLandings();
+	}
+
+	/**
+	 * Gets the number of crashes, including Rockets that never landed.
+	 * @return the number of crashes
+	 */
+	public long getCrashes() {
+		return statistics.getCrashes();
+	}
+
+	/**
+	 * Gets the number of landings ended early because they were certain to
+	 * crash.
+	 * @return the number of landings ended early
+	 */
+	public long getEndedEarly() {
+		return statistics.getEndedEarly();
+	}
+
+	/**
+	 * Gets the fraction of runs that crashed.
+	 * @return the crash rate
+	 */
+	public double getCrashRate() {
+		return statistics.getCrashRate();
+	}
+
+	/**
+	 * Gets the half-width of the 95% confidence interval of the crash rate,
+	 * using the normal approximation.
+	 * @return the crash rate's margin of error
+	 */
+	public double getCrashRateMargin() {
+
+		double rate = getCrashRate();
+		return getRuns() > 0 ? 1.96 * Math.sqrt(rate * (1 - rate) / getRuns()) : Double.NaN;
+
+	}
+
+	/**
+	 * Gets the distribution of landing velocities.
+	 * @return the landing velocity summary
+	 */
+	public StreamingSummary getLandingVelocity() {
+		return statistics.getLandingVelocity();
+	}
+
+	/**
+	 * Gets the distribution of landing angles.
+	 * @return the landing angle summary, in degrees
+	 */
+	public StreamingSummary getLandingAngle() {
+		return statistics.getLandingAngle();
+	}
+
+	/**
+	 * Gets the distribution of the percentage of fuel consumed.
+	 * @return the fuel consumption summary, in percent
+	 */
+	public StreamingSummary getFuelConsumed() {
+		return statistics.getFuelConsumed();
+	}
+
+	/**
+	 * Gets the distribution of flight times.
+	 * @return the flight time summary, in seconds
+	 */
+	public StreamingSummary getFlightTime() {
+		return statistics.getFlightTime();
+	}
+
+	/**
+	 * Gets the wall-clock time the batch took.
+	 * @return the elapsed time, in seconds
+	 */
+	public double getElapsedSeconds() {
+		return elapsedSeconds;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder report = new StringBuilder();
+
+		if (isCrashRateOnly()) {
+
+			report.append(String.format("Runs:             %d (%d ended early, %.1f s)%n",
+				getRuns(), getEndedEarly(), getElapsedSeconds()));
+			report.append(String.format("Crash rate:       %.2f%% +/- %.2f%%%n",
+				getCrashRate() * 100, getCrashRateMargin() * 100));
+			return report.toString();
+
+		}
+
+		report.append(String.format("Runs:             %d (%d landed, %.1f s)%n",
+			getRuns(), getLandings(), getElapsedSeconds()));
+		report.append(String.format("Crash rate:       %.2f%% +/- %.2f%%%n",
+			getCrashRate() * 100, getCrashRateMargin() * 100));
+		report.append(String.format("Landing velocity: %s%n", getLandingVelocity()));
+		report.append(String.format("Landing angle:    %s%n", getLandingAngle()));
+		report.append(String.format("Fuel consumed %%:  %s%n", getFuelConsumed()));
+		report.append(String.format("Flight time (s):  %s%n", getFlightTime()));
+
+		return report.toString();
+
+	}
+
+}
@@ -0,0 +1,110 @@
+package batch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The entry point of a worker JVM started by ForkedBatchRunner. The batch's
+ * settings are given on the command line, with the same options as
+ * LandingBatch, and runs to fly are read from standard input.
+ *
+ * Each request is the index of the first run and the number of runs, as a
+ * long and an int. The worker answers with the same two numbers and a
+ * flag saying whether every run was flown. If they were, every run's
+ * outcome follows, written with {@link LandingOutcome#write}; if a landing
+ * threw, the error is sent in its place with writeUTF, and the worker goes
+ * on to the next request. The worker exits when its standard input is
+ * closed. Standard output is kept
+ * for answers, so anything printed goes to standard error.
+ */
+public class BatchWorker {
+
+	/**
+	 * Flies the runs asked for on standard input until it is closed.
+	 * @param args the batch's settings
+	 * @throws IOException if the coordinator can't be talked to
+	 */
+	public static void main(String [] args) throws IOException {
+
+		MonteCarloRunner runner = new MonteCarloRunner();
+		CommandLineOptions options = new CommandLineOptions(args);
+
+		options.requireKnown("fuel", "height", "speed", "seed", "max-time",
+			"early-exit", "validate-early-exit");
+
+		runner.setFuel(options.getDistribution("fuel", runner.getFuel()));
+		runner.setHeight(options.getDistribution("height", runner.getHeight()));
+		runner.setxVelocity(options.getDistribution("speed", runner.getxVelocity()));
+		runner.setSeed(options.getLong("seed", runner.getSeed()));
+
+		HeadlessLanding landing = new HeadlessLanding();
+		landing.setMaxFlightTime(options.getDouble("max-time", landing.getMaxFlightTime()));
+		landing.setEarlyExit(options.has("early-exit") || options.has("validate-early-exit"));
+		landing.setValidatingEarlyExit(options.has("validate-early-exit"));
+
+		DataInputStream requests = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+		DataOutputStream answers = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+		// Nothing else may write to the answers
+		System.setOut(System.err);
+
+		while (true) {
+
+			long firstRun;
+			int count;
+
+			try {
+
+				firstRun = requests.readLong();
+				count = requests.readInt();
+
+			} catch (EOFException e) {
+
+				// The coordinator is done
+				break;
+
+			}
+
+			answers.writeLong(firstRun);
+			answers.writeInt(count);
+
+			// The whole chunk is flown before answering, so a landing that
+			// throws part way leaves nothing half written
+			LandingOutcome [] outcomes = new LandingOutcome[count];
+
+			try {
+
+				for (int i = 0; i < count; i++) {
+					outcomes[i] = landing.run(runner.createScenario(firstRun + i));
+				}
+
+			} catch (RuntimeException e) {
+
+				answers.writeBoolean(false);
+				answers.writeUTF(String.valueOf(e));
+				answers.flush();
+				continue;
+
+			}
+
+			answers.writeBoolean(true);
+
+			for (LandingOutcome outcome : outcomes) {
+				outcome.write(answers);
+			}
+
+			answers.flush();
+
+		}
+
+	}
+
+}
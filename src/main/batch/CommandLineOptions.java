@@ -0,0 +1,245 @@
+package batch;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+ * Options given on the command line as <code>--name value</code> pairs, or
+ * as <code>--name</code> alone for flags.
+ */
+public class CommandLineOptions {
+
+	private final HashMap<String, String> values = new HashMap<String, String>();
+
+	/**
+	 * Parses the given command line arguments.
+	 * @param args the command line arguments
+	 * @throws IllegalArgumentException if an argument isn't an option
+	 */
+	public CommandLineOptions(String [] args) {
+
+		for (int i = 0; i < args.length; i++) {
+
+			if (!args[i].startsWith("--")) {
+				throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+			}
+
+			String name = args[i].substring(2);
+
+			// Options without a value are flags
+			if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+				values.put(name, args[++i]);
+			} else {
+				values.put(name, "true");
+			}
+
+		}
+
+	}
+
+	/**
+	 * Checks that every option given is one of the known options.
+	 * @param knownNames the names of the known options, without dashes
+	 * @throws IllegalArgumentException if an unknown option was given
+	 */
+	public void requireKnown(String... knownNames) {
+
+		for (String name : values.keySet()) {
+
+			boolean known = false;
+
+			for (String knownName : knownNames) {
+				known |= knownName.equals(name);
+			}
+
+			if (!known) {
+				throw new IllegalArgumentException("Unknown option: --" + name);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Returns whether the option was given.
+	 * @param name the option's name, without dashes
+	 * @return whether the option was given
+	 */
+	public boolean has(String name) {
+		return values.containsKey(name);
+	}
+
+	/**
+	 * Gets the value of an option as text.
+	 * @param name the option's name, without dashes
+	 * @param defaultValue the value to use if the option wasn't given
+	 * @return the option's value
+	 */
+	public String getString(String name, String defaultValue) {
+		return values.getOrDefault(name, defaultValue);
+	}
+
+	/**
+	 * Gets the value of an option as an integer.
+	 * @param name the option's name, without dashes
+	 * @param defaultValue the value to use if the option wasn't given
+	 * @return the option's value
+	 * @throws IllegalArgumentException if the value isn't an integer
+	 */
+	public int getInt(String name, int defaultValue) {
+
+		return has(name) ? (int) parseNumber(name, true) : defaultValue;
+
+	}
+
+	/**
+	 * Gets the value of an option as a long integer.
+	 * @param name the option's name, without dashes
+	 * @param defaultValue the value to use if the option wasn't given
+	 * @return the option's value
+	 * @throws IllegalArgumentException if the value isn't an integer
+	 */
+	public long getLong(String name, long defaultValue) {
+
+		return has(name) ? (long) parseNumber(name, true) : defaultValue;
+
+	}
+
+	/**
+	 * Gets the value of an option as a number.
+	 * @param name the option's name, without dashes
+	 * @param defaultValue the value to use if the option wasn't given
+	 * @return the option's value
+	 * @throws IllegalArgumentException if the value isn't a number
+	 */
+	public double getDouble(String name, double defaultValue) {
+
+		return has(name) ? parseNumber(name, false) : defaultValue;
+
+	}
+
+	/**
+	 * Gets the value of an option as a Distribution.
+	 * @param name the option's name, without dashes
+	 * @param defaultValue the value to use if the option wasn't given
+	 * @return the option's value
+	 * @throws IllegalArgumentException if the value isn't a Distribution
+	 */
+	public Distribution getDistribution(String name, Distribution defaultValue) {
+
+		return has(name) ? Distribution.parse(values.get(name)) : defaultValue;
+
+	}
+
+	/**
+	 * Gets the value of an option as a list of numbers. Lists are written
+	 * either as numbers separated by commas, like <code>5,10,15</code>, or
+	 * as <code>min:max:count</code> for count evenly spaced numbers from 
+	 * min to max.
+	 * @param name the option's name, without dashes
+	 * @param defaultValue the value to use if the option wasn't given
+	 * @return the option's value
+	 * @throws IllegalArgumentException if the value isn't a list of numbers
+	 */
+	public double [] getDoubleList(String name, double [] defaultValue) {
+
+		if (!has(name)) {
+			return defaultValue;
+		}
+
+		String value = values.get(name);
+
+		try {
+
+			String [] range = value.split(":");
+
+			if (range.length == 3) {
+
+				double min = Double.parseDouble(range[0]);
+				double max = Double.parseDouble(range[1]);
+				int count = Integer.parseInt(range[2]);
+
+				if (count <= 0) {
+					throw new IllegalArgumentException("--" + name + " needs a positive count");
+				}
+
+				double [] list = new double[count];
+				for (int i = 0; i < count; i++) {
+					list[i] = count == 1 ? min : min + (max - min) * i / (count - 1);
+				}
+				return list;
+
+			}
+
+			String [] parts = value.split(",");
+			double [] list = new double[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				list[i] = Double.parseDouble(parts[i].trim());
+			}
+			return list;
+
+		} catch (NumberFormatException e) {
+
+			throw new IllegalArgumentException("--" + name + " expects a list of numbers, got: " + value);
+
+		}
+
+	}
+
+	/**
+	 * Opens the OutcomeCache asked for with the <code>--cache FILE</code>
+	 * and <code>--cache-size N</code> options. With only a size, the cache
+	 * is kept in memory.
+	 * @return the cache, or null if neither option was given
+	 * @throws IllegalArgumentException if the size isn't a positive number
+	 * @throws IOException if the cache file can't be read
+	 */
+	public OutcomeCache getOutcomeCache() throws IOException {
+
+		if (!has("cache") && !has("cache-size")) {
+			return null;
+		}
+
+		int capacity = getInt("cache-size", OutcomeCache.DEFAULT_CAPACITY);
+
+		if (!has("cache")) {
+			return new OutcomeCache(capacity);
+		}
+
+		String file = values.get("cache");
+
+		try {
+
+			return new OutcomeCache(capacity, Paths.get(file));
+
+		} catch (IOException e) {
+
+			throw new IOException("Couldn't open outcome cache " + file + ": " + e.getMessage(), e);
+
+		}
+
+	}
+
+	/**
+	 * Parses the value of an option as a number.
+	 * @param name the option's name, without dashes
+	 * @param integer whether the number must be an integer
+	 * @return the parsed number
+	 */
+	private double parseNumber(String name, boolean integer) {
+
+		String value = values.get(name);
+
+		try {
+
+			return integer ? Long.parseLong(value) : Double.parseDouble(value);
+
+		} catch (NumberFormatException e) {
+
+			throw new IllegalArgumentException("--" + name + " expects a number, got: " + value);
+
+		}
+
+	}
+
+}
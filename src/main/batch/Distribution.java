@@ -0,0 +1,147 @@
+package batch;
+import java.util.SplittableRandom;
+
+/**
+ * A probability distribution that initial conditions for batch landings are
+ * drawn from. Distributions are written as text on the command line:
+ * <ul>
+ * <li><code>5</code> always gives 5</li>
+ * <li><code>uniform:a:b</code> is uniform between a and b</li>
+ * <li><code>normal:mean:deviation</code> is normal with the given mean and
+ * standard deviation</li>
+ * </ul>
+ */
+public abstract class Distribution {
+
+	private final String text;
+
+	/**
+	 * Creates a Distribution described by the given text.
+	 * @param text the text the Distribution was parsed from
+	 */
+	protected Distribution(String text) {
+
+		this.text = text;
+
+	}
+
+	/**
+	 * Draws a value from the Distribution.
+	 * @param random the source of randomness to draw with
+	 * @return the drawn value
+	 */
+	public abstract double sample(SplittableRandom random);
+
+	/**
+	 * Parses a Distribution from its text form.
+	 * @param text the Distribution's text form
+	 * @return the parsed Distribution
+	 * @throws IllegalArgumentException if the text isn't a valid Distribution
+	 */
+	public static Distribution parse(String text) {
+
+		String [] parts = text.trim().split(":");
+
+		try {
+
+			if (parts.length == 1) {
+
+				double value = Double.parseDouble(parts[0]);
+				return constant(value);
+
+			} else if (parts.length == 3 && parts[0].equalsIgnoreCase("uniform")) {
+
+				return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+
+			} else if (parts.length == 3 && parts[0].equalsIgnoreCase("normal")) {
+
+				return normal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+
+			}
+
+		} catch (NumberFormatException e) {
+
+			throw new IllegalArgumentException("Invalid number in distribution: " + text, e);
+
+		}
+
+		throw new IllegalArgumentException("Unknown distribution: " + text);
+
+	}
+
+	/**
+	 * Creates a Distribution that always gives the same value.
+	 * @param value the value to give
+	 * @return the constant Distribution
+	 */
+	public static Distribution constant(double value) {
+
+		return new Distribution(Double.toString(value)) {
+
+			@Override
+			public double sample(SplittableRandom random) {
+				return value;
+			}
+
+		};
+
+	}
+
+	/**
+	 * Creates a Distribution that is uniform between two values.
+	 * @param min the lowest value
+	 * @param max the highest value
+	 * @return the uniform Distribution
+	 */
+	public static Distribution uniform(double min, double max) {
+
+		if (max < min) {
+			throw new IllegalArgumentException("Uniform distribution has max < min");
+		}
+
+		return new Distribution("uniform:" + min + ":" + max) {
+
+			@Override
+			public double sample(SplittableRandom random) {
+				return min + random.nextDouble() * (max - min);
+			}
+
+		};
+
+	}
+
+	/**
+	 * Creates a normal Distribution.
+	 * @param mean the mean of the Distribution
+	 * @param deviation the standard deviation of the Distribution
+	 * @return the normal Distribution
+	 */
+	public static Distribution normal(double mean, double deviation) {
+
+		if (deviation < 0) {
+			throw new IllegalArgumentException("Normal distribution has a negative deviation");
+		}
+
+		return new Distribution("normal:" + mean + ":" + deviation) {
+
+			@Override
+			public double sample(SplittableRandom random) {
+
+				// Box-Muller transform
+				double u1 = 1 - random.nextDouble();
+				double u2 = random.nextDouble();
+				return mean + deviation *
+						Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+
+			}
+
+		};
+
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
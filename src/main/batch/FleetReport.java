@@ -0,0 +1,144 @@
+package batch;
+
+/**
+ * The results of running a fleet of real-time simulations: how far behind
+ * their clocks the simulations' ticks ran.
+ *
+ * A tick's lag is how long after its scheduled time it actually ran. A
+ * tick is late when its lag is more than one tick period, meaning the
+ * simulation had already missed its next deadline.
+ */
+public class FleetReport {
+
+	private final int simulations;
+	private final String executor;
+	private final double elapsedSeconds;
+	private final long ticks;
+	private final long lateTicks;
+	private final long landings;
+	private final SampleSummary meanLag;
+	private final SampleSummary maxLag;
+
+	/**
+	 * Creates a FleetReport.
+	 * @param executor a description of the threads the simulations ran on
+	 * @param elapsedSeconds the wall-clock time the fleet ran for, in seconds
+	 * @param ticks the number of ticks each simulation ran
+	 * @param lateTicks the number of late ticks in each simulation
+	 * @param landings the number of landings each simulation finished
+	 * @param meanLags each simulation's mean tick lag, in milliseconds
+	 * @param maxLags each simulation's largest tick lag, in milliseconds
+	 */
+	public FleetReport(String executor, double elapsedSeconds, long [] ticks,
+			long [] lateTicks, long [] landings, double [] meanLags, double [] maxLags) {
+
+		this.simulations = ticks.length;
+		this.executor = executor;
+		this.elapsedSeconds = elapsedSeconds;
+		this.ticks = sum(ticks);
+		this.lateTicks = sum(lateTicks);
+		this.landings = sum(landings);
+		this.meanLag = new SampleSummary(meanLags);
+		this.maxLag = new SampleSummary(maxLags);
+
+	}
+
+	/**
+	 * Gets the number of simulations in the fleet.
+	 * @return the number of simulations
+	 */
+	public int getSimulations() {
+		return simulations;
+	}
+
+	/**
+	 * Gets a description of the threads the simulations ran on.
+	 * @return the executor description
+	 */
+	public String getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Gets the wall-clock time the fleet ran for.
+	 * @return the elapsed time, in seconds
+	 */
+	public double getElapsedSeconds() {
+		return elapsedSeconds;
+	}
+
+	/**
+	 * Gets the number of ticks run across all simulations.
+	 * @return the total ticks
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Gets the fraction of ticks that ran more than a tick period late.
+	 * @return the late tick rate
+	 */
+	public double getLateTickRate() {
+		return ticks > 0 ? (double) lateTicks / ticks : Double.NaN;
+	}
+
+	/**
+	 * Gets the number of landings finished across all simulations.
+	 * @return the total landings
+	 */
+	public long getLandings() {
+		return landings;
+	}
+
+	/**
+	 * Gets the distribution of the simulations' mean tick lag.
+	 * @return the mean lag summary, in milliseconds
+	 */
+	public SampleSummary getMeanLag() {
+		return meanLag;
+	}
+
+	/**
+	 * Gets the distribution of the simulations' largest tick lag.
+	 * @return the max lag summary, in milliseconds
+	 */
+	public SampleSummary getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * Adds up a count from every simulation.
+	 * @param counts each simulation's count
+	 * @return the total
+	 */
+	private static long sum(long [] counts) {
+
+		long total = 0;
+
+		for (long count : counts) {
+			total += count;
+		}
+
+		return total;
+
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder report = new StringBuilder();
+
+		report.append(String.format("Simulations:      %d on %s (%.1f s)%n",
+			getSimulations(), getExecutor(), getElapsedSeconds()));
+		report.append(String.format("Ticks:            %d (%.2f%% late)%n",
+			getTicks(), getLateTickRate() * 100));
+		report.append(String.format("Landings:         %d%n", getLandings()));
+		report.append(String.format("Mean lag (ms):    %s%n", getMeanLag()));
+		report.append(String.format("Max lag (ms):     %s%n", getMaxLag()));
+
+		return report.toString();
+
+	}
+
+}
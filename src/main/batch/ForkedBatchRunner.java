@@ -0,0 +1,554 @@
+package batch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flies a batch of landings on worker JVMs forked on this machine, instead
+ * of on threads in this one. Each worker has its own small heap, so no
+ * worker's garbage collection holds up the others, and a worker that dies
+ * only loses the runs it was flying.
+ *
+ * The batch's distributions, seed, and settings come from a
+ * MonteCarloRunner, and are passed to each BatchWorker on its command line.
+ * Runs are handed out in chunks over the workers' standard input, and the
+ * outcomes come back over their standard output. When a worker dies, it is
+ * replaced and its chunk is flown again, up to {@link #MAX_ATTEMPTS} times;
+ * a chunk that kills every worker it is given to is left out of the batch.
+ * A landing that throws on a worker isn't retried, since it would throw
+ * again, and fails the whole batch instead.
+ *
+ * Outcomes are added to the totals and the results store in the order of
+ * the runs, so a batch flies the same landings and gives the same report
+ * as a single-threaded MonteCarloRunner with the same seed.
+ */
+public class ForkedBatchRunner {
+
+	/**
+	 * The most times a chunk is handed to a worker before it is given up on.
+	 */
+	public static final int MAX_ATTEMPTS = 3;
+
+	// Runs are handed to workers in chunks, several per worker, so workers
+	// that finish early can take more work
+	private static final int CHUNKS_PER_PROCESS = 8;
+
+	// Chunks are capped so the outcomes waiting to be added in order stay
+	// small
+	private static final int MAX_CHUNK_SIZE = 10_000;
+
+	// How long a worker gets to exit once its input is closed
+	private static final long EXIT_TIMEOUT = 5; // seconds
+
+	private final MonteCarloRunner scenarios;
+
+	private int processes = Runtime.getRuntime().availableProcessors();
+	private String workerHeap = "256m";
+
+	private volatile LandingStatistics progress = new LandingStatistics();
+	private volatile boolean stopping;
+	private long failedRuns;
+	private final AtomicInteger workerRestarts = new AtomicInteger();
+
+	/**
+	 * Creates a ForkedBatchRunner that flies the landings the given runner
+	 * would.
+	 * @param scenarios the runner whose distributions, seed, and settings
+	 * are used
+	 */
+	public ForkedBatchRunner(MonteCarloRunner scenarios) {
+		this.scenarios = scenarios;
+	}
+
+	/**
+	 * Gets the runner whose distributions, seed, and settings are used.
+	 * @return the scenario runner
+	 */
+	public MonteCarloRunner getScenarios() {
+		return scenarios;
+	}
+
+	/**
+	 * Gets the number of worker JVMs.
+	 * @return the process count
+	 */
+	public int getProcesses() {
+		return processes;
+	}
+
+	/**
+	 * Sets the number of worker JVMs.
+	 * @param processes the new process count
+	 */
+	public void setProcesses(int processes) {
+
+		if (processes <= 0) {
+			throw new IllegalArgumentException("Process count must be positive");
+		}
+
+		this.processes = processes;
+
+	}
+
+	/**
+	 * Gets the maximum heap of each worker JVM.
+	 * @return the heap size, as given to -Xmx
+	 */
+	public String getWorkerHeap() {
+		return workerHeap;
+	}
+
+	/**
+	 * Sets the maximum heap of each worker JVM.
+	 * @param workerHeap the new heap size, as given to -Xmx, like 256m
+	 */
+	public void setWorkerHeap(String workerHeap) {
+
+		if (!workerHeap.matches("\\d+[kKmMgG]?")) {
+			throw new IllegalArgumentException("Worker heap must be a size like 256m: " + workerHeap);
+		}
+
+		this.workerHeap = workerHeap;
+
+	}
+
+	/**
+	 * Gets the totals of the landings added so far by the batch that is
+	 * running, or the last batch that ran. Can be called from any thread.
+	 * @return the totals so far
+	 */
+	public LandingStatistics getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Gets the number of runs the last batch left out because every worker
+	 * flying them died.
+	 * @return the failed run count
+	 */
+	public long getFailedRuns() {
+		return failedRuns;
+	}
+
+	/**
+	 * Gets the number of workers the last batch had to replace.
+	 * @return the restart count
+	 */
+	public int getWorkerRestarts() {
+		return workerRestarts.get();
+	}
+
+	/**
+	 * Flies the given number of landings on the worker JVMs, summarizes
+	 * them, and appends every landing to a results store in the order of
+	 * the runs.
+	 * @param runs the number of landings to fly
+	 * @param results the store to append landings to, or null
+	 * @return the batch's results, without any failed runs
+	 * @throws InterruptedException if the calling thread is interrupted
+	 * while waiting for the landings
+	 * @throws IOException if the landings can't be written to the store
+	 * @throws IllegalStateException if a landing threw on a worker
+	 */
+	public BatchReport run(int runs, ResultStoreWriter results)
+			throws InterruptedException, IOException {
+
+		if (runs <= 0) {
+			throw new IllegalArgumentException("Run count must be positive");
+		}
+
+		if (results != null && scenarios.isCrashRateOnly()) {
+			throw new IllegalArgumentException("Landings ended early can't be written to a results store");
+		}
+
+		long startTime = System.nanoTime();
+
+		int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE,
+			runs / (getProcesses() * CHUNKS_PER_PROCESS)));
+		int chunkCount = (runs + chunkSize - 1) / chunkSize;
+
+		ConcurrentLinkedQueue<Chunk> pending = new ConcurrentLinkedQueue<Chunk>();
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+
+			long firstRun = (long) chunk * chunkSize;
+			pending.add(new Chunk(chunk, firstRun, (int) Math.min(chunkSize, runs - firstRun)));
+
+		}
+
+		LinkedBlockingQueue<Chunk> finished = new LinkedBlockingQueue<Chunk>();
+		Set<Process> liveWorkers = ConcurrentHashMap.newKeySet();
+		ArrayList<Thread> connections = new ArrayList<Thread>();
+
+		LandingStatistics statistics = new LandingStatistics();
+		progress = new LandingStatistics();
+		failedRuns = 0;
+		workerRestarts.set(0);
+		stopping = false;
+
+		try {
+
+			for (int i = 0; i < getProcesses(); i++) {
+
+				Thread connection = new Thread(() -> serve(pending, finished, liveWorkers),
+					"Batch worker " + i);
+				connection.setDaemon(true);
+				connection.start();
+				connections.add(connection);
+
+			}
+
+			// Chunks finish in any order, but are added in order
+			TreeMap<Integer, Chunk> waiting = new TreeMap<Integer, Chunk>();
+			int nextChunk = 0;
+
+			while (nextChunk < chunkCount) {
+
+				Chunk chunk = finished.take();
+
+				if (chunk.error != null) {
+					throw new IllegalStateException(String.format("A landing failed on a worker flying runs %d to %d: %s",
+						chunk.firstRun, chunk.firstRun + chunk.count - 1, chunk.error));
+				}
+
+				waiting.put(chunk.index, chunk);
+
+				while (!waiting.isEmpty() && waiting.firstKey() == nextChunk) {
+
+					chunk = waiting.pollFirstEntry().getValue();
+
+					if (chunk.outcomes == null) {
+
+						failedRuns += chunk.count;
+
+					} else {
+
+						for (int i = 0; i < chunk.count; i++) {
+
+							statistics.add(chunk.outcomes[i]);
+
+							if (results != null) {
+								results.append(scenarios.createScenario(chunk.firstRun + i),
+									chunk.outcomes[i]);
+							}
+
+						}
+
+					}
+
+					progress = statistics.copy();
+					nextChunk++;
+
+				}
+
+			}
+
+		} finally {
+
+			// Workers whose input is closed exit on their own; any still
+			// running were cut off part way
+			stopping = true;
+
+			for (Process worker : liveWorkers) {
+				worker.destroyForcibly();
+			}
+
+			for (Thread connection : connections) {
+				connection.interrupt();
+			}
+
+		}
+
+		if (results != null) {
+			results.flush();
+		}
+
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+		return new BatchReport(statistics, elapsedSeconds, scenarios.isCrashRateOnly());
+
+	}
+
+	/**
+	 * Runs one worker JVM at a time, handing it chunks until there are none
+	 * left, and replacing it whenever it dies. Stops at the first chunk
+	 * whose landings threw, since the batch fails on it.
+	 * @param pending the chunks not yet flown
+	 * @param finished the chunks flown or given up on
+	 * @param liveWorkers every running worker, so they can be stopped
+	 */
+	private void serve(ConcurrentLinkedQueue<Chunk> pending,
+			LinkedBlockingQueue<Chunk> finished, Set<Process> liveWorkers) {
+
+		Worker worker = null;
+		Chunk chunk;
+
+		try {
+
+			while ((chunk = pending.poll()) != null) {
+
+				try {
+
+					if (worker == null) {
+						worker = startWorker();
+						liveWorkers.add(worker.process);
+					}
+
+					chunk.outcomes = worker.fly(chunk);
+
+				} catch (LandingFailure e) {
+
+					chunk.error = e.getMessage();
+					finished.add(chunk);
+					return;
+
+				} catch (IOException e) {
+
+					if (stopping) {
+						return;
+					}
+
+					String reason = describeFailure(worker, e);
+
+					if (worker != null) {
+
+						worker.process.destroyForcibly();
+						liveWorkers.remove(worker.process);
+						worker = null;
+						workerRestarts.incrementAndGet();
+
+					}
+
+					chunk.attempts++;
+
+					if (chunk.attempts < MAX_ATTEMPTS) {
+
+						System.err.printf("Worker died flying runs %d to %d (%s), retrying%n",
+							chunk.firstRun, chunk.firstRun + chunk.count - 1, reason);
+
+						// This thread picks it up again if no other one does
+						pending.add(chunk);
+						continue;
+
+					}
+
+					System.err.printf("Worker died flying runs %d to %d (%s), giving up after %d attempts%n",
+						chunk.firstRun, chunk.firstRun + chunk.count - 1, reason,
+						chunk.attempts);
+
+				}
+
+				finished.add(chunk);
+
+			}
+
+		} finally {
+
+			if (worker != null) {
+				worker.stop();
+				liveWorkers.remove(worker.process);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Describes why a worker failed: its exit code if it has exited, or
+	 * else the error talking to it.
+	 * @param worker the worker that failed, or null if it didn't start
+	 * @param error the error talking to it
+	 * @return the reason
+	 */
+	private static String describeFailure(Worker worker, IOException error) {
+
+		try {
+
+			if (worker != null && worker.process.waitFor(1, TimeUnit.SECONDS)) {
+				return "exit code " + worker.process.exitValue();
+			}
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+		}
+
+		return error.getMessage() != null ? error.getMessage() : error.toString();
+
+	}
+
+	/**
+	 * Starts a worker JVM with the batch's settings, on the same classpath
+	 * as this one.
+	 * @return the connection to the worker
+	 * @throws IOException if the JVM can't be started
+	 */
+	private Worker startWorker() throws IOException {
+
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-Xmx" + getWorkerHeap());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BatchWorker.class.getName());
+
+		command.add("--fuel");
+		command.add(scenarios.getFuel().toString());
+		command.add("--height");
+		command.add(scenarios.getHeight().toString());
+		command.add("--speed");
+		command.add(scenarios.getxVelocity().toString());
+		command.add("--seed");
+		command.add(Long.toString(scenarios.getSeed()));
+		command.add("--max-time");
+		command.add(Double.toString(scenarios.getMaxFlightTime()));
+
+		if (scenarios.isEarlyExit()) {
+			command.add("--early-exit");
+		}
+
+		if (scenarios.isValidatingEarlyExit()) {
+			command.add("--validate-early-exit");
+		}
+
+		Process process = new ProcessBuilder(command)
+			.redirectError(ProcessBuilder.Redirect.INHERIT)
+			.start();
+
+		return new Worker(process);
+
+	}
+
+	/**
+	 * A range of runs, and their outcomes once flown, or the error a
+	 * landing threw.
+	 */
+	private static class Chunk {
+
+		private final int index;
+		private final long firstRun;
+		private final int count;
+		private int attempts;
+		private LandingOutcome [] outcomes;
+		private String error;
+
+		/**
+		 * Creates a Chunk.
+		 * @param index the chunk's place in the batch
+		 * @param firstRun the index of the chunk's first run
+		 * @param count the number of runs in the chunk
+		 */
+		Chunk(int index, long firstRun, int count) {
+
+			this.index = index;
+			this.firstRun = firstRun;
+			this.count = count;
+
+		}
+
+	}
+
+	/**
+	 * A running worker JVM and the pipes to it.
+	 */
+	private static class Worker {
+
+		private final Process process;
+		private final DataOutputStream requests;
+		private final DataInputStream answers;
+
+		/**
+		 * Connects to a started worker.
+		 * @param process the worker's process
+		 */
+		Worker(Process process) {
+
+			this.process = process;
+			this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			this.answers = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+
+		}
+
+		/**
+		 * Has the worker fly a chunk, and waits for the outcomes.
+		 * @param chunk the chunk to fly
+		 * @return the outcomes, in the order of the runs
+		 * @throws LandingFailure if a landing threw on the worker
+		 * @throws IOException if the worker dies or answers wrongly
+		 */
+		LandingOutcome [] fly(Chunk chunk) throws LandingFailure, IOException {
+
+			requests.writeLong(chunk.firstRun);
+			requests.writeInt(chunk.count);
+			requests.flush();
+
+			if (answers.readLong() != chunk.firstRun || answers.readInt() != chunk.count) {
+				throw new IOException("worker answered for the wrong runs");
+			}
+
+			if (!answers.readBoolean()) {
+				throw new LandingFailure(answers.readUTF());
+			}
+
+			LandingOutcome [] outcomes = new LandingOutcome[chunk.count];
+			for (int i = 0; i < chunk.count; i++) {
+				outcomes[i] = LandingOutcome.read(answers);
+			}
+
+			return outcomes;
+
+		}
+
+		/**
+		 * Closes the worker's input so it exits, and makes sure it has.
+		 */
+		void stop() {
+
+			try {
+
+				requests.close();
+
+				if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+
+			} catch (IOException | InterruptedException e) {
+
+				process.destroyForcibly();
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Thrown when a worker answers that one of its landings threw. The
+	 * worker is still running and can be given more chunks.
+	 */
+	private static class LandingFailure extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Creates a LandingFailure.
+		 * @param message the error the landing threw
+		 */
+		LandingFailure(String message) {
+			super(message);
+		}
+
+	}
+
+}
@@ -0,0 +1,439 @@
+package batch;
+import rocket.Rocket;
+import rocket.RocketEngine;
+import simulation.ColorPalette;
+import simulation.World;
+import util.Vector2D;
+
+/**
+ * Flies a single automatic landing without drawing anything. The World and
+ * Rocket are set up the same way as when "Automatic Landing" is chosen in
+ * the simulator, and the World is ticked at the simulator's tick rate until
+ * the Rocket touches the ground.
+ *
+ * The World and Rocket are created once and reset before every landing, so
+ * a HeadlessLanding can fly many landings cheaply. A HeadlessLanding must
+ * only be used by one thread at a time.
+ *
+ * Once the Rocket is out of fuel the autopilot can't change its path, so
+ * the rest of the flight is coasted: only the Rocket's motion and the
+ * ground check are run, which gives exactly the same result.
+ *
+ * With early exit on, a landing is also ended as soon as it is certain to
+ * crash, which is only for batches that want nothing but the crash rate.
+ * A crash is certain when the Rocket couldn't turn to within the landing
+ * angle margin at its turn rate before the max flight time, or when the
+ * least speed it could touch down at is over the acceptable landing
+ * velocity: the autopilot never turns the Rocket, so its horizontal speed
+ * can only change by the little thrust that points sideways while fuel
+ * lasts. Only the crash flag of such a landing is known, and its other
+ * values are NaN; see {@link LandingOutcome#isEndedEarly()}. With
+ * validation on, every landing ended early is flown to the end anyway and
+ * checked, and its real outcome is returned.
+ *
+ * With an OutcomeCache set, landings already in the cache aren't flown
+ * again.
+ */
+public class HeadlessLanding {
+
+	/**
+	 * The version of the simulation, part of every OutcomeCache key. Bump it
+	 * whenever a change to the World, the Rocket, or the autopilot could
+	 * change the outcome of a landing, so cached outcomes aren't reused.
+	 */
+	public static final int SIMULATION_VERSION = 2;
+
+	private double timeStep = 1.0 / 60; // seconds
+	private double maxFlightTime = 300; // seconds
+
+	// Landings whose least landing speed is within this of the acceptable
+	// speed are flown out, so rounding can't change a result
+	private static final double EARLY_EXIT_MARGIN = 1e-6;
+
+	private boolean earlyExit = false;
+	private boolean validatingEarlyExit = false;
+
+	private OutcomeCache outcomeCache;
+
+	private World world;
+	private Rocket rocket;
+
+	// The landing in progress
+	private LandingScenario scenario;
+	private double flightTime;
+	private double touchdownAngle;
+
+	/**
+	 * Gets the simulated time between ticks.
+	 * @return the time step, in seconds
+	 */
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * Sets the simulated time between ticks.
+	 * @param timeStep the new time step, in seconds
+	 */
+	public void setTimeStep(double timeStep) {
+
+		if (timeStep <= 0) {
+			throw new IllegalArgumentException("Time step must be positive");
+		}
+
+		this.timeStep = timeStep;
+
+	}
+
+	/**
+	 * Gets the longest simulated time a landing may take. Rockets still in
+	 * the air after this long count as crashed, so a Rocket hovering forever
+	 * can't stall a batch.
+	 * @return the maximum flight time, in seconds
+	 */
+	public double getMaxFlightTime() {
+		return maxFlightTime;
+	}
+
+	/**
+	 * Sets the longest simulated time a landing may take.
+	 * @param maxFlightTime the new maximum flight time, in seconds
+	 */
+	public void setMaxFlightTime(double maxFlightTime) {
+
+		if (maxFlightTime <= 0) {
+			throw new IllegalArgumentException("Max flight time must be positive");
+		}
+
+		this.maxFlightTime = maxFlightTime;
+
+	}
+
+	/**
+	 * Checks whether landings that are certain to crash are ended early.
+	 * @return true if early exit is on
+	 */
+	public boolean isEarlyExit() {
+		return earlyExit;
+	}
+
+	/**
+	 * Sets whether landings that are certain to crash are ended early.
+	 * @param earlyExit true to end certain crashes early
+	 */
+	public void setEarlyExit(boolean earlyExit) {
+		this.earlyExit = earlyExit;
+	}
+
+	/**
+	 * Checks whether landings that would be ended early are flown to the
+	 * end anyway, to check that they really crash.
+	 * @return true if early exits are validated
+	 */
+	public boolean isValidatingEarlyExit() {
+		return validatingEarlyExit;
+	}
+
+	/**
+	 * Sets whether landings that would be ended early are flown to the end
+	 * anyway, to check that they really crash. A landing that doesn't crash
+	 * throws an IllegalStateException. Outcomes are those of the full
+	 * flights.
+	 * @param validatingEarlyExit true to validate early exits
+	 */
+	public void setValidatingEarlyExit(boolean validatingEarlyExit) {
+		this.validatingEarlyExit = validatingEarlyExit;
+	}
+
+	/**
+	 * Gets the cache landings are looked up in before they are flown.
+	 * @return the outcome cache, or null if there is none
+	 */
+	public OutcomeCache getOutcomeCache() {
+		return outcomeCache;
+	}
+
+	/**
+	 * Sets the cache landings are looked up in before they are flown, and
+	 * added to after. The cache may be shared between HeadlessLandings.
+	 * @param outcomeCache the new outcome cache, or null for none
+	 */
+	public void setOutcomeCache(OutcomeCache outcomeCache) {
+		this.outcomeCache = outcomeCache;
+	}
+
+	/**
+	 * Gets the fastest the Rocket may touch the ground without crashing.
+	 * @return the acceptable landing velocity
+	 */
+	public double getAcceptableLandingVelocity() {
+
+		if (world == null) {
+			createWorld();
+		}
+
+		return rocket.getAcceptableLandingVelocity();
+
+	}
+
+	/**
+	 * Creates the World and the Rocket that every landing is flown in.
+	 */
+	private void createWorld() {
+
+		world = new World(World.DEFAULT_WINDOW_WIDTH, World.DEFAULT_WINDOW_HEIGHT,
+			ColorPalette.EARTH);
+
+		rocket = new Rocket(World.DEFAULT_WINDOW_WIDTH / 2, 0, 0, world.getGroundY());
+		rocket.setAcceleration(new Vector2D(0.0, world.getGravity()));
+		rocket.setParticleEffectsEnabled(false);
+
+		world.getObjects().add(rocket);
+		world.setPrimaryRocket(rocket);
+
+	}
+
+	/**
+	 * Flies a landing from the given initial conditions, or gets its
+	 * outcome from the OutcomeCache if it was flown before.
+	 * @param scenario the initial conditions of the landing
+	 * @return the result of the landing
+	 */
+	public LandingOutcome run(LandingScenario scenario) {
+
+		if (outcomeCache == null) {
+			return fly(scenario);
+		}
+
+		// Validated landings have the same outcomes as ones without early exit
+		OutcomeCache.Key key = OutcomeCache.createKey(scenario, getTimeStep(),
+			getMaxFlightTime(), earlyExit && !validatingEarlyExit);
+
+		LandingOutcome outcome = outcomeCache.get(key);
+
+		if (outcome == null) {
+			outcome = fly(scenario);
+			outcomeCache.put(key, outcome);
+		}
+
+		return outcome;
+
+	}
+
+	/**
+	 * Flies a landing from the given initial conditions.
+	 * @param scenario the initial conditions of the landing
+	 * @return the result of the landing
+	 */
+	private LandingOutcome fly(LandingScenario scenario) {
+
+		start(scenario);
+
+		while (isFlying()) {
+
+			if (earlyExit && isCertainCrash()) {
+				return endEarly();
+			}
+
+			if (rocket.getFuel() <= 0) {
+				coast();
+				break;
+			}
+
+			step();
+
+		}
+
+		return getOutcome();
+
+	}
+
+	/**
+	 * Puts the Rocket in the air with the given initial conditions, ready to
+	 * be flown one tick at a time with {@link #step()}.
+	 * @param scenario the initial conditions of the landing
+	 */
+	public void start(LandingScenario scenario) {
+
+		if (world == null) {
+			createWorld();
+		}
+
+		rocket.resetFlight(World.DEFAULT_WINDOW_WIDTH / 2,
+			world.getGroundY() - scenario.getHeight(),
+			scenario.getFuel());
+		rocket.getVelocity().setX(scenario.getxVelocity());
+		rocket.setAutopilotParameters(scenario.getAutopilot());
+
+		this.scenario = scenario;
+		this.flightTime = 0;
+		this.touchdownAngle = rocket.getDirection();
+
+	}
+
+	/**
+	 * Checks whether the landing in progress still has ticks left to fly.
+	 * @return true if the Rocket is airborne and the max flight time hasn't
+	 * passed
+	 */
+	public boolean isFlying() {
+		return rocket.isAirborne() && flightTime < getMaxFlightTime();
+	}
+
+	/**
+	 * Flies one tick of the landing in progress.
+	 */
+	public void step() {
+
+		// The World stops the Rocket at the start of the tick it touches
+		// the ground in, so this is the angle it lands at
+		touchdownAngle = rocket.getDirection();
+
+		world.tick(getTimeStep());
+		flightTime += getTimeStep();
+
+	}
+
+	/**
+	 * Gets the result of the landing in progress, as it stands.
+	 * @return the result of the landing
+	 */
+	public LandingOutcome getOutcome() {
+
+		boolean landed = !rocket.isAirborne();
+		boolean crashed = !landed ||
+			!(rocket.isLandingVelocityAcceptable() && rocket.isLandingAngleAcceptable());
+
+		double fuelConsumedProportion = scenario.getFuel() > 0 ?
+			(scenario.getFuel() - rocket.getFuel()) / scenario.getFuel() : 0;
+
+		return new LandingOutcome(landed, crashed,
+			landed ? rocket.getLandingVelocity() : rocket.getVelocity().getMagnitude(),
+			touchdownAngle, fuelConsumedProportion, flightTime);
+
+	}
+
+	/**
+	 * Flies the rest of a landing with no fuel left. Without fuel, the
+	 * autopilot's thrust has no effect, so only the World's ground check and
+	 * the Rocket's motion are run, in the same order as a full tick.
+	 */
+	private void coast() {
+
+		while (isFlying()) {
+
+			touchdownAngle = rocket.getDirection();
+
+			if (world.rocketTouchingGround(rocket)) {
+				rocket.stop();
+			} else {
+				rocket.applyForces(getTimeStep());
+			}
+
+			flightTime += getTimeStep();
+
+		}
+
+	}
+
+	/**
+	 * Checks whether the landing in progress is certain to crash, whatever
+	 * the autopilot does from now on.
+	 * @return true if the landing will crash
+	 */
+	private boolean isCertainCrash() {
+
+		// Direction changes by at most the turn rate, and a Rocket still in
+		// the air at the max flight time crashes anyway
+		double angleToRecover = Math.abs(rocket.getDirection() - 90) -
+			rocket.getLandingAngleMargin();
+		double timeLeft = getMaxFlightTime() - flightTime + getTimeStep();
+
+		if (angleToRecover >= rocket.getTurnRate() * timeLeft + EARLY_EXIT_MARGIN) {
+			return true;
+		}
+
+		return getLeastLandingVelocity() >=
+			rocket.getAcceptableLandingVelocity() + EARLY_EXIT_MARGIN;
+
+	}
+
+	/**
+	 * Gets the least speed the Rocket could touch the ground at. The
+	 * autopilot never turns the Rocket, and never gives an engine more than
+	 * Rocket.MAX_AUTOPILOT_THRUST, so horizontal speed can change by at most
+	 * the sideways part of that thrust over the ticks the fuel lasts. Once
+	 * the fuel is gone, a falling Rocket only speeds up.
+	 * @return the least landing velocity
+	 */
+	private double getLeastLandingVelocity() {
+
+		double xVelocity = rocket.getVelocity().getX();
+		double yVelocity = rocket.getVelocity().getY();
+		double fuel = rocket.getFuel();
+
+		if (rocket.getAcceleration().getX() != 0) {
+			return 0;
+		}
+
+		double leastVelocity = Math.abs(xVelocity);
+
+		if (fuel > 0) {
+
+			double leastBurnRate = Double.POSITIVE_INFINITY;
+			for (RocketEngine engine : rocket.getEngines()) {
+				leastBurnRate = Math.min(leastBurnRate, engine.getFuelBurnRate());
+			}
+
+			if (!(leastBurnRate > 0)) {
+				return 0;
+			}
+
+			// Thrust is applied while fuel is above 0 at the start of a tick,
+			// and every tick with thrust burns at least one engine's fuel
+			double burningTicks = Math.ceil(fuel / (leastBurnRate * getTimeStep())) + 1;
+			double sidewaysThrust = Math.abs(Math.cos(Math.toRadians(rocket.getDirection()))) *
+				Rocket.MAX_AUTOPILOT_THRUST * rocket.getEngines().length;
+
+			leastVelocity -= burningTicks * sidewaysThrust * getTimeStep();
+
+		} else if (rocket.getAcceleration().getY() >= 0 && yVelocity > 0) {
+
+			leastVelocity = Math.hypot(xVelocity, yVelocity);
+
+		}
+
+		return leastVelocity;
+
+	}
+
+	/**
+	 * Ends a landing that is certain to crash. Only its crash flag is known,
+	 * so nothing else is made up. When validating, the landing is flown to
+	 * the end and its real outcome is returned instead.
+	 * @return the landing's outcome
+	 */
+	private LandingOutcome endEarly() {
+
+		if (validatingEarlyExit) {
+
+			while (isFlying()) {
+				step();
+			}
+
+			LandingOutcome outcome = getOutcome();
+
+			if (!outcome.isCrashed()) {
+				throw new IllegalStateException("Landing ended early but didn't crash: " + scenario);
+			}
+
+			return outcome;
+
+		}
+
+		return new LandingOutcome(false, true, Double.NaN, Double.NaN, Double.NaN,
+			Double.NaN, true);
+
+	}
+
+}
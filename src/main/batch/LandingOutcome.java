@@ -0,0 +1,168 @@
+package batch;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The result of a single automatic landing, with the same values the landing
+ * summary shows after a landing in the simulator.
+ */
+public class LandingOutcome {
+
+	/**
+	 * The number of bytes {@link #write(DataOutput)} writes.
+	 */
+	public static final int BYTES = 1 + 4 * 8;
+
+	private final boolean landed;
+	private final boolean crashed;
+	private final double landingVelocity;
+	private final double landingAngle;
+	private final double fuelConsumedProportion;
+	private final double flightTime;
+	private final boolean endedEarly;
+
+	/**
+	 * Creates a LandingOutcome.
+	 * @param landed whether the Rocket reached the ground before the time
+	 * limit
+	 * @param crashed whether the landing was a crash
+	 * @param landingVelocity the Rocket's speed when it touched the ground
+	 * @param landingAngle the Rocket's angle when it touched the ground, in
+	 * degrees
+	 * @param fuelConsumedProportion the fraction of the initial fuel that
+	 * was used
+	 * @param flightTime the simulated time until the Rocket landed, in
+	 * seconds
+	 */
+	public LandingOutcome(boolean landed, boolean crashed,
+			double landingVelocity, double landingAngle,
+			double fuelConsumedProportion, double flightTime) {
+
+		this(landed, crashed, landingVelocity, landingAngle,
+			fuelConsumedProportion, flightTime, false);
+
+	}
+
+	/**
+	 * Creates a LandingOutcome, which may be for a landing that was ended
+	 * early because it was certain to crash. Only the crash flag of a
+	 * landing that ended early is known, so its other values are NaN.
+	 * @param landed whether the Rocket reached the ground before the time
+	 * limit
+	 * @param crashed whether the landing was a crash
+	 * @param landingVelocity the Rocket's speed when it touched the ground
+	 * @param landingAngle the Rocket's angle when it touched the ground, in
+	 * degrees
+	 * @param fuelConsumedProportion the fraction of the initial fuel that
+	 * was used
+	 * @param flightTime the simulated time until the Rocket landed, in
+	 * seconds
+	 * @param endedEarly whether the landing was ended before touchdown
+	 */
+	public LandingOutcome(boolean landed, boolean crashed,
+			double landingVelocity, double landingAngle,
+			double fuelConsumedProportion, double flightTime, boolean endedEarly) {
+
+		this.landed = landed;
+		this.crashed = crashed;
+		this.landingVelocity = landingVelocity;
+		this.landingAngle = landingAngle;
+		this.fuelConsumedProportion = fuelConsumedProportion;
+		this.flightTime = flightTime;
+		this.endedEarly = endedEarly;
+
+	}
+
+	/**
+	 * Returns whether the Rocket reached the ground before the time limit.
+	 * @return whether the Rocket landed
+	 */
+	public boolean isLanded() {
+		return landed;
+	}
+
+	/**
+	 * Returns whether the landing was a crash. Rockets that never reached
+	 * the ground count as crashed.
+	 * @return whether the Rocket crashed
+	 */
+	public boolean isCrashed() {
+		return crashed;
+	}
+
+	/**
+	 * Gets the Rocket's speed when it touched the ground.
+	 * @return the landing velocity
+	 */
+	public double getLandingVelocity() {
+		return landingVelocity;
+	}
+
+	/**
+	 * Gets the Rocket's angle when it touched the ground.
+	 * @return the landing angle, in degrees
+	 */
+	public double getLandingAngle() {
+		return landingAngle;
+	}
+
+	/**
+	 * Gets the fraction of the Rocket's initial fuel that was used.
+	 * @return the proportion of fuel consumed
+	 */
+	public double getFuelConsumedProportion() {
+		return fuelConsumedProportion;
+	}
+
+	/**
+	 * Gets the simulated time until the Rocket landed, or until the time
+	 * limit if it never did.
+	 * @return the flight time, in seconds
+	 */
+	public double getFlightTime() {
+		return flightTime;
+	}
+
+	/**
+	 * Returns whether the landing was ended before touchdown because it was
+	 * certain to crash. Only the crash flag of such a landing is final.
+	 * @return whether the landing ended early
+	 */
+	public boolean isEndedEarly() {
+		return endedEarly;
+	}
+
+	/**
+	 * Writes the outcome in a compact binary form: a byte of flags, then the
+	 * landing velocity, landing angle, fuel consumed, and flight time.
+	 * @param output the output to write to
+	 * @throws IOException if the outcome can't be written
+	 */
+	public void write(DataOutput output) throws IOException {
+
+		output.writeByte((landed ? 1 : 0) | (crashed ? 2 : 0) | (endedEarly ? 4 : 0));
+		output.writeDouble(landingVelocity);
+		output.writeDouble(landingAngle);
+		output.writeDouble(fuelConsumedProportion);
+		output.writeDouble(flightTime);
+
+	}
+
+	/**
+	 * Reads an outcome written by {@link #write(DataOutput)}.
+	 * @param input the input to read from
+	 * @return the outcome
+	 * @throws IOException if the outcome can't be read
+	 */
+	public static LandingOutcome read(DataInput input) throws IOException {
+
+		int flags = input.readByte();
+
+		return new LandingOutcome((flags & 1) != 0, (flags & 2) != 0,
+			input.readDouble(), input.readDouble(), input.readDouble(),
+			input.readDouble(), (flags & 4) != 0);
+
+	}
+
+}
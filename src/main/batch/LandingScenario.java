@@ -0,0 +1,83 @@
+package batch;
+import rocket.AutopilotParameters;
+
+/**
+ * The initial conditions of a single automatic landing.
+ */
+public class LandingScenario {
+
+	private final double fuel;
+	private final double height;
+	private final double xVelocity;
+	private final AutopilotParameters autopilot;
+
+	/**
+	 * Creates a LandingScenario with the given initial conditions, flown 
+	 * with the simulator's autopilot gains.
+	 * @param fuel the Rocket's initial fuel amount
+	 * @param height the Rocket's initial distance from the ground
+	 * @param xVelocity the Rocket's initial horizontal velocity
+	 */
+	public LandingScenario(double fuel, double height, double xVelocity) {
+
+		this(fuel, height, xVelocity, AutopilotParameters.DEFAULT);
+
+	}
+
+	/**
+	 * Creates a LandingScenario with the given initial conditions and 
+	 * autopilot gains.
+	 * @param fuel the Rocket's initial fuel amount
+	 * @param height the Rocket's initial distance from the ground
+	 * @param xVelocity the Rocket's initial horizontal velocity
+	 * @param autopilot the gains of the autopilot flying the landing
+	 */
+	public LandingScenario(double fuel, double height, double xVelocity,
+			AutopilotParameters autopilot) {
+
+		this.fuel = fuel;
+		this.height = height;
+		this.xVelocity = xVelocity;
+		this.autopilot = autopilot;
+
+	}
+
+	/**
+	 * Gets the Rocket's initial fuel amount.
+	 * @return the initial fuel
+	 */
+	public double getFuel() {
+		return fuel;
+	}
+
+	/**
+	 * Gets the Rocket's initial distance from the ground.
+	 * @return the initial height
+	 */
+	public double getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the Rocket's initial horizontal velocity.
+	 * @return the initial horizontal velocity
+	 */
+	public double getxVelocity() {
+		return xVelocity;
+	}
+
+	/**
+	 * Gets the gains of the autopilot flying the landing.
+	 * @return the autopilot parameters
+	 */
+	public AutopilotParameters getAutopilot() {
+		return autopilot;
+	}
+
+	@Override
+	public String toString() {
+		return "fuel=" + fuel + " height=" + height + " xVelocity=" + xVelocity +
+			" " + autopilot;
+	}
+
+}
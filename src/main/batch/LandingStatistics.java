@@ -0,0 +1,169 @@
+package batch;
+
+/**
+ * Running totals of a batch of landings: how many crashed, and streaming
+ * summaries of landing velocity, landing angle, fuel consumed, and flight
+ * time. Nothing is kept per landing, so a batch of any size takes the same
+ * memory.
+ *
+ * Each worker thread keeps its own LandingStatistics, and they are merged
+ * once the workers are done. A LandingStatistics must only be changed by
+ * one thread at a time; other threads read copies of it.
+ */
+public class LandingStatistics {
+
+	private long runs;
+	private long landings;
+	private long crashes;
+	private long endedEarly;
+	private StreamingSummary landingVelocity = new StreamingSummary();
+	private StreamingSummary landingAngle = new StreamingSummary();
+	private StreamingSummary fuelConsumed = new StreamingSummary();
+	private StreamingSummary flightTime = new StreamingSummary();
+
+	/**
+	 * Adds a landing to the totals.
+	 * @param outcome the landing's result
+	 */
+	public void add(LandingOutcome outcome) {
+
+		runs++;
+
+		// Only the crash flag of a landing that ended early is known
+		if (outcome.isEndedEarly()) {
+
+			crashes++;
+			endedEarly++;
+			return;
+
+		}
+
+		// Landing velocities and angles only make sense for Rockets that
+		// actually reached the ground
+		if (outcome.isLanded()) {
+
+			landings++;
+			landingVelocity.add(outcome.getLandingVelocity());
+			landingAngle.add(outcome.getLandingAngle());
+
+		}
+
+		if (outcome.isCrashed()) {
+			crashes++;
+		}
+
+		fuelConsumed.add(outcome.getFuelConsumedProportion() * 100);
+		flightTime.add(outcome.getFlightTime());
+
+	}
+
+	/**
+	 * Adds another batch's totals to these. The other totals aren't changed.
+	 * @param other the totals to merge in
+	 */
+	public void merge(LandingStatistics other) {
+
+		runs += other.runs;
+		landings += other.landings;
+		crashes += other.crashes;
+		endedEarly += other.endedEarly;
+		landingVelocity.merge(other.landingVelocity);
+		landingAngle.merge(other.landingAngle);
+		fuelConsumed.merge(other.fuelConsumed);
+		flightTime.merge(other.flightTime);
+
+	}
+
+	/**
+	 * Creates a copy of the totals that can be changed independently.
+	 * @return the copy
+	 */
+	public LandingStatistics copy() {
+
+		LandingStatistics copy = new LandingStatistics();
+		copy.runs = runs;
+		copy.landings = landings;
+		copy.crashes = crashes;
+		copy.endedEarly = endedEarly;
+		copy.landingVelocity = landingVelocity.copy();
+		copy.landingAngle = landingAngle.copy();
+		copy.fuelConsumed = fuelConsumed.copy();
+		copy.flightTime = flightTime.copy();
+		return copy;
+
+	}
+
+	/**
+	 * Gets the number of landings flown.
+	 * @return the number of runs
+	 */
+	public long getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Gets the number of Rockets that reached the ground in time.
+	 * @return the number of landings
+	 */
+	public long getLandings() {
+		return landings;
+	}
+
+	/**
+	 * Gets the number of crashes, including Rockets that never landed.
+	 * @return the number of crashes
+	 */
+	public long getCrashes() {
+		return crashes;
+	}
+
+	/**
+	 * Gets the number of landings ended early because they were certain to
+	 * crash. They count as crashes, but not in any of the distributions.
+	 * @return the number of landings ended early
+	 */
+	public long getEndedEarly() {
+		return endedEarly;
+	}
+
+	/**
+	 * Gets the fraction of runs that crashed.
+	 * @return the crash rate
+	 */
+	public double getCrashRate() {
+		return runs > 0 ? (double) crashes / runs : Double.NaN;
+	}
+
+	/**
+	 * Gets the distribution of landing velocities.
+	 * @return the landing velocity summary
+	 */
+	public StreamingSummary getLandingVelocity() {
+		return landingVelocity;
+	}
+
+	/**
+	 * Gets the distribution of landing angles.
+	 * @return the landing angle summary, in degrees
+	 */
+	public StreamingSummary getLandingAngle() {
+		return landingAngle;
+	}
+
+	/**
+	 * Gets the distribution of the percentage of fuel consumed.
+	 * @return the fuel consumption summary, in percent
+	 */
+	public StreamingSummary getFuelConsumed() {
+		return fuelConsumed;
+	}
+
+	/**
+	 * Gets the distribution of flight times.
+	 * @return the flight time summary, in seconds
+	 */
+	public StreamingSummary getFlightTime() {
+		return flightTime;
+	}
+
+}
@@ -0,0 +1,501 @@
+package batch;
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import rocket.UserControlledRocket;
+import simulation.ColorPalette;
+import simulation.World;
+import util.Vector2D;
+
+/**
+ * Many user-controlled landings stepped together, for training landing
+ * controllers against the simulator's physics. Each environment is its own
+ * World and UserControlledRocket, flown with the same actions the keyboard
+ * gives: engines on or off, and an angle to turn towards.
+ *
+ * Actions, observations, rewards and done flags are kept in primitive
+ * arrays with one entry per environment, allocated once. Observations are
+ * stored feature by feature: feature f of environment i is at
+ * <code>f * getCount() + i</code>. Environments are split evenly between
+ * the calling thread and a fixed set of worker threads, which wait for each
+ * step without allocating anything, so stepping produces no garbage.
+ *
+ * An environment is done when its Rocket touches the ground or the max
+ * flight time passes. Its reward is 1 for a safe landing and -1 for a crash
+ * or a timeout, and 0 on every other step. A done environment ignores its
+ * actions, with a reward of 0, until it is reset.
+ *
+ * A LandingVecEnv must only be stepped by one thread at a time, and should
+ * be closed to stop its worker threads.
+ */
+public class LandingVecEnv implements Closeable {
+
+	/**
+	 * The height of the bottom of the Rocket above the ground.
+	 */
+	public static final int OBSERVATION_HEIGHT = 0;
+
+	/**
+	 * The Rocket's horizontal velocity, positive to the right.
+	 */
+	public static final int OBSERVATION_X_VELOCITY = 1;
+
+	/**
+	 * The Rocket's vertical velocity, positive when falling.
+	 */
+	public static final int OBSERVATION_Y_VELOCITY = 2;
+
+	/**
+	 * The Rocket's direction in degrees; 90 is straight up.
+	 */
+	public static final int OBSERVATION_DIRECTION = 3;
+
+	/**
+	 * The Rocket's fuel left.
+	 */
+	public static final int OBSERVATION_FUEL = 4;
+
+	/**
+	 * How far the Rocket has drifted sideways from where it started.
+	 */
+	public static final int OBSERVATION_X = 5;
+
+	/**
+	 * The number of observed features per environment.
+	 */
+	public static final int OBSERVATION_SIZE = 6;
+
+	// Times a waiting thread checks for work before it parks
+	private static final int SPINS = 1 << 10;
+
+	private final int count;
+	private final MonteCarloRunner scenarios = new MonteCarloRunner();
+	private double timeStep = 1.0 / 60; // seconds
+
+	private final World [] worlds;
+	private final UserControlledRocket [] rockets;
+	private final double [] flightTimes;
+
+	private final double [] observations;
+	private final double [] rewards;
+	private final boolean [] dones;
+	private final boolean [] crashed;
+
+	// The actions of the step in progress
+	private boolean [] throttles;
+	private double [] targetAngles;
+
+	private final Thread [] workers;
+	private final AtomicInteger pendingWorkers = new AtomicInteger();
+	private volatile long generation;
+	private volatile Thread caller;
+	private volatile boolean closed;
+	private volatile Throwable failure;
+
+	/**
+	 * Creates a LandingVecEnv stepped on every core.
+	 * @param count the number of environments
+	 */
+	public LandingVecEnv(int count) {
+		this(count, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a LandingVecEnv. Every environment starts done, and must be
+	 * reset before it is stepped.
+	 * @param count the number of environments
+	 * @param threads the number of threads to step on, including the
+	 * calling thread
+	 */
+	public LandingVecEnv(int count, int threads) {
+
+		if (count <= 0) {
+			throw new IllegalArgumentException("Environment count must be positive");
+		}
+
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Thread count must be positive");
+		}
+
+		this.count = count;
+
+		worlds = new World[count];
+		rockets = new UserControlledRocket[count];
+		flightTimes = new double[count];
+		observations = new double[OBSERVATION_SIZE * count];
+		rewards = new double[count];
+		dones = new boolean[count];
+		crashed = new boolean[count];
+
+		for (int i = 0; i < count; i++) {
+
+			World world = new World(World.DEFAULT_WINDOW_WIDTH, World.DEFAULT_WINDOW_HEIGHT,
+				ColorPalette.EARTH);
+
+			UserControlledRocket rocket = new UserControlledRocket(
+				World.DEFAULT_WINDOW_WIDTH / 2, 0, 0, world.getGroundY());
+			rocket.setAcceleration(new Vector2D(0.0, world.getGravity()));
+			rocket.setParticleEffectsEnabled(false);
+
+			world.getObjects().add(rocket);
+			world.setPrimaryRocket(rocket);
+
+			worlds[i] = world;
+			rockets[i] = rocket;
+			dones[i] = true;
+
+		}
+
+		// The calling thread steps the first slice itself
+		workers = new Thread[Math.min(threads, count) - 1];
+
+		for (int w = 0; w < workers.length; w++) {
+
+			int slice = w + 1;
+			workers[w] = new Thread(() -> work(slice), "LandingVecEnv worker " + slice);
+			workers[w].setDaemon(true);
+			workers[w].start();
+
+		}
+
+	}
+
+	/**
+	 * Gets the number of environments.
+	 * @return the environment count
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of threads environments are stepped on, including
+	 * the calling thread.
+	 * @return the thread count
+	 */
+	public int getThreads() {
+		return workers.length + 1;
+	}
+
+	/**
+	 * Gets the MonteCarloRunner whose distributions and max flight time
+	 * every reset draws from. Settings should only be changed between
+	 * steps.
+	 * @return the scenarios
+	 */
+	public MonteCarloRunner getScenarios() {
+		return scenarios;
+	}
+
+	/**
+	 * Gets the simulated time each step advances.
+	 * @return the time step, in seconds
+	 */
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * Sets the simulated time each step advances.
+	 * @param timeStep the new time step, in seconds
+	 */
+	public void setTimeStep(double timeStep) {
+
+		if (timeStep <= 0) {
+			throw new IllegalArgumentException("Time step must be positive");
+		}
+
+		this.timeStep = timeStep;
+
+	}
+
+	/**
+	 * Gets the observations of every environment, feature by feature: the
+	 * OBSERVATION_ constants give each feature's position. The array is
+	 * reused by every step and reset.
+	 * @return the observations
+	 */
+	public double [] getObservations() {
+		return observations;
+	}
+
+	/**
+	 * Gets each environment's reward from the last step.
+	 * @return the rewards
+	 */
+	public double [] getRewards() {
+		return rewards;
+	}
+
+	/**
+	 * Gets whether each environment is done.
+	 * @return the done flags
+	 */
+	public boolean [] getDones() {
+		return dones;
+	}
+
+	/**
+	 * Gets whether each done environment crashed, timeouts included.
+	 * @return the crash flags
+	 */
+	public boolean [] getCrashed() {
+		return crashed;
+	}
+
+	/**
+	 * Resets every environment with new initial conditions.
+	 * @param seeds the seed to draw each environment's initial conditions
+	 * with
+	 */
+	public void reset(long [] seeds) {
+
+		requireLength(seeds.length);
+
+		for (int i = 0; i < count; i++) {
+			reset(i, seeds[i]);
+		}
+
+	}
+
+	/**
+	 * Resets one environment with new initial conditions, leaving the
+	 * others as they are.
+	 * @param environment the environment to reset
+	 * @param seed the seed to draw its initial conditions with
+	 */
+	public void reset(int environment, long seed) {
+
+		LandingScenario scenario = scenarios.createScenario(seed, 0);
+		UserControlledRocket rocket = rockets[environment];
+
+		rocket.reset(World.DEFAULT_WINDOW_WIDTH / 2,
+			worlds[environment].getGroundY() - scenario.getHeight(),
+			scenario.getFuel());
+		rocket.setLandingVelocity(0);
+		rocket.setEnginesOn(false);
+		rocket.setShouldFireEngines(false);
+		rocket.getVelocity().setX(scenario.getxVelocity());
+
+		flightTimes[environment] = 0;
+		rewards[environment] = 0;
+		dones[environment] = false;
+		crashed[environment] = false;
+
+		observe(environment);
+
+	}
+
+	/**
+	 * Steps every environment once with the given actions, filling in the
+	 * observations, rewards and done flags.
+	 * @param throttles whether each environment's engines fire
+	 * @param targetAngles the angle each environment's Rocket turns towards,
+	 * in degrees
+	 * @throws IllegalStateException if an environment failed to step, or
+	 * the LandingVecEnv is closed. Every thread has finished the step by
+	 * then, and the failed environments should be reset before stepping
+	 * again
+	 */
+	public void step(boolean [] throttles, double [] targetAngles) {
+
+		requireLength(throttles.length);
+		requireLength(targetAngles.length);
+
+		if (closed) {
+			throw new IllegalStateException("LandingVecEnv is closed");
+		}
+
+		this.throttles = throttles;
+		this.targetAngles = targetAngles;
+
+		if (workers.length > 0) {
+
+			caller = Thread.currentThread();
+			pendingWorkers.set(workers.length);
+
+			// Publishes the actions to the workers
+			generation++;
+
+			for (Thread worker : workers) {
+				LockSupport.unpark(worker);
+			}
+
+		}
+
+		try {
+
+			stepSlice(0);
+
+		} catch (Throwable e) {
+
+			failure = e;
+
+		}
+
+		// Even if the calling thread's slice failed, the workers must finish
+		// before the arrays are handed back
+		for (int spins = 0; pendingWorkers.get() > 0; spins++) {
+
+			if (spins < SPINS) {
+				Thread.onSpinWait();
+			} else {
+				LockSupport.park(this);
+			}
+
+		}
+
+		Throwable stepFailure = failure;
+
+		if (stepFailure != null) {
+
+			// Each failure is only reported by the step it happened in
+			failure = null;
+			throw new IllegalStateException("An environment failed to step", stepFailure);
+
+		}
+
+	}
+
+	/**
+	 * Stops the worker threads. Environments can't be stepped afterwards.
+	 */
+	@Override
+	public void close() {
+
+		closed = true;
+
+		for (Thread worker : workers) {
+			LockSupport.unpark(worker);
+		}
+
+	}
+
+	/**
+	 * Steps one worker thread's slice of the environments each time the
+	 * generation changes, until the LandingVecEnv is closed.
+	 * @param slice the worker's slice
+	 */
+	private void work(int slice) {
+
+		long seenGeneration = 0;
+
+		while (true) {
+
+			for (int spins = 0; generation == seenGeneration && !closed; spins++) {
+
+				if (spins < SPINS) {
+					Thread.onSpinWait();
+				} else {
+					LockSupport.park(this);
+				}
+
+			}
+
+			if (closed) {
+				return;
+			}
+
+			seenGeneration = generation;
+
+			try {
+
+				stepSlice(slice);
+
+			} catch (Throwable e) {
+
+				failure = e;
+
+			}
+
+			if (pendingWorkers.decrementAndGet() == 0) {
+				LockSupport.unpark(caller);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Steps one thread's share of the environments.
+	 * @param slice the thread's slice
+	 */
+	private void stepSlice(int slice) {
+
+		int end = (int) ((long) count * (slice + 1) / getThreads());
+
+		for (int i = (int) ((long) count * slice / getThreads()); i < end; i++) {
+			step(i);
+		}
+
+	}
+
+	/**
+	 * Steps one environment with its action.
+	 * @param environment the environment
+	 */
+	private void step(int environment) {
+
+		if (dones[environment]) {
+			rewards[environment] = 0;
+			return;
+		}
+
+		UserControlledRocket rocket = rockets[environment];
+		rocket.setShouldFireEngines(throttles[environment]);
+		rocket.setTargetAngle(targetAngles[environment]);
+
+		worlds[environment].tick(getTimeStep());
+		flightTimes[environment] += getTimeStep();
+
+		boolean landed = !rocket.isAirborne();
+
+		if (landed || flightTimes[environment] >= scenarios.getMaxFlightTime()) {
+
+			dones[environment] = true;
+			crashed[environment] = !landed ||
+				!(rocket.isLandingVelocityAcceptable() && rocket.isLandingAngleAcceptable());
+			rewards[environment] = crashed[environment] ? -1 : 1;
+
+		} else {
+
+			rewards[environment] = 0;
+
+		}
+
+		observe(environment);
+
+	}
+
+	/**
+	 * Writes an environment's observations.
+	 * @param environment the environment
+	 */
+	private void observe(int environment) {
+
+		UserControlledRocket rocket = rockets[environment];
+
+		observations[OBSERVATION_HEIGHT * count + environment] =
+			worlds[environment].getGroundY() - (rocket.getY() + rocket.getHeight());
+		observations[OBSERVATION_X_VELOCITY * count + environment] = rocket.getVelocity().getX();
+		observations[OBSERVATION_Y_VELOCITY * count + environment] = rocket.getVelocity().getY();
+		observations[OBSERVATION_DIRECTION * count + environment] = rocket.getDirection();
+		observations[OBSERVATION_FUEL * count + environment] = rocket.getFuel();
+		observations[OBSERVATION_X * count + environment] = rocket.getX() - World.DEFAULT_WINDOW_WIDTH / 2;
+
+	}
+
+	/**
+	 * Checks that an array has one entry per environment.
+	 * @param length the array's length
+	 */
+	private void requireLength(int length) {
+
+		if (length != count) {
+			throw new IllegalArgumentException("Expected " + count + " entries, got " + length);
+		}
+
+	}
+
+}
@@ -0,0 +1,135 @@
+package batch;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * One column of a landing results store, memory-mapped for reading. Values
+ * are read straight from the mapped file, so a scan over millions of rows
+ * creates no objects and only touches this column's file.
+ *
+ * A single mapping can't be larger than 2 GB, so long columns are mapped in
+ * several segments.
+ */
+public class MappedColumn {
+
+	// Largest segment, in bytes, which divides evenly by every column width
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	private final ResultColumn column;
+	private final long rowCount;
+	private final long rowsPerSegment;
+	private final MappedByteBuffer [] segments;
+
+	/**
+	 * Maps the first rows of a column's file.
+	 * @param column the column the file holds
+	 * @param channel the column's file
+	 * @param rowCount the number of rows to map
+	 * @throws IOException if the file can't be mapped
+	 */
+	MappedColumn(ResultColumn column, FileChannel channel, long rowCount) throws IOException {
+
+		this.column = column;
+		this.rowCount = rowCount;
+		this.rowsPerSegment = SEGMENT_SIZE / column.getWidth();
+
+		int segmentCount = (int) ((rowCount + rowsPerSegment - 1) / rowsPerSegment);
+		this.segments = new MappedByteBuffer[segmentCount];
+
+		for (int i = 0; i < segmentCount; i++) {
+
+			long firstRow = i * rowsPerSegment;
+			long rows = Math.min(rowsPerSegment, rowCount - firstRow);
+
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+				ResultStoreWriter.HEADER_SIZE + firstRow * column.getWidth(),
+				rows * column.getWidth());
+			segments[i].order(ByteOrder.LITTLE_ENDIAN);
+
+		}
+
+	}
+
+	/**
+	 * Gets the column this is a mapping of.
+	 * @return the column
+	 */
+	public ResultColumn getColumn() {
+		return column;
+	}
+
+	/**
+	 * Gets the number of rows in the column.
+	 * @return the row count
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Gets the value in a row. Flags are read as 1 or 0.
+	 * @param row the row's index
+	 * @return the value
+	 */
+	public double getDouble(long row) {
+
+		MappedByteBuffer segment = segments[(int) (row / rowsPerSegment)];
+		int offset = (int) (row % rowsPerSegment) * column.getWidth();
+
+		if (column.isFlag()) {
+			return segment.get(offset) != 0 ? 1 : 0;
+		}
+
+		return segment.getDouble(offset);
+
+	}
+
+	/**
+	 * Gets the flag in a row. Numbers are true when they aren't 0.
+	 * @param row the row's index
+	 * @return the flag
+	 */
+	public boolean getFlag(long row) {
+		return getDouble(row) != 0;
+	}
+
+	/**
+	 * Reads the values of consecutive rows into an array, much faster than
+	 * reading them one at a time. Flags are read as 1 or 0.
+	 * @param firstRow the index of the first row to read
+	 * @param values the array to read into, from its start
+	 * @param count the number of rows to read
+	 */
+	public void read(long firstRow, double [] values, int count) {
+
+		int done = 0;
+
+		while (done < count) {
+
+			long row = firstRow + done;
+			int offset = (int) (row % rowsPerSegment);
+			int rows = (int) Math.min(count - done, rowsPerSegment - offset);
+
+			// A duplicate has its own position, so reads can run on any thread
+			ByteBuffer segment = segments[(int) (row / rowsPerSegment)].duplicate()
+				.order(ByteOrder.LITTLE_ENDIAN);
+			segment.position(offset * column.getWidth());
+
+			if (column.isFlag()) {
+				for (int i = 0; i < rows; i++) {
+					values[done + i] = segment.get() != 0 ? 1 : 0;
+				}
+			} else {
+				segment.asDoubleBuffer().get(values, done, rows);
+			}
+
+			done += rows;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,462 @@
+package batch;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Flies many automatic landings in parallel, with initial conditions drawn
+ * from configurable distributions, and reports how they went.
+ *
+ * Every run draws its initial conditions from its own random stream, seeded
+ * from the batch seed and the run's index. The batch seed is mixed before
+ * the index is added, so batches with nearby seeds don't share landings. A
+ * batch with the same seed flies the same landings no matter how many
+ * threads fly it.
+ *
+ * Outcomes aren't kept. Each worker thread adds them to its own
+ * LandingStatistics, and the workers' totals are merged when the batch is
+ * done, so a batch of millions of landings takes no more memory than a
+ * small one. Percentiles are estimated, so they can differ very slightly
+ * between thread counts; counts, means, and extremes don't.
+ */
+public class MonteCarloRunner {
+
+	// Runs are handed to threads in chunks, several per thread, so threads
+	// that finish early can take more work
+	private static final int CHUNKS_PER_THREAD = 8;
+
+	// Chunks are capped so the outcomes a chunk holds for a results store
+	// stay small
+	private static final int MAX_CHUNK_SIZE = 10_000;
+
+	// Workers publish their totals for progress reports this often, in landings
+	private static final int PUBLISH_INTERVAL = 1000;
+
+	// The simulator's defaults for an automatic landing
+	private Distribution fuel = Distribution.constant(10);
+	private Distribution height = Distribution.constant(500);
+	private Distribution xVelocity = Distribution.uniform(-250, 250);
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long seed = 1;
+	private double maxFlightTime = 300; // seconds
+	private boolean earlyExit = false;
+	private boolean validatingEarlyExit = false;
+	private OutcomeCache outcomeCache;
+
+	private volatile Queue<WorkerStatistics> activeWorkers;
+
+	/**
+	 * Gets the distribution the Rocket's initial fuel is drawn from.
+	 * @return the fuel distribution
+	 */
+	public Distribution getFuel() {
+		return fuel;
+	}
+
+	/**
+	 * Sets the distribution the Rocket's initial fuel is drawn from.
+	 * @param fuel the new fuel distribution
+	 */
+	public void setFuel(Distribution fuel) {
+		this.fuel = fuel;
+	}
+
+	/**
+	 * Gets the distribution the Rocket's initial height is drawn from.
+	 * @return the height distribution
+	 */
+	public Distribution getHeight() {
+		return height;
+	}
+
+	/**
+	 * Sets the distribution the Rocket's initial height is drawn from.
+	 * @param height the new height distribution
+	 */
+	public void setHeight(Distribution height) {
+		this.height = height;
+	}
+
+	/**
+	 * Gets the distribution the Rocket's initial horizontal velocity is
+	 * drawn from.
+	 * @return the horizontal velocity distribution
+	 */
+	public Distribution getxVelocity() {
+		return xVelocity;
+	}
+
+	/**
+	 * Sets the distribution the Rocket's initial horizontal velocity is
+	 * drawn from.
+	 * @param xVelocity the new horizontal velocity distribution
+	 */
+	public void setxVelocity(Distribution xVelocity) {
+		this.xVelocity = xVelocity;
+	}
+
+	/**
+	 * Gets the number of threads landings are flown on.
+	 * @return the number of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads landings are flown on.
+	 * @param threads the new number of threads
+	 */
+	public void setThreads(int threads) {
+
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Thread count must be positive");
+		}
+
+		this.threads = threads;
+
+	}
+
+	/**
+	 * Gets the seed the initial conditions are drawn with.
+	 * @return the batch seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the seed the initial conditions are drawn with.
+	 * @param seed the new batch seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Gets the longest simulated time a landing may take before it counts
+	 * as a crash.
+	 * @return the maximum flight time, in seconds
+	 */
+	public double getMaxFlightTime() {
+		return maxFlightTime;
+	}
+
+	/**
+	 * Sets the longest simulated time a landing may take before it counts
+	 * as a crash.
+	 * @param maxFlightTime the new maximum flight time, in seconds
+	 */
+	public void setMaxFlightTime(double maxFlightTime) {
+		this.maxFlightTime = maxFlightTime;
+	}
+
+	/**
+	 * Checks whether landings that are certain to crash are ended early.
+	 * @return true if early exit is on
+	 */
+	public boolean isEarlyExit() {
+		return earlyExit;
+	}
+
+	/**
+	 * Sets whether landings that are certain to crash are ended early. The
+	 * crash rate is unchanged, but it is the only result measured: landings
+	 * ended early are left out of the distributions, and can't be written
+	 * to a results store.
+	 * @param earlyExit true to end certain crashes early
+	 */
+	public void setEarlyExit(boolean earlyExit) {
+		this.earlyExit = earlyExit;
+	}
+
+	/**
+	 * Checks whether only the crash rate is measured, because landings that
+	 * are certain to crash are ended early without being validated.
+	 * @return true if only the crash rate is exact
+	 */
+	public boolean isCrashRateOnly() {
+		return isEarlyExit() && !isValidatingEarlyExit();
+	}
+
+	/**
+	 * Checks whether landings that would be ended early are flown to the
+	 * end anyway, to check that they really crash.
+	 * @return true if early exits are validated
+	 */
+	public boolean isValidatingEarlyExit() {
+		return validatingEarlyExit;
+	}
+
+	/**
+	 * Sets whether landings that would be ended early are flown to the end
+	 * anyway, to check that they really crash.
+	 * @param validatingEarlyExit true to validate early exits
+	 */
+	public void setValidatingEarlyExit(boolean validatingEarlyExit) {
+		this.validatingEarlyExit = validatingEarlyExit;
+	}
+
+	/**
+	 * Gets the cache landings are looked up in before they are flown.
+	 * @return the outcome cache, or null if there is none
+	 */
+	public OutcomeCache getOutcomeCache() {
+		return outcomeCache;
+	}
+
+	/**
+	 * Sets the cache landings are looked up in before they are flown, and
+	 * added to after. A batch run again with the
+	 * same cache flies nothing new.
+	 * @param outcomeCache the new outcome cache, or null for none
+	 */
+	public void setOutcomeCache(OutcomeCache outcomeCache) {
+		this.outcomeCache = outcomeCache;
+	}
+
+	/**
+	 * Draws the initial conditions of a run.
+	 * @param index the index of the run in the batch
+	 * @return the run's initial conditions
+	 */
+	public LandingScenario createScenario(long index) {
+		return createScenario(getSeed(), index);
+	}
+
+	/**
+	 * Draws the initial conditions of a run with the given seed instead of
+	 * the batch seed.
+	 * @param seed the seed to draw with
+	 * @param index the index of the run in the batch
+	 * @return the run's initial conditions
+	 */
+	public LandingScenario createScenario(long seed, long index) {
+
+		// Mixing the seed first keeps run i of seed s apart from run i - 1
+		// of seed s + 1
+		SplittableRandom random = new SplittableRandom(
+			new SplittableRandom(seed).nextLong() + index);
+
+		return new LandingScenario(
+			Math.max(0, getFuel().sample(random)),
+			Math.max(0, getHeight().sample(random)),
+			getxVelocity().sample(random));
+
+	}
+
+	/**
+	 * Flies the given number of landings and summarizes them.
+	 * @param runs the number of landings to fly
+	 * @return the batch's results
+	 * @throws InterruptedException if the calling thread is interrupted
+	 * while waiting for the landings
+	 */
+	public BatchReport run(int runs) throws InterruptedException {
+
+		try {
+
+			return run(runs, null);
+
+		} catch (IOException e) {
+
+			// Nothing is written without a store
+			throw new UncheckedIOException(e);
+
+		}
+
+	}
+
+	/**
+	 * Flies the given number of landings, summarizes them, and appends
+	 * every landing to a results store in the order of the runs.
+	 * @param runs the number of landings to fly
+	 * @param results the store to append landings to, or null
+	 * @return the batch's results
+	 * @throws InterruptedException if the calling thread is interrupted
+	 * while waiting for the landings
+	 * @throws IOException if the landings can't be written to the store
+	 */
+	public BatchReport run(int runs, ResultStoreWriter results)
+			throws InterruptedException, IOException {
+
+		if (runs <= 0) {
+			throw new IllegalArgumentException("Run count must be positive");
+		}
+
+		if (results != null && isCrashRateOnly()) {
+			throw new IllegalArgumentException("Landings ended early can't be written to a results store");
+		}
+
+		long startTime = System.nanoTime();
+
+		int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE,
+			runs / (getThreads() * CHUNKS_PER_THREAD)));
+
+		ConcurrentLinkedQueue<WorkerStatistics> workers =
+			new ConcurrentLinkedQueue<WorkerStatistics>();
+		ThreadLocal<WorkerStatistics> workerStatistics = ThreadLocal.withInitial(() -> {
+
+			WorkerStatistics statistics = new WorkerStatistics();
+			workers.add(statistics);
+			return statistics;
+
+		});
+
+		activeWorkers = workers;
+
+		ExecutorService executor = Executors.newFixedThreadPool(getThreads());
+		ArrayList<Future<LandingOutcome []>> chunks = new ArrayList<Future<LandingOutcome []>>();
+
+		try {
+
+			for (int start = 0; start < runs; start += chunkSize) {
+
+				int chunkStart = start;
+				int chunkEnd = Math.min(runs, start + chunkSize);
+
+				chunks.add(executor.submit(() -> {
+
+					HeadlessLanding landing = new HeadlessLanding();
+					landing.setMaxFlightTime(getMaxFlightTime());
+					landing.setEarlyExit(isEarlyExit());
+					landing.setValidatingEarlyExit(isValidatingEarlyExit());
+					landing.setOutcomeCache(getOutcomeCache());
+					WorkerStatistics statistics = workerStatistics.get();
+
+					// Outcomes are only kept when they go into a store
+					LandingOutcome [] outcomes = results != null ?
+						new LandingOutcome[chunkEnd - chunkStart] : null;
+
+					for (int i = chunkStart; i < chunkEnd; i++) {
+
+						LandingOutcome outcome = landing.run(createScenario(i));
+						statistics.add(outcome);
+
+						if (outcomes != null) {
+							outcomes[i - chunkStart] = outcome;
+						}
+
+					}
+
+					statistics.publish();
+					return outcomes;
+
+				}));
+
+			}
+
+			// Chunks are written in order, so the store's rows are in the
+			// order of the runs
+			for (int chunk = 0; chunk < chunks.size(); chunk++) {
+
+				LandingOutcome [] outcomes = chunks.get(chunk).get();
+				chunks.set(chunk, null);
+
+				if (results != null) {
+
+					long firstRun = (long) chunk * chunkSize;
+					for (int i = 0; i < outcomes.length; i++) {
+						results.append(createScenario(firstRun + i), outcomes[i]);
+					}
+
+				}
+
+			}
+
+		} catch (ExecutionException e) {
+
+			throw new IllegalStateException("A landing failed", e.getCause());
+
+		} finally {
+
+			executor.shutdownNow();
+
+		}
+
+		if (results != null) {
+			results.flush();
+		}
+
+		// Every chunk is done, so each worker's own totals are final and
+		// visible here
+		LandingStatistics statistics = new LandingStatistics();
+		for (WorkerStatistics worker : workers) {
+			statistics.merge(worker.statistics);
+		}
+
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+		return new BatchReport(statistics, elapsedSeconds, isCrashRateOnly());
+
+	}
+
+	/**
+	 * Gets the totals of the landings finished so far by the batch that is
+	 * running, or the last batch that ran. Can be called from any thread
+	 * while a batch runs, and never holds up the workers: each worker
+	 * publishes a copy of its totals every so often, and the copies are
+	 * merged here.
+	 * @return the totals so far
+	 */
+	public LandingStatistics getProgress() {
+
+		LandingStatistics progress = new LandingStatistics();
+		Queue<WorkerStatistics> workers = activeWorkers;
+
+		if (workers != null) {
+			for (WorkerStatistics worker : workers) {
+				progress.merge(worker.published);
+			}
+		}
+
+		return progress;
+
+	}
+
+	/**
+	 * One worker thread's totals, and the last copy of them it published
+	 * for progress reports.
+	 */
+	private static class WorkerStatistics {
+
+		private final LandingStatistics statistics = new LandingStatistics();
+		private volatile LandingStatistics published = new LandingStatistics();
+		private int unpublished;
+
+		/**
+		 * Adds a landing to the worker's totals, publishing them every so
+		 * often.
+		 * @param outcome the landing's result
+		 */
+		void add(LandingOutcome outcome) {
+
+			statistics.add(outcome);
+
+			if (++unpublished >= PUBLISH_INTERVAL) {
+				publish();
+			}
+
+		}
+
+		/**
+		 * Publishes a copy of the worker's totals.
+		 */
+		void publish() {
+
+			published = statistics.copy();
+			unpublished = 0;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,439 @@
+package batch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import rocket.AutopilotParameters;
+
+/**
+ * Remembers the outcomes of landings that were already flown. Landings are
+ * deterministic, so the same initial conditions, autopilot parameters, and
+ * HeadlessLanding settings always give the same outcome, and sweeps and
+ * tuners that revisit a point can skip flying it again.
+ *
+ * Outcomes are keyed by a SHA-256 hash of everything that decides them,
+ * including {@link HeadlessLanding#SIMULATION_VERSION}, so outcomes from
+ * an older simulation are never reused. The least recently used outcomes
+ * are dropped once the cache is full. The cache is split into segments
+ * with their own locks, so many threads can use it at once.
+ *
+ * A cache can be backed by a file. Outcomes in the file are loaded when the
+ * cache is opened, and new outcomes are appended to it, so later runs start
+ * with everything earlier runs flew.
+ */
+public class OutcomeCache implements Closeable {
+
+	/**
+	 * The number of outcomes kept in memory if no capacity is given, about
+	 * 40 MB worth.
+	 */
+	public static final int DEFAULT_CAPACITY = 250_000;
+
+	private static final int FILE_MAGIC = 0x52534F43; // "RSOC"
+	private static final int FILE_VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 8;
+	private static final int KEY_SIZE = 32;
+	private static final int RECORD_SIZE = KEY_SIZE + LandingOutcome.BYTES;
+
+	private static final int SEGMENTS = 16;
+
+	private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+
+		try {
+
+			return MessageDigest.getInstance("SHA-256");
+
+		} catch (NoSuchAlgorithmException e) {
+
+			// Every Java platform has SHA-256
+			throw new IllegalStateException(e);
+
+		}
+
+	});
+
+	private final Segment [] segments = new Segment[SEGMENTS];
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private DataOutputStream file;
+
+	/**
+	 * Creates an in-memory OutcomeCache.
+	 * @param capacity the most outcomes to keep
+	 */
+	public OutcomeCache(int capacity) {
+
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Cache capacity must be positive");
+		}
+
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS));
+		}
+
+	}
+
+	/**
+	 * Creates an OutcomeCache backed by a file, loading the outcomes already
+	 * in it. The file is created if it doesn't exist.
+	 * @param capacity the most outcomes to keep in memory
+	 * @param path the cache file
+	 * @throws IOException if the file can't be read or isn't a cache file
+	 */
+	public OutcomeCache(int capacity, Path path) throws IOException {
+
+		this(capacity);
+
+		long validLength = FILE_HEADER_SIZE;
+
+		if (Files.exists(path) && Files.size(path) > 0) {
+
+			try (DataInputStream input = new DataInputStream(
+					new BufferedInputStream(Files.newInputStream(path)))) {
+
+				if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION) {
+					throw new IOException("Not an outcome cache file: " + path);
+				}
+
+				byte [] key = new byte[KEY_SIZE];
+
+				try {
+
+					while (true) {
+
+						input.readFully(key);
+						LandingOutcome outcome = LandingOutcome.read(input);
+
+						getSegment(key).put(new Key(key.clone()), outcome);
+						validLength += RECORD_SIZE;
+
+					}
+
+				} catch (EOFException e) {
+
+					// The end of the file, or a record cut off part way
+
+				}
+
+			}
+
+		}
+
+		// Loading isn't evicting
+		evictions.set(0);
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE);
+
+		try {
+
+			if (channel.size() < FILE_HEADER_SIZE) {
+
+				ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+				header.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+				channel.truncate(0);
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+
+			} else {
+
+				// Drop a record cut off by a run that was stopped while writing
+				channel.truncate(validLength);
+
+			}
+
+			channel.position(channel.size());
+
+		} catch (IOException e) {
+
+			channel.close();
+			throw e;
+
+		}
+
+		file = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+	}
+
+	/**
+	 * Creates the key for a landing.
+	 * @param scenario the landing's initial conditions and autopilot
+	 * @param timeStep the simulated time between ticks, in seconds
+	 * @param maxFlightTime the longest simulated time the landing may take,
+	 * in seconds
+	 * @param earlyExit whether the landing may be ended early
+	 * @return the landing's key
+	 */
+	public static Key createKey(LandingScenario scenario, double timeStep,
+			double maxFlightTime, boolean earlyExit) {
+
+		AutopilotParameters autopilot = scenario.getAutopilot();
+
+		ByteBuffer canonical = ByteBuffer.allocate(4 + 12 * 8 + 1);
+		canonical.putInt(HeadlessLanding.SIMULATION_VERSION);
+		canonical.putDouble(scenario.getFuel());
+		canonical.putDouble(scenario.getHeight());
+		canonical.putDouble(scenario.getxVelocity());
+		canonical.putDouble(autopilot.getKp());
+		canonical.putDouble(autopilot.getKi());
+		canonical.putDouble(autopilot.getKd());
+		canonical.putDouble(autopilot.getMaxPulseOffTime());
+		canonical.putDouble(autopilot.getPulseOffHeight());
+		canonical.putDouble(autopilot.getMinPulseOnTime());
+		canonical.putDouble(autopilot.getPulseOnHeight());
+		canonical.putDouble(timeStep);
+		canonical.putDouble(maxFlightTime);
+		canonical.put((byte) (earlyExit ? 1 : 0));
+
+		return new Key(DIGESTS.get().digest(canonical.array()));
+
+	}
+
+	/**
+	 * Gets the outcome of a landing if it is in the cache.
+	 * @param key the landing's key
+	 * @return the outcome, or null if it isn't cached
+	 */
+	public LandingOutcome get(Key key) {
+
+		LandingOutcome outcome = getSegment(key.hash).get(key);
+
+		if (outcome != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+
+		return outcome;
+
+	}
+
+	/**
+	 * Adds the outcome of a landing to the cache, and to the cache file if
+	 * there is one.
+	 * @param key the landing's key
+	 * @param outcome the landing's outcome
+	 */
+	public void put(Key key, LandingOutcome outcome) {
+
+		getSegment(key.hash).put(key, outcome);
+
+		if (file != null) {
+			append(key, outcome);
+		}
+
+	}
+
+	/**
+	 * Gets the number of lookups that found an outcome.
+	 * @return the hit count
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of lookups that found nothing.
+	 * @return the miss count
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the number of outcomes dropped to make room.
+	 * @return the eviction count
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Gets the fraction of lookups that found an outcome.
+	 * @return the hit rate, or NaN if there were no lookups
+	 */
+	public double getHitRate() {
+
+		long hits = getHits();
+		long lookups = hits + getMisses();
+		return lookups > 0 ? (double) hits / lookups : Double.NaN;
+
+	}
+
+	/**
+	 * Gets the number of outcomes in memory.
+	 * @return the cache's size
+	 */
+	public int size() {
+
+		int size = 0;
+
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+
+	}
+
+	/**
+	 * Writes out outcomes not yet in the cache file, and closes it.
+	 * @throws IOException if the file can't be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		if (file != null) {
+			file.close();
+			file = null;
+		}
+
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format(Locale.ROOT,
+			"Outcome cache: %d hits, %d misses (%.2f%% hit rate), %d entries, %d evicted",
+			getHits(), getMisses(), getHitRate() * 100, size(), getEvictions());
+
+	}
+
+	/**
+	 * Gets the segment a key belongs to.
+	 * @param hash the key's hash
+	 * @return the key's segment
+	 */
+	private Segment getSegment(byte [] hash) {
+		return segments[(hash[0] & 0xFF) % SEGMENTS];
+	}
+
+	/**
+	 * Appends an outcome to the cache file.
+	 * @param key the landing's key
+	 * @param outcome the landing's outcome
+	 */
+	private synchronized void append(Key key, LandingOutcome outcome) {
+
+		if (file == null) {
+			return;
+		}
+
+		try {
+
+			file.write(key.hash);
+			outcome.write(file);
+
+		} catch (IOException e) {
+
+			// The in-memory cache still works without the file
+			System.err.println("Outcome cache file disabled: " + e.getMessage());
+			try {
+				file.close();
+			} catch (IOException closeError) {
+				// Already failing
+			}
+			file = null;
+
+		}
+
+	}
+
+	/**
+	 * The SHA-256 hash identifying a landing.
+	 */
+	public static final class Key {
+
+		private final byte [] hash;
+		private final int hashCode;
+
+		/**
+		 * Creates a Key from a hash.
+		 * @param hash the landing's hash
+		 */
+		private Key(byte [] hash) {
+
+			this.hash = hash;
+			this.hashCode = Arrays.hashCode(hash);
+
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && Arrays.equals(hash, ((Key) other).hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+	}
+
+	/**
+	 * One lock's share of the cache, evicting its least recently used
+	 * outcome when full.
+	 */
+	private class Segment extends LinkedHashMap<Key, LandingOutcome> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		/**
+		 * Creates an empty Segment.
+		 * @param capacity the most outcomes the Segment keeps
+		 */
+		Segment(int capacity) {
+
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+
+		}
+
+		@Override
+		public synchronized LandingOutcome get(Object key) {
+			return super.get(key);
+		}
+
+		@Override
+		public synchronized LandingOutcome put(Key key, LandingOutcome outcome) {
+			return super.put(key, outcome);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, LandingOutcome> eldest) {
+
+			if (size() > capacity) {
+				evictions.incrementAndGet();
+				return true;
+			}
+
+			return false;
+
+		}
+
+	}
+
+}
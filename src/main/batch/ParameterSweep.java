@@ -0,0 +1,623 @@
+package batch;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import rocket.AutopilotParameters;
+
+/**
+ * Flies automatic landings over a grid of initial fuel, initial height, max
+ * speed, and autopilot gains. Every combination is a SweepCell, and every
+ * cell flies the same number of landings.
+ *
+ * Cells are split across a work-stealing pool, so threads that finish
+ * cheap cells take over the rest of the work. Each cell's result goes into
+ * the SweepResultTable as soon as the cell finishes. Each worker thread
+ * keeps one HeadlessLanding and reuses its World and Rocket for every
+ * landing it flies, so a cell costs only its landings.
+ *
+ * Landing number i of every cell draws the same random number for its
+ * horizontal velocity. Cells are then compared on the same set of initial
+ * conditions, so differences between cells aren't hidden by noise.
+ *
+ * With a checkpoint file set, the results of the cells that are done are
+ * saved every so often while the sweep runs, and when the JVM is shut
+ * down. A sweep set to resume reads them back, adds them to the table,
+ * and only flies the cells that weren't done.
+ */
+public class ParameterSweep {
+
+	// The simulator's defaults
+	private double [] initialFuels = {10};
+	private double [] initialRocketHeights = {500};
+	private double [] maxSpeeds = {250};
+	private double [] kps = {AutopilotParameters.DEFAULT.getKp()};
+	private double [] kis = {AutopilotParameters.DEFAULT.getKi()};
+	private double [] kds = {AutopilotParameters.DEFAULT.getKd()};
+
+	private int runsPerCell = 100;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private long seed = 1;
+	private double maxFlightTime = 300; // seconds
+	private boolean earlyExit = false;
+	private OutcomeCache outcomeCache;
+
+	private Path checkpointFile;
+	private double checkpointInterval = 60; // seconds
+	private boolean resuming = false;
+	private int resumedCellCount;
+
+	/**
+	 * Sets the initial fuel amounts to sweep over.
+	 * @param initialFuels the initial fuel amounts
+	 */
+	public void setInitialFuels(double... initialFuels) {
+		this.initialFuels = requireValues(initialFuels);
+	}
+
+	/**
+	 * Sets the initial Rocket heights to sweep over.
+	 * @param initialRocketHeights the initial heights
+	 */
+	public void setInitialRocketHeights(double... initialRocketHeights) {
+		this.initialRocketHeights = requireValues(initialRocketHeights);
+	}
+
+	/**
+	 * Sets the max initial horizontal speeds to sweep over.
+	 * @param maxSpeeds the max speeds
+	 */
+	public void setMaxSpeeds(double... maxSpeeds) {
+		this.maxSpeeds = requireValues(maxSpeeds);
+	}
+
+	/**
+	 * Sets the proportional gains to sweep over.
+	 * @param kps the proportional gains
+	 */
+	public void setKps(double... kps) {
+		this.kps = requireValues(kps);
+	}
+
+	/**
+	 * Sets the integral gains to sweep over.
+	 * @param kis the integral gains
+	 */
+	public void setKis(double... kis) {
+		this.kis = requireValues(kis);
+	}
+
+	/**
+	 * Sets the derivative gains to sweep over.
+	 * @param kds the derivative gains
+	 */
+	public void setKds(double... kds) {
+		this.kds = requireValues(kds);
+	}
+
+	/**
+	 * Gets the number of landings flown in each cell.
+	 * @return the runs per cell
+	 */
+	public int getRunsPerCell() {
+		return runsPerCell;
+	}
+
+	/**
+	 * Sets the number of landings flown in each cell.
+	 * @param runsPerCell the new runs per cell
+	 */
+	public void setRunsPerCell(int runsPerCell) {
+
+		if (runsPerCell <= 0) {
+			throw new IllegalArgumentException("Runs per cell must be positive");
+		}
+
+		this.runsPerCell = runsPerCell;
+
+	}
+
+	/**
+	 * Gets the number of threads cells are flown on.
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads cells are flown on.
+	 * @param parallelism the new parallelism
+	 */
+	public void setParallelism(int parallelism) {
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+
+		this.parallelism = parallelism;
+
+	}
+
+	/**
+	 * Gets the seed the landings' horizontal velocities are drawn with.
+	 * @return the sweep seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the seed the landings' horizontal velocities are drawn with.
+	 * @param seed the new sweep seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Gets the longest simulated time a landing may take before it counts
+	 * as a crash.
+	 * @return the maximum flight time, in seconds
+	 */
+	public double getMaxFlightTime() {
+		return maxFlightTime;
+	}
+
+	/**
+	 * Sets the longest simulated time a landing may take before it counts
+	 * as a crash.
+	 * @param maxFlightTime the new maximum flight time, in seconds
+	 */
+	public void setMaxFlightTime(double maxFlightTime) {
+		this.maxFlightTime = maxFlightTime;
+	}
+
+	/**
+	 * Checks whether landings that are certain to crash are ended early.
+	 * @return true if early exit is on
+	 */
+	public boolean isEarlyExit() {
+		return earlyExit;
+	}
+
+	/**
+	 * Sets whether landings that are certain to crash are ended early. Crash
+	 * rates are unchanged, but they are the only results measured: the mean
+	 * landing velocity and fuel consumed of every cell are NaN.
+	 * @param earlyExit true to end certain crashes early
+	 */
+	public void setEarlyExit(boolean earlyExit) {
+		this.earlyExit = earlyExit;
+	}
+
+	/**
+	 * Gets the cache landings are looked up in before they are flown.
+	 * @return the outcome cache, or null if there is none
+	 */
+	public OutcomeCache getOutcomeCache() {
+		return outcomeCache;
+	}
+
+	/**
+	 * Sets the cache landings are looked up in before they are flown, and
+	 * added to after. A sweep run again with the
+	 * same cache only flies the cells that are new.
+	 * @param outcomeCache the new outcome cache, or null for none
+	 */
+	public void setOutcomeCache(OutcomeCache outcomeCache) {
+		this.outcomeCache = outcomeCache;
+	}
+
+	/**
+	 * Gets the file the sweep's progress is saved to.
+	 * @return the checkpoint file, or null if progress isn't saved
+	 */
+	public Path getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Sets the file the sweep's progress is saved to.
+	 * @param checkpointFile the new checkpoint file, or null to not save
+	 * progress
+	 */
+	public void setCheckpointFile(Path checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * Gets the time between checkpoints.
+	 * @return the checkpoint interval, in seconds
+	 */
+	public double getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Sets the time between checkpoints.
+	 * @param checkpointInterval the new checkpoint interval, in seconds
+	 */
+	public void setCheckpointInterval(double checkpointInterval) {
+
+		if (!(checkpointInterval > 0)) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+
+		this.checkpointInterval = checkpointInterval;
+
+	}
+
+	/**
+	 * Checks whether the sweep carries on from its checkpoint file.
+	 * @return true if the sweep resumes
+	 */
+	public boolean isResuming() {
+		return resuming;
+	}
+
+	/**
+	 * Sets whether the sweep carries on from its checkpoint file instead of
+	 * starting over. A sweep with no checkpoint file yet starts over.
+	 * @param resuming true to resume
+	 */
+	public void setResuming(boolean resuming) {
+		this.resuming = resuming;
+	}
+
+	/**
+	 * Gets the number of cells the last run read back from its checkpoint
+	 * instead of flying.
+	 * @return the resumed cell count
+	 */
+	public int getResumedCellCount() {
+		return resumedCellCount;
+	}
+
+	/**
+	 * Gets the number of cells in the sweep.
+	 * @return the number of cells
+	 */
+	public int getCellCount() {
+
+		long count = (long) initialFuels.length * initialRocketHeights.length *
+			maxSpeeds.length * kps.length * kis.length * kds.length;
+
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Sweep has too many cells: " + count);
+		}
+
+		return (int) count;
+
+	}
+
+	/**
+	 * Gets a cell of the sweep. The last parameter, the derivative gain,
+	 * changes fastest as the index increases.
+	 * @param index the cell's index
+	 * @return the cell
+	 */
+	public SweepCell getCell(int index) {
+
+		int remaining = index;
+
+		double kd = kds[remaining % kds.length];
+		remaining /= kds.length;
+		double ki = kis[remaining % kis.length];
+		remaining /= kis.length;
+		double kp = kps[remaining % kps.length];
+		remaining /= kps.length;
+		double maxSpeed = maxSpeeds[remaining % maxSpeeds.length];
+		remaining /= maxSpeeds.length;
+		double height = initialRocketHeights[remaining % initialRocketHeights.length];
+		remaining /= initialRocketHeights.length;
+		double fuel = initialFuels[remaining % initialFuels.length];
+
+		return new SweepCell(index, fuel, height, maxSpeed,
+			new AutopilotParameters(kp, ki, kd));
+
+	}
+
+	/**
+	 * Flies every cell of the sweep, adding each cell's result to the table
+	 * as soon as it finishes. Returns once every cell is done. When
+	 * resuming, the cells read back from the checkpoint are added first.
+	 * @param table the table to add results to
+	 * @throws UncheckedIOException if the checkpoint can't be read, or was
+	 * written by a different sweep
+	 */
+	public void run(SweepResultTable table) {
+
+		BitSet done = new BitSet(getCellCount());
+		resumedCellCount = 0;
+
+		if (isResuming() && getCheckpointFile() != null && Files.exists(getCheckpointFile())) {
+
+			try {
+
+				for (SweepCellResult result : SweepCheckpoint.read(getCheckpointFile(), this)) {
+					table.add(result);
+					done.set(result.getCell().getIndex());
+					resumedCellCount++;
+				}
+
+			} catch (IOException e) {
+
+				throw new UncheckedIOException(e);
+
+			}
+
+		}
+
+		// Every cell flies its landings from the same random numbers
+		double [] unitRandoms = new double[getRunsPerCell()];
+		SplittableRandom random = new SplittableRandom(getSeed());
+		for (int i = 0; i < unitRandoms.length; i++) {
+			unitRandoms[i] = random.nextDouble();
+		}
+
+		ThreadLocal<HeadlessLanding> landings = ThreadLocal.withInitial(() -> {
+
+			HeadlessLanding landing = new HeadlessLanding();
+			landing.setMaxFlightTime(getMaxFlightTime());
+			landing.setEarlyExit(isEarlyExit());
+			landing.setOutcomeCache(getOutcomeCache());
+			return landing;
+
+		});
+
+		ForkJoinPool pool = new ForkJoinPool(getParallelism());
+		ScheduledExecutorService checkpoints = null;
+		Thread shutdownCheckpoint = null;
+
+		if (getCheckpointFile() != null) {
+
+			long interval = Math.max(1, Math.round(getCheckpointInterval() * 1000));
+
+			checkpoints = Executors.newSingleThreadScheduledExecutor(task -> {
+
+				Thread thread = new Thread(task, "Sweep checkpoints");
+				thread.setDaemon(true);
+				return thread;
+
+			});
+			checkpoints.scheduleWithFixedDelay(() -> checkpoint(table),
+				interval, interval, TimeUnit.MILLISECONDS);
+
+			// Save the cells that are done if the sweep is stopped
+			shutdownCheckpoint = new Thread(() -> checkpoint(table), "Sweep shutdown checkpoint");
+			Runtime.getRuntime().addShutdownHook(shutdownCheckpoint);
+
+		}
+
+		try {
+
+			pool.invoke(new CellRange(0, getCellCount(), unitRandoms, landings, table, done));
+
+		} finally {
+
+			pool.shutdownNow();
+
+			if (checkpoints != null) {
+
+				checkpoints.shutdownNow();
+
+				try {
+					Runtime.getRuntime().removeShutdownHook(shutdownCheckpoint);
+				} catch (IllegalStateException e) {
+					// Already shutting down, so the hook saves the checkpoint
+				}
+
+				checkpoint(table);
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Saves the results of the cells that are done to the checkpoint file.
+	 * A failed checkpoint is reported, but doesn't stop the sweep.
+	 * @param table the table the sweep adds results to
+	 */
+	private synchronized void checkpoint(SweepResultTable table) {
+
+		List<SweepCellResult> results = table.getResults();
+
+		try {
+
+			SweepCheckpoint.write(getCheckpointFile(), getFingerprint(), getCellCount(), results);
+
+		} catch (IOException e) {
+
+			System.err.println("Couldn't save sweep checkpoint: " + e.getMessage());
+
+		}
+
+	}
+
+	/**
+	 * Gets a hash of everything that decides the sweep's cells and their
+	 * results, so a checkpoint is only resumed by the sweep that wrote it.
+	 * The parallelism and outcome cache don't change results, so they
+	 * aren't part of it.
+	 * @return the sweep's SHA-256 fingerprint
+	 */
+	byte [] getFingerprint() {
+
+		double [][] axes = {initialFuels, initialRocketHeights, maxSpeeds, kps, kis, kds};
+
+		int length = 4 + 4 + 8 + 8 + 1;
+		for (double [] axis : axes) {
+			length += 4 + axis.length * 8;
+		}
+
+		ByteBuffer canonical = ByteBuffer.allocate(length);
+		canonical.putInt(HeadlessLanding.SIMULATION_VERSION);
+		canonical.putInt(getRunsPerCell());
+		canonical.putLong(getSeed());
+		canonical.putDouble(getMaxFlightTime());
+		canonical.put((byte) (isEarlyExit() ? 1 : 0));
+
+		for (double [] axis : axes) {
+
+			canonical.putInt(axis.length);
+			for (double value : axis) {
+				canonical.putDouble(value);
+			}
+
+		}
+
+		try {
+
+			return MessageDigest.getInstance("SHA-256").digest(canonical.array());
+
+		} catch (NoSuchAlgorithmException e) {
+
+			// Every Java platform has SHA-256
+			throw new IllegalStateException(e);
+
+		}
+
+	}
+
+	/**
+	 * Flies every landing of a cell. With early exit on, only the crash rate
+	 * is exact, so the means are left as NaN.
+	 * @param cell the cell to fly
+	 * @param unitRandoms the random number for each landing
+	 * @param landing the HeadlessLanding to fly the landings with
+	 * @return the cell's result
+	 */
+	private static SweepCellResult runCell(SweepCell cell, double [] unitRandoms,
+			HeadlessLanding landing) {
+
+		int crashes = 0;
+		int landed = 0;
+		int endedEarly = 0;
+		double landingVelocitySum = 0;
+		double fuelConsumedSum = 0;
+
+		for (int i = 0; i < unitRandoms.length; i++) {
+
+			LandingOutcome outcome = landing.run(cell.createScenario(unitRandoms[i]));
+
+			if (outcome.isCrashed()) {
+				crashes++;
+			}
+
+			if (outcome.isEndedEarly()) {
+				endedEarly++;
+			}
+
+			if (outcome.isLanded()) {
+				landed++;
+				landingVelocitySum += outcome.getLandingVelocity();
+			}
+
+			fuelConsumedSum += outcome.getFuelConsumedProportion();
+
+		}
+
+		if (landing.isEarlyExit()) {
+			return new SweepCellResult(cell, unitRandoms.length, crashes, endedEarly,
+				Double.NaN, Double.NaN);
+		}
+
+		return new SweepCellResult(cell, unitRandoms.length, crashes, endedEarly,
+			landed > 0 ? landingVelocitySum / landed : Double.NaN,
+			fuelConsumedSum / unitRandoms.length);
+
+	}
+
+	/**
+	 * Copies the given values, checking there is at least one.
+	 * @param values the values of a sweep axis
+	 * @return a copy of the values
+	 */
+	private static double [] requireValues(double [] values) {
+
+		if (values.length == 0) {
+			throw new IllegalArgumentException("A sweep axis needs at least one value");
+		}
+
+		return values.clone();
+
+	}
+
+	/**
+	 * A range of cells, split in half until single cells are left so idle
+	 * threads can steal the other halves.
+	 */
+	private class CellRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int end;
+		private final double [] unitRandoms;
+		private final ThreadLocal<HeadlessLanding> landings;
+		private final SweepResultTable table;
+		private final BitSet done;
+
+		/**
+		 * Creates a CellRange covering cells from start up to, but not
+		 * including, end.
+		 * @param start the first cell's index
+		 * @param end the index after the last cell
+		 * @param unitRandoms the random number for each landing of a cell
+		 * @param landings each worker thread's HeadlessLanding
+		 * @param table the table to add results to
+		 * @param done the cells that were already done, which are skipped
+		 */
+		CellRange(int start, int end, double [] unitRandoms,
+				ThreadLocal<HeadlessLanding> landings, SweepResultTable table,
+				BitSet done) {
+
+			this.start = start;
+			this.end = end;
+			this.unitRandoms = unitRandoms;
+			this.landings = landings;
+			this.table = table;
+			this.done = done;
+
+		}
+
+		@Override
+		protected void compute() {
+
+			// The done cells are only read while the sweep runs
+			int next = done.nextClearBit(start);
+
+			if (next >= end) {
+				return;
+			}
+
+			if (end - next == 1) {
+
+				table.add(runCell(getCell(next), unitRandoms, landings.get()));
+				return;
+
+			}
+
+			int middle = (next + end) >>> 1;
+			invokeAll(new CellRange(next, middle, unitRandoms, landings, table, done),
+				new CellRange(middle, end, unitRandoms, landings, table, done));
+
+		}
+
+	}
+
+}
@@ -0,0 +1,308 @@
+package batch;
+import java.util.Arrays;
+
+/**
+ * A KLL sketch: estimates quantiles of a stream of values in a small, fixed
+ * amount of memory, and can be merged with other sketches.
+ *
+ * Values are kept in levels. A value on level h stands for 2^h of the
+ * original values. When the sketch is full, the lowest full level is
+ * sorted and every other value in it moves up a level, chosen with a coin
+ * flip, while the rest are dropped. Lower levels get less room than higher
+ * ones, so the sketch needs about 3k values of memory. Estimated ranks are
+ * usually within about 1.7 / k of the true rank, and are exact until the
+ * sketch first fills.
+ */
+public class QuantileSketch {
+
+	private static final int DEFAULT_K = 200;
+
+	// Each level below the top gets this fraction of the room of the one above
+	private static final double LEVEL_DECAY = 2.0 / 3.0;
+
+	private static final int MIN_LEVEL_CAPACITY = 2;
+
+	private final int k;
+
+	private double [][] levels = new double[1][];
+	private int [] sizes = new int[1];
+	private long count;
+
+	// State of the coin flipped when a level is compacted
+	private long coin = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Creates an empty QuantileSketch with the default accuracy.
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * Creates an empty QuantileSketch.
+	 * @param k the accuracy parameter; larger is more accurate and uses
+	 * more memory
+	 */
+	public QuantileSketch(int k) {
+
+		if (k < MIN_LEVEL_CAPACITY) {
+			throw new IllegalArgumentException("Sketch k must be at least " + MIN_LEVEL_CAPACITY);
+		}
+
+		this.k = k;
+		levels[0] = new double[k];
+
+	}
+
+	/**
+	 * Gets the number of values added to the sketch.
+	 * @return the count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Adds a value to the sketch.
+	 * @param value the value to add
+	 */
+	public void add(double value) {
+
+		append(0, value);
+		count++;
+
+		if (getRetained() > getMaxRetained()) {
+			compress();
+		}
+
+	}
+
+	/**
+	 * Adds every value of another sketch to this one. The other sketch
+	 * isn't changed.
+	 * @param other the sketch to merge in
+	 */
+	public void merge(QuantileSketch other) {
+
+		while (levels.length < other.levels.length) {
+			addLevel();
+		}
+
+		for (int h = 0; h < other.levels.length; h++) {
+			for (int i = 0; i < other.sizes[h]; i++) {
+				append(h, other.levels[h][i]);
+			}
+		}
+
+		count += other.count;
+
+		while (getRetained() > getMaxRetained()) {
+			compress();
+		}
+
+	}
+
+	/**
+	 * Creates a copy of the sketch that can be changed independently.
+	 * @return the copy
+	 */
+	public QuantileSketch copy() {
+
+		QuantileSketch copy = new QuantileSketch(k);
+		copy.levels = new double[levels.length][];
+
+		for (int h = 0; h < levels.length; h++) {
+			copy.levels[h] = Arrays.copyOf(levels[h], Math.max(sizes[h], 1));
+		}
+
+		copy.sizes = sizes.clone();
+		copy.count = count;
+		copy.coin = coin;
+		return copy;
+
+	}
+
+	/**
+	 * Estimates the value at a quantile.
+	 * @param quantile the quantile, from 0 to 1
+	 * @return the estimated value, or NaN if the sketch is empty
+	 */
+	public double getQuantile(double quantile) {
+
+		int retained = getRetained();
+
+		if (retained == 0) {
+			return Double.NaN;
+		}
+
+		// Sort every retained value with its weight
+		double [] values = new double[retained];
+		long [] weights = new long[retained];
+		Integer [] order = new Integer[retained];
+		int n = 0;
+
+		for (int h = 0; h < levels.length; h++) {
+			for (int i = 0; i < sizes[h]; i++) {
+
+				values[n] = levels[h][i];
+				weights[n] = 1L << h;
+				order[n] = n;
+				n++;
+
+			}
+		}
+
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+		long totalWeight = 0;
+		for (long weight : weights) {
+			totalWeight += weight;
+		}
+
+		double targetRank = Math.max(0, Math.min(1, quantile)) * (totalWeight - 1);
+		long cumulativeWeight = 0;
+
+		for (int i = 0; i < retained; i++) {
+
+			cumulativeWeight += weights[order[i]];
+
+			if (cumulativeWeight > targetRank) {
+				return values[order[i]];
+			}
+
+		}
+
+		return values[order[retained - 1]];
+
+	}
+
+	/**
+	 * Gets the number of values held in all levels.
+	 * @return the retained count
+	 */
+	private int getRetained() {
+
+		int retained = 0;
+		for (int size : sizes) {
+			retained += size;
+		}
+
+		return retained;
+
+	}
+
+	/**
+	 * Gets the number of values the sketch may hold before compacting.
+	 * @return the max retained count
+	 */
+	private int getMaxRetained() {
+
+		int max = 0;
+		for (int h = 0; h < levels.length; h++) {
+			max += getCapacity(h);
+		}
+
+		return max;
+
+	}
+
+	/**
+	 * Gets the room a level gets before it is compacted. The top level gets
+	 * k, and each level below gets less.
+	 * @param level the level
+	 * @return the level's capacity
+	 */
+	private int getCapacity(int level) {
+
+		int depth = levels.length - 1 - level;
+		return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(LEVEL_DECAY, depth)));
+
+	}
+
+	/**
+	 * Compacts the lowest level that is over its capacity, adding a level
+	 * on top if needed.
+	 */
+	private void compress() {
+
+		for (int h = 0; h < levels.length; h++) {
+
+			if (sizes[h] >= getCapacity(h)) {
+
+				if (h + 1 == levels.length) {
+					addLevel();
+				}
+
+				compact(h);
+				return;
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Moves every other value of a level up to the next level, keeping one
+	 * value back if the level has an odd number.
+	 * @param level the level to compact
+	 */
+	private void compact(int level) {
+
+		double [] items = levels[level];
+		int size = sizes[level];
+		Arrays.sort(items, 0, size);
+
+		int kept = size % 2;
+		int offset = flipCoin() ? 1 : 0;
+
+		for (int i = kept + offset; i < size; i += 2) {
+			append(level + 1, items[i]);
+		}
+
+		// The odd value out, the smallest, stays on this level
+		sizes[level] = kept;
+
+	}
+
+	/**
+	 * Adds an empty level on top of the others.
+	 */
+	private void addLevel() {
+
+		levels = Arrays.copyOf(levels, levels.length + 1);
+		sizes = Arrays.copyOf(sizes, sizes.length + 1);
+		levels[levels.length - 1] = new double[k];
+
+	}
+
+	/**
+	 * Adds a value to a level, growing the level's array if needed.
+	 * @param level the level
+	 * @param value the value
+	 */
+	private void append(int level, double value) {
+
+		if (sizes[level] == levels[level].length) {
+			levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+		}
+
+		levels[level][sizes[level]++] = value;
+
+	}
+
+	/**
+	 * Flips a coin with a small xorshift generator, so sketches are
+	 * repeatable.
+	 * @return the coin's side
+	 */
+	private boolean flipCoin() {
+
+		coin ^= coin << 13;
+		coin ^= coin >>> 7;
+		coin ^= coin << 17;
+		return (coin & 1) != 0;
+
+	}
+
+}
@@ -0,0 +1,147 @@
+package batch;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The result of a ResultQuery: one row of aggregates per group, and how
+ * much of the store the query had to read.
+ */
+public class QueryResult {
+
+	private final ResultColumn groupBy;
+	private final double groupWidth;
+	private final long [] groupKeys;
+	private final List<ResultAggregate> aggregates;
+	private final double [][] values;
+	private final long matchedRows;
+	private final long rowCount;
+	private final int skippedBlocks;
+	private final int blockCount;
+	private final double elapsedSeconds;
+
+	/**
+	 * Creates a QueryResult.
+	 * @param groupBy the column rows were grouped by, or null for a single
+	 * group
+	 * @param groupWidth the width of each group
+	 * @param groupKeys each group's key, in order: the group holds values
+	 * from key * groupWidth up to (key + 1) * groupWidth
+	 * @param aggregates the aggregates computed
+	 * @param values each group's aggregate values
+	 * @param matchedRows the number of rows that matched the filters
+	 * @param rowCount the number of rows in the store
+	 * @param skippedBlocks the number of blocks skipped without reading
+	 * @param blockCount the number of blocks in the store
+	 * @param elapsedSeconds how long the query took
+	 */
+	public QueryResult(ResultColumn groupBy, double groupWidth, long [] groupKeys,
+			List<ResultAggregate> aggregates, double [][] values, long matchedRows,
+			long rowCount, int skippedBlocks, int blockCount, double elapsedSeconds) {
+
+		this.groupBy = groupBy;
+		this.groupWidth = groupWidth;
+		this.groupKeys = groupKeys;
+		this.aggregates = new ArrayList<ResultAggregate>(aggregates);
+		this.values = values;
+		this.matchedRows = matchedRows;
+		this.rowCount = rowCount;
+		this.skippedBlocks = skippedBlocks;
+		this.blockCount = blockCount;
+		this.elapsedSeconds = elapsedSeconds;
+
+	}
+
+	/**
+	 * Gets the number of groups.
+	 * @return the group count
+	 */
+	public int getGroupCount() {
+		return groupKeys.length;
+	}
+
+	/**
+	 * Gets the smallest value a group holds.
+	 * @param group the group
+	 * @return the group's low end, or NaN if rows weren't grouped
+	 */
+	public double getGroupLow(int group) {
+		return groupBy != null ? groupKeys[group] * groupWidth : Double.NaN;
+	}
+
+	/**
+	 * Gets an aggregate's value in a group.
+	 * @param group the group
+	 * @param aggregate the aggregate's position in the query
+	 * @return the value
+	 */
+	public double getValue(int group, int aggregate) {
+		return values[group][aggregate];
+	}
+
+	/**
+	 * Gets the number of rows that matched the filters.
+	 * @return the matched row count
+	 */
+	public long getMatchedRows() {
+		return matchedRows;
+	}
+
+	/**
+	 * Gets the number of blocks skipped without reading any of their rows.
+	 * @return the skipped block count
+	 */
+	public int getSkippedBlocks() {
+		return skippedBlocks;
+	}
+
+	/**
+	 * Gets how long the query took.
+	 * @return the time in seconds
+	 */
+	public double getElapsedSeconds() {
+		return elapsedSeconds;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder table = new StringBuilder();
+
+		if (groupBy != null) {
+			table.append(String.format(Locale.ROOT, "%-24s", groupBy.getName()));
+		}
+		for (ResultAggregate aggregate : aggregates) {
+			table.append(String.format(Locale.ROOT, "%24s", aggregate));
+		}
+		table.append(System.lineSeparator());
+
+		for (int group = 0; group < groupKeys.length; group++) {
+
+			if (groupBy != null) {
+				table.append(String.format(Locale.ROOT, "%-24s", String.format(Locale.ROOT,
+					"[%.6g, %.6g)", getGroupLow(group), getGroupLow(group) + groupWidth)));
+			}
+
+			for (int a = 0; a < aggregates.size(); a++) {
+
+				double value = values[group][a];
+				table.append(aggregates.get(a).getFunction() == ResultAggregate.Function.COUNT ?
+					String.format(Locale.ROOT, "%24d", (long) value) :
+					String.format(Locale.ROOT, "%24.6f", value));
+
+			}
+
+			table.append(System.lineSeparator());
+
+		}
+
+		table.append(String.format(Locale.ROOT,
+			"%d of %d rows matched, %d of %d blocks skipped, %.3f s",
+			matchedRows, rowCount, skippedBlocks, blockCount, elapsedSeconds));
+
+		return table.toString();
+
+	}
+
+}
@@ -0,0 +1,329 @@
+package batch;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import util.VirtualThreads;
+
+/**
+ * Runs many independent simulations at once, each ticked against the real
+ * clock the way a live vehicle would be mirrored. Each simulation has its
+ * own World and Rocket and flies automatic landings back to back, sleeping
+ * between ticks until its next tick is due.
+ *
+ * Every simulation blocks in its sleeps, so it needs a thread of its own
+ * while it runs. With virtual threads, tens of thousands of simulations
+ * sleep cheaply on a few carrier threads. A fixed pool of platform threads
+ * can only run as many simulations as it has threads, and the rest wait
+ * their turn, which shows up as lag. Running the same fleet both ways
+ * compares the two. Virtual threads need Java 21 or later; on older
+ * versions, virtual mode fails rather than quietly running on platform
+ * threads.
+ *
+ * Simulated time keeps up with the clock: a simulation that falls behind
+ * runs every tick it missed before sleeping again. The lag of each tick is
+ * recorded for the FleetReport.
+ */
+public class RealTimeFleet {
+
+	/**
+	 * The kinds of threads a fleet can run on.
+	 */
+	public enum Mode {
+		/** One virtual thread per simulation. */
+		VIRTUAL,
+		/** A fixed pool of platform threads. */
+		PLATFORM
+	}
+
+	private final MonteCarloRunner scenarios = new MonteCarloRunner();
+
+	private int simulations = 1000;
+	private double tickRate = 60; // ticks/second
+	private double duration = 10; // seconds
+	private Mode mode = Mode.VIRTUAL;
+	private int platformThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Gets the runner whose distributions and seed the landings' initial
+	 * conditions are drawn from.
+	 * @return the scenario runner
+	 */
+	public MonteCarloRunner getScenarios() {
+		return scenarios;
+	}
+
+	/**
+	 * Gets the number of simulations in the fleet.
+	 * @return the number of simulations
+	 */
+	public int getSimulations() {
+		return simulations;
+	}
+
+	/**
+	 * Sets the number of simulations in the fleet.
+	 * @param simulations the new number of simulations
+	 */
+	public void setSimulations(int simulations) {
+
+		if (simulations <= 0) {
+			throw new IllegalArgumentException("Simulation count must be positive");
+		}
+
+		this.simulations = simulations;
+
+	}
+
+	/**
+	 * Gets the number of times per second each simulation ticks.
+	 * @return the tick rate
+	 */
+	public double getTickRate() {
+		return tickRate;
+	}
+
+	/**
+	 * Sets the number of times per second each simulation ticks.
+	 * @param tickRate the new tick rate
+	 */
+	public void setTickRate(double tickRate) {
+
+		if (!(tickRate > 0)) {
+			throw new IllegalArgumentException("Tick rate must be positive");
+		}
+
+		this.tickRate = tickRate;
+
+	}
+
+	/**
+	 * Gets the wall-clock time the fleet runs for.
+	 * @return the duration, in seconds
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Sets the wall-clock time the fleet runs for.
+	 * @param duration the new duration, in seconds
+	 */
+	public void setDuration(double duration) {
+
+		if (!(duration > 0)) {
+			throw new IllegalArgumentException("Duration must be positive");
+		}
+
+		this.duration = duration;
+
+	}
+
+	/**
+	 * Gets the kind of threads the simulations run on.
+	 * @return the mode
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the kind of threads the simulations run on.
+	 * @param mode the new mode
+	 */
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Gets the size of the platform thread pool used in PLATFORM mode.
+	 * @return the number of platform threads
+	 */
+	public int getPlatformThreads() {
+		return platformThreads;
+	}
+
+	/**
+	 * Sets the size of the platform thread pool used in PLATFORM mode.
+	 * @param platformThreads the new number of platform threads
+	 */
+	public void setPlatformThreads(int platformThreads) {
+
+		if (platformThreads <= 0) {
+			throw new IllegalArgumentException("Thread count must be positive");
+		}
+
+		this.platformThreads = platformThreads;
+
+	}
+
+	/**
+	 * Runs every simulation for the fleet's duration and reports their lag.
+	 * @return the fleet's results
+	 * @throws InterruptedException if the calling thread is interrupted
+	 * while waiting for the simulations
+	 * @throws UnsupportedOperationException if the fleet is in virtual mode
+	 * and the running Java has no virtual threads
+	 */
+	public FleetReport run() throws InterruptedException {
+
+		String description;
+		ExecutorService executor;
+
+		if (getMode() == Mode.PLATFORM) {
+
+			executor = Executors.newFixedThreadPool(getPlatformThreads());
+			description = getPlatformThreads() + " platform threads";
+
+		} else {
+
+			// Throws without virtual threads, instead of starting an OS
+			// thread for every simulation
+			executor = VirtualThreads.newThreadPerTaskExecutor();
+			description = "virtual threads";
+
+		}
+
+		long [] ticks = new long[simulations];
+		long [] lateTicks = new long[simulations];
+		long [] landings = new long[simulations];
+		double [] meanLags = new double[simulations];
+		double [] maxLags = new double[simulations];
+
+		long period = Math.max(1, Math.round(1_000_000_000 / getTickRate()));
+		long startTime = System.nanoTime() + period;
+		long endTime = startTime + Math.round(getDuration() * 1_000_000_000);
+
+		ArrayList<Future<?>> tasks = new ArrayList<Future<?>>(simulations);
+
+		try {
+
+			for (int i = 0; i < simulations; i++) {
+
+				int simulation = i;
+
+				// Simulations tick at evenly spread times, so they don't all
+				// wake at once
+				long firstTick = startTime + period * simulation / simulations;
+
+				tasks.add(executor.submit(() -> {
+
+					runSimulation(simulation, firstTick, endTime, period,
+						ticks, lateTicks, landings, meanLags, maxLags);
+					return null;
+
+				}));
+
+			}
+
+			// Waiting on every simulation also makes their results visible here
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+
+		} catch (ExecutionException e) {
+
+			throw new IllegalStateException("A simulation failed", e.getCause());
+
+		} finally {
+
+			executor.shutdownNow();
+
+		}
+
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+		return new FleetReport(description, elapsedSeconds, ticks, lateTicks,
+			landings, meanLags, maxLags);
+
+	}
+
+	/**
+	 * Ticks one simulation against the clock until the fleet's end time,
+	 * and stores its results at its index in the given arrays.
+	 * @param simulation the simulation's index
+	 * @param firstTick the time its first tick is due, from System.nanoTime()
+	 * @param endTime the time no more ticks are due, from System.nanoTime()
+	 * @param period the time between ticks, in nanoseconds
+	 * @param ticks each simulation's tick count
+	 * @param lateTicks each simulation's late tick count
+	 * @param landings each simulation's finished landing count
+	 * @param meanLags each simulation's mean tick lag, in milliseconds
+	 * @param maxLags each simulation's largest tick lag, in milliseconds
+	 * @throws InterruptedException if the simulation is interrupted while
+	 * sleeping
+	 */
+	private void runSimulation(int simulation, long firstTick, long endTime,
+			long period, long [] ticks, long [] lateTicks, long [] landings,
+			double [] meanLags, double [] maxLags) throws InterruptedException {
+
+		HeadlessLanding landing = new HeadlessLanding();
+		landing.setTimeStep(1 / getTickRate());
+		landing.setMaxFlightTime(scenarios.getMaxFlightTime());
+
+		long landingCount = 0;
+		landing.start(scenarios.createScenario(simulation));
+
+		long tickCount = 0;
+		long lateCount = 0;
+		long lagSum = 0;
+		long maxLag = 0;
+
+		for (long dueTime = firstTick; dueTime < endTime; dueTime += period) {
+
+			sleepUntil(dueTime);
+
+			long lag = System.nanoTime() - dueTime;
+			lagSum += lag;
+			maxLag = Math.max(maxLag, lag);
+			if (lag > period) {
+				lateCount++;
+			}
+
+			if (!landing.isFlying()) {
+
+				// Every landing of every simulation gets its own index
+				landingCount++;
+				landing.start(scenarios.createScenario(
+					simulation + landingCount * simulations));
+
+			}
+
+			landing.step();
+			tickCount++;
+
+		}
+
+		ticks[simulation] = tickCount;
+		lateTicks[simulation] = lateCount;
+		landings[simulation] = landingCount;
+		meanLags[simulation] = tickCount > 0 ? lagSum / 1_000_000.0 / tickCount : 0;
+		maxLags[simulation] = maxLag / 1_000_000.0;
+
+	}
+
+	/**
+	 * Sleeps until the given time. On a virtual thread this parks the
+	 * thread, freeing its carrier thread for other simulations.
+	 * @param time the time to wake at, from System.nanoTime()
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	private static void sleepUntil(long time) throws InterruptedException {
+
+		long remaining;
+
+		while ((remaining = time - System.nanoTime()) > 0) {
+
+			LockSupport.parkNanos(remaining);
+
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,135 @@
+package batch;
+import java.util.Locale;
+
+/**
+ * A value a ResultQuery computes over the rows that match it, like
+ * <code>count</code>, <code>crash_rate</code>, or
+ * <code>max(landing_velocity)</code>. Means of flag columns are the
+ * fraction of rows with the flag set.
+ */
+public class ResultAggregate {
+
+	/**
+	 * The ways rows can be combined.
+	 */
+	public enum Function {
+		COUNT, SUM, MEAN, MIN, MAX
+	}
+
+	private final Function function;
+	private final ResultColumn column;
+	private final String name;
+
+	/**
+	 * Creates a ResultAggregate.
+	 * @param function how the rows are combined
+	 * @param column the column combined, or null for COUNT
+	 * @param name the name the aggregate is shown with
+	 */
+	public ResultAggregate(Function function, ResultColumn column, String name) {
+
+		if ((function == Function.COUNT) != (column == null)) {
+			throw new IllegalArgumentException("Only count has no column: " + name);
+		}
+
+		this.function = function;
+		this.column = column;
+		this.name = name;
+
+	}
+
+	/**
+	 * Parses an aggregate like <code>mean(fuel_left)</code>. The shorthands
+	 * <code>crash_rate</code> and <code>landing_rate</code> are the means of
+	 * the crashed and landed flags.
+	 * @param text the aggregate
+	 * @return the parsed aggregate
+	 * @throws IllegalArgumentException if the aggregate can't be parsed
+	 */
+	public static ResultAggregate parse(String text) {
+
+		String aggregate = text.trim();
+
+		switch (aggregate) {
+		case "count":
+			return new ResultAggregate(Function.COUNT, null, aggregate);
+		case "crash_rate":
+			return new ResultAggregate(Function.MEAN, ResultColumn.CRASHED, aggregate);
+		case "landing_rate":
+			return new ResultAggregate(Function.MEAN, ResultColumn.LANDED, aggregate);
+		default:
+			break;
+		}
+
+		int open = aggregate.indexOf('(');
+
+		if (open < 0 || !aggregate.endsWith(")")) {
+			throw new IllegalArgumentException("Aggregates look like count or mean(column): " + text);
+		}
+
+		Function function;
+
+		try {
+
+			function = Function.valueOf(aggregate.substring(0, open).trim().toUpperCase(Locale.ROOT));
+
+		} catch (IllegalArgumentException e) {
+
+			throw new IllegalArgumentException("Unknown aggregate: " + text);
+
+		}
+
+		ResultColumn column = ResultColumn.forName(
+			aggregate.substring(open + 1, aggregate.length() - 1).trim());
+
+		return new ResultAggregate(function, column, aggregate);
+
+	}
+
+	/**
+	 * Gets how the rows are combined.
+	 * @return the function
+	 */
+	public Function getFunction() {
+		return function;
+	}
+
+	/**
+	 * Gets the column combined.
+	 * @return the column, or null for COUNT
+	 */
+	public ResultColumn getColumn() {
+		return column;
+	}
+
+	/**
+	 * Gets the aggregate's value from a group's totals.
+	 * @param count the number of rows in the group
+	 * @param sum the sum of the column over the group
+	 * @param min the smallest value of the column in the group
+	 * @param max the largest value of the column in the group
+	 * @return the value, or NaN if the group is empty
+	 */
+	public double getValue(long count, double sum, double min, double max) {
+
+		switch (function) {
+		case COUNT:
+			return count;
+		case SUM:
+			return sum;
+		case MEAN:
+			return count > 0 ? sum / count : Double.NaN;
+		case MIN:
+			return count > 0 ? min : Double.NaN;
+		default:
+			return count > 0 ? max : Double.NaN;
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
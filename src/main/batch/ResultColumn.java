@@ -0,0 +1,145 @@
+package batch;
+
+/**
+ * The columns of a landing results store. Each column is stored in its own
+ * file, so a scan of one column never reads the others. Numbers are stored
+ * as 8-byte doubles, and flags as single bytes.
+ */
+public enum ResultColumn {
+
+	INITIAL_FUEL("initial_fuel", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return scenario.getFuel();
+		}
+	},
+
+	INITIAL_HEIGHT("initial_height", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return scenario.getHeight();
+		}
+	},
+
+	INITIAL_X_VELOCITY("initial_x_velocity", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return scenario.getxVelocity();
+		}
+	},
+
+	LANDING_VELOCITY("landing_velocity", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return outcome.getLandingVelocity();
+		}
+	},
+
+	LANDING_ANGLE("landing_angle", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return outcome.getLandingAngle();
+		}
+	},
+
+	FUEL_LEFT("fuel_left", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return scenario.getFuel() * (1 - outcome.getFuelConsumedProportion());
+		}
+	},
+
+	FLIGHT_TIME("flight_time", 8) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return outcome.getFlightTime();
+		}
+	},
+
+	LANDED("landed", 1) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return outcome.isLanded() ? 1 : 0;
+		}
+	},
+
+	CRASHED("crashed", 1) {
+		@Override
+		double extract(LandingScenario scenario, LandingOutcome outcome) {
+			return outcome.isCrashed() ? 1 : 0;
+		}
+	};
+
+	private final String name;
+	private final int width;
+
+	/**
+	 * Creates a ResultColumn.
+	 * @param name the column's name, which is also its file name
+	 * @param width the number of bytes each value takes
+	 */
+	ResultColumn(String name, int width) {
+
+		this.name = name;
+		this.width = width;
+
+	}
+
+	/**
+	 * Gets the column's name.
+	 * @return the column name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the name of the file the column is stored in.
+	 * @return the column's file name
+	 */
+	public String getFileName() {
+		return name + ".col";
+	}
+
+	/**
+	 * Gets the number of bytes each value of the column takes.
+	 * @return the column width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Checks whether the column holds flags rather than numbers.
+	 * @return true if the column is a flag column
+	 */
+	public boolean isFlag() {
+		return width == 1;
+	}
+
+	/**
+	 * Gets the column's value for one landing. Flags are 1 or 0.
+	 * @param scenario the landing's initial conditions
+	 * @param outcome the landing's result
+	 * @return the column's value
+	 */
+	abstract double extract(LandingScenario scenario, LandingOutcome outcome);
+
+	/**
+	 * Finds a column by its name.
+	 * @param name the column's name
+	 * @return the column
+	 */
+	public static ResultColumn forName(String name) {
+
+		for (ResultColumn column : values()) {
+			if (column.getName().equals(name)) {
+				return column;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown column: " + name);
+
+	}
+
+}
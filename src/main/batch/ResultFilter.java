@@ -0,0 +1,292 @@
+package batch;
+import java.util.Locale;
+
+/**
+ * A condition on one column of a landing results store, like
+ * <code>initial_fuel &lt; 5</code> or <code>abs(initial_x_velocity) &gt; 200</code>.
+ * Conditions on flag columns compare against 1 or 0, and a flag column's
+ * name alone, like <code>crashed</code>, means it is set.
+ *
+ * Every comparison is kept as a range of matching values, so the same test
+ * decides whether a row matches, whether a block's zone map rules it out,
+ * and whether every row of a block matches. Rows whose value is NaN only
+ * match <code>!=</code>.
+ */
+public class ResultFilter {
+
+	private static final String [] OPERATORS = {"<=", ">=", "!=", "<", ">", "="};
+
+	private final ResultColumn column;
+	private final boolean absolute;
+	private final String operator;
+	private final double value;
+
+	// The matching values: from low to high, or everything else if negated
+	private final double low;
+	private final double high;
+	private final boolean lowInclusive;
+	private final boolean highInclusive;
+	private final boolean negated;
+
+	/**
+	 * Creates a ResultFilter.
+	 * @param column the column to test
+	 * @param absolute whether the column's absolute value is tested
+	 * @param operator one of &lt;, &lt;=, &gt;, &gt;=, = and !=
+	 * @param value the value to compare with
+	 */
+	public ResultFilter(ResultColumn column, boolean absolute, String operator, double value) {
+
+		this.column = column;
+		this.absolute = absolute;
+		this.operator = operator;
+		this.value = value;
+
+		double low = Double.NEGATIVE_INFINITY;
+		double high = Double.POSITIVE_INFINITY;
+		boolean lowInclusive = true;
+		boolean highInclusive = true;
+		boolean negated = false;
+
+		switch (operator) {
+		case "<":
+			high = value;
+			highInclusive = false;
+			break;
+		case "<=":
+			high = value;
+			break;
+		case ">":
+			low = value;
+			lowInclusive = false;
+			break;
+		case ">=":
+			low = value;
+			break;
+		case "=":
+			low = value;
+			high = value;
+			break;
+		case "!=":
+			low = value;
+			high = value;
+			negated = true;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operator: " + operator);
+		}
+
+		this.low = low;
+		this.high = high;
+		this.lowInclusive = lowInclusive;
+		this.highInclusive = highInclusive;
+		this.negated = negated;
+
+	}
+
+	/**
+	 * Parses a condition like <code>abs(initial_x_velocity) &gt; 200</code>,
+	 * <code>crashed</code>, or <code>not crashed</code>.
+	 * @param text the condition
+	 * @return the parsed filter
+	 * @throws IllegalArgumentException if the condition can't be parsed
+	 */
+	public static ResultFilter parse(String text) {
+
+		String condition = text.trim();
+
+		if (condition.toLowerCase(Locale.ROOT).startsWith("not ")) {
+
+			ResultColumn column = ResultColumn.forName(condition.substring(4).trim());
+			requireFlag(column, text);
+			return new ResultFilter(column, false, "=", 0);
+
+		}
+
+		for (String operator : OPERATORS) {
+
+			int split = condition.indexOf(operator);
+
+			if (split < 0) {
+				continue;
+			}
+
+			String left = condition.substring(0, split).trim();
+			String right = condition.substring(split + operator.length()).trim();
+			boolean absolute = false;
+
+			if (left.startsWith("abs(") && left.endsWith(")")) {
+				left = left.substring(4, left.length() - 1).trim();
+				absolute = true;
+			}
+
+			try {
+
+				return new ResultFilter(ResultColumn.forName(left), absolute, operator,
+					Double.parseDouble(right));
+
+			} catch (NumberFormatException e) {
+
+				throw new IllegalArgumentException("Condition must compare with a number: " + text);
+
+			}
+
+		}
+
+		ResultColumn column = ResultColumn.forName(condition);
+		requireFlag(column, text);
+		return new ResultFilter(column, false, "=", 1);
+
+	}
+
+	/**
+	 * Checks that a condition without a comparison is on a flag.
+	 * @param column the condition's column
+	 * @param text the condition
+	 */
+	private static void requireFlag(ResultColumn column, String text) {
+
+		if (!column.isFlag()) {
+			throw new IllegalArgumentException("Only flags can be used without a comparison: " + text);
+		}
+
+	}
+
+	/**
+	 * Gets the column the filter tests.
+	 * @return the column
+	 */
+	public ResultColumn getColumn() {
+		return column;
+	}
+
+	/**
+	 * Tests a single value.
+	 * @param value the column's value
+	 * @return true if the value matches
+	 */
+	public boolean matches(double value) {
+
+		double tested = absolute ? Math.abs(value) : value;
+
+		boolean inRange = (lowInclusive ? tested >= low : tested > low) &&
+			(highInclusive ? tested <= high : tested < high);
+
+		return inRange != negated;
+
+	}
+
+	/**
+	 * Checks whether any value between min and max could match.
+	 * @param min the smallest value
+	 * @param max the largest value
+	 * @return false if no value in the range matches
+	 */
+	public boolean mayMatch(double min, double max) {
+
+		double [] range = getTestedRange(min, max);
+		return negated ? !isInside(range[0], range[1]) : overlaps(range[0], range[1]);
+
+	}
+
+	/**
+	 * Checks whether every value between min and max matches.
+	 * @param min the smallest value
+	 * @param max the largest value
+	 * @return true if every value in the range matches
+	 */
+	public boolean matchesAll(double min, double max) {
+
+		double [] range = getTestedRange(min, max);
+		return negated ? !overlaps(range[0], range[1]) : isInside(range[0], range[1]);
+
+	}
+
+	/**
+	 * Tests the values of a block of rows, clearing the bit of each row that
+	 * doesn't match. The loop is the same for every comparison, so the JIT
+	 * can keep it tight.
+	 * @param values the block's values
+	 * @param count the number of rows in the block
+	 * @param selection one bit per row; bit i of word i / 64 is row i
+	 */
+	public void apply(double [] values, int count, long [] selection) {
+
+		for (int word = 0; word * 64 < count; word++) {
+
+			int base = word * 64;
+			int rows = Math.min(64, count - base);
+			long mask = 0;
+
+			for (int i = 0; i < rows; i++) {
+
+				double tested = absolute ? Math.abs(values[base + i]) : values[base + i];
+				boolean inRange = (lowInclusive ? tested >= low : tested > low) &
+					(highInclusive ? tested <= high : tested < high);
+
+				mask |= (inRange != negated ? 1L : 0L) << i;
+
+			}
+
+			selection[word] &= mask;
+
+		}
+
+	}
+
+	/**
+	 * Gets the range the tested values of a zone fall in, taking the
+	 * absolute value into account.
+	 * @param min the zone's smallest value
+	 * @param max the zone's largest value
+	 * @return the tested range's low and high ends
+	 */
+	private double [] getTestedRange(double min, double max) {
+
+		if (!absolute || min >= 0) {
+			return new double[] {min, max};
+		}
+
+		if (max <= 0) {
+			return new double[] {-max, -min};
+		}
+
+		return new double[] {0, Math.max(-min, max)};
+
+	}
+
+	/**
+	 * Checks whether a range shares any value with the matching range.
+	 * @param min the range's low end
+	 * @param max the range's high end
+	 * @return true if they overlap
+	 */
+	private boolean overlaps(double min, double max) {
+
+		return (lowInclusive ? max >= low : max > low) &&
+			(highInclusive ? min <= high : min < high);
+
+	}
+
+	/**
+	 * Checks whether a range is entirely inside the matching range.
+	 * @param min the range's low end
+	 * @param max the range's high end
+	 * @return true if every value of the range is inside
+	 */
+	private boolean isInside(double min, double max) {
+
+		return (lowInclusive ? min >= low : min > low) &&
+			(highInclusive ? max <= high : max < high);
+
+	}
+
+	@Override
+	public String toString() {
+
+		String name = absolute ? "abs(" + column.getName() + ")" : column.getName();
+		return name + " " + operator + " " + value;
+
+	}
+
+}
@@ -0,0 +1,610 @@
+package batch;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.zip.CRC32;
+
+/**
+ * Indexes of a landing results store that let a ResultQuery skip rows
+ * without reading them. Rows are split into blocks of {@link #BLOCK_SIZE},
+ * and the index holds:
+ * <ul>
+ * <li>a zone map for every number column: the min and max of each block</li>
+ * <li>a bitmap of every flag column, one bit per row, and the number of
+ * set flags in each block</li>
+ * <li>for the initial conditions, a mask of which of {@link #BUCKETS}
+ * equal-width buckets each block has values in</li>
+ * </ul>
+ * A filter can then skip blocks that can't match, take whole blocks that
+ * all match, and filter on flags without reading their columns.
+ *
+ * The index is saved in the store's directory with a fingerprint of the
+ * column files, their sizes and last-modified times, and built again
+ * whenever the store's row count or any column file has changed since.
+ */
+public class ResultIndex {
+
+	/**
+	 * The number of rows in a block. It is a multiple of 64, so every block
+	 * starts on a new word of a flag bitmap.
+	 */
+	public static final int BLOCK_SIZE = 8192;
+
+	/**
+	 * The number of buckets each initial condition's range is split into.
+	 */
+	public static final int BUCKETS = 64;
+
+	private static final String FILE_NAME = "query.idx";
+	private static final int MAGIC = 0x52534958; // "RSIX"
+	private static final int VERSION = 2;
+
+	private static final ResultColumn [] BUCKETED_COLUMNS = {
+		ResultColumn.INITIAL_FUEL, ResultColumn.INITIAL_HEIGHT, ResultColumn.INITIAL_X_VELOCITY
+	};
+
+	private final long rowCount;
+	private final int blockCount;
+
+	private final EnumMap<ResultColumn, double []> blockMins =
+		new EnumMap<ResultColumn, double []>(ResultColumn.class);
+	private final EnumMap<ResultColumn, double []> blockMaxes =
+		new EnumMap<ResultColumn, double []>(ResultColumn.class);
+	private final EnumMap<ResultColumn, long []> bitmaps =
+		new EnumMap<ResultColumn, long []>(ResultColumn.class);
+	private final EnumMap<ResultColumn, int []> blockCounts =
+		new EnumMap<ResultColumn, int []>(ResultColumn.class);
+	private final EnumMap<ResultColumn, double []> bucketRanges =
+		new EnumMap<ResultColumn, double []>(ResultColumn.class);
+	private final EnumMap<ResultColumn, long []> bucketMasks =
+		new EnumMap<ResultColumn, long []>(ResultColumn.class);
+
+	/**
+	 * Creates an empty ResultIndex for the given number of rows.
+	 * @param rowCount the number of rows indexed
+	 */
+	private ResultIndex(long rowCount) {
+
+		this.rowCount = rowCount;
+
+		long blocks = (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+		if (blocks > Integer.MAX_VALUE / (BLOCK_SIZE / 64)) {
+			throw new IllegalArgumentException("Result store is too large to index: " + rowCount);
+		}
+
+		this.blockCount = (int) blocks;
+
+	}
+
+	/**
+	 * Opens the index of a store, building it and saving it if there is no
+	 * saved index of the store's columns as they are now.
+	 * @param reader the store
+	 * @return the store's index
+	 * @throws IOException if the store can't be read
+	 */
+	public static ResultIndex open(ResultStoreReader reader) throws IOException {
+
+		Path file = reader.getDirectory().resolve(FILE_NAME);
+
+		// Taken before building, so columns changed during the build give a
+		// saved index that is built again next time
+		long fingerprint = getFingerprint(reader);
+
+		if (Files.exists(file)) {
+
+			ResultIndex index = load(file, reader.getRowCount(), fingerprint);
+
+			if (index != null) {
+				return index;
+			}
+
+		}
+
+		ResultIndex index = build(reader);
+
+		try {
+
+			index.save(file, fingerprint);
+
+		} catch (IOException e) {
+
+			// A read-only store can still be queried
+			System.err.println("Couldn't save the query index: " + e.getMessage());
+
+		}
+
+		return index;
+
+	}
+
+	/**
+	 * Builds the index of a store by reading every column once.
+	 * @param reader the store
+	 * @return the store's index
+	 * @throws IOException if the store can't be read
+	 */
+	public static ResultIndex build(ResultStoreReader reader) throws IOException {
+
+		ResultIndex index = new ResultIndex(reader.getRowCount());
+		double [] values = new double[BLOCK_SIZE];
+
+		for (ResultColumn column : ResultColumn.values()) {
+
+			MappedColumn mapped = reader.getColumn(column);
+
+			if (column.isFlag()) {
+
+				long [] bitmap = new long[(int) ((index.rowCount + 63) / 64)];
+				int [] counts = new int[index.blockCount];
+
+				for (int block = 0; block < index.blockCount; block++) {
+
+					int rows = index.getBlockRows(block);
+					mapped.read(index.getFirstRow(block), values, rows);
+
+					int firstWord = block * (BLOCK_SIZE / 64);
+
+					for (int i = 0; i < rows; i++) {
+						if (values[i] != 0) {
+							bitmap[firstWord + (i >>> 6)] |= 1L << i;
+						}
+					}
+
+					for (int word = 0; word < (rows + 63) / 64; word++) {
+						counts[block] += Long.bitCount(bitmap[firstWord + word]);
+					}
+
+				}
+
+				index.bitmaps.put(column, bitmap);
+				index.blockCounts.put(column, counts);
+
+			} else {
+
+				double [] mins = new double[index.blockCount];
+				double [] maxes = new double[index.blockCount];
+
+				for (int block = 0; block < index.blockCount; block++) {
+
+					int rows = index.getBlockRows(block);
+					mapped.read(index.getFirstRow(block), values, rows);
+
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					boolean hasNaN = false;
+
+					for (int i = 0; i < rows; i++) {
+
+						min = Math.min(min, values[i]);
+						max = Math.max(max, values[i]);
+						hasNaN |= values[i] != values[i];
+
+					}
+
+					// Math.min and max give NaN if any value is NaN; a block
+					// with NaNs is given a range nothing can be skipped by
+					mins[block] = hasNaN ? Double.NEGATIVE_INFINITY : min;
+					maxes[block] = hasNaN ? Double.POSITIVE_INFINITY : max;
+
+				}
+
+				index.blockMins.put(column, mins);
+				index.blockMaxes.put(column, maxes);
+
+			}
+
+		}
+
+		for (ResultColumn column : BUCKETED_COLUMNS) {
+			index.buildBucketMasks(column, reader.getColumn(column), values);
+		}
+
+		return index;
+
+	}
+
+	/**
+	 * Builds the bucket masks of a number column. The buckets split the
+	 * range between the column's smallest and largest finite values.
+	 * @param column the column
+	 * @param mapped the column's values
+	 * @param values a buffer of at least a block's size
+	 */
+	private void buildBucketMasks(ResultColumn column, MappedColumn mapped, double [] values) {
+
+		double low = Double.POSITIVE_INFINITY;
+		double high = Double.NEGATIVE_INFINITY;
+
+		for (int block = 0; block < blockCount; block++) {
+
+			double min = blockMins.get(column)[block];
+			double max = blockMaxes.get(column)[block];
+
+			if (Double.isFinite(min) && Double.isFinite(max)) {
+				low = Math.min(low, min);
+				high = Math.max(high, max);
+			}
+
+		}
+
+		// Without a finite range, every block is in every bucket
+		if (!(low <= high)) {
+			low = 0;
+			high = 0;
+		}
+
+		double [] range = {low, (high - low) / BUCKETS};
+		long [] masks = new long[blockCount];
+
+		for (int block = 0; block < blockCount; block++) {
+
+			int rows = getBlockRows(block);
+			mapped.read(getFirstRow(block), values, rows);
+
+			long mask = 0;
+
+			for (int i = 0; i < rows; i++) {
+
+				int bucket = getBucket(range, values[i]);
+				mask |= bucket < 0 ? -1L : 1L << bucket;
+
+			}
+
+			masks[block] = mask;
+
+		}
+
+		bucketRanges.put(column, range);
+		bucketMasks.put(column, masks);
+
+	}
+
+	/**
+	 * Gets the bucket a value falls in.
+	 * @param range the low end and width of the buckets
+	 * @param value the value
+	 * @return the bucket, or -1 if the value is outside every bucket
+	 */
+	private static int getBucket(double [] range, double value) {
+
+		if (!(range[1] > 0)) {
+			return value == range[0] ? 0 : -1;
+		}
+
+		double bucket = Math.floor((value - range[0]) / range[1]);
+
+		if (!(bucket >= 0 && bucket <= BUCKETS)) {
+			return -1;
+		}
+
+		// The largest value lands exactly on the end of the last bucket
+		return Math.min(BUCKETS - 1, (int) bucket);
+
+	}
+
+	/**
+	 * Gets the number of rows indexed.
+	 * @return the row count
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Gets the number of blocks the rows are split into.
+	 * @return the block count
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	/**
+	 * Gets the index of a block's first row.
+	 * @param block the block
+	 * @return the first row
+	 */
+	public long getFirstRow(int block) {
+		return (long) block * BLOCK_SIZE;
+	}
+
+	/**
+	 * Gets the number of rows in a block. Only the last block can be short.
+	 * @param block the block
+	 * @return the block's row count
+	 */
+	public int getBlockRows(int block) {
+		return (int) Math.min(BLOCK_SIZE, rowCount - getFirstRow(block));
+	}
+
+	/**
+	 * Gets the smallest value of a number column in a block. Blocks with
+	 * NaN values have a min of negative infinity.
+	 * @param column the number column
+	 * @param block the block
+	 * @return the block's min
+	 */
+	public double getBlockMin(ResultColumn column, int block) {
+		return blockMins.get(column)[block];
+	}
+
+	/**
+	 * Gets the largest value of a number column in a block. Blocks with NaN
+	 * values have a max of positive infinity.
+	 * @param column the number column
+	 * @param block the block
+	 * @return the block's max
+	 */
+	public double getBlockMax(ResultColumn column, int block) {
+		return blockMaxes.get(column)[block];
+	}
+
+	/**
+	 * Gets the bitmap of a flag column: bit i of word i / 64 is the flag of
+	 * row i. The array is shared, so it must not be changed.
+	 * @param column the flag column
+	 * @return the column's bitmap
+	 */
+	public long [] getBitmap(ResultColumn column) {
+		return bitmaps.get(column);
+	}
+
+	/**
+	 * Gets the number of rows in a block whose flag is set.
+	 * @param column the flag column
+	 * @param block the block
+	 * @return the count of set flags
+	 */
+	public int getBlockCount(ResultColumn column, int block) {
+		return blockCounts.get(column)[block];
+	}
+
+	/**
+	 * Checks whether a number column has bucket masks.
+	 * @param column the column
+	 * @return true if the column is bucketed
+	 */
+	public boolean isBucketed(ResultColumn column) {
+		return bucketMasks.containsKey(column);
+	}
+
+	/**
+	 * Gets the range of values in one of a column's buckets.
+	 * @param column the bucketed column
+	 * @param bucket the bucket
+	 * @return the bucket's low and high ends
+	 */
+	public double [] getBucketRange(ResultColumn column, int bucket) {
+
+		double [] range = bucketRanges.get(column);
+		return new double[] {range[0] + bucket * range[1], range[0] + (bucket + 1) * range[1]};
+
+	}
+
+	/**
+	 * Gets the mask of buckets that a block has values in: bit b is set if
+	 * any value falls in bucket b. Every bit is set if a value falls in no
+	 * bucket.
+	 * @param column the bucketed column
+	 * @param block the block
+	 * @return the block's bucket mask
+	 */
+	public long getBucketMask(ResultColumn column, int block) {
+		return bucketMasks.get(column)[block];
+	}
+
+	/**
+	 * Saves the index, writing it to a temporary file and renaming it so a
+	 * half-written index is never read.
+	 * @param file the file to save to
+	 * @param fingerprint the fingerprint of the columns indexed
+	 * @throws IOException if the index can't be written
+	 */
+	private void save(Path file, long fingerprint) throws IOException {
+
+		long size = 4 * 4 + 8 + 8;
+		for (ResultColumn column : ResultColumn.values()) {
+
+			size += column.isFlag() ?
+				getBitmap(column).length * 8L + blockCount * 4L :
+				blockCount * 16L;
+
+		}
+		size += BUCKETED_COLUMNS.length * (16L + blockCount * 8L);
+
+		Path temporary = file.resolveSibling(FILE_NAME + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_SIZE).putInt(BUCKETS);
+			buffer.putLong(rowCount).putLong(fingerprint);
+
+			for (ResultColumn column : ResultColumn.values()) {
+
+				if (column.isFlag()) {
+
+					buffer.asLongBuffer().put(getBitmap(column));
+					buffer.position(buffer.position() + getBitmap(column).length * 8);
+					buffer.asIntBuffer().put(blockCounts.get(column));
+					buffer.position(buffer.position() + blockCount * 4);
+
+				} else {
+
+					putDoubles(buffer, blockMins.get(column));
+					putDoubles(buffer, blockMaxes.get(column));
+
+				}
+
+			}
+
+			for (ResultColumn column : BUCKETED_COLUMNS) {
+
+				putDoubles(buffer, bucketRanges.get(column));
+				buffer.asLongBuffer().put(bucketMasks.get(column));
+				buffer.position(buffer.position() + blockCount * 8);
+
+			}
+
+			buffer.force();
+
+		}
+
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+			StandardCopyOption.REPLACE_EXISTING);
+
+	}
+
+	/**
+	 * Loads a saved index, if it covers exactly the given number of rows
+	 * and was built from columns with the given fingerprint.
+	 * @param file the saved index
+	 * @param rowCount the number of rows in the store
+	 * @param fingerprint the fingerprint of the store's columns
+	 * @return the index, or null if it is out of date or isn't an index
+	 * @throws IOException if the file can't be read
+	 */
+	private static ResultIndex load(Path file, long rowCount, long fingerprint)
+			throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (buffer.remaining() < 32 || buffer.getInt() != MAGIC ||
+					buffer.getInt() != VERSION || buffer.getInt() != BLOCK_SIZE ||
+					buffer.getInt() != BUCKETS || buffer.getLong() != rowCount ||
+					buffer.getLong() != fingerprint) {
+				return null;
+			}
+
+			ResultIndex index = new ResultIndex(rowCount);
+
+			try {
+
+				for (ResultColumn column : ResultColumn.values()) {
+
+					if (column.isFlag()) {
+
+						long [] bitmap = new long[(int) ((rowCount + 63) / 64)];
+						buffer.asLongBuffer().get(bitmap);
+						buffer.position(buffer.position() + bitmap.length * 8);
+
+						int [] counts = new int[index.blockCount];
+						buffer.asIntBuffer().get(counts);
+						buffer.position(buffer.position() + counts.length * 4);
+
+						index.bitmaps.put(column, bitmap);
+						index.blockCounts.put(column, counts);
+
+					} else {
+
+						index.blockMins.put(column, getDoubles(buffer, index.blockCount));
+						index.blockMaxes.put(column, getDoubles(buffer, index.blockCount));
+
+					}
+
+				}
+
+				for (ResultColumn column : BUCKETED_COLUMNS) {
+
+					index.bucketRanges.put(column, getDoubles(buffer, 2));
+
+					long [] masks = new long[index.blockCount];
+					buffer.asLongBuffer().get(masks);
+					buffer.position(buffer.position() + masks.length * 8);
+					index.bucketMasks.put(column, masks);
+
+				}
+
+			} catch (RuntimeException e) {
+
+				// Cut short or damaged; it is built again
+				return null;
+
+			}
+
+			return index;
+
+		}
+
+	}
+
+	/**
+	 * Gets a fingerprint of a store's column files, a CRC of every file's
+	 * size and last-modified time. Rewriting or appending to any column
+	 * changes it, even if the store keeps the same row count.
+	 * @param reader the store
+	 * @return the fingerprint
+	 * @throws IOException if a column file can't be read
+	 */
+	private static long getFingerprint(ResultStoreReader reader) throws IOException {
+
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+
+		for (ResultColumn column : ResultColumn.values()) {
+
+			Path columnFile = reader.getDirectory().resolve(column.getFileName());
+
+			buffer.clear();
+			buffer.putLong(Files.size(columnFile));
+			buffer.putLong(Files.getLastModifiedTime(columnFile).toMillis());
+			crc.update(buffer.flip());
+
+		}
+
+		return crc.getValue();
+
+	}
+
+	/**
+	 * Writes doubles to a buffer, moving its position past them.
+	 * @param buffer the buffer
+	 * @param values the values
+	 */
+	private static void putDoubles(ByteBuffer buffer, double [] values) {
+
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + values.length * 8);
+
+	}
+
+	/**
+	 * Reads doubles from a buffer, moving its position past them.
+	 * @param buffer the buffer
+	 * @param count the number of values
+	 * @return the values
+	 */
+	private static double [] getDoubles(ByteBuffer buffer, int count) {
+
+		double [] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("Query index: %d rows in %d blocks of %d, bucketed %s",
+			rowCount, blockCount, BLOCK_SIZE, Arrays.toString(BUCKETED_COLUMNS));
+
+	}
+
+}
@@ -0,0 +1,689 @@
+package batch;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A query over a landing results store: the rows matching every filter,
+ * combined into aggregates, optionally grouped by buckets of a column. For
+ * example, the crash rate where <code>abs(initial_x_velocity) &gt; 200</code>
+ * and <code>initial_fuel &lt; 5</code>, or the worst landing velocity per
+ * 50 m of initial height.
+ *
+ * A query runs one block of rows at a time, using the store's ResultIndex.
+ * Blocks whose zone maps or bucket masks rule out a filter are skipped
+ * without reading them, and filters every row of a block matches aren't
+ * tested. Flag filters and aggregates of flags only use the index's
+ * bitmaps. The rest reads a block of a column at a time into an array and
+ * runs a tight loop over it, keeping matches in a bitmap. Blocks are split
+ * across a work-stealing pool, and each thread's totals are merged at the
+ * end.
+ */
+public class ResultQuery {
+
+	// Blocks a single task handles before it stops splitting
+	private static final int BLOCKS_PER_TASK = 16;
+
+	private static final int WORDS_PER_BLOCK = ResultIndex.BLOCK_SIZE / 64;
+
+	private final ArrayList<ResultFilter> filters = new ArrayList<ResultFilter>();
+	private final ArrayList<ResultAggregate> aggregates = new ArrayList<ResultAggregate>();
+	private ResultColumn groupBy;
+	private double groupWidth = 1;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Parses a query from its parts.
+	 * @param where conditions joined by <code>and</code>, or null for every
+	 * row
+	 * @param select aggregates separated by commas
+	 * @param groupBy a column and bucket width like
+	 * <code>initial_height:50</code>, or null for a single group
+	 * @return the query
+	 * @throws IllegalArgumentException if a part can't be parsed
+	 */
+	public static ResultQuery parse(String where, String select, String groupBy) {
+
+		ResultQuery query = new ResultQuery();
+
+		if (where != null && !where.trim().isEmpty()) {
+			for (String condition : where.split("(?i)\\s+and\\s+")) {
+				query.addFilter(ResultFilter.parse(condition));
+			}
+		}
+
+		for (String aggregate : select.split(",")) {
+			query.addAggregate(ResultAggregate.parse(aggregate));
+		}
+
+		if (groupBy != null) {
+
+			String [] parts = groupBy.split(":");
+
+			try {
+
+				query.setGroupBy(ResultColumn.forName(parts[0].trim()),
+					parts.length > 1 ? Double.parseDouble(parts[1]) : 1);
+
+			} catch (NumberFormatException e) {
+
+				throw new IllegalArgumentException("Group by must be COLUMN:WIDTH: " + groupBy);
+
+			}
+
+		}
+
+		return query;
+
+	}
+
+	/**
+	 * Adds a filter every matching row must pass.
+	 * @param filter the filter
+	 */
+	public void addFilter(ResultFilter filter) {
+		filters.add(filter);
+	}
+
+	/**
+	 * Adds a value to compute over the matching rows.
+	 * @param aggregate the aggregate
+	 */
+	public void addAggregate(ResultAggregate aggregate) {
+		aggregates.add(aggregate);
+	}
+
+	/**
+	 * Groups matching rows by equal-width buckets of a column. Rows whose
+	 * value is NaN are left out.
+	 * @param groupBy the column, or null for a single group
+	 * @param groupWidth the width of each bucket
+	 */
+	public void setGroupBy(ResultColumn groupBy, double groupWidth) {
+
+		if (!(groupWidth > 0)) {
+			throw new IllegalArgumentException("Group width must be positive");
+		}
+
+		this.groupBy = groupBy;
+		this.groupWidth = groupWidth;
+
+	}
+
+	/**
+	 * Gets the number of threads blocks are scanned on.
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads blocks are scanned on.
+	 * @param parallelism the new parallelism
+	 */
+	public void setParallelism(int parallelism) {
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+
+		this.parallelism = parallelism;
+
+	}
+
+	/**
+	 * Runs the query.
+	 * @param reader the store to query
+	 * @param index the store's index
+	 * @return the query's result
+	 * @throws IOException if a column can't be read
+	 */
+	public QueryResult execute(ResultStoreReader reader, ResultIndex index) throws IOException {
+
+		if (aggregates.isEmpty()) {
+			throw new IllegalStateException("A query needs at least one aggregate");
+		}
+
+		long startTime = System.nanoTime();
+
+		// Map every column the query reads, before the threads share them
+		EnumMap<ResultColumn, MappedColumn> columns =
+			new EnumMap<ResultColumn, MappedColumn>(ResultColumn.class);
+		for (ResultFilter filter : filters) {
+			columns.put(filter.getColumn(), reader.getColumn(filter.getColumn()));
+		}
+		for (ResultAggregate aggregate : aggregates) {
+			if (aggregate.getColumn() != null) {
+				columns.put(aggregate.getColumn(), reader.getColumn(aggregate.getColumn()));
+			}
+		}
+		if (groupBy != null) {
+			columns.put(groupBy, reader.getColumn(groupBy));
+		}
+
+		long [] bucketMasks = new long[filters.size()];
+		for (int i = 0; i < filters.size(); i++) {
+			bucketMasks[i] = getBucketMask(filters.get(i), index);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(getParallelism());
+		Partial total;
+
+		try {
+
+			total = pool.invoke(new BlockRange(0, index.getBlockCount(), index, columns, bucketMasks));
+
+		} catch (UncheckedIOException e) {
+
+			throw e.getCause();
+
+		} finally {
+
+			pool.shutdownNow();
+
+		}
+
+		long [] keys = new long[total.groups.size()];
+		int g = 0;
+		for (long key : total.groups.keySet()) {
+			keys[g++] = key;
+		}
+		Arrays.sort(keys);
+
+		// A query without grouping always has its one group, even if empty
+		if (groupBy == null && keys.length == 0) {
+			keys = new long[] {0};
+			total.groups.put(0L, new Totals(aggregates.size()));
+		}
+
+		double [][] values = new double[keys.length][aggregates.size()];
+		long matchedRows = 0;
+
+		for (int i = 0; i < keys.length; i++) {
+
+			Totals totals = total.groups.get(keys[i]);
+			matchedRows += totals.count;
+
+			for (int a = 0; a < aggregates.size(); a++) {
+				values[i][a] = aggregates.get(a).getValue(totals.count, totals.sums[a],
+					totals.mins[a], totals.maxes[a]);
+			}
+
+		}
+
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+		return new QueryResult(groupBy, groupWidth, keys, aggregates, values, matchedRows,
+			index.getRowCount(), total.skippedBlocks, index.getBlockCount(), elapsedSeconds);
+
+	}
+
+	/**
+	 * Gets the mask of a bucketed column's buckets that could hold values
+	 * matching a filter. Buckets are widened slightly, so rounding at their
+	 * edges can't skip a matching block.
+	 * @param filter the filter
+	 * @param index the store's index
+	 * @return the bucket mask, or every bucket if the column isn't bucketed
+	 */
+	private static long getBucketMask(ResultFilter filter, ResultIndex index) {
+
+		if (!index.isBucketed(filter.getColumn())) {
+			return -1L;
+		}
+
+		long mask = 0;
+
+		for (int bucket = 0; bucket < ResultIndex.BUCKETS; bucket++) {
+
+			double [] range = index.getBucketRange(filter.getColumn(), bucket);
+			double slack = (range[1] - range[0]) * 1e-9 +
+				4 * Math.ulp(Math.max(Math.abs(range[0]), Math.abs(range[1])));
+
+			if (filter.mayMatch(range[0] - slack, range[1] + slack)) {
+				mask |= 1L << bucket;
+			}
+
+		}
+
+		return mask;
+
+	}
+
+	/**
+	 * The totals of one group of matching rows.
+	 */
+	private static class Totals {
+
+		private long count;
+		private final double [] sums;
+		private final double [] mins;
+		private final double [] maxes;
+
+		/**
+		 * Creates empty Totals.
+		 * @param aggregates the number of aggregates
+		 */
+		Totals(int aggregates) {
+
+			sums = new double[aggregates];
+			mins = new double[aggregates];
+			maxes = new double[aggregates];
+			Arrays.fill(mins, Double.POSITIVE_INFINITY);
+			Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+
+		}
+
+		/**
+		 * Adds another group's totals to these.
+		 * @param other the totals to merge in
+		 */
+		void merge(Totals other) {
+
+			count += other.count;
+
+			for (int a = 0; a < sums.length; a++) {
+				sums[a] += other.sums[a];
+				mins[a] = Math.min(mins[a], other.mins[a]);
+				maxes[a] = Math.max(maxes[a], other.maxes[a]);
+			}
+
+		}
+
+	}
+
+	/**
+	 * The totals of every group over some blocks.
+	 */
+	private static class Partial {
+
+		private final HashMap<Long, Totals> groups = new HashMap<Long, Totals>();
+		private int skippedBlocks;
+
+		/**
+		 * Adds another range's totals to these.
+		 * @param other the totals to merge in
+		 */
+		void merge(Partial other) {
+
+			for (Map.Entry<Long, Totals> entry : other.groups.entrySet()) {
+
+				Totals totals = groups.get(entry.getKey());
+
+				if (totals == null) {
+					groups.put(entry.getKey(), entry.getValue());
+				} else {
+					totals.merge(entry.getValue());
+				}
+
+			}
+
+			skippedBlocks += other.skippedBlocks;
+
+		}
+
+	}
+
+	/**
+	 * A range of blocks, split in half until it is small enough to scan on
+	 * one thread.
+	 */
+	private class BlockRange extends RecursiveTask<Partial> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int end;
+		private final ResultIndex index;
+		private final EnumMap<ResultColumn, MappedColumn> columns;
+		private final long [] bucketMasks;
+
+		// Each column's values of the block being scanned
+		private final double [][] values = new double[ResultColumn.values().length][];
+		private final int [] loadedBlocks = new int[ResultColumn.values().length];
+		private final long [] selection = new long[WORDS_PER_BLOCK];
+
+		/**
+		 * Creates a BlockRange covering blocks from start up to, but not
+		 * including, end.
+		 * @param start the first block
+		 * @param end the block after the last one
+		 * @param index the store's index
+		 * @param columns the mapped columns the query reads
+		 * @param bucketMasks each filter's bucket mask
+		 */
+		BlockRange(int start, int end, ResultIndex index,
+				EnumMap<ResultColumn, MappedColumn> columns, long [] bucketMasks) {
+
+			this.start = start;
+			this.end = end;
+			this.index = index;
+			this.columns = columns;
+			this.bucketMasks = bucketMasks;
+
+		}
+
+		@Override
+		protected Partial compute() {
+
+			if (end - start > BLOCKS_PER_TASK) {
+
+				int middle = (start + end) >>> 1;
+				BlockRange right = new BlockRange(middle, end, index, columns, bucketMasks);
+				right.fork();
+
+				Partial partial = new BlockRange(start, middle, index, columns, bucketMasks).compute();
+				partial.merge(right.join());
+				return partial;
+
+			}
+
+			Arrays.fill(loadedBlocks, -1);
+			Partial partial = new Partial();
+
+			for (int block = start; block < end; block++) {
+				if (!scan(block, partial)) {
+					partial.skippedBlocks++;
+				}
+			}
+
+			return partial;
+
+		}
+
+		/**
+		 * Adds the matching rows of a block to the totals.
+		 * @param block the block
+		 * @param partial the totals to add to
+		 * @return false if the block was skipped without reading it
+		 */
+		private boolean scan(int block, Partial partial) {
+
+			int rows = index.getBlockRows(block);
+			int words = (rows + 63) / 64;
+			int firstWord = block * WORDS_PER_BLOCK;
+			boolean [] needsRows = new boolean[filters.size()];
+
+			// Rule the block out, or find the filters every row passes
+			for (int f = 0; f < filters.size(); f++) {
+
+				ResultFilter filter = filters.get(f);
+				ResultColumn column = filter.getColumn();
+				double min;
+				double max;
+
+				if (column.isFlag()) {
+
+					int set = index.getBlockCount(column, block);
+					min = set == rows ? 1 : 0;
+					max = set > 0 ? 1 : 0;
+
+				} else {
+
+					min = index.getBlockMin(column, block);
+					max = index.getBlockMax(column, block);
+
+					if (index.isBucketed(column) &&
+							(index.getBucketMask(column, block) & bucketMasks[f]) == 0) {
+						return false;
+					}
+
+				}
+
+				if (!filter.mayMatch(min, max)) {
+					return false;
+				}
+
+				needsRows[f] = !filter.matchesAll(min, max);
+
+			}
+
+			Arrays.fill(selection, 0, words, -1L);
+			if (rows % 64 != 0) {
+				selection[words - 1] = (1L << (rows % 64)) - 1;
+			}
+
+			for (int f = 0; f < filters.size(); f++) {
+
+				if (!needsRows[f]) {
+					continue;
+				}
+
+				ResultFilter filter = filters.get(f);
+
+				if (filter.getColumn().isFlag()) {
+
+					// Only one of the two flag values can match here
+					long [] bitmap = index.getBitmap(filter.getColumn());
+					boolean set = filter.matches(1);
+
+					for (int w = 0; w < words; w++) {
+						selection[w] &= set ? bitmap[firstWord + w] : ~bitmap[firstWord + w];
+					}
+
+				} else {
+
+					filter.apply(load(filter.getColumn(), block), rows, selection);
+
+				}
+
+			}
+
+			int selected = 0;
+			for (int w = 0; w < words; w++) {
+				selected += Long.bitCount(selection[w]);
+			}
+
+			if (selected == 0) {
+				return true;
+			}
+
+			if (groupBy == null) {
+				aggregate(block, rows, words, firstWord, selected, getTotals(partial, 0L));
+			} else {
+				aggregateGroups(block, words, partial);
+			}
+
+			return true;
+
+		}
+
+		/**
+		 * Adds the selected rows of a block to a single group.
+		 * @param block the block
+		 * @param rows the number of rows in the block
+		 * @param words the number of selection words in the block
+		 * @param firstWord the block's first word in the flag bitmaps
+		 * @param selected the number of selected rows
+		 * @param totals the group's totals
+		 */
+		private void aggregate(int block, int rows, int words, int firstWord, int selected,
+				Totals totals) {
+
+			totals.count += selected;
+
+			for (int a = 0; a < aggregates.size(); a++) {
+
+				ResultColumn column = aggregates.get(a).getColumn();
+
+				if (column == null) {
+					continue;
+				}
+
+				if (column.isFlag()) {
+
+					long [] bitmap = index.getBitmap(column);
+					int set = 0;
+					for (int w = 0; w < words; w++) {
+						set += Long.bitCount(selection[w] & bitmap[firstWord + w]);
+					}
+
+					totals.sums[a] += set;
+					totals.mins[a] = Math.min(totals.mins[a], set < selected ? 0 : 1);
+					totals.maxes[a] = Math.max(totals.maxes[a], set > 0 ? 1 : 0);
+					continue;
+
+				}
+
+				double [] values = load(column, block);
+				double sum = 0;
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+
+				if (selected == rows) {
+
+					// Every row: a straight loop the JIT can unroll
+					for (int i = 0; i < rows; i++) {
+						sum += values[i];
+						min = Math.min(min, values[i]);
+						max = Math.max(max, values[i]);
+					}
+
+				} else {
+
+					for (int w = 0; w < words; w++) {
+
+						long bits = selection[w];
+
+						while (bits != 0) {
+
+							double value = values[w * 64 + Long.numberOfTrailingZeros(bits)];
+							sum += value;
+							min = Math.min(min, value);
+							max = Math.max(max, value);
+							bits &= bits - 1;
+
+						}
+
+					}
+
+				}
+
+				totals.sums[a] += sum;
+				totals.mins[a] = Math.min(totals.mins[a], min);
+				totals.maxes[a] = Math.max(totals.maxes[a], max);
+
+			}
+
+		}
+
+		/**
+		 * Adds the selected rows of a block to their groups.
+		 * @param block the block
+		 * @param words the number of selection words in the block
+		 * @param partial the totals to add to
+		 */
+		private void aggregateGroups(int block, int words, Partial partial) {
+
+			double [] groupValues = load(groupBy, block);
+			double [][] aggregateValues = new double[aggregates.size()][];
+
+			for (int a = 0; a < aggregates.size(); a++) {
+
+				ResultColumn column = aggregates.get(a).getColumn();
+				aggregateValues[a] = column != null ? load(column, block) : null;
+
+			}
+
+			long lastKey = 0;
+			Totals totals = null;
+
+			for (int w = 0; w < words; w++) {
+
+				long bits = selection[w];
+
+				while (bits != 0) {
+
+					int row = w * 64 + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+
+					double groupValue = groupValues[row];
+					if (groupValue != groupValue) {
+						continue;
+					}
+
+					long key = (long) Math.floor(groupValue / groupWidth);
+
+					if (totals == null || key != lastKey) {
+						totals = getTotals(partial, key);
+						lastKey = key;
+					}
+
+					totals.count++;
+
+					for (int a = 0; a < aggregateValues.length; a++) {
+
+						if (aggregateValues[a] == null) {
+							continue;
+						}
+
+						double value = aggregateValues[a][row];
+						totals.sums[a] += value;
+						totals.mins[a] = Math.min(totals.mins[a], value);
+						totals.maxes[a] = Math.max(totals.maxes[a], value);
+
+					}
+
+				}
+
+			}
+
+		}
+
+		/**
+		 * Gets a group's totals, creating them if needed.
+		 * @param partial the totals of every group
+		 * @param key the group's key
+		 * @return the group's totals
+		 */
+		private Totals getTotals(Partial partial, long key) {
+
+			Totals totals = partial.groups.get(key);
+
+			if (totals == null) {
+				totals = new Totals(aggregates.size());
+				partial.groups.put(key, totals);
+			}
+
+			return totals;
+
+		}
+
+		/**
+		 * Gets a column's values in a block, reading them if they haven't
+		 * been read yet.
+		 * @param column the column
+		 * @param block the block
+		 * @return the block's values
+		 */
+		private double [] load(ResultColumn column, int block) {
+
+			int ordinal = column.ordinal();
+
+			if (loadedBlocks[ordinal] != block) {
+
+				if (values[ordinal] == null) {
+					values[ordinal] = new double[ResultIndex.BLOCK_SIZE];
+				}
+
+				columns.get(column).read(index.getFirstRow(block), values[ordinal],
+					index.getBlockRows(block));
+				loadedBlocks[ordinal] = block;
+
+			}
+
+			return values[ordinal];
+
+		}
+
+	}
+
+}
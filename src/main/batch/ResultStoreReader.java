@@ -0,0 +1,120 @@
+package batch;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+
+/**
+ * Reads a landing results store written by ResultStoreWriter. Each column
+ * is memory-mapped the first time it is asked for, so only the columns an
+ * analysis uses are ever read.
+ *
+ * The reader sees the rows that were flushed when it was opened. Every
+ * column is cut to the same number of rows, the smallest row count of any
+ * column.
+ */
+public class ResultStoreReader implements Closeable {
+
+	private final Path directory;
+	private final long rowCount;
+	private final EnumMap<ResultColumn, MappedColumn> columns =
+		new EnumMap<ResultColumn, MappedColumn>(ResultColumn.class);
+
+	/**
+	 * Opens the store in the given directory.
+	 * @param directory the store's directory
+	 * @throws IOException if a column is missing or damaged
+	 */
+	public ResultStoreReader(Path directory) throws IOException {
+
+		this.directory = directory;
+
+		long rowCount = Long.MAX_VALUE;
+
+		for (ResultColumn column : ResultColumn.values()) {
+
+			try (FileChannel channel = open(column)) {
+
+				ByteBuffer header = ByteBuffer.allocate(ResultStoreWriter.HEADER_SIZE);
+				while (header.hasRemaining()) {
+					if (channel.read(header) < 0) {
+						throw new IOException("Result column has no header: " + column.getName());
+					}
+				}
+
+				long storedRows = (channel.size() - ResultStoreWriter.HEADER_SIZE) / column.getWidth();
+				rowCount = Math.min(rowCount, Math.min(storedRows,
+					ResultStoreWriter.checkHeader(header.flip(), column)));
+
+			}
+
+		}
+
+		this.rowCount = rowCount;
+
+	}
+
+	/**
+	 * Gets the directory the store is in.
+	 * @return the store's directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Gets the number of rows in the store.
+	 * @return the row count
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Gets a column of the store, mapping it if it isn't mapped yet.
+	 * @param column the column to get
+	 * @return the mapped column
+	 * @throws IOException if the column can't be mapped
+	 */
+	public synchronized MappedColumn getColumn(ResultColumn column) throws IOException {
+
+		MappedColumn mapped = columns.get(column);
+
+		if (mapped == null) {
+
+			// A mapping stays valid after its channel is closed
+			try (FileChannel channel = open(column)) {
+				mapped = new MappedColumn(column, channel, rowCount);
+			}
+
+			columns.put(column, mapped);
+
+		}
+
+		return mapped;
+
+	}
+
+	/**
+	 * Drops the reader's mapped columns. The mappings are released once no
+	 * MappedColumn from this reader is in use.
+	 */
+	@Override
+	public synchronized void close() {
+		columns.clear();
+	}
+
+	/**
+	 * Opens a column's file for reading.
+	 * @param column the column to open
+	 * @return the column's file
+	 * @throws IOException if the file can't be opened
+	 */
+	private FileChannel open(ResultColumn column) throws IOException {
+		return FileChannel.open(directory.resolve(column.getFileName()), StandardOpenOption.READ);
+	}
+
+}
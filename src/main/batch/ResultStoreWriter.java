@@ -0,0 +1,257 @@
+package batch;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends landing results to a columnar store: a directory with one file per
+ * ResultColumn. Each file starts with a small header and is followed by the
+ * column's values, one per landing, in little-endian order.
+ *
+ * The header is 16 bytes: a magic number, the format version, the width of
+ * each value, and the number of rows. Rows are buffered and written to every
+ * column before the headers' row counts are updated, so a store whose
+ * writer was stopped part way through still opens with every row that was
+ * flushed. Any values past the row count are cut off when the store is
+ * opened again.
+ *
+ * A ResultStoreWriter can be used from several threads at once.
+ */
+public class ResultStoreWriter implements Closeable {
+
+	static final int MAGIC = 0x4C435352; // "RSCL"
+	static final short VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	// Rows held in memory before they are written out
+	private static final int BUFFERED_ROWS = 4096;
+
+	private static final ResultColumn [] COLUMNS = ResultColumn.values();
+
+	private final FileChannel [] channels = new FileChannel[COLUMNS.length];
+	private final ByteBuffer [] buffers = new ByteBuffer[COLUMNS.length];
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+		.order(ByteOrder.LITTLE_ENDIAN);
+
+	private long rowCount;
+
+	/**
+	 * Opens the store in the given directory for appending, creating it if
+	 * it doesn't exist.
+	 * @param directory the store's directory
+	 * @throws IOException if the store can't be opened, or is damaged
+	 */
+	public ResultStoreWriter(Path directory) throws IOException {
+
+		Files.createDirectories(directory);
+
+		int existing = 0;
+		for (ResultColumn column : COLUMNS) {
+			if (Files.exists(directory.resolve(column.getFileName()))) {
+				existing++;
+			}
+		}
+
+		if (existing != 0 && existing != COLUMNS.length) {
+			throw new IOException("Result store is missing columns: " + directory);
+		}
+
+		try {
+
+			rowCount = Long.MAX_VALUE;
+
+			for (int i = 0; i < COLUMNS.length; i++) {
+
+				channels[i] = FileChannel.open(directory.resolve(COLUMNS[i].getFileName()),
+					StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+				buffers[i] = ByteBuffer.allocateDirect(BUFFERED_ROWS * COLUMNS[i].getWidth())
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+				rowCount = Math.min(rowCount, existing == 0 ? 0 : readRowCount(i));
+
+			}
+
+			// Cut off rows that not every column finished writing
+			for (int i = 0; i < COLUMNS.length; i++) {
+
+				channels[i].truncate(HEADER_SIZE + rowCount * COLUMNS[i].getWidth());
+				writeHeader(i);
+
+			}
+
+		} catch (IOException e) {
+
+			close();
+			throw e;
+
+		}
+
+	}
+
+	/**
+	 * Adds a landing to the end of the store.
+	 * @param scenario the landing's initial conditions
+	 * @param outcome the landing's result
+	 * @throws IOException if the buffered rows can't be written
+	 */
+	public synchronized void append(LandingScenario scenario, LandingOutcome outcome)
+			throws IOException {
+
+		for (int i = 0; i < COLUMNS.length; i++) {
+
+			double value = COLUMNS[i].extract(scenario, outcome);
+
+			if (COLUMNS[i].isFlag()) {
+				buffers[i].put((byte) value);
+			} else {
+				buffers[i].putDouble(value);
+			}
+
+		}
+
+		if (!buffers[0].hasRemaining()) {
+			flush();
+		}
+
+	}
+
+	/**
+	 * Writes out every buffered row and updates the row count in each
+	 * column's header.
+	 * @throws IOException if the rows can't be written
+	 */
+	public synchronized void flush() throws IOException {
+
+		int bufferedRows = buffers[0].position() / COLUMNS[0].getWidth();
+
+		if (bufferedRows == 0) {
+			return;
+		}
+
+		for (int i = 0; i < COLUMNS.length; i++) {
+
+			ByteBuffer buffer = buffers[i];
+			buffer.flip();
+
+			long position = HEADER_SIZE + rowCount * COLUMNS[i].getWidth();
+			while (buffer.hasRemaining()) {
+				position += channels[i].write(buffer, position);
+			}
+
+			buffer.clear();
+
+		}
+
+		rowCount += bufferedRows;
+
+		for (int i = 0; i < COLUMNS.length; i++) {
+			writeHeader(i);
+		}
+
+	}
+
+	/**
+	 * Gets the number of rows in the store, including buffered rows.
+	 * @return the row count
+	 */
+	public synchronized long getRowCount() {
+		return rowCount + buffers[0].position() / COLUMNS[0].getWidth();
+	}
+
+	/**
+	 * Writes out every buffered row and closes the store's files.
+	 * @throws IOException if the rows can't be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		try {
+
+			if (channels[COLUMNS.length - 1] != null) {
+				flush();
+			}
+
+		} finally {
+
+			for (FileChannel channel : channels) {
+				if (channel != null) {
+					channel.close();
+				}
+			}
+
+		}
+
+	}
+
+	/**
+	 * Reads and checks a column's header.
+	 * @param column the column's index
+	 * @return the row count in the header, or the number of rows in the
+	 * file if that is smaller
+	 * @throws IOException if the header is missing or doesn't match
+	 */
+	private long readRowCount(int column) throws IOException {
+
+		header.clear();
+		while (header.hasRemaining()) {
+			if (channels[column].read(header, header.position()) < 0) {
+				throw new IOException("Result column has no header: " + COLUMNS[column].getName());
+			}
+		}
+
+		long storedRows = (channels[column].size() - HEADER_SIZE) / COLUMNS[column].getWidth();
+		return Math.min(checkHeader(header.flip(), COLUMNS[column]), storedRows);
+
+	}
+
+	/**
+	 * Writes a column's header with the current row count.
+	 * @param column the column's index
+	 * @throws IOException if the header can't be written
+	 */
+	private void writeHeader(int column) throws IOException {
+
+		header.clear();
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.put((byte) COLUMNS[column].getWidth());
+		header.put((byte) 0);
+		header.putLong(rowCount);
+		header.flip();
+
+		int position = 0;
+		while (header.hasRemaining()) {
+			position += channels[column].write(header, position);
+		}
+
+	}
+
+	/**
+	 * Checks that a header belongs to the given column, and reads its row
+	 * count.
+	 * @param header the header, positioned at its start
+	 * @param column the column it should belong to
+	 * @return the row count in the header
+	 * @throws IOException if the header doesn't match
+	 */
+	static long checkHeader(ByteBuffer header, ResultColumn column) throws IOException {
+
+		header.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (header.getInt() != MAGIC || header.getShort() != VERSION ||
+				header.get() != column.getWidth()) {
+			throw new IOException("Not a result column: " + column.getName());
+		}
+
+		header.get();
+		return header.getLong();
+
+	}
+
+}
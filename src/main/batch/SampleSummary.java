@@ -0,0 +1,111 @@
+package batch;
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a set of values: the mean, standard deviation, and
+ * a few percentiles.
+ */
+public class SampleSummary {
+
+	private final int count;
+	private final double mean;
+	private final double standardDeviation;
+	private final double [] sorted;
+
+	/**
+	 * Summarizes the given values. The array isn't modified.
+	 * @param values the values to summarize
+	 */
+	public SampleSummary(double [] values) {
+
+		this.count = values.length;
+		this.sorted = values.clone();
+		Arrays.sort(sorted);
+
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		this.mean = count > 0 ? sum / count : Double.NaN;
+
+		double squaredDeviations = 0;
+		for (double value : values) {
+			squaredDeviations += (value - mean) * (value - mean);
+		}
+		this.standardDeviation = count > 1 ?
+			Math.sqrt(squaredDeviations / (count - 1)) : 0;
+
+	}
+
+	/**
+	 * Gets the number of values summarized.
+	 * @return the number of values
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the mean of the values.
+	 * @return the mean, or NaN if there are no values
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Gets the sample standard deviation of the values.
+	 * @return the standard deviation
+	 */
+	public double getStandardDeviation() {
+		return standardDeviation;
+	}
+
+	/**
+	 * Gets the smallest value.
+	 * @return the minimum, or NaN if there are no values
+	 */
+	public double getMin() {
+		return count > 0 ? sorted[0] : Double.NaN;
+	}
+
+	/**
+	 * Gets the largest value.
+	 * @return the maximum, or NaN if there are no values
+	 */
+	public double getMax() {
+		return count > 0 ? sorted[count - 1] : Double.NaN;
+	}
+
+	/**
+	 * Gets a percentile of the values, interpolating between the closest
+	 * values.
+	 * @param percentile the percentile to get, from 0 to 100
+	 * @return the value at the percentile, or NaN if there are no values
+	 */
+	public double getPercentile(double percentile) {
+
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		double position = percentile / 100 * (count - 1);
+		int below = (int) Math.floor(position);
+		int above = Math.min(below + 1, count - 1);
+		double fraction = position - below;
+
+		return sorted[below] + (sorted[above] - sorted[below]) * fraction;
+
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("mean %8.2f  sd %8.2f  min %8.2f  p5 %8.2f  " +
+				"p50 %8.2f  p95 %8.2f  max %8.2f",
+			getMean(), getStandardDeviation(), getMin(), getPercentile(5),
+			getPercentile(50), getPercentile(95), getMax());
+
+	}
+
+}
@@ -0,0 +1,151 @@
+package batch;
+
+/**
+ * Summary statistics of a stream of values, kept without storing the values:
+ * the count, mean and standard deviation with Welford's method, the min and
+ * max, and percentiles estimated with a QuantileSketch.
+ *
+ * Summaries of separate streams can be merged into a summary of all of
+ * them, so each thread can keep its own and they can be combined at the
+ * end. A StreamingSummary must only be changed by one thread at a time.
+ */
+public class StreamingSummary {
+
+	private long count;
+	private double mean;
+	private double squaredDeviations;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private QuantileSketch sketch = new QuantileSketch();
+
+	/**
+	 * Adds a value to the summary.
+	 * @param value the value to add
+	 */
+	public void add(double value) {
+
+		count++;
+
+		double delta = value - mean;
+		mean += delta / count;
+		squaredDeviations += delta * (value - mean);
+
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		sketch.add(value);
+
+	}
+
+	/**
+	 * Adds every value of another summary to this one, as if they had been
+	 * added here. The other summary isn't changed.
+	 * @param other the summary to merge in
+	 */
+	public void merge(StreamingSummary other) {
+
+		if (other.count == 0) {
+			return;
+		}
+
+		long total = count + other.count;
+		double delta = other.mean - mean;
+
+		mean += delta * other.count / total;
+		squaredDeviations += other.squaredDeviations +
+			delta * delta * ((double) count * other.count / total);
+		count = total;
+
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		sketch.merge(other.sketch);
+
+	}
+
+	/**
+	 * Creates a copy of the summary that can be changed independently.
+	 * @return the copy
+	 */
+	public StreamingSummary copy() {
+
+		StreamingSummary copy = new StreamingSummary();
+		copy.count = count;
+		copy.mean = mean;
+		copy.squaredDeviations = squaredDeviations;
+		copy.min = min;
+		copy.max = max;
+		copy.sketch = sketch.copy();
+		return copy;
+
+	}
+
+	/**
+	 * Gets the number of values summarized.
+	 * @return the number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the mean of the values.
+	 * @return the mean, or NaN if there are no values
+	 */
+	public double getMean() {
+		return count > 0 ? mean : Double.NaN;
+	}
+
+	/**
+	 * Gets the sample standard deviation of the values.
+	 * @return the standard deviation
+	 */
+	public double getStandardDeviation() {
+		return count > 1 ? Math.sqrt(squaredDeviations / (count - 1)) : 0;
+	}
+
+	/**
+	 * Gets the smallest value.
+	 * @return the minimum, or NaN if there are no values
+	 */
+	public double getMin() {
+		return count > 0 ? min : Double.NaN;
+	}
+
+	/**
+	 * Gets the largest value.
+	 * @return the maximum, or NaN if there are no values
+	 */
+	public double getMax() {
+		return count > 0 ? max : Double.NaN;
+	}
+
+	/**
+	 * Estimates a percentile of the values. The 0th and 100th percentiles
+	 * are exact.
+	 * @param percentile the percentile to get, from 0 to 100
+	 * @return the value at the percentile, or NaN if there are no values
+	 */
+	public double getPercentile(double percentile) {
+
+		if (percentile <= 0) {
+			return getMin();
+		}
+
+		if (percentile >= 100) {
+			return getMax();
+		}
+
+		return sketch.getQuantile(percentile / 100);
+
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("mean %8.2f  sd %8.2f  min %8.2f  p5 %8.2f  " +
+				"p50 %8.2f  p95 %8.2f  max %8.2f",
+			getMean(), getStandardDeviation(), getMin(), getPercentile(5),
+			getPercentile(50), getPercentile(95), getMax());
+
+	}
+
+}
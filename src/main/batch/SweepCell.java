@@ -0,0 +1,91 @@
+package batch;
+import rocket.AutopilotParameters;
+
+/**
+ * One point of a parameter sweep: the settings the simulator exposes for an
+ * automatic landing, and the autopilot's gains.
+ */
+public class SweepCell {
+
+	private final int index;
+	private final double initialFuel;
+	private final double initialRocketHeight;
+	private final double maxSpeed;
+	private final AutopilotParameters autopilot;
+
+	/**
+	 * Creates a SweepCell.
+	 * @param index the cell's position in the sweep
+	 * @param initialFuel the Rocket's initial fuel amount
+	 * @param initialRocketHeight the Rocket's initial distance from the
+	 * ground
+	 * @param maxSpeed the largest initial horizontal speed, in either
+	 * direction
+	 * @param autopilot the gains of the autopilot
+	 */
+	public SweepCell(int index, double initialFuel, double initialRocketHeight,
+			double maxSpeed, AutopilotParameters autopilot) {
+
+		this.index = index;
+		this.initialFuel = initialFuel;
+		this.initialRocketHeight = initialRocketHeight;
+		this.maxSpeed = maxSpeed;
+		this.autopilot = autopilot;
+
+	}
+
+	/**
+	 * Gets the cell's position in the sweep.
+	 * @return the cell's index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the Rocket's initial fuel amount.
+	 * @return the initial fuel
+	 */
+	public double getInitialFuel() {
+		return initialFuel;
+	}
+
+	/**
+	 * Gets the Rocket's initial distance from the ground.
+	 * @return the initial height
+	 */
+	public double getInitialRocketHeight() {
+		return initialRocketHeight;
+	}
+
+	/**
+	 * Gets the largest initial horizontal speed, in either direction.
+	 * @return the max speed
+	 */
+	public double getMaxSpeed() {
+		return maxSpeed;
+	}
+
+	/**
+	 * Gets the gains of the autopilot.
+	 * @return the autopilot parameters
+	 */
+	public AutopilotParameters getAutopilot() {
+		return autopilot;
+	}
+
+	/**
+	 * Creates the scenario for one landing in this cell. The horizontal
+	 * velocity is drawn the same way the simulator draws it, between
+	 * <code>-maxSpeed</code> and <code>maxSpeed</code>.
+	 * @param unitRandom a random number between 0 and 1
+	 * @return the landing's scenario
+	 */
+	public LandingScenario createScenario(double unitRandom) {
+
+		return new LandingScenario(getInitialFuel(), getInitialRocketHeight(),
+			unitRandom * getMaxSpeed() * 2 - getMaxSpeed(), getAutopilot());
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package batch;
+import java.util.Locale;
+
+/**
+ * The combined results of the landings flown in one SweepCell.
+ */
+public class SweepCellResult {
+
+	/**
+	 * The header of the CSV table that results are written to.
+	 */
+	public static final String CSV_HEADER = "cell,fuel,height,max_speed,kp,ki,kd," +
+		"runs,crashes,crash_rate,mean_landing_velocity,mean_fuel_consumed,ended_early";
+
+	private final SweepCell cell;
+	private final int runs;
+	private final int crashes;
+	private final int endedEarly;
+	private final double meanLandingVelocity;
+	private final double meanFuelConsumed;
+
+	/**
+	 * Creates a SweepCellResult.
+	 * @param cell the cell the landings were flown in
+	 * @param runs the number of landings flown
+	 * @param crashes the number of crashes
+	 * @param endedEarly the number of landings ended early because they
+	 * were certain to crash
+	 * @param meanLandingVelocity the mean landing velocity
+	 * @param meanFuelConsumed the mean proportion of fuel consumed
+	 */
+	public SweepCellResult(SweepCell cell, int runs, int crashes, int endedEarly,
+			double meanLandingVelocity, double meanFuelConsumed) {
+
+		this.cell = cell;
+		this.runs = runs;
+		this.crashes = crashes;
+		this.endedEarly = endedEarly;
+		this.meanLandingVelocity = meanLandingVelocity;
+		this.meanFuelConsumed = meanFuelConsumed;
+
+	}
+
+	/**
+	 * Gets the cell the landings were flown in.
+	 * @return the cell
+	 */
+	public SweepCell getCell() {
+		return cell;
+	}
+
+	/**
+	 * Gets the number of landings flown.
+	 * @return the number of runs
+	 */
+	public int getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Gets the number of crashes, including Rockets that never landed.
+	 * @return the number of crashes
+	 */
+	public int getCrashes() {
+		return crashes;
+	}
+
+	/**
+	 * Gets the number of landings ended early because they were certain to
+	 * crash. They count as crashes; with early exit, the means are NaN.
+	 * @return the number of landings ended early
+	 */
+	public int getEndedEarly() {
+		return endedEarly;
+	}
+
+	/**
+	 * Gets the fraction of landings that crashed.
+	 * @return the crash rate
+	 */
+	public double getCrashRate() {
+		return runs > 0 ? (double) crashes / runs : Double.NaN;
+	}
+
+	/**
+	 * Gets the mean speed the Rocket touched the ground at.
+	 * @return the mean landing velocity
+	 */
+	public double getMeanLandingVelocity() {
+		return meanLandingVelocity;
+	}
+
+	/**
+	 * Gets the mean fraction of the initial fuel that was used.
+	 * @return the mean proportion of fuel consumed
+	 */
+	public double getMeanFuelConsumed() {
+		return meanFuelConsumed;
+	}
+
+	/**
+	 * Formats the result as a row of the CSV table.
+	 * @return the result's CSV row
+	 */
+	public String toCsvRow() {
+
+		return String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%s,%s,%d,%d,%.6f,%.4f,%.6f,%d",
+			cell.getIndex(), cell.getInitialFuel(), cell.getInitialRocketHeight(),
+			cell.getMaxSpeed(), cell.getAutopilot().getKp(),
+			cell.getAutopilot().getKi(), cell.getAutopilot().getKd(),
+			getRuns(), getCrashes(), getCrashRate(), getMeanLandingVelocity(),
+			getMeanFuelConsumed(), getEndedEarly());
+
+	}
+
+}
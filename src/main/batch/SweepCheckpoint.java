@@ -0,0 +1,196 @@
+package batch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads and writes the checkpoint file of a ParameterSweep: which cells are
+ * done, and their results, so an interrupted sweep can carry on where it
+ * stopped.
+ *
+ * The file starts with a fingerprint of the sweep's grid and settings, so a
+ * checkpoint is never resumed by a different sweep. The cells that are done
+ * are stored as ranges of cell indices, followed by each done cell's
+ * totals, and a CRC-32 of everything before it. The sweep's random numbers
+ * are drawn again from its seed, which is part of the fingerprint, so they
+ * don't need to be stored.
+ *
+ * A checkpoint is written to a temporary file next to the real one, synced
+ * to disk, and then renamed over it, so the checkpoint file always holds
+ * either the old checkpoint or the new one in full.
+ */
+public class SweepCheckpoint {
+
+	private static final int MAGIC = 0x52535343; // "RSSC"
+	private static final int VERSION = 1;
+
+	private SweepCheckpoint() {}
+
+	/**
+	 * Writes a checkpoint, replacing the old one atomically.
+	 * @param file the checkpoint file
+	 * @param fingerprint the sweep's fingerprint
+	 * @param cellCount the number of cells in the sweep
+	 * @param results the results of every cell that is done, in the order
+	 * of their cells
+	 * @throws IOException if the checkpoint can't be written
+	 */
+	public static void write(Path file, byte [] fingerprint, int cellCount,
+			List<SweepCellResult> results) throws IOException {
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			CRC32 checksum = new CRC32();
+			DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(channel)), checksum));
+
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.write(fingerprint);
+			output.writeInt(cellCount);
+
+			int [] ranges = getRanges(results);
+			output.writeInt(ranges.length / 2);
+			for (int bound : ranges) {
+				output.writeInt(bound);
+			}
+
+			for (SweepCellResult result : results) {
+
+				output.writeInt(result.getRuns());
+				output.writeInt(result.getCrashes());
+				output.writeInt(result.getEndedEarly());
+				output.writeDouble(result.getMeanLandingVelocity());
+				output.writeDouble(result.getMeanFuelConsumed());
+
+			}
+
+			output.writeLong(checksum.getValue());
+			output.flush();
+
+			// The data must be on disk before the rename makes it the checkpoint
+			channel.force(true);
+
+		}
+
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+			StandardCopyOption.REPLACE_EXISTING);
+
+	}
+
+	/**
+	 * Reads the results of the cells a checkpoint says are done.
+	 * @param file the checkpoint file
+	 * @param sweep the sweep being resumed
+	 * @return the done cells' results, in the order of their cells
+	 * @throws IOException if the checkpoint can't be read, is damaged, or
+	 * was written by a different sweep
+	 */
+	public static List<SweepCellResult> read(Path file, ParameterSweep sweep) throws IOException {
+
+		CRC32 checksum = new CRC32();
+
+		try (DataInputStream input = new DataInputStream(new CheckedInputStream(
+				new BufferedInputStream(Files.newInputStream(file)), checksum))) {
+
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a sweep checkpoint: " + file);
+			}
+
+			byte [] fingerprint = new byte[sweep.getFingerprint().length];
+			input.readFully(fingerprint);
+			int cellCount = input.readInt();
+
+			if (!Arrays.equals(fingerprint, sweep.getFingerprint()) ||
+					cellCount != sweep.getCellCount()) {
+				throw new IOException("Checkpoint " + file + " was written by a different sweep");
+			}
+
+			int rangeCount = input.readInt();
+
+			if (rangeCount < 0 || rangeCount > cellCount) {
+				throw new IOException("Checkpoint " + file + " is damaged");
+			}
+
+			int [] ranges = new int[rangeCount * 2];
+			for (int i = 0; i < ranges.length; i++) {
+
+				ranges[i] = input.readInt();
+
+				if (ranges[i] < 0 || ranges[i] > cellCount ||
+						(i > 0 && ranges[i] < ranges[i - 1])) {
+					throw new IOException("Checkpoint " + file + " is damaged");
+				}
+
+			}
+
+			ArrayList<SweepCellResult> results = new ArrayList<SweepCellResult>();
+
+			for (int i = 0; i < ranges.length; i += 2) {
+				for (int cell = ranges[i]; cell < ranges[i + 1]; cell++) {
+
+					results.add(new SweepCellResult(sweep.getCell(cell), input.readInt(),
+						input.readInt(), input.readInt(), input.readDouble(),
+						input.readDouble()));
+
+				}
+			}
+
+			long expected = checksum.getValue();
+
+			if (input.readLong() != expected) {
+				throw new IOException("Checkpoint " + file + " is damaged");
+			}
+
+			return results;
+
+		}
+
+	}
+
+	/**
+	 * Gets the ranges of cells that are done.
+	 * @param results the results of every cell that is done, in the order
+	 * of their cells
+	 * @return the start and end of each range, end exclusive
+	 */
+	private static int [] getRanges(List<SweepCellResult> results) {
+
+		int [] ranges = new int[results.size() * 2];
+		int count = 0;
+
+		for (SweepCellResult result : results) {
+
+			int cell = result.getCell().getIndex();
+
+			if (count > 0 && ranges[count - 1] == cell) {
+				ranges[count - 1]++;
+			} else {
+				ranges[count++] = cell;
+				ranges[count++] = cell + 1;
+			}
+
+		}
+
+		return Arrays.copyOf(ranges, count);
+
+	}
+
+}
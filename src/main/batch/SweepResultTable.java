@@ -0,0 +1,88 @@
+package batch;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Collects the results of a parameter sweep as cells finish. Each result is
+ * written out as a CSV row as soon as it arrives, so long sweeps can be
+ * watched, and partial results survive if a sweep is stopped. Results can
+ * be added from any thread.
+ */
+public class SweepResultTable {
+
+	private final PrintStream output;
+	private final ArrayList<SweepCellResult> results = new ArrayList<SweepCellResult>();
+
+	/**
+	 * Creates a SweepResultTable that writes rows to the given stream,
+	 * starting with the CSV header.
+	 * @param output the stream to write rows to, or null to only keep the
+	 * results in memory
+	 */
+	public SweepResultTable(PrintStream output) {
+
+		this.output = output;
+
+		if (output != null) {
+			output.println(SweepCellResult.CSV_HEADER);
+		}
+
+	}
+
+	/**
+	 * Adds a finished cell's result and writes its row.
+	 * @param result the cell's result
+	 */
+	public synchronized void add(SweepCellResult result) {
+
+		results.add(result);
+
+		if (output != null) {
+			output.println(result.toCsvRow());
+			output.flush();
+		}
+
+	}
+
+	/**
+	 * Gets the number of results added so far.
+	 * @return the number of results
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * Gets the results added so far, in the order of their cells.
+	 * @return a copy of the results
+	 */
+	public synchronized ArrayList<SweepCellResult> getResults() {
+
+		ArrayList<SweepCellResult> sorted = new ArrayList<SweepCellResult>(results);
+		sorted.sort(Comparator.comparingInt(result -> result.getCell().getIndex()));
+		return sorted;
+
+	}
+
+	/**
+	 * Gets the result with the lowest crash rate so far.
+	 * @return the best result, or null if there are no results
+	 */
+	public synchronized SweepCellResult getBest() {
+
+		SweepCellResult best = null;
+
+		for (SweepCellResult result : results) {
+
+			if (best == null || result.getCrashRate() < best.getCrashRate()) {
+				best = result;
+			}
+
+		}
+
+		return best;
+
+	}
+
+}
@@ -0,0 +1,76 @@
+package render;
+
+/**
+ * Writes text and numbers into reusable <code>char</code> buffers, so that
+ * labels which change every frame can be built without creating Strings.
+ * Each method writes at the given offset and returns the offset just past
+ * the last character written. Callers must make sure the buffer is long
+ * enough; a long needs at most 20 characters.
+ */
+public class CharFormatter {
+
+	private CharFormatter() {}
+
+	/**
+	 * Writes the given text into the buffer.
+	 * @param text the text to write
+	 * @param buffer the buffer to write into
+	 * @param offset the index to start writing at
+	 * @return the index just past the last character written
+	 */
+	public static int append(String text, char [] buffer, int offset) {
+
+		text.getChars(0, text.length(), buffer, offset);
+		return offset + text.length();
+
+	}
+
+	/**
+	 * Writes the given character into the buffer.
+	 * @param c the character to write
+	 * @param buffer the buffer to write into
+	 * @param offset the index to write at
+	 * @return the index just past the character written
+	 */
+	public static int append(char c, char [] buffer, int offset) {
+
+		buffer[offset] = c;
+		return offset + 1;
+
+	}
+
+	/**
+	 * Writes the decimal digits of the given value into the buffer, with a
+	 * leading '-' if it is negative.
+	 * @param value the value to write
+	 * @param buffer the buffer to write into
+	 * @param offset the index to start writing at
+	 * @return the index just past the last character written
+	 */
+	public static int append(long value, char [] buffer, int offset) {
+
+		if (value < 0) {
+			buffer[offset++] = '-';
+		}
+
+		// Count the digits, working with negative values so that
+		// Long.MIN_VALUE doesn't overflow
+		long negative = value < 0 ? value : -value;
+		int digits = 1;
+		for (long rest = negative / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+
+		int end = offset + digits;
+		for (int i = end - 1; i >= offset; i--) {
+
+			buffer[i] = (char) ('0' - (negative % 10));
+			negative /= 10;
+
+		}
+
+		return end;
+
+	}
+
+}
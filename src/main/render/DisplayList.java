@@ -0,0 +1,1050 @@
+package render;
+import java.util.Arrays;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+
+/**
+ * A recorded list of drawing commands which can be replayed onto a
+ * GraphicsContext later.
+ * The list mirrors the parts of the GraphicsContext API that the simulation
+ * uses, so draw methods record into a DisplayList exactly as they would draw
+ * onto a Canvas. Because recording never touches JavaFX nodes, a list can be
+ * filled on any thread; only <code>replay</code> has to run on the JavaFX
+ * application thread.
+ *
+ * Commands are stored as primitive op codes and arguments in growable arrays,
+ * with Paints, Images and ArcTypes kept in a separate object array. Clearing
+ * a list keeps its arrays, so a list reused every frame stops allocating once
+ * it has grown to fit a frame.
+ *
+ * The list also tracks the transform its commands build up, so draw code can
+ * read the current translation the way it would read a GraphicsContext's
+ * transform. Replaying starts from the GraphicsContext's current transform.
+ *
+ * To keep the number of state changes down, setting the fill, stroke or line
+ * width to the value already in effect records nothing. Commands recorded 
+ * between <code>beginBatch()</code> and <code>endBatch()</code> may also be
+ * reordered so that primitives drawn with the same paint are grouped
+ * together, which suits many small shapes whose drawing order doesn't
+ * matter, like exhaust particles. Transforms and images inside a batch keep
+ * their place, and only the primitives between them are reordered.
+ */
+public class DisplayList {
+
+	// Op codes
+	private static final int SET_FILL = 0;
+	private static final int SET_STROKE = 1;
+	private static final int SET_LINE_WIDTH = 2;
+	private static final int FILL_RECT = 3;
+	private static final int CLEAR_RECT = 4;
+	private static final int FILL_ROUND_RECT = 5;
+	private static final int STROKE_ROUND_RECT = 6;
+	private static final int FILL_ARC = 7;
+	private static final int STROKE_ARC = 8;
+	private static final int FILL_OVAL = 9;
+	private static final int FILL_POLYGON = 10;
+	private static final int STROKE_LINE = 11;
+	private static final int DRAW_IMAGE = 12;
+	private static final int SAVE = 13;
+	private static final int RESTORE = 14;
+	private static final int TRANSLATE = 15;
+	private static final int ROTATE = 16;
+
+	private int [] ops = new int[64];
+	private double [] args = new double[256];
+	private Object [] objects = new Object[32];
+	private int opCount = 0;
+	private int argCount = 0;
+	private int objectCount = 0;
+
+	// The current transform, as the 2x3 affine matrix [mxx mxy tx; myx myy ty]
+	private double mxx = 1, mxy = 0, tx = 0;
+	private double myx = 0, myy = 1, ty = 0;
+
+	// The state set by the recorded commands. Unknown until first set, since
+	// replay starts from whatever state the GraphicsContext is in
+	private Paint fill = null;
+	private Paint stroke = null;
+	private double lineWidth = Double.NaN;
+
+	// States saved by save(): the transform and line width, then the paints
+	private static final int SAVED_VALUES = 7;
+	private double [] savedValues = new double[SAVED_VALUES * 8];
+	private Paint [] savedPaints = new Paint[2 * 8];
+	private int saveDepth = 0;
+
+	// Where the open batch started, or -1 if no batch is open
+	private int batchOpStart = -1;
+	private int batchArgStart;
+	private int batchObjectStart;
+	private Paint batchFill;
+	private Paint batchStroke;
+	private double batchLineWidth;
+	private final double [] batchTransform = new double[6];
+
+	// Reused when reordering a batch: a copy of the batch's commands, and
+	// the primitives found in it
+	private int [] batchOps = new int[64];
+	private double [] batchArgs = new double[256];
+	private Object [] batchObjects = new Object[32];
+	private int [] itemOps = new int[64];
+	private int [] itemArgs = new int[64];
+	private int [] itemObjects = new int[64];
+	private Paint [] itemPaints = new Paint[64];
+	private double [] itemLineWidths = new double[64];
+	private long [] itemKeys = new long[64];
+
+	// Reused by replayPolygon, since GraphicsContext takes separate arrays
+	private double [] polygonXPoints = new double[8];
+	private double [] polygonYPoints = new double[8];
+
+	/**
+	 * Removes every command from the list and resets its transform, keeping
+	 * the list's storage for reuse.
+	 */
+	public void clear() {
+
+		// Drop references so the list doesn't keep old Images alive
+		Arrays.fill(objects, 0, objectCount, null);
+		Arrays.fill(savedPaints, 0, saveDepth * 2, null);
+
+		opCount = 0;
+		argCount = 0;
+		objectCount = 0;
+		saveDepth = 0;
+		batchOpStart = -1;
+		fill = null;
+		stroke = null;
+		lineWidth = Double.NaN;
+		mxx = 1; mxy = 0; tx = 0;
+		myx = 0; myy = 1; ty = 0;
+
+	}
+
+	/**
+	 * Gets the number of commands recorded in the list.
+	 * @return the number of commands
+	 */
+	public int size() {
+		return opCount;
+	}
+
+	/**
+	 * Returns whether the list has no commands.
+	 * @return true if the list is empty
+	 */
+	public boolean isEmpty() {
+		return opCount == 0;
+	}
+
+	/**
+	 * Gets the x translation of the transform built up by the recorded
+	 * commands, like <code>GraphicsContext.getTransform().getTx()</code>.
+	 * @return the current x translation
+	 */
+	public double getTranslateX() {
+		return tx;
+	}
+
+	/**
+	 * Gets the y translation of the transform built up by the recorded
+	 * commands, like <code>GraphicsContext.getTransform().getTy()</code>.
+	 * @return the current y translation
+	 */
+	public double getTranslateY() {
+		return ty;
+	}
+
+	/**
+	 * Records a command's op code, making room for its arguments.
+	 * @param op the op code
+	 * @param argLength the number of arguments the command will record
+	 */
+	private void addOp(int op, int argLength) {
+
+		if (opCount == ops.length) {
+			ops = Arrays.copyOf(ops, ops.length * 2);
+		}
+
+		if (argCount + argLength > args.length) {
+			args = Arrays.copyOf(args, Math.max(args.length * 2, argCount + argLength));
+		}
+
+		ops[opCount++] = op;
+
+	}
+
+	/**
+	 * Records an object argument, such as a Paint or Image.
+	 * @param object the object to record
+	 */
+	private void addObject(Object object) {
+
+		if (objectCount == objects.length) {
+			objects = Arrays.copyOf(objects, objects.length * 2);
+		}
+
+		objects[objectCount++] = object;
+
+	}
+
+	/**
+	 * Records four arguments, the most common argument count. Room must
+	 * already have been made by <code>addOp</code>.
+	 * @param a the first argument
+	 * @param b the second argument
+	 * @param c the third argument
+	 * @param d the fourth argument
+	 */
+	private void addArgs(double a, double b, double c, double d) {
+
+		args[argCount++] = a;
+		args[argCount++] = b;
+		args[argCount++] = c;
+		args[argCount++] = d;
+
+	}
+
+	/**
+	 * Records a change of the fill Paint.
+	 * @param paint the new fill Paint
+	 */
+	public void setFill(Paint paint) {
+
+		if (paint == null || paint.equals(fill)) {
+			return;
+		}
+
+		addOp(SET_FILL, 0);
+		addObject(paint);
+		fill = paint;
+
+	}
+
+	/**
+	 * Records a change of the stroke Paint.
+	 * @param paint the new stroke Paint
+	 */
+	public void setStroke(Paint paint) {
+
+		if (paint == null || paint.equals(stroke)) {
+			return;
+		}
+
+		addOp(SET_STROKE, 0);
+		addObject(paint);
+		stroke = paint;
+
+	}
+
+	/**
+	 * Records a change of the line width.
+	 * @param lineWidth the new line width
+	 */
+	public void setLineWidth(double lineWidth) {
+
+		if (lineWidth == this.lineWidth) {
+			return;
+		}
+
+		addOp(SET_LINE_WIDTH, 1);
+		args[argCount++] = lineWidth;
+		this.lineWidth = lineWidth;
+
+	}
+
+	/**
+	 * Records filling a rectangle with the fill Paint.
+	 * @param x the rectangle's left x-coordinate
+	 * @param y the rectangle's top y-coordinate
+	 * @param w the rectangle's width
+	 * @param h the rectangle's height
+	 */
+	public void fillRect(double x, double y, double w, double h) {
+
+		addOp(FILL_RECT, 4);
+		addArgs(x, y, w, h);
+
+	}
+
+	/**
+	 * Records clearing a rectangle to transparent.
+	 * @param x the rectangle's left x-coordinate
+	 * @param y the rectangle's top y-coordinate
+	 * @param w the rectangle's width
+	 * @param h the rectangle's height
+	 */
+	public void clearRect(double x, double y, double w, double h) {
+
+		addOp(CLEAR_RECT, 4);
+		addArgs(x, y, w, h);
+
+	}
+
+	/**
+	 * Records filling a rounded rectangle with the fill Paint.
+	 * @param x the rectangle's left x-coordinate
+	 * @param y the rectangle's top y-coordinate
+	 * @param w the rectangle's width
+	 * @param h the rectangle's height
+	 * @param arcWidth the width of the corner arcs
+	 * @param arcHeight the height of the corner arcs
+	 */
+	public void fillRoundRect(double x, double y, double w, double h,
+			double arcWidth, double arcHeight) {
+
+		addOp(FILL_ROUND_RECT, 6);
+		addArgs(x, y, w, h);
+		args[argCount++] = arcWidth;
+		args[argCount++] = arcHeight;
+
+	}
+
+	/**
+	 * Records stroking a rounded rectangle with the stroke Paint.
+	 * @param x the rectangle's left x-coordinate
+	 * @param y the rectangle's top y-coordinate
+	 * @param w the rectangle's width
+	 * @param h the rectangle's height
+	 * @param arcWidth the width of the corner arcs
+	 * @param arcHeight the height of the corner arcs
+	 */
+	public void strokeRoundRect(double x, double y, double w, double h,
+			double arcWidth, double arcHeight) {
+
+		addOp(STROKE_ROUND_RECT, 6);
+		addArgs(x, y, w, h);
+		args[argCount++] = arcWidth;
+		args[argCount++] = arcHeight;
+
+	}
+
+	/**
+	 * Records filling an arc with the fill Paint.
+	 * @param x the left x-coordinate of the arc's bounds
+	 * @param y the top y-coordinate of the arc's bounds
+	 * @param w the width of the arc's bounds
+	 * @param h the height of the arc's bounds
+	 * @param startAngle the arc's starting angle, in degrees
+	 * @param arcExtent the arc's angular extent, in degrees
+	 * @param closure the arc's closure type
+	 */
+	public void fillArc(double x, double y, double w, double h,
+			double startAngle, double arcExtent, ArcType closure) {
+
+		addOp(FILL_ARC, 6);
+		addArgs(x, y, w, h);
+		args[argCount++] = startAngle;
+		args[argCount++] = arcExtent;
+		addObject(closure);
+
+	}
+
+	/**
+	 * Records stroking an arc with the stroke Paint.
+	 * @param x the left x-coordinate of the arc's bounds
+	 * @param y the top y-coordinate of the arc's bounds
+	 * @param w the width of the arc's bounds
+	 * @param h the height of the arc's bounds
+	 * @param startAngle the arc's starting angle, in degrees
+	 * @param arcExtent the arc's angular extent, in degrees
+	 * @param closure the arc's closure type
+	 */
+	public void strokeArc(double x, double y, double w, double h,
+			double startAngle, double arcExtent, ArcType closure) {
+
+		addOp(STROKE_ARC, 6);
+		addArgs(x, y, w, h);
+		args[argCount++] = startAngle;
+		args[argCount++] = arcExtent;
+		addObject(closure);
+
+	}
+
+	/**
+	 * Records filling an oval with the fill Paint.
+	 * @param x the left x-coordinate of the oval's bounds
+	 * @param y the top y-coordinate of the oval's bounds
+	 * @param w the width of the oval's bounds
+	 * @param h the height of the oval's bounds
+	 */
+	public void fillOval(double x, double y, double w, double h) {
+
+		addOp(FILL_OVAL, 4);
+		addArgs(x, y, w, h);
+
+	}
+
+	/**
+	 * Records filling a polygon with the fill Paint. The points are copied,
+	 * so the arrays may be reused right away.
+	 * @param xPoints the x-coordinates of the polygon's points
+	 * @param yPoints the y-coordinates of the polygon's points
+	 * @param nPoints the number of points
+	 */
+	public void fillPolygon(double [] xPoints, double [] yPoints, int nPoints) {
+
+		addOp(FILL_POLYGON, 1 + nPoints * 2);
+		args[argCount++] = nPoints;
+
+		for (int i = 0; i < nPoints; i++) {
+
+			args[argCount++] = xPoints[i];
+			args[argCount++] = yPoints[i];
+
+		}
+
+	}
+
+	/**
+	 * Records stroking a line with the stroke Paint.
+	 * @param x1 the x-coordinate of the line's start
+	 * @param y1 the y-coordinate of the line's start
+	 * @param x2 the x-coordinate of the line's end
+	 * @param y2 the y-coordinate of the line's end
+	 */
+	public void strokeLine(double x1, double y1, double x2, double y2) {
+
+		addOp(STROKE_LINE, 4);
+		addArgs(x1, y1, x2, y2);
+
+	}
+
+	/**
+	 * Records drawing part of an Image into a rectangle.
+	 * @param image the Image to draw
+	 * @param sx the left x-coordinate of the part of the Image to draw
+	 * @param sy the top y-coordinate of the part of the Image to draw
+	 * @param sw the width of the part of the Image to draw
+	 * @param sh the height of the part of the Image to draw
+	 * @param dx the left x-coordinate of the rectangle to draw into
+	 * @param dy the top y-coordinate of the rectangle to draw into
+	 * @param dw the width of the rectangle to draw into
+	 * @param dh the height of the rectangle to draw into
+	 */
+	public void drawImage(Image image, double sx, double sy, double sw, double sh,
+			double dx, double dy, double dw, double dh) {
+
+		addOp(DRAW_IMAGE, 8);
+		addArgs(sx, sy, sw, sh);
+		addArgs(dx, dy, dw, dh);
+		addObject(image);
+
+	}
+
+	/**
+	 * Records saving the drawing state, including the transform, so it can
+	 * be restored with <code>restore()</code>.
+	 */
+	public void save() {
+
+		addOp(SAVE, 0);
+
+		if ((saveDepth + 1) * SAVED_VALUES > savedValues.length) {
+
+			savedValues = Arrays.copyOf(savedValues, savedValues.length * 2);
+			savedPaints = Arrays.copyOf(savedPaints, savedPaints.length * 2);
+
+		}
+
+		int i = saveDepth * SAVED_VALUES;
+		savedValues[i] = mxx;
+		savedValues[i + 1] = mxy;
+		savedValues[i + 2] = tx;
+		savedValues[i + 3] = myx;
+		savedValues[i + 4] = myy;
+		savedValues[i + 5] = ty;
+		savedValues[i + 6] = lineWidth;
+		savedPaints[saveDepth * 2] = fill;
+		savedPaints[saveDepth * 2 + 1] = stroke;
+		saveDepth++;
+
+	}
+
+	/**
+	 * Records restoring the drawing state saved by the last
+	 * <code>save()</code>. Does nothing if no state is saved.
+	 */
+	public void restore() {
+
+		if (saveDepth == 0) {
+			return;
+		}
+
+		addOp(RESTORE, 0);
+
+		saveDepth--;
+		int i = saveDepth * SAVED_VALUES;
+		mxx = savedValues[i];
+		mxy = savedValues[i + 1];
+		tx = savedValues[i + 2];
+		myx = savedValues[i + 3];
+		myy = savedValues[i + 4];
+		ty = savedValues[i + 5];
+		lineWidth = savedValues[i + 6];
+		fill = savedPaints[saveDepth * 2];
+		stroke = savedPaints[saveDepth * 2 + 1];
+		savedPaints[saveDepth * 2] = null;
+		savedPaints[saveDepth * 2 + 1] = null;
+
+	}
+
+	/**
+	 * Records a translation of the transform.
+	 * @param x the distance to translate by horizontally
+	 * @param y the distance to translate by vertically
+	 */
+	public void translate(double x, double y) {
+
+		addOp(TRANSLATE, 2);
+		args[argCount++] = x;
+		args[argCount++] = y;
+
+		tx += mxx * x + mxy * y;
+		ty += myx * x + myy * y;
+
+	}
+
+	/**
+	 * Records a rotation of the transform.
+	 * @param degrees the angle to rotate by, in degrees, clockwise on screen
+	 */
+	public void rotate(double degrees) {
+
+		addOp(ROTATE, 1);
+		args[argCount++] = degrees;
+
+		double cos = Math.cos(Math.toRadians(degrees));
+		double sin = Math.sin(Math.toRadians(degrees));
+		double newMxx = mxx * cos + mxy * sin;
+		double newMxy = -mxx * sin + mxy * cos;
+		double newMyx = myx * cos + myy * sin;
+		double newMyy = -myx * sin + myy * cos;
+		mxx = newMxx;
+		mxy = newMxy;
+		myx = newMyx;
+		myy = newMyy;
+
+	}
+
+	/**
+	 * Starts a batch. The primitives recorded until <code>endBatch()</code>
+	 * may be drawn in a different order, grouped by paint. Does nothing if a
+	 * batch is already open.
+	 */
+	public void beginBatch() {
+
+		if (batchOpStart >= 0) {
+			return;
+		}
+
+		batchOpStart = opCount;
+		batchArgStart = argCount;
+		batchObjectStart = objectCount;
+		batchFill = fill;
+		batchStroke = stroke;
+		batchLineWidth = lineWidth;
+		batchTransform[0] = mxx;
+		batchTransform[1] = mxy;
+		batchTransform[2] = tx;
+		batchTransform[3] = myx;
+		batchTransform[4] = myy;
+		batchTransform[5] = ty;
+
+	}
+
+	/**
+	 * Ends the open batch, reordering its primitives so that primitives with
+	 * the same paint and line width are drawn one after another. Transforms,
+	 * clears and images split the batch into parts which are reordered 
+	 * separately. A batch that saves or restores state, or that draws with a
+	 * paint set before the list started, is left as recorded.
+	 */
+	public void endBatch() {
+
+		if (batchOpStart < 0) {
+			return;
+		}
+
+		int opStart = batchOpStart;
+		batchOpStart = -1;
+
+		int batchOpCount = opCount - opStart;
+		int batchArgCount = argCount - batchArgStart;
+		int batchObjectCount = objectCount - batchObjectStart;
+
+		if (!canReorder(opStart)) {
+			return;
+		}
+
+		// Copy the batch out, then record it again in its new order
+		if (batchOps.length < batchOpCount) {
+			batchOps = new int[Math.max(batchOpCount, batchOps.length * 2)];
+		}
+		if (batchArgs.length < batchArgCount) {
+			batchArgs = new double[Math.max(batchArgCount, batchArgs.length * 2)];
+		}
+		if (batchObjects.length < batchObjectCount) {
+			batchObjects = new Object[Math.max(batchObjectCount, batchObjects.length * 2)];
+		}
+
+		System.arraycopy(ops, opStart, batchOps, 0, batchOpCount);
+		System.arraycopy(args, batchArgStart, batchArgs, 0, batchArgCount);
+		System.arraycopy(objects, batchObjectStart, batchObjects, 0, batchObjectCount);
+
+		Paint endFill = fill;
+		Paint endStroke = stroke;
+		double endLineWidth = lineWidth;
+
+		Arrays.fill(objects, batchObjectStart, objectCount, null);
+		opCount = opStart;
+		argCount = batchArgStart;
+		objectCount = batchObjectStart;
+		fill = batchFill;
+		stroke = batchStroke;
+		lineWidth = batchLineWidth;
+		mxx = batchTransform[0];
+		mxy = batchTransform[1];
+		tx = batchTransform[2];
+		myx = batchTransform[3];
+		myy = batchTransform[4];
+		ty = batchTransform[5];
+
+		Paint currentFill = batchFill;
+		Paint currentStroke = batchStroke;
+		double currentLineWidth = batchLineWidth;
+		int itemCount = 0;
+		int arg = 0;
+		int object = 0;
+
+		for (int i = 0; i < batchOpCount; i++) {
+
+			int op = batchOps[i];
+			int argLength = getArgLength(op, batchArgs, arg);
+			int objectLength = getObjectLength(op);
+
+			switch (op) {
+
+			case SET_FILL:
+				currentFill = (Paint) batchObjects[object];
+				break;
+
+			case SET_STROKE:
+				currentStroke = (Paint) batchObjects[object];
+				break;
+
+			case SET_LINE_WIDTH:
+				currentLineWidth = batchArgs[arg];
+				break;
+
+			case TRANSLATE:
+			case ROTATE:
+			case CLEAR_RECT:
+			case DRAW_IMAGE:
+				// Barriers: draw everything before them, then record them
+				// in place
+				recordBatchItems(itemCount);
+				itemCount = 0;
+				if (op == TRANSLATE) {
+					translate(batchArgs[arg], batchArgs[arg + 1]);
+				} else if (op == ROTATE) {
+					rotate(batchArgs[arg]);
+				} else {
+					copyBatchOp(op, arg, argLength, object, objectLength);
+				}
+				break;
+
+			default:
+				itemCount = addBatchItem(itemCount, op, arg, object,
+						isStrokeOp(op) ? currentStroke : currentFill,
+						isStrokeOp(op) ? currentLineWidth : Double.NaN);
+				break;
+
+			}
+
+			arg += argLength;
+			object += objectLength;
+
+		}
+
+		recordBatchItems(itemCount);
+
+		// Leave the state as the batch did when recorded
+		setFill(endFill);
+		setStroke(endStroke);
+		if (!Double.isNaN(endLineWidth)) {
+			setLineWidth(endLineWidth);
+		}
+
+		Arrays.fill(batchObjects, 0, batchObjectCount, null);
+
+	}
+
+	/**
+	 * Checks whether the open batch starting at the given op can be
+	 * reordered: it may not save or restore state, and every primitive in it
+	 * must have its paint set within the list.
+	 * @param opStart the index of the batch's first op
+	 * @return true if the batch can be reordered
+	 */
+	private boolean canReorder(int opStart) {
+
+		boolean fillKnown = batchFill != null;
+		boolean strokeKnown = batchStroke != null;
+		boolean lineWidthKnown = !Double.isNaN(batchLineWidth);
+
+		for (int i = opStart; i < opCount; i++) {
+
+			switch (ops[i]) {
+
+			case SAVE:
+			case RESTORE:
+				return false;
+
+			case SET_FILL:
+				fillKnown = true;
+				break;
+
+			case SET_STROKE:
+				strokeKnown = true;
+				break;
+
+			case SET_LINE_WIDTH:
+				lineWidthKnown = true;
+				break;
+
+			case TRANSLATE:
+			case ROTATE:
+			case CLEAR_RECT:
+			case DRAW_IMAGE:
+				break;
+
+			default:
+				if (isStrokeOp(ops[i]) ? !(strokeKnown && lineWidthKnown) : !fillKnown) {
+					return false;
+				}
+				break;
+
+			}
+
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Adds a primitive to the batch items waiting to be reordered.
+	 * @param itemCount the number of items so far
+	 * @param op the primitive's op code
+	 * @param arg the index of the primitive's first argument in the batch copy
+	 * @param object the index of the primitive's first object in the batch copy
+	 * @param paint the paint the primitive is drawn with
+	 * @param lineWidth the line width the primitive is drawn with, or NaN for
+	 * fills
+	 * @return the new number of items
+	 */
+	private int addBatchItem(int itemCount, int op, int arg, int object,
+			Paint paint, double lineWidth) {
+
+		if (itemCount == itemOps.length) {
+
+			int length = itemOps.length * 2;
+			itemOps = Arrays.copyOf(itemOps, length);
+			itemArgs = Arrays.copyOf(itemArgs, length);
+			itemObjects = Arrays.copyOf(itemObjects, length);
+			itemPaints = Arrays.copyOf(itemPaints, length);
+			itemLineWidths = Arrays.copyOf(itemLineWidths, length);
+			itemKeys = Arrays.copyOf(itemKeys, length);
+
+		}
+
+		itemOps[itemCount] = op;
+		itemArgs[itemCount] = arg;
+		itemObjects[itemCount] = object;
+		itemPaints[itemCount] = paint;
+		itemLineWidths[itemCount] = lineWidth;
+
+		// Group by paint, line width and kind of op, keeping the recorded
+		// order within each group
+		int group = paint.hashCode() * 31 + Double.hashCode(lineWidth);
+		group = group * 31 + (isStrokeOp(op) ? 1 : 0);
+		itemKeys[itemCount] = ((long) group << 32) | itemCount;
+
+		return itemCount + 1;
+
+	}
+
+	/**
+	 * Records the waiting batch items grouped by paint and line width.
+	 * @param itemCount the number of items waiting
+	 */
+	private void recordBatchItems(int itemCount) {
+
+		Arrays.sort(itemKeys, 0, itemCount);
+
+		for (int i = 0; i < itemCount; i++) {
+
+			int item = (int) itemKeys[i];
+			int op = itemOps[item];
+
+			if (isStrokeOp(op)) {
+
+				setStroke(itemPaints[item]);
+				setLineWidth(itemLineWidths[item]);
+
+			} else {
+
+				setFill(itemPaints[item]);
+
+			}
+
+			int arg = itemArgs[item];
+			copyBatchOp(op, arg, getArgLength(op, batchArgs, arg),
+					itemObjects[item], getObjectLength(op));
+			itemPaints[item] = null;
+
+		}
+
+	}
+
+	/**
+	 * Records an op copied from the batch copy, as it was recorded.
+	 * @param op the op code
+	 * @param arg the index of the op's first argument in the batch copy
+	 * @param argLength the number of arguments the op has
+	 * @param object the index of the op's first object in the batch copy
+	 * @param objectLength the number of objects the op has
+	 */
+	private void copyBatchOp(int op, int arg, int argLength, int object,
+			int objectLength) {
+
+		addOp(op, argLength);
+		System.arraycopy(batchArgs, arg, args, argCount, argLength);
+		argCount += argLength;
+
+		for (int i = 0; i < objectLength; i++) {
+			addObject(batchObjects[object + i]);
+		}
+
+	}
+
+	/**
+	 * Returns whether the given op draws with the stroke paint.
+	 * @param op the op code
+	 * @return true if the op strokes
+	 */
+	private static boolean isStrokeOp(int op) {
+		return op == STROKE_ROUND_RECT || op == STROKE_ARC || op == STROKE_LINE;
+	}
+
+	/**
+	 * Gets the number of arguments the given op has.
+	 * @param op the op code
+	 * @param args the arguments array the op's arguments are in
+	 * @param arg the index of the op's first argument
+	 * @return the number of arguments
+	 */
+	private static int getArgLength(int op, double [] args, int arg) {
+
+		switch (op) {
+
+		case SET_FILL:
+		case SET_STROKE:
+		case SAVE:
+		case RESTORE:
+			return 0;
+
+		case SET_LINE_WIDTH:
+		case ROTATE:
+			return 1;
+
+		case TRANSLATE:
+			return 2;
+
+		case FILL_ROUND_RECT:
+		case STROKE_ROUND_RECT:
+		case FILL_ARC:
+		case STROKE_ARC:
+			return 6;
+
+		case DRAW_IMAGE:
+			return 8;
+
+		case FILL_POLYGON:
+			return 1 + (int) args[arg] * 2;
+
+		default:
+			return 4;
+
+		}
+
+	}
+
+	/**
+	 * Gets the number of objects the given op has.
+	 * @param op the op code
+	 * @return the number of objects
+	 */
+	private static int getObjectLength(int op) {
+
+		switch (op) {
+
+		case SET_FILL:
+		case SET_STROKE:
+		case FILL_ARC:
+		case STROKE_ARC:
+		case DRAW_IMAGE:
+			return 1;
+
+		default:
+			return 0;
+
+		}
+
+	}
+
+	/**
+	 * Draws every recorded command onto the given GraphicsContext. The
+	 * GraphicsContext's state is saved before and restored after, so
+	 * replaying a list leaves it unchanged. Must be called on the JavaFX
+	 * application thread.
+	 * @param gc the GraphicsContext to draw on
+	 */
+	public void replay(GraphicsContext gc) {
+
+		int arg = 0;
+		int object = 0;
+
+		gc.save();
+
+		for (int i = 0; i < opCount; i++) {
+
+			switch (ops[i]) {
+
+			case SET_FILL:
+				gc.setFill((Paint) objects[object++]);
+				break;
+
+			case SET_STROKE:
+				gc.setStroke((Paint) objects[object++]);
+				break;
+
+			case SET_LINE_WIDTH:
+				gc.setLineWidth(args[arg++]);
+				break;
+
+			case FILL_RECT:
+				gc.fillRect(args[arg], args[arg + 1], args[arg + 2], args[arg + 3]);
+				arg += 4;
+				break;
+
+			case CLEAR_RECT:
+				gc.clearRect(args[arg], args[arg + 1], args[arg + 2], args[arg + 3]);
+				arg += 4;
+				break;
+
+			case FILL_ROUND_RECT:
+				gc.fillRoundRect(args[arg], args[arg + 1], args[arg + 2],
+						args[arg + 3], args[arg + 4], args[arg + 5]);
+				arg += 6;
+				break;
+
+			case STROKE_ROUND_RECT:
+				gc.strokeRoundRect(args[arg], args[arg + 1], args[arg + 2],
+						args[arg + 3], args[arg + 4], args[arg + 5]);
+				arg += 6;
+				break;
+
+			case FILL_ARC:
+				gc.fillArc(args[arg], args[arg + 1], args[arg + 2], args[arg + 3],
+						args[arg + 4], args[arg + 5], (ArcType) objects[object++]);
+				arg += 6;
+				break;
+
+			case STROKE_ARC:
+				gc.strokeArc(args[arg], args[arg + 1], args[arg + 2], args[arg + 3],
+						args[arg + 4], args[arg + 5], (ArcType) objects[object++]);
+				arg += 6;
+				break;
+
+			case FILL_OVAL:
+				gc.fillOval(args[arg], args[arg + 1], args[arg + 2], args[arg + 3]);
+				arg += 4;
+				break;
+
+			case FILL_POLYGON:
+				arg = replayPolygon(gc, arg);
+				break;
+
+			case STROKE_LINE:
+				gc.strokeLine(args[arg], args[arg + 1], args[arg + 2], args[arg + 3]);
+				arg += 4;
+				break;
+
+			case DRAW_IMAGE:
+				gc.drawImage((Image) objects[object++],
+						args[arg], args[arg + 1], args[arg + 2], args[arg + 3],
+						args[arg + 4], args[arg + 5], args[arg + 6], args[arg + 7]);
+				arg += 8;
+				break;
+
+			case SAVE:
+				gc.save();
+				break;
+
+			case RESTORE:
+				gc.restore();
+				break;
+
+			case TRANSLATE:
+				gc.translate(args[arg], args[arg + 1]);
+				arg += 2;
+				break;
+
+			case ROTATE:
+				gc.rotate(args[arg++]);
+				break;
+
+			}
+
+		}
+
+		gc.restore();
+
+	}
+
+	/**
+	 * Replays a polygon command.
+	 * @param gc the GraphicsContext to draw on
+	 * @param arg the index of the command's first argument
+	 * @return the index just past the command's arguments
+	 */
+	private int replayPolygon(GraphicsContext gc, int arg) {
+
+		int nPoints = (int) args[arg++];
+
+		if (polygonXPoints.length < nPoints) {
+
+			polygonXPoints = new double[nPoints];
+			polygonYPoints = new double[nPoints];
+
+		}
+
+		for (int i = 0; i < nPoints; i++) {
+
+			polygonXPoints[i] = args[arg++];
+			polygonYPoints[i] = args[arg++];
+
+		}
+
+		gc.fillPolygon(polygonXPoints, polygonYPoints, nPoints);
+
+		return arg;
+
+	}
+
+}
@@ -0,0 +1,178 @@
+package render;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.scene.transform.Transform;
+import javafx.stage.Screen;
+
+/**
+ * A pre-rendered strip of glyphs for one Font and Color. Text made of the
+ * atlas's glyphs is drawn by copying each glyph's part of the image onto the
+ * Canvas, so numbers that change every frame don't go through JavaFX's text
+ * layout. Characters that are not in the atlas are skipped.
+ *
+ * An atlas takes a snapshot of a Canvas when created, so it must be created
+ * on the JavaFX application thread.
+ */
+public class GlyphAtlas {
+
+	/**
+	 * The glyphs used by the HUD: digits, signs and the characters used for
+	 * labels and units.
+	 */
+	public static final String HUD_GLYPHS = "0123456789+-.,:=%/ Tms\u00B0";
+
+	private String glyphs;
+	private Image image;
+	private double scale; // image pixels per Canvas unit
+	private double lineHeight;
+	private double [] glyphX = new double[0]; // indexed by character
+	private double [] glyphWidth = new double[0]; // indexed by character
+	private double [] glyphAdvance = new double[0]; // indexed by character
+
+	/**
+	 * Creates a GlyphAtlas by drawing the given glyphs with the given Font and
+	 * Color. The glyphs are rendered at the primary screen's output scale so
+	 * they stay sharp on HiDPI displays.
+	 * @param font the Font to draw the glyphs with
+	 * @param color the Color to draw the glyphs with
+	 * @param glyphs the characters the atlas should contain
+	 */
+	public GlyphAtlas(Font font, Color color, String glyphs) {
+
+		this.glyphs = glyphs;
+		this.scale = Math.max(1, Screen.getPrimary().getOutputScaleX());
+
+		char maxChar = 0;
+		for (int i = 0; i < glyphs.length(); i++) {
+			maxChar = (char) Math.max(maxChar, glyphs.charAt(i));
+		}
+		glyphX = new double[maxChar + 1];
+		glyphWidth = new double[maxChar + 1];
+		glyphAdvance = new double[maxChar + 1];
+
+		// Measure every glyph, leaving a pixel between glyphs so that
+		// neighbors don't bleed into each other when scaled
+		Text measure = new Text();
+		measure.setFont(font);
+		double atlasWidth = 1;
+
+		for (int i = 0; i < glyphs.length(); i++) {
+
+			char c = glyphs.charAt(i);
+			measure.setText(String.valueOf(c));
+			glyphX[c] = atlasWidth;
+			glyphAdvance[c] = measure.getLayoutBounds().getWidth();
+			glyphWidth[c] = Math.ceil(glyphAdvance[c]);
+			atlasWidth += glyphWidth[c] + 1;
+			lineHeight = Math.max(lineHeight,
+					Math.ceil(measure.getLayoutBounds().getHeight()));
+
+		}
+
+		Canvas canvas = new Canvas(atlasWidth, lineHeight);
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.setFont(font);
+		gc.setFill(color);
+		gc.setTextAlign(TextAlignment.LEFT);
+		gc.setTextBaseline(VPos.TOP);
+
+		for (int i = 0; i < glyphs.length(); i++) {
+
+			char c = glyphs.charAt(i);
+			gc.fillText(String.valueOf(c), glyphX[c], 0);
+
+		}
+
+		SnapshotParameters parameters = new SnapshotParameters();
+		parameters.setFill(Color.TRANSPARENT);
+		parameters.setTransform(Transform.scale(scale, scale));
+		this.image = canvas.snapshot(parameters, null);
+
+	}
+
+	/**
+	 * Gets the characters this atlas contains.
+	 * @return the atlas's glyphs
+	 */
+	public String getGlyphs() {
+		return glyphs;
+	}
+
+	/**
+	 * Gets the height of a line of text drawn from this atlas.
+	 * @return the line height
+	 */
+	public double getLineHeight() {
+		return lineHeight;
+	}
+
+	/**
+	 * Returns whether the given character can be drawn from this atlas.
+	 * @param c the character to check
+	 * @return true if the atlas contains the character
+	 */
+	public boolean contains(char c) {
+		return c < glyphWidth.length && glyphWidth[c] > 0;
+	}
+
+	/**
+	 * Measures the width of the given text when drawn from this atlas.
+	 * @param text the buffer holding the text
+	 * @param length the number of characters of the buffer to measure
+	 * @return the width of the text
+	 */
+	public double measure(char [] text, int length) {
+
+		double width = 0;
+
+		for (int i = 0; i < length; i++) {
+
+			if (contains(text[i])) {
+				width += glyphAdvance[text[i]];
+			}
+
+		}
+
+		return width;
+
+	}
+
+	/**
+	 * Draws the given text centered on the given point.
+	 * @param list the DisplayList to draw the text on
+	 * @param text the buffer holding the text
+	 * @param length the number of characters of the buffer to draw
+	 * @param centerX the x-coordinate of the text's center
+	 * @param centerY the y-coordinate of the text's center
+	 */
+	public void drawText(DisplayList list, char [] text, int length,
+			double centerX, double centerY) {
+
+		double x = centerX - measure(text, length) / 2;
+		double y = centerY - getLineHeight() / 2;
+
+		for (int i = 0; i < length; i++) {
+
+			char c = text[i];
+
+			if (contains(c)) {
+
+				list.drawImage(image,
+						glyphX[c] * scale, 0, glyphWidth[c] * scale, lineHeight * scale,
+						x, y, glyphWidth[c], lineHeight);
+				x += glyphAdvance[c];
+
+			}
+
+		}
+
+	}
+
+}
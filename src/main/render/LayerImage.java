@@ -0,0 +1,152 @@
+package render;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import javafx.stage.Screen;
+
+/**
+ * A rectangular part of a drawing, rendered once into an Image so it can be
+ * drawn again by copying pixels instead of replaying its commands. Used for
+ * parts of the interface that rarely change.
+ *
+ * Layers are rendered at the primary screen's output scale so they stay
+ * sharp on HiDPI displays. Rendering takes a snapshot of a Canvas, so it
+ * must happen on the JavaFX application thread.
+ */
+public class LayerImage {
+
+	private Image image;
+	private double x;
+	private double y;
+	private double width;
+	private double height;
+	private double scale; // image pixels per Canvas unit
+
+	/**
+	 * Creates a LayerImage from an already rendered Image.
+	 * @param image the rendered layer
+	 * @param x the left x-coordinate the layer was rendered from
+	 * @param y the top y-coordinate the layer was rendered from
+	 * @param width the width of the layer
+	 * @param height the height of the layer
+	 * @param scale the number of image pixels per Canvas unit
+	 */
+	private LayerImage(Image image, double x, double y, double width,
+			double height, double scale) {
+
+		this.image = image;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.scale = scale;
+
+	}
+
+	/**
+	 * Renders the given rectangle of a DisplayList's drawing into a
+	 * LayerImage. Anything the list draws outside the rectangle is left out.
+	 * @param list the drawing commands, in Canvas coordinates
+	 * @param x the left x-coordinate of the rectangle to render
+	 * @param y the top y-coordinate of the rectangle to render
+	 * @param width the width of the rectangle to render
+	 * @param height the height of the rectangle to render
+	 * @return the rendered layer
+	 */
+	public static LayerImage render(DisplayList list, double x, double y,
+			double width, double height) {
+
+		double scale = Math.max(1, Screen.getPrimary().getOutputScaleX());
+
+		Canvas canvas = new Canvas(width, height);
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.translate(-x, -y);
+		list.replay(gc);
+
+		SnapshotParameters parameters = new SnapshotParameters();
+		parameters.setFill(Color.TRANSPARENT);
+		parameters.setTransform(Transform.scale(scale, scale));
+
+		return new LayerImage(canvas.snapshot(parameters, null),
+				x, y, width, height, scale);
+
+	}
+
+	/**
+	 * Gets the left x-coordinate the layer was rendered from.
+	 * @return the layer's x-coordinate
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the top y-coordinate the layer was rendered from.
+	 * @return the layer's y-coordinate
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the width of the layer.
+	 * @return the layer's width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the layer.
+	 * @return the layer's height
+	 */
+	public double getHeight() {
+		return height;
+	}
+
+	/**
+	 * Draws the whole layer with its top-left corner at the given point.
+	 * @param list the DisplayList to draw the layer on
+	 * @param x the left x-coordinate to draw the layer at
+	 * @param y the top y-coordinate to draw the layer at
+	 */
+	public void draw(DisplayList list, double x, double y) {
+
+		list.drawImage(image, 0, 0, width * scale, height * scale,
+				x, y, width, height);
+
+	}
+
+	/**
+	 * Draws the part of the layer inside the given rectangle, where it was
+	 * rendered from. Parts of the rectangle outside the layer are left
+	 * untouched.
+	 * @param list the DisplayList to draw the layer on
+	 * @param x the left x-coordinate of the rectangle
+	 * @param y the top y-coordinate of the rectangle
+	 * @param width the width of the rectangle
+	 * @param height the height of the rectangle
+	 */
+	public void drawRegion(DisplayList list, double x, double y,
+			double width, double height) {
+
+		double left = Math.max(x, getX());
+		double top = Math.max(y, getY());
+		double right = Math.min(x + width, getX() + getWidth());
+		double bottom = Math.min(y + height, getY() + getHeight());
+
+		if (right <= left || bottom <= top) {
+			return;
+		}
+
+		list.drawImage(image,
+				(left - getX()) * scale, (top - getY()) * scale,
+				(right - left) * scale, (bottom - top) * scale,
+				left, top, right - left, bottom - top);
+
+	}
+
+}
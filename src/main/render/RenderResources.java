@@ -0,0 +1,198 @@
+package render;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+
+/**
+ * A central cache for the Fonts, Colors, color ramps and glyph atlases used
+ * when drawing.
+ * Resources are keyed by the values used to build them, so every caller
+ * asking for the same Font or Color shares one object instead of building
+ * its own. Draw code should request its resources once (for example when it
+ * is created) and keep the returned objects, rather than building them
+ * inside draw methods.
+ *
+ * The cache also counts requests and creations, which gives one place to
+ * measure how many resources the simulation builds.
+ */
+public final class RenderResources {
+
+	private static final ConcurrentHashMap<List<Object>, Object> resources =
+			new ConcurrentHashMap<List<Object>, Object>();
+
+	private static final LongAdder requestCount = new LongAdder();
+	private static final LongAdder creationCount = new LongAdder();
+
+	private RenderResources() {}
+
+	/**
+	 * Gets the resource stored under the given key, building and storing it
+	 * with the given Supplier if it has not been requested before.
+	 * @param key the values the resource is built from
+	 * @param builder builds the resource if it is not cached yet
+	 * @return the cached resource
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T get(List<Object> key, Supplier<T> builder) {
+
+		requestCount.increment();
+
+		return (T) resources.computeIfAbsent(key, k -> {
+
+			creationCount.increment();
+			return builder.get();
+
+		});
+
+	}
+
+	/**
+	 * Gets a Font of the given family, weight, posture and size.
+	 * @param family the font family
+	 * @param weight the font weight
+	 * @param posture the font posture
+	 * @param size the font size, in points
+	 * @return the cached Font
+	 */
+	public static Font getFont(String family, FontWeight weight,
+			FontPosture posture, double size) {
+
+		return get(List.of("font", family, weight, posture, size),
+				() -> Font.font(family, weight, posture, size));
+
+	}
+
+	/**
+	 * Gets the default Font at the given size.
+	 * @param size the font size, in points
+	 * @return the cached Font
+	 */
+	public static Font getFont(double size) {
+
+		return get(List.of("font", size), () -> new Font(size));
+
+	}
+
+	/**
+	 * Gets the Color for a web color string, such as a Hex code.
+	 * @param colorCode the web color string
+	 * @return the cached Color
+	 */
+	public static Color getColor(String colorCode) {
+
+		return get(List.of("web", colorCode), () -> Color.web(colorCode));
+
+	}
+
+	/**
+	 * Gets a darker version of the given Color, as given by
+	 * <code>Color.darker()</code>.
+	 * @param color the Color to darken
+	 * @return the cached darker Color
+	 */
+	public static Color getDarker(Color color) {
+
+		return get(List.of("darker", color), () -> color.darker());
+
+	}
+
+	/**
+	 * Gets a GlyphAtlas of the HUD glyphs drawn with the given Font and Color.
+	 * The atlas is built on the first request, which must happen on the 
+	 * JavaFX application thread.
+	 * @param font the Font to draw the glyphs with
+	 * @param color the Color to draw the glyphs with
+	 * @return the cached GlyphAtlas
+	 */
+	public static GlyphAtlas getGlyphAtlas(Font font, Color color) {
+
+		return get(List.of("glyphs", font, color),
+				() -> new GlyphAtlas(font, color, GlyphAtlas.HUD_GLYPHS));
+
+	}
+
+	/**
+	 * Gets a table of Colors between two Colors. Each row is one of
+	 * <code>steps</code> evenly spaced colors from the first Color to the
+	 * second, and each column is that color at one of
+	 * <code>fadeLevels</code> evenly spaced opacities, from fully transparent
+	 * to fully opaque. If the two Colors are equal, the table has one row.
+	 * @param color1 the first color of the range
+	 * @param color2 the last color of the range
+	 * @param steps the number of colors in the range
+	 * @param fadeLevels the number of opacities for each color
+	 * @return the cached color ramp
+	 */
+	public static Color [][] getColorRamp(Color color1, Color color2,
+			int steps, int fadeLevels) {
+
+		return get(List.of("ramp", color1, color2, steps, fadeLevels),
+				() -> buildColorRamp(color1, color2, steps, fadeLevels));
+
+	}
+
+	/**
+	 * Builds the table returned by <code>getColorRamp</code>.
+	 * @param color1 the first color of the range
+	 * @param color2 the last color of the range
+	 * @param steps the number of colors in the range
+	 * @param fadeLevels the number of opacities for each color
+	 * @return the color ramp
+	 */
+	private static Color [][] buildColorRamp(Color color1, Color color2,
+			int steps, int fadeLevels) {
+
+		int rows = color1.equals(color2) ? 1 : steps;
+
+		Color [][] table = new Color[rows][fadeLevels];
+
+		for (int i = 0; i < rows; i++) {
+
+			double t = rows == 1 ? 0 : (double) i / (rows - 1);
+			Color color = color1.interpolate(color2, t);
+
+			for (int j = 0; j < fadeLevels; j++) {
+
+				table[i][j] = new Color(color.getRed(), color.getGreen(), color.getBlue(),
+						(double) j / (fadeLevels - 1));
+
+			}
+
+		}
+
+		return table;
+
+	}
+
+	/**
+	 * Gets the number of times a resource has been requested from the cache.
+	 * @return the number of requests
+	 */
+	public static long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	/**
+	 * Gets the number of resources the cache has built. Requests that were
+	 * answered from the cache do not count.
+	 * @return the number of resources built
+	 */
+	public static long getCreationCount() {
+		return creationCount.sum();
+	}
+
+	/**
+	 * Gets the number of distinct resources currently held by the cache.
+	 * @return the number of cached resources
+	 */
+	public static int getCachedResourceCount() {
+		return resources.size();
+	}
+
+}
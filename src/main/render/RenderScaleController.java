@@ -0,0 +1,139 @@
+package render;
+
+/**
+ * Chooses the resolution to draw the world at, based on how long frames are
+ * taking. When the average frame time goes over the target, the scale steps
+ * down so less has to be rasterized each frame; when frames are back on
+ * time, it steps up again until the world is drawn at full resolution.
+ *
+ * The scale only moves between a few fixed steps, and waits for frame times
+ * to settle after every change. If stepping up makes frames late again, the
+ * controller waits twice as long before trying again, so it doesn't flicker
+ * between two resolutions.
+ */
+public class RenderScaleController {
+
+	// The scales the world can be drawn at, from full resolution down
+	private static final double [] SCALE_STEPS = {1.0, 0.85, 0.7, 0.55, 0.4};
+
+	// How much of each new frame time goes into the average
+	private static final double SMOOTHING = 0.1;
+
+	// Frames later than this fraction of the target count as over budget
+	private static final double OVER_BUDGET = 1.25;
+	// Frames within this fraction of the target count as on time
+	private static final double ON_TIME = 1.05;
+
+	private static final double MIN_SETTLE_TIME = 1; // seconds
+	private static final double MAX_SETTLE_TIME = 16; // seconds
+
+	private double targetFrameTime; // seconds
+	private double averageFrameTime;
+	private int step = 0;
+	private double timeSinceChange = 0;
+	private double settleTime = MIN_SETTLE_TIME;
+	private boolean lastChangeWasUp = false;
+
+	/**
+	 * Creates a RenderScaleController aiming for the given frame rate.
+	 * @param targetFrameRate the frame rate to aim for, in frames per second
+	 */
+	public RenderScaleController(double targetFrameRate) {
+
+		setTargetFrameRate(targetFrameRate);
+
+	}
+
+	/**
+	 * Sets the frame rate the controller aims for.
+	 * @param targetFrameRate the frame rate to aim for, in frames per second
+	 */
+	public void setTargetFrameRate(double targetFrameRate) {
+
+		this.targetFrameTime = 1 / targetFrameRate;
+		this.averageFrameTime = targetFrameTime;
+
+	}
+
+	/**
+	 * Gets the frame time the controller aims for.
+	 * @return the target frame time, in seconds
+	 */
+	public double getTargetFrameTime() {
+		return targetFrameTime;
+	}
+
+	/**
+	 * Gets the smoothed average of recent frame times.
+	 * @return the average frame time, in seconds
+	 */
+	public double getAverageFrameTime() {
+		return averageFrameTime;
+	}
+
+	/**
+	 * Gets the scale the world should currently be drawn at, where 1 is full
+	 * resolution.
+	 * @return the render scale
+	 */
+	public double getScale() {
+		return SCALE_STEPS[step];
+	}
+
+	/**
+	 * Returns to full resolution and forgets past frame times.
+	 */
+	public void reset() {
+
+		step = 0;
+		averageFrameTime = targetFrameTime;
+		timeSinceChange = 0;
+		settleTime = MIN_SETTLE_TIME;
+		lastChangeWasUp = false;
+
+	}
+
+	/**
+	 * Records how long a frame took, and steps the scale up or down if frame
+	 * times have settled over budget or on time. Only frames drawn back to
+	 * back should be recorded, since idle gaps say nothing about cost.
+	 * @param frameTime the time since the previous frame, in seconds
+	 * @return true if the scale changed
+	 */
+	public boolean recordFrame(double frameTime) {
+
+		averageFrameTime += (frameTime - averageFrameTime) * SMOOTHING;
+		timeSinceChange += frameTime;
+
+		if (timeSinceChange < settleTime) {
+			return false;
+		}
+
+		if (averageFrameTime > targetFrameTime * OVER_BUDGET &&
+				step < SCALE_STEPS.length - 1) {
+
+			// If the last step up didn't hold, wait longer before trying again
+			boolean stepUpFailed = lastChangeWasUp && timeSinceChange < settleTime * 2;
+			settleTime = stepUpFailed ?
+					Math.min(settleTime * 2, MAX_SETTLE_TIME) : MIN_SETTLE_TIME;
+			step++;
+			lastChangeWasUp = false;
+			timeSinceChange = 0;
+			return true;
+
+		}
+
+		if (averageFrameTime <= targetFrameTime * ON_TIME && step > 0) {
+
+			step--;
+			lastChangeWasUp = true;
+			timeSinceChange = 0;
+			return true;
+
+		}
+
+		return false;
+
+	}
+
+}
@@ -0,0 +1,156 @@
+package rocket;
+
+/**
+ * The settings of the autopilot that flies a Rocket's automatic landing: the
+ * gains of its PID controller, and how its engines are pulsed on and off.
+ *
+ * The engines are pulsed: after each burn they stay off for a time that
+ * grows with the Rocket's height, up to a limit, and each burn lasts a time
+ * that also grows with the height, but never less than a minimum.
+ */
+public class AutopilotParameters {
+
+	/**
+	 * The settings the automatic landing uses in the simulator.
+	 */
+	public static final AutopilotParameters DEFAULT =
+		new AutopilotParameters(0.2, 0.3, 0.01, 0.75, 300, 6.0, 100);
+
+	private final double kp;
+	private final double ki;
+	private final double kd;
+
+	private final double maxPulseOffTime;
+	private final double pulseOffHeight;
+	private final double minPulseOnTime;
+	private final double pulseOnHeight;
+
+	/**
+	 * Creates AutopilotParameters with the given gains, pulsing the engines
+	 * the same way the simulator does.
+	 * @param kp the proportional gain
+	 * @param ki the integral gain
+	 * @param kd the derivative gain
+	 */
+	public AutopilotParameters(double kp, double ki, double kd) {
+
+		this(kp, ki, kd, DEFAULT.getMaxPulseOffTime(), DEFAULT.getPulseOffHeight(),
+			DEFAULT.getMinPulseOnTime(), DEFAULT.getPulseOnHeight());
+
+	}
+
+	/**
+	 * Creates AutopilotParameters with the given gains and engine pulsing.
+	 * @param kp the proportional gain
+	 * @param ki the integral gain
+	 * @param kd the derivative gain
+	 * @param maxPulseOffTime the longest time the engines stay off between
+	 * burns, in seconds
+	 * @param pulseOffHeight the height above the ground that adds one
+	 * second to the time the engines stay off
+	 * @param minPulseOnTime the shortest time a burn lasts, in seconds
+	 * @param pulseOnHeight the height above the ground that adds one second
+	 * to the time a burn lasts
+	 */
+	public AutopilotParameters(double kp, double ki, double kd,
+			double maxPulseOffTime, double pulseOffHeight,
+			double minPulseOnTime, double pulseOnHeight) {
+
+		if (pulseOffHeight <= 0 || pulseOnHeight <= 0) {
+			throw new IllegalArgumentException("Pulse heights must be positive");
+		}
+
+		this.kp = kp;
+		this.ki = ki;
+		this.kd = kd;
+		this.maxPulseOffTime = maxPulseOffTime;
+		this.pulseOffHeight = pulseOffHeight;
+		this.minPulseOnTime = minPulseOnTime;
+		this.pulseOnHeight = pulseOnHeight;
+
+	}
+
+	/**
+	 * Gets the proportional gain.
+	 * @return the proportional gain
+	 */
+	public double getKp() {
+		return kp;
+	}
+
+	/**
+	 * Gets the integral gain.
+	 * @return the integral gain
+	 */
+	public double getKi() {
+		return ki;
+	}
+
+	/**
+	 * Gets the derivative gain.
+	 * @return the derivative gain
+	 */
+	public double getKd() {
+		return kd;
+	}
+
+	/**
+	 * Gets the longest time the engines stay off between burns.
+	 * @return the max pulse off time, in seconds
+	 */
+	public double getMaxPulseOffTime() {
+		return maxPulseOffTime;
+	}
+
+	/**
+	 * Gets the height above the ground that adds one second to the time the
+	 * engines stay off between burns.
+	 * @return the pulse off height
+	 */
+	public double getPulseOffHeight() {
+		return pulseOffHeight;
+	}
+
+	/**
+	 * Gets the shortest time a burn lasts.
+	 * @return the min pulse on time, in seconds
+	 */
+	public double getMinPulseOnTime() {
+		return minPulseOnTime;
+	}
+
+	/**
+	 * Gets the height above the ground that adds one second to the time a
+	 * burn lasts.
+	 * @return the pulse on height
+	 */
+	public double getPulseOnHeight() {
+		return pulseOnHeight;
+	}
+
+	/**
+	 * Gets the time the engines stay off after a burn.
+	 * @param altitudeDifference the Rocket's height above the ground
+	 * @return the pulse off time, in seconds
+	 */
+	public double getPulseOffTime(double altitudeDifference) {
+		return Math.min(maxPulseOffTime, altitudeDifference / pulseOffHeight);
+	}
+
+	/**
+	 * Gets the time a burn lasts.
+	 * @param altitudeDifference the Rocket's height above the ground
+	 * @return the pulse on time, in seconds
+	 */
+	public double getPulseOnTime(double altitudeDifference) {
+		return Math.max(minPulseOnTime, altitudeDifference / pulseOnHeight);
+	}
+
+	@Override
+	public String toString() {
+		return "kp=" + kp + " ki=" + ki + " kd=" + kd +
+			" maxOff=" + maxPulseOffTime + " offHeight=" + pulseOffHeight +
+			" minOn=" + minPulseOnTime + " onHeight=" + pulseOnHeight;
+	}
+
+}
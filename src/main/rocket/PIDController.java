@@ -15,6 +15,24 @@ public class PIDController {
         this.kd = kd;
     }
 
+    public void setGains(double kp, double ki, double kd) {
+        this.kp = kp;
+        this.ki = ki;
+        this.kd = kd;
+    }
+
+    public double getKp() {
+        return kp;
+    }
+
+    public double getKi() {
+        return ki;
+    }
+
+    public double getKd() {
+        return kd;
+    }
+
     public void setOutputLimits(double min, double max) {
         if (min > max) {
             throw new IllegalArgumentException("Minimum limit must be less than maximum limit");
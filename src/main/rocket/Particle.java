@@ -1,6 +1,7 @@
 
 package rocket;
-import javafx.scene.canvas.GraphicsContext;
+import java.util.concurrent.ThreadLocalRandom;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 import util.Entity;
 
@@ -16,6 +17,9 @@ public class Particle extends Entity {
 	
 	private double groundY;
 	
+	private double opacity = 1;
+	private Color[] fadeColors; // the Particle's color at evenly spaced opacities
+	
 	public Particle() {}
 
 	/**
@@ -30,6 +34,7 @@ public class Particle extends Entity {
 	public Particle(double x, double y, Color color, double groundY) {
 		super(x, y, color);
 		this.groundY = groundY;
+		this.opacity = color.getOpacity();
 	}
 	
 	/**
@@ -55,6 +60,7 @@ public class Particle extends Entity {
 		
 		super(x, y, color);
 		this.radius = radius;
+		this.opacity = color.getOpacity();
 		double angle = getRandomAngle(minAngle, maxAngle);
 		getVelocity().createVector(rocketSpeed + initialSpeed, angle);
 		getVelocity().setX(getVelocity().getX() * -1); // TODO Explain why I have to do this
@@ -62,6 +68,45 @@ public class Particle extends Entity {
 		
 	}
 
+	/**
+	 * Spawns the Particle again, reusing this object instead of allocating a
+	 * new one. The Particle's lifetime and opacity are restored, and it fades
+	 * by stepping through the given table of pre-built colors rather than
+	 * creating a new Color every tick.
+	 * @param x the middle x coordinate of the Particle
+	 * @param y the top y coordinate of the Particle
+	 * @param radius the radius of the Particle
+	 * @param fadeColors the Particle's color at evenly spaced opacities, from
+	 * fully transparent to fully opaque
+	 * @param minAngle the minimum angle of the Particle's velocity vector,
+	 * in degrees
+	 * @param maxAngle the maximum angle of the Particle's velocity vector,
+	 * in degrees
+	 * @param rocketSpeed the speed of the Rocket which the Particle is being
+	 * launched from
+	 * @param initialSpeed the initial speed to launch the Particle at(in 
+	 * addition to the rocketSpeed)
+	 * @param groundY the top y coordinate of the ground
+	 */
+	public void respawn(double x, double y, double radius, Color[] fadeColors,
+			double minAngle, double maxAngle, double rocketSpeed, 
+			double initialSpeed, double groundY) {
+		
+		setX(x);
+		setY(y);
+		this.radius = radius;
+		this.groundY = groundY;
+		this.fadeColors = fadeColors;
+		setOpacity(1);
+		setColor(fadeColors[fadeColors.length - 1]);
+		setLifetime(getInitialLifetime());
+		
+		double angle = getRandomAngle(minAngle, maxAngle);
+		getVelocity().createVector(rocketSpeed + initialSpeed, angle);
+		getVelocity().setX(getVelocity().getX() * -1);
+		
+	}
+
 	/**
 	 * Gets the radius of the Particle.
 	 * @return the radius
@@ -111,6 +156,22 @@ public class Particle extends Entity {
 		this.lifetime = lifetime;
 	}
 
+	/**
+	 * Gets the opacity the Particle is currently drawn with.
+	 * @return the Particle's opacity, between 0 and 1
+	 */
+	public double getOpacity() {
+		return opacity;
+	}
+
+	/**
+	 * Sets the opacity the Particle is currently drawn with.
+	 * @param opacity the Particle's new opacity, between 0 and 1
+	 */
+	public void setOpacity(double opacity) {
+		this.opacity = opacity;
+	}
+
 	/**
 	 * Decreases the Particle's lifetime by the time, in seconds, that has
 	 * passed.
@@ -132,15 +193,24 @@ public class Particle extends Entity {
 	
 	/**
 	 * Sets the Particle's opacity to the proportion of its lifetime left over
-	 * its initial lifetime
+	 * its initial lifetime. If the Particle was given a table of faded colors,
+	 * the nearest one is used so that no Color has to be created.
 	 */
 	public void fade() {
 		
-		double newOpacity = (getLifetime() / getInitialLifetime()) * 
-				getColor().getOpacity();
+		setOpacity((getLifetime() / getInitialLifetime()) * getOpacity());
 		
-		setColor(new Color(getColor().getRed(), getColor().getGreen(), 
-				getColor().getBlue(), newOpacity));
+		if (fadeColors != null) {
+			
+			int level = (int) Math.round(getOpacity() * (fadeColors.length - 1));
+			setColor(fadeColors[Math.max(0, level)]);
+			
+		} else {
+			
+			setColor(new Color(getColor().getRed(), getColor().getGreen(), 
+					getColor().getBlue(), getOpacity()));
+			
+		}
 		
 	}
 	
@@ -152,7 +222,7 @@ public class Particle extends Entity {
 	 */
 	public static double getRandomAngle(double minAngle, double maxAngle) {
 		
-		return Math.random() * (maxAngle - minAngle) + minAngle;
+		return ThreadLocalRandom.current().nextDouble() * (maxAngle - minAngle) + minAngle;
 		
 	}
 	
@@ -174,10 +244,29 @@ public class Particle extends Entity {
 	}
 
 	@Override
-	public void draw(GraphicsContext gc) {
+	public void copyStateFrom(Entity source) {
+		
+		super.copyStateFrom(source);
+		
+		if (source instanceof Particle) {
+			
+			Particle particle = (Particle) source;
+			setRadius(particle.getRadius());
+			setInitialLifetime(particle.getInitialLifetime());
+			setLifetime(particle.getLifetime());
+			setOpacity(particle.getOpacity());
+			this.groundY = particle.groundY;
+			this.fadeColors = particle.fadeColors;
+			
+		}
+		
+	}
+
+	@Override
+	public void draw(DisplayList list) {
 
-		gc.setFill(getColor());
-		gc.fillOval(getX() - getRadius(), getY(), getRadius() * 2, getRadius() * 2);
+		list.setFill(getColor());
+		list.fillOval(getX() - getRadius(), getY(), getRadius() * 2, getRadius() * 2);
 
 	}
 
@@ -1,9 +1,11 @@
 
 package rocket;
-import java.util.Iterator;
-import java.util.LinkedList;
-import javafx.scene.canvas.GraphicsContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import render.DisplayList;
 import javafx.scene.paint.Color;
+import render.RenderResources;
 import util.Entity;
 
 
@@ -14,7 +16,11 @@ import util.Entity;
 public class ParticleEmitter extends Entity {
 	
 	
-	LinkedList<Particle> particles = new LinkedList<Particle>();
+	public static final int PARTICLE_COLOR_STEPS = 16;
+	public static final int PARTICLE_FADE_LEVELS = 32;
+	
+	ArrayList<Particle> particles = new ArrayList<Particle>();
+	private ArrayDeque<Particle> particlePool = new ArrayDeque<Particle>();
 	private double particleSpawnRate = 0; 
 	private double particleBurstAmount = 10;
 	private double particleLaunchAngle = 0;
@@ -23,6 +29,7 @@ public class ParticleEmitter extends Entity {
 	private double initialParticleSpeed = 50;
 	private double timeSinceLastParticleSpawned = particleSpawnRate;
 	private Color [] particleColorRange;
+	private Color [][] particleColorTable;
 	private double groundY;
 	
 	private boolean on = false;
@@ -37,7 +44,7 @@ public class ParticleEmitter extends Entity {
 	public ParticleEmitter(double groundY, Color[] particleColorRange) {
 		super();
 		this.groundY = groundY;
-		this.particleColorRange = particleColorRange;
+		setParticleColorRange(particleColorRange);
 	}
 	
 	/**
@@ -54,7 +61,7 @@ public class ParticleEmitter extends Entity {
 		
 		super(0, 0, Color.RED, xOffset, yOffset);
 		this.groundY = groundY;
-		this.particleColorRange = particleColorRange;
+		setParticleColorRange(particleColorRange);
 		
 	}
 	/**
@@ -80,7 +87,7 @@ public class ParticleEmitter extends Entity {
 		this.groundY = groundY;
 		setWidth(width);
 		setHeight(height);
-		this.particleColorRange = particleColorRange;
+		setParticleColorRange(particleColorRange);
 		this.particleLaunchAngle = particleLaunchAngle;
 		this.particleRadius = 1;
 		this.particleSpreadAngle = 5;
@@ -106,10 +113,10 @@ public class ParticleEmitter extends Entity {
 	}
 
 	/**
-	 * Gets a LinkedList of this ParticleEmitter's emitted Particles.
+	 * Gets a list of this ParticleEmitter's emitted Particles.
 	 * @return a list of emitted Particles.
 	 */
-	public LinkedList<Particle> getParticles() {
+	public ArrayList<Particle> getParticles() {
 		return particles;
 	}
 
@@ -117,7 +124,7 @@ public class ParticleEmitter extends Entity {
 	 * Sets the list of Particles emitted by this ParticleEmitter.
 	 * @param particles the list of Particles emitted
 	 */
-	public void setParticles(LinkedList<Particle> particles) {
+	public void setParticles(ArrayList<Particle> particles) {
 		this.particles = particles;
 	}
 
@@ -135,6 +142,13 @@ public class ParticleEmitter extends Entity {
 	 */
 	public void setParticleColorRange(Color [] particleColorRange) {
 		this.particleColorRange = particleColorRange;
+		
+		// Particles pick a row of this table when spawned and step through 
+		// its columns as they fade, so no Colors are created while running
+		this.particleColorTable = RenderResources.getColorRamp(
+				particleColorRange[0], 
+				particleColorRange[particleColorRange.length == 1 ? 0 : 1], 
+				PARTICLE_COLOR_STEPS, PARTICLE_FADE_LEVELS);
 	}
 
 	/**
@@ -258,46 +272,22 @@ public class ParticleEmitter extends Entity {
 	
 	/**
 	 * Gets a random Color within the range of the 
-	 * <code>particleColorRange</code>. If the length of 
-	 * <code>particleColorRange</code> is less than 2, its first element is
-	 * returned.
-	 * @return a random Color within the <code>particleColorRange</code>
+	 * <code>particleColorRange</code>, as a row of the Particle color table 
+	 * holding that Color at every fade level. If the length of 
+	 * <code>particleColorRange</code> is less than 2, the row for its first 
+	 * element is returned.
+	 * @return a random Color within the <code>particleColorRange</code> at
+	 * every fade level
 	 */
-	private Color generateRandomParticleColor() {
+	private Color [] generateRandomParticleColor() {
 		
-		if (getParticleColorRange().length == 1 || 
-				getParticleColorRange()[0].equals(
-						getParticleColorRange()[1])) {
-			
-			return getParticleColorRange()[0];
-			
-		} else {
-			
-			Color color1 = getParticleColorRange()[0];
-			Color color2 = getParticleColorRange()[1];
-			
-			double lowerR = Math.min(color1.getRed(), color2.getRed());
-			double upperR = Math.max(color1.getRed(), color2.getRed());
-			
-			double lowerG = Math.min(color1.getGreen(), color2.getGreen());
-			double upperG = Math.max(color1.getGreen(), color2.getGreen());
-			
-			double lowerB = Math.min(color1.getBlue(), color2.getBlue());
-			double upperB = Math.max(color1.getBlue(), color2.getBlue());
-			
-			double particleR = lowerR + (Math.random() * (upperR - lowerR));
-			double particleG = lowerG + (Math.random() * (upperG - lowerG));
-			double particleB = lowerB + (Math.random() * (upperB - lowerB));
-			
-			return new Color(particleR, particleG, particleB, 1);
-			
-		}
+		return particleColorTable[ThreadLocalRandom.current().nextInt(particleColorTable.length)];
 		
 	}
 	
 	/**
-	 * Emits a single Particle by creating one and adding it to the
-	 * ParticleEmitter's list of Particles.
+	 * Emits a single Particle by reusing a dead one, or creating one if there
+	 * are none, and adding it to the ParticleEmitter's list of Particles.
 	 */
 	private void emitParticle() {
 		
@@ -306,12 +296,20 @@ public class ParticleEmitter extends Entity {
 		double maxAngle = getDirection() + getParticleSpreadAngle() + 
 				getParticleLaunchAngle();
 		
-		getParticles().add(new Particle(
-				getX(), getY() + getHeight() / 2, getParticleRadius(), 
+		Particle particle = particlePool.poll();
+		
+		if (particle == null) {
+			
+			particle = new Particle();
+			
+		}
+		
+		particle.respawn(getX(), getY() + getHeight() / 2, getParticleRadius(), 
 				generateRandomParticleColor(), minAngle, maxAngle, 
-				getVelocity().getMagnitude(), getInitialParticleSpeed(),
-				groundY
-				));
+				getWorldSpeed(), getInitialParticleSpeed(),
+				groundY);
+		
+		getParticles().add(particle);
 		
 	}
 	
@@ -342,37 +340,93 @@ public class ParticleEmitter extends Entity {
 	
 	/**
 	 * Removes the dead(lifetime = 0) Particles from the Rocket's ArrayList of
-	 * particles for the engine plume
+	 * particles for the engine plume and keeps them for reuse. The live 
+	 * Particles are shifted down in place so their draw order is kept.
 	 */
 	private void cleanParticles() {
 		
-		Iterator<Particle> particleIterator = 
-				getParticles().iterator();
+		ArrayList<Particle> particles = getParticles();
+		int liveCount = 0;
 		
-		while (particleIterator.hasNext()) {
-
-			if (particleIterator.next().getLifetime() <= 0) {
-
-				particleIterator.remove();
-
+		for (int i = 0; i < particles.size(); i++) {
+			
+			Particle particle = particles.get(i);
+			
+			if (particle.getLifetime() <= 0) {
+				
+				particlePool.push(particle);
+				
+			} else {
+				
+				particles.set(liveCount++, particle);
+				
 			}
-
+			
+		}
+		
+		for (int i = particles.size() - 1; i >= liveCount; i--) {
+			
+			particles.remove(i);
+			
 		}
 		
 	}
 	
 	@Override
-	public void draw(GraphicsContext gc) {
+	public void copyStateFrom(Entity source) {
 		
-		gc.setFill(getColor());
-		gc.fillRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight());
+		super.copyStateFrom(source);
 		
-		for (Particle particle : getParticles()) {
+		if (source instanceof ParticleEmitter) {
 			
-			particle.draw(gc);
+			ParticleEmitter emitter = (ParticleEmitter) source;
+			setOn(emitter.isOn());
+			
+			// Match the number of Particles, reusing pooled ones
+			ArrayList<Particle> particles = getParticles();
+			ArrayList<Particle> sourceParticles = emitter.getParticles();
+			
+			while (particles.size() > sourceParticles.size()) {
+				
+				particlePool.push(particles.remove(particles.size() - 1));
+				
+			}
+			
+			while (particles.size() < sourceParticles.size()) {
+				
+				Particle particle = particlePool.poll();
+				particles.add(particle != null ? particle : new Particle());
+				
+			}
+			
+			for (int i = 0; i < particles.size(); i++) {
+				
+				particles.get(i).copyStateFrom(sourceParticles.get(i));
+				
+			}
+			
+		}
+		
+	}
+	
+	@Override
+	public void draw(DisplayList list) {
+		
+		list.setFill(getColor());
+		list.fillRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight());
+		
+		// Particles can be drawn in any order, so let the list group them
+		// by color
+		list.beginBatch();
+		
+		for (int i = 0; i < getParticles().size(); i++) {
+			
+			getParticles().get(i).draw(list);
 			
 		}
 		
+		list.endBatch();
+		
 	}
 	
 	@Override
@@ -382,9 +436,9 @@ public class ParticleEmitter extends Entity {
 			emitParticles(timeElapsed);
 		}
 		
-		for (Particle particle : getParticles()) {
+		for (int i = 0; i < getParticles().size(); i++) {
 			
-			particle.tick(timeElapsed);
+			getParticles().get(i).tick(timeElapsed);
 			
 		}
 		
@@ -0,0 +1,106 @@
+package rocket;
+
+/**
+ * Decides how to fly many UserControlledRockets at once with a
+ * PolicyNetwork, the way a pilot would with the keyboard: each tick, the
+ * network turns every Rocket's observations into whether its engines fire
+ * and the angle it turns towards.
+ *
+ * Observations are read feature by feature, with one column per Rocket, in
+ * the layout of batch.LandingVecEnv: height above the ground, horizontal
+ * and vertical velocity, direction, fuel, and sideways drift. The network
+ * gives two outputs per Rocket: the engines fire when the first is above
+ * 0, and the second is the target angle in degrees.
+ *
+ * Rockets are evaluated in tiles, so the values between layers stay in the
+ * CPU's cache. Every buffer is allocated once, so a tick allocates nothing.
+ * A PolicyController must only be used by one thread at a time; threads can
+ * share the PolicyNetwork with controllers of their own.
+ */
+public class PolicyController {
+
+	/**
+	 * The number of Rockets evaluated together.
+	 */
+	public static final int TILE_SIZE = 256;
+
+	private final PolicyNetwork network;
+
+	private final float [][] inputs;
+	private final float [][] outputs;
+	private final float [][] scratch;
+	private final float [][] otherScratch;
+
+	/**
+	 * Creates a PolicyController.
+	 * @param network the network to fly with; it must give two outputs
+	 */
+	public PolicyController(PolicyNetwork network) {
+
+		if (network.getOutputCount() != 2) {
+			throw new IllegalArgumentException("A policy network must give a throttle and a target angle");
+		}
+
+		this.network = network;
+
+		inputs = new float[network.getInputCount()][TILE_SIZE];
+		outputs = new float[network.getOutputCount()][TILE_SIZE];
+		scratch = new float[network.getLargestLayer()][TILE_SIZE];
+		otherScratch = new float[network.getLargestLayer()][TILE_SIZE];
+
+	}
+
+	/**
+	 * Gets the network the controller flies with.
+	 * @return the network
+	 */
+	public PolicyNetwork getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Decides every Rocket's action.
+	 * @param observations each Rocket's observations: feature f of Rocket i
+	 * is at <code>f * count + i</code>
+	 * @param count the number of Rockets
+	 * @param throttles where to write whether each Rocket's engines fire
+	 * @param targetAngles where to write the angle each Rocket turns
+	 * towards, in degrees
+	 */
+	public void act(double [] observations, int count, boolean [] throttles,
+			double [] targetAngles) {
+
+		if (observations.length < network.getInputCount() * count) {
+			throw new IllegalArgumentException("Expected " + network.getInputCount() +
+				" observations per Rocket");
+		}
+
+		for (int start = 0; start < count; start += TILE_SIZE) {
+
+			int columns = Math.min(TILE_SIZE, count - start);
+
+			for (int input = 0; input < network.getInputCount(); input++) {
+
+				float mean = network.getInputMean(input);
+				float scale = network.getInputScale(input);
+				int from = input * count + start;
+				float [] row = inputs[input];
+
+				for (int column = 0; column < columns; column++) {
+					row[column] = ((float) observations[from + column] - mean) * scale;
+				}
+
+			}
+
+			network.evaluate(inputs, outputs, scratch, otherScratch, columns);
+
+			for (int column = 0; column < columns; column++) {
+				throttles[start + column] = outputs[0][column] > 0;
+				targetAngles[start + column] = outputs[1][column];
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,346 @@
+package rocket;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A small fully connected neural network, trained elsewhere and loaded from
+ * a binary weight file, that a PolicyController flies Rockets with.
+ *
+ * A network is evaluated for many inputs at once, as a matrix product.
+ * Inputs, outputs and the values between layers are stored as one row of
+ * floats per feature, with one column per input, so each weight is
+ * multiplied into a whole row in a single loop over contiguous floats,
+ * which the JIT turns into SIMD instructions.
+ *
+ * The weight file is little-endian, so it can be written straight from
+ * numpy:
+ * <pre>
+ * int32   magic 0x52534E4E ("RSNN"), version 1
+ * int32   input count, layer count
+ * float32 input mean and input scale, for each input
+ * for each layer:
+ *   int32   output count, activation (0 none, 1 relu, 2 tanh)
+ *   float32 weights, one row of inputs per output
+ *   float32 bias, for each output
+ * </pre>
+ * Inputs are normalized to (input - mean) * scale before the first layer.
+ * A PolicyNetwork never changes once loaded, so it can be shared between
+ * threads.
+ */
+public class PolicyNetwork {
+
+	/**
+	 * A layer passes its sums through unchanged.
+	 */
+	public static final int ACTIVATION_NONE = 0;
+
+	/**
+	 * A layer clamps negative sums to 0.
+	 */
+	public static final int ACTIVATION_RELU = 1;
+
+	/**
+	 * A layer passes its sums through tanh.
+	 */
+	public static final int ACTIVATION_TANH = 2;
+
+	private static final int MAGIC = 0x52534E4E; // "RSNN"
+	private static final int VERSION = 1;
+
+	// Guards against damaged files asking for huge arrays
+	private static final int MAX_LAYER_SIZE = 1 << 12;
+
+	private final float [] inputMeans;
+	private final float [] inputScales;
+	private final int [] layerSizes;
+	private final int [] activations;
+	private final float [][] weights;
+	private final float [][] biases;
+
+	/**
+	 * Creates a PolicyNetwork.
+	 * @param inputMeans the mean each input is normalized with
+	 * @param inputScales the scale each input is normalized with
+	 * @param layerSizes the number of inputs, followed by each layer's
+	 * output count
+	 * @param activations each layer's activation
+	 * @param weights each layer's weights, one row of inputs per output
+	 * @param biases each layer's biases
+	 */
+	public PolicyNetwork(float [] inputMeans, float [] inputScales, int [] layerSizes,
+			int [] activations, float [][] weights, float [][] biases) {
+
+		int layers = activations.length;
+
+		if (layers == 0 || layerSizes.length != layers + 1 || weights.length != layers ||
+				biases.length != layers) {
+			throw new IllegalArgumentException("A network needs sizes, weights and biases for every layer");
+		}
+
+		if (inputMeans.length != layerSizes[0] || inputScales.length != layerSizes[0]) {
+			throw new IllegalArgumentException("A network needs a mean and scale for every input");
+		}
+
+		for (int layer = 0; layer < layers; layer++) {
+
+			if (weights[layer].length != layerSizes[layer] * layerSizes[layer + 1] ||
+					biases[layer].length != layerSizes[layer + 1]) {
+				throw new IllegalArgumentException("Layer " + layer + " has the wrong number of weights");
+			}
+
+			if (activations[layer] < ACTIVATION_NONE || activations[layer] > ACTIVATION_TANH) {
+				throw new IllegalArgumentException("Layer " + layer + " has an unknown activation");
+			}
+
+		}
+
+		this.inputMeans = inputMeans.clone();
+		this.inputScales = inputScales.clone();
+		this.layerSizes = layerSizes.clone();
+		this.activations = activations.clone();
+		this.weights = weights.clone();
+		this.biases = biases.clone();
+
+	}
+
+	/**
+	 * Loads a PolicyNetwork from a weight file.
+	 * @param file the weight file
+	 * @return the network
+	 * @throws IOException if the file can't be read or isn't a weight file
+	 */
+	public static PolicyNetwork load(Path file) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+
+		try {
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a policy weight file: " + file);
+			}
+
+			int inputs = readSize(buffer, file);
+			int layers = readSize(buffer, file);
+
+			float [] inputMeans = readFloats(buffer, inputs);
+			float [] inputScales = readFloats(buffer, inputs);
+
+			int [] layerSizes = new int[layers + 1];
+			int [] activations = new int[layers];
+			float [][] weights = new float[layers][];
+			float [][] biases = new float[layers][];
+			layerSizes[0] = inputs;
+
+			for (int layer = 0; layer < layers; layer++) {
+
+				layerSizes[layer + 1] = readSize(buffer, file);
+				activations[layer] = buffer.getInt();
+				weights[layer] = readFloats(buffer, layerSizes[layer] * layerSizes[layer + 1]);
+				biases[layer] = readFloats(buffer, layerSizes[layer + 1]);
+
+			}
+
+			if (buffer.hasRemaining()) {
+				throw new IOException("Policy weight file has data after its last layer: " + file);
+			}
+
+			return new PolicyNetwork(inputMeans, inputScales, layerSizes, activations,
+				weights, biases);
+
+		} catch (BufferUnderflowException e) {
+
+			throw new IOException("Policy weight file is cut short: " + file);
+
+		} catch (IllegalArgumentException e) {
+
+			throw new IOException("Policy weight file " + file + " is damaged: " + e.getMessage());
+
+		}
+
+	}
+
+	/**
+	 * Reads a layer size from a weight file, checking that it is sensible.
+	 * @param buffer the file's contents
+	 * @param file the weight file
+	 * @return the size
+	 * @throws IOException if the size is out of range
+	 */
+	private static int readSize(ByteBuffer buffer, Path file) throws IOException {
+
+		int size = buffer.getInt();
+
+		if (size <= 0 || size > MAX_LAYER_SIZE) {
+			throw new IOException("Policy weight file " + file + " is damaged");
+		}
+
+		return size;
+
+	}
+
+	/**
+	 * Reads floats from a weight file.
+	 * @param buffer the file's contents
+	 * @param count the number of floats
+	 * @return the floats
+	 */
+	private static float [] readFloats(ByteBuffer buffer, int count) {
+
+		if (count > buffer.remaining() / 4) {
+			throw new BufferUnderflowException();
+		}
+
+		float [] values = new float[count];
+		buffer.asFloatBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+
+	}
+
+	/**
+	 * Gets the number of inputs the network takes.
+	 * @return the input count
+	 */
+	public int getInputCount() {
+		return layerSizes[0];
+	}
+
+	/**
+	 * Gets the number of outputs the network gives.
+	 * @return the output count
+	 */
+	public int getOutputCount() {
+		return layerSizes[layerSizes.length - 1];
+	}
+
+	/**
+	 * Gets the size of the widest layer, inputs included.
+	 * @return the largest layer size
+	 */
+	public int getLargestLayer() {
+		return Arrays.stream(layerSizes).max().getAsInt();
+	}
+
+	/**
+	 * Gets the mean an input is normalized with.
+	 * @param input the input
+	 * @return the mean
+	 */
+	public float getInputMean(int input) {
+		return inputMeans[input];
+	}
+
+	/**
+	 * Gets the scale an input is normalized with.
+	 * @param input the input
+	 * @return the scale
+	 */
+	public float getInputScale(int input) {
+		return inputScales[input];
+	}
+
+	/**
+	 * Evaluates the network for a batch of normalized inputs. Every array
+	 * holds one row per feature, each at least as long as the batch. The
+	 * scratch arrays hold the values between layers, and must each have a
+	 * row for every output of the largest layer.
+	 * @param inputs the normalized inputs
+	 * @param outputs where to write the outputs
+	 * @param scratch the first scratch rows
+	 * @param otherScratch the second scratch rows
+	 * @param columns the size of the batch
+	 */
+	public void evaluate(float [][] inputs, float [][] outputs, float [][] scratch,
+			float [][] otherScratch, int columns) {
+
+		float [][] source = inputs;
+		int layers = activations.length;
+
+		for (int layer = 0; layer < layers; layer++) {
+
+			float [][] destination = layer == layers - 1 ? outputs :
+				(source == scratch ? otherScratch : scratch);
+
+			evaluateLayer(layer, source, destination, columns);
+			source = destination;
+
+		}
+
+	}
+
+	/**
+	 * Evaluates one layer: each output row starts at its bias, and each
+	 * input row is added to it times its weight. Every row is its own array
+	 * indexed from 0, so the JIT can tell the row it writes never overlaps
+	 * the one it reads, and turns the loop into SIMD instructions.
+	 * @param layer the layer
+	 * @param source the layer's input rows
+	 * @param destination where to write the layer's output rows
+	 * @param columns the size of the batch
+	 */
+	private void evaluateLayer(int layer, float [][] source, float [][] destination, int columns) {
+
+		int inputs = layerSizes[layer];
+		int outputs = layerSizes[layer + 1];
+		float [] layerWeights = weights[layer];
+		float [] layerBiases = biases[layer];
+
+		for (int output = 0; output < outputs; output++) {
+
+			float [] row = destination[output];
+			Arrays.fill(row, 0, columns, layerBiases[output]);
+
+			for (int input = 0; input < inputs; input++) {
+
+				float weight = layerWeights[output * inputs + input];
+				float [] from = source[input];
+
+				for (int column = 0; column < columns; column++) {
+					row[column] += weight * from[column];
+				}
+
+			}
+
+			if (activations[layer] == ACTIVATION_RELU) {
+
+				for (int column = 0; column < columns; column++) {
+					row[column] = Math.max(row[column], 0f);
+				}
+
+			} else if (activations[layer] == ACTIVATION_TANH) {
+
+				for (int column = 0; column < columns; column++) {
+					row[column] = (float) Math.tanh(row[column]);
+				}
+
+			}
+
+		}
+
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder sizes = new StringBuilder();
+
+		for (int size : layerSizes) {
+
+			if (sizes.length() > 0) {
+				sizes.append('-');
+			}
+
+			sizes.append(size);
+
+		}
+
+		return "Policy network " + sizes;
+
+	}
+
+}
@@ -1,14 +1,11 @@
 package rocket;
 
 import util.Entity;
-import simulation.World;
 
 import java.util.Random;
 
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
-import javafx.scene.transform.Affine;
-import javafx.scene.transform.Rotate;
 import javafx.scene.shape.ArcType;
 
 
@@ -19,6 +16,11 @@ import javafx.scene.shape.ArcType;
 
 public class Rocket extends Entity {
 	
+	/**
+	 * The most thrust the autopilot ever gives an engine.
+	 */
+	public static final double MAX_AUTOPILOT_THRUST = 250;
+
 	// Physics variables
 	private double width = 40;
 	private double centerTankWidth = width / 2.5;
@@ -42,8 +44,18 @@ public class Rocket extends Entity {
 	private double landingVelocity;
 
 	private PIDController pidController;
+	private AutopilotParameters autopilot;
 	private double targetAltitude;
 
+	// Exhaust and RCS particles are only for show, so they can be turned off
+	// when the Rocket is never drawn
+	private boolean particleEffectsEnabled = true;
+
+	// Reusable point buffers for drawing the fins
+	private final double [] fin1xPoints = new double[3];
+	private final double [] fin2xPoints = new double[3];
+	private final double [] finyPoints = new double[3];
+
 	Rocket() {}
 	
 	/**
@@ -59,20 +71,22 @@ public class Rocket extends Entity {
 		
 		super(x, y);
         this.fuel = fuel;
-		this.engines = new RocketEngine [] {
+		setEngines(new RocketEngine [] {
 				new RocketEngine(groundY, getEngineConeWidth(), getEngineConeHeight(), 
 						0, getHeight() - getEngineConeHeight())
-        };
+        });
 		
         this.targetAltitude = groundY;
-        this.pidController = new PIDController(0.2, 0.3, 0.01);
-        this.pidController.setOutputLimits(0, 250);
+        this.autopilot = AutopilotParameters.DEFAULT;
+        this.pidController = new PIDController(autopilot.getKp(), 
+				autopilot.getKi(), autopilot.getKd());
+        this.pidController.setOutputLimits(0, MAX_AUTOPILOT_THRUST);
 
 
 		double rcsYoffset = getNoseConeHeight() + getCenterTankHeight() / 2 
 				- getFinHeight();
 		double rcsXOffset = getCenterTankWidth() / 2 + 4 / 2;
-		this.rcsThrusters = new ParticleEmitter [] {
+		setRCSThrusters(new ParticleEmitter [] {
 				
 				new ParticleEmitter(4, 8, groundY, 
 						new Color[] {Color.WHITE}, -rcsXOffset, rcsYoffset, 
@@ -81,7 +95,7 @@ public class Rocket extends Entity {
 						new Color[] {Color.WHITE}, rcsXOffset, rcsYoffset, 
 						90, Color.RED)
 				
-		};
+		});
 		
 	}
 
@@ -133,6 +147,58 @@ public class Rocket extends Entity {
 		this.targetAltitude = targetAltitude;
 	}
 
+	/**
+	 * Gets the gains and engine pulsing of the autopilot flying the Rocket's
+	 * automatic landing.
+	 * @return the Rocket's autopilot parameters
+	 */
+	public AutopilotParameters getAutopilotParameters() {
+		return autopilot;
+	}
+
+	/**
+	 * Sets the gains and engine pulsing of the autopilot flying the Rocket's
+	 * automatic landing.
+	 * @param parameters the Rocket's new autopilot parameters
+	 */
+	public void setAutopilotParameters(AutopilotParameters parameters) {
+
+		this.autopilot = parameters;
+		pidController.setGains(parameters.getKp(), parameters.getKi(), 
+				parameters.getKd());
+
+	}
+
+	/**
+	 * Puts the Rocket back in the air at the given position with the given 
+	 * fuel, as if it had just been created. Everything that changes during a
+	 * flight is reset, so one Rocket can fly many landings in a row.
+	 * @param x the middle x coordinate to start at
+	 * @param y the top y coordinate to start at
+	 * @param fuel the fuel amount to start with
+	 */
+	public void resetFlight(double x, double y, double fuel) {
+
+		setX(x);
+		setY(y);
+		setDirection(90);
+		getVelocity().setX(0);
+		getVelocity().setY(0);
+		setFuel(fuel);
+		setAirborne(true);
+		setLandingVelocity(0);
+
+		setEnginesOn(false);
+		for (ParticleEmitter rcsThruster : getRCSThrusters()) {
+			rcsThruster.setOn(false);
+		}
+
+		pidController.reset();
+		thrustCooldownTimer = 0;
+		isThrustOn = false;
+
+	}
+
 	/**
 	 * Gets the width of the Rocket's center tank.
 	 * @return the center tank width
@@ -274,7 +340,14 @@ public class Rocket extends Entity {
 	 * @param engines the new engines for the Rocket
 	 */
 	public void setEngines(RocketEngine[] engines) {
+		
 		this.engines = engines;
+		
+		// The engines follow the Rocket wherever it moves
+		for (RocketEngine engine : engines) {
+			engine.setParent(this);
+		}
+		
 	}
 
 	/**
@@ -292,7 +365,13 @@ public class Rocket extends Entity {
 	 * @param rcsThrusters the new RCS thruster ParticleEmitters
 	 */
 	public void setRCSThrusters(ParticleEmitter[] rcsThrusters) {
+		
 		this.rcsThrusters = rcsThrusters;
+		
+		for (ParticleEmitter rcsThruster : rcsThrusters) {
+			rcsThruster.setParent(this);
+		}
+		
 	}
 
 	/**
@@ -370,12 +449,49 @@ public class Rocket extends Entity {
 	}
 
 	/**
-	 * Applies the force of gravity to the Rocket's velocity vector
+	 * Returns whether the Rocket's most recent landing velocity was slow
+	 * enough for a safe landing.
+	 * @return whether the landing velocity was acceptable
+	 */
+	public boolean isLandingVelocityAcceptable() {
+		return getLandingVelocity() < getAcceptableLandingVelocity();
+	}
+
+	/**
+	 * Returns whether the Rocket is pointed close enough to straight up for
+	 * a safe landing.
+	 * @return whether the Rocket's angle is acceptable for landing
+	 */
+	public boolean isLandingAngleAcceptable() {
+		return Math.abs(getDirection() - 90) <= getLandingAngleMargin();
+	}
+
+	/**
+	 * Returns whether the Rocket's engines and RCS thrusters emit particles.
+	 * @return whether particle effects are enabled
+	 */
+	public boolean isParticleEffectsEnabled() {
+		return particleEffectsEnabled;
+	}
+
+	/**
+	 * Sets whether the Rocket's engines and RCS thrusters emit particles. 
+	 * Particles don't affect the Rocket's flight, so they can be turned off
+	 * when the Rocket is simulated without being drawn.
+	 * @param particleEffectsEnabled whether particle effects are enabled
+	 */
+	public void setParticleEffectsEnabled(boolean particleEffectsEnabled) {
+		this.particleEffectsEnabled = particleEffectsEnabled;
+	}
+
+	/**
+	 * Applies the force of gravity, the Rocket's vertical acceleration, to 
+	 * the Rocket's velocity vector
 	 * @param timeElapsed the time, in seconds, since the last tick
 	 */
 	public void applyGravity(double timeElapsed) {
 		
-		getVelocity().setY(getVelocity().getY() + World.GRAVITY * timeElapsed);
+		getVelocity().setY(getVelocity().getY() + getAcceleration().getY() * timeElapsed);
 		
 	}
 	
@@ -494,8 +610,7 @@ public class Rocket extends Entity {
 
 			setLandingVelocity(getVelocity().getMagnitude());
 
-			if (getVelocity().getMagnitude() < getAcceptableLandingVelocity() &&
-					Math.abs(getDirection() - 90) <= getLandingAngleMargin()) {
+			if (isLandingVelocityAcceptable() && isLandingAngleAcceptable()) {
 				// Good landing, make the Rocket point straight up
 				setDirection(90);
 
@@ -524,7 +639,7 @@ public class Rocket extends Entity {
 			// Calculate altitude difference and desired velocity
 			double altitudeDifference = targetAltitude - currentAltitude;
 			double desiredVerticalVelocity = altitudeDifference > 0 
-				? Math.sqrt(2 * World.GRAVITY * altitudeDifference) 
+				? Math.sqrt(2 * getAcceleration().getY() * altitudeDifference) 
 				: 0;
 	
 			// Calculate velocity error
@@ -542,12 +657,12 @@ public class Rocket extends Entity {
 					// Turn off thrust
 					isThrustOn = false;
 					// Higher up = longer off time
-					thrustCooldownTimer = Math.min(.75, altitudeDifference / 300);
+					thrustCooldownTimer = autopilot.getPulseOffTime(altitudeDifference);
 				} else {
 					// Turn on thrust
 					isThrustOn = true;
 					// Lower = shorter on time
-					thrustCooldownTimer = Math.max(6.0, altitudeDifference / 100.0);
+					thrustCooldownTimer = autopilot.getPulseOnTime(altitudeDifference);
 				}
 			}
 
@@ -561,7 +676,7 @@ public class Rocket extends Entity {
 			for (RocketEngine engine : getEngines()) {
 				if (isThrustOn && velocityError > 0) {
 					double scaledThrust = controlOutput * thrustScale;
-					engine.setThrustPower(Math.min(scaledThrust, 250));
+					engine.setThrustPower(Math.min(scaledThrust, MAX_AUTOPILOT_THRUST));
 					engine.setOn(true);
 				} else {
 					engine.setOn(false);
@@ -572,6 +687,19 @@ public class Rocket extends Entity {
 			applyForces(timeElapsed);
 		}
 		
+		if (isParticleEffectsEnabled()) {
+			tickParticleEffects(timeElapsed);
+		}
+		
+	}
+	
+	/**
+	 * Updates the particles emitted by the Rocket's engines and RCS 
+	 * thrusters.
+	 * @param timeElapsed the time, in seconds, since the last tick
+	 */
+	protected void tickParticleEffects(double timeElapsed) {
+		
 		for (RocketEngine engine : getEngines()) {
 			
 			engine.tick(timeElapsed);
@@ -586,90 +714,115 @@ public class Rocket extends Entity {
 		
 	}
 	
+	@Override
+	public void copyStateFrom(Entity source) {
+		
+		super.copyStateFrom(source);
+		
+		if (source instanceof Rocket) {
+			
+			Rocket rocket = (Rocket) source;
+			setFuel(rocket.getFuel());
+			setAirborne(rocket.isAirborne());
+			setTurnRate(rocket.getTurnRate());
+			setLandingAngleMargin(rocket.getLandingAngleMargin());
+			setAcceptableLandingVelocity(rocket.getAcceptableLandingVelocity());
+			setLandingVelocity(rocket.getLandingVelocity());
+			setTargetAltitude(rocket.getTargetAltitude());
+			
+			for (int i = 0; i < getEngines().length; i++) {
+				
+				getEngines()[i].copyStateFrom(rocket.getEngines()[i]);
+				
+			}
+			
+			for (int i = 0; i < getRCSThrusters().length; i++) {
+				
+				getRCSThrusters()[i].copyStateFrom(rocket.getRCSThrusters()[i]);
+				
+			}
+			
+		}
+		
+	}
+	
 	/**
-	 * Pivots the GraphicsContext around the center of the Rocket so that the
+	 * Pivots the DisplayList around the center of the Rocket so that the
 	 * Rocket can be drawn at an angle. This transform should be reversed
 	 * (with a save() and restore()) before objects that should be drawn 
 	 * normally on the Canvas are drawn.
-	 * @param gc the GraphicsContext to rotate
+	 * @param list the DisplayList to rotate
 	 */
-	public void rotateGraphicsContext(GraphicsContext gc) {
+	public void rotateDisplayList(DisplayList list) {
 		
 		double pivotX = getX();
 		double pivotY = getY() + (getHeight() / 2.0);
-		Rotate rotate = new Rotate(90 - getDirection(), pivotX, pivotY);
-		gc.transform(new Affine(rotate));
+		list.translate(pivotX, pivotY);
+		list.rotate(90 - getDirection());
+		list.translate(-pivotX, -pivotY);
 		
 	}
 
 	/**
 	 * Draws Rocket's fins at the bottom of its center tank.
-	 * @param gc the GraphicsContext of the Canvas to draw the Rocket on
+	 * @param list the DisplayList of the Canvas to draw the Rocket on
 	 */
-	public void drawFins(GraphicsContext gc) {
+	public void drawFins(DisplayList list) {
 		
-		double [] fin1xPoints = new double[] {
-				getX() - getCenterTankWidth() / 2,
-				getX() - getCenterTankWidth() / 2,
-				getX() - getWidth() / 2
-		};
+		fin1xPoints[0] = getX() - getCenterTankWidth() / 2;
+		fin1xPoints[1] = getX() - getCenterTankWidth() / 2;
+		fin1xPoints[2] = getX() - getWidth() / 2;
 		
-		double [] fin2xPoints = new double[] {
-				getX() + getCenterTankWidth() / 2,
-				getX() + getCenterTankWidth() / 2,
-				getX() + getWidth() / 2
-		};
+		fin2xPoints[0] = getX() + getCenterTankWidth() / 2;
+		fin2xPoints[1] = getX() + getCenterTankWidth() / 2;
+		fin2xPoints[2] = getX() + getWidth() / 2;
 		
 		double finStartY = getY() + getNoseConeHeight() + getCenterTankHeight() - getFinHeight();
-		double [] finyPoints = new double[] {
-				finStartY,
-				finStartY + getFinHeight(),
-				finStartY + getFinHeight()
-		};
+		finyPoints[0] = finStartY;
+		finyPoints[1] = finStartY + getFinHeight();
+		finyPoints[2] = finStartY + getFinHeight();
 		
-		gc.setFill(Color.BLUE);
-		gc.fillPolygon(fin1xPoints, finyPoints, finyPoints.length);
-		gc.fillPolygon(fin2xPoints, finyPoints, finyPoints.length);
+		list.setFill(Color.BLUE);
+		list.fillPolygon(fin1xPoints, finyPoints, finyPoints.length);
+		list.fillPolygon(fin2xPoints, finyPoints, finyPoints.length);
 
 		
 	}
 	
 	@Override
-	public void draw(GraphicsContext gc) {
+	public void draw(DisplayList list) {
 		
-		gc.save();
+		list.save();
 		
-		rotateGraphicsContext(gc);
+		rotateDisplayList(list);
 		
 		for (RocketEngine engine : getEngines()) {
 			
-			engine.alignWith(this);
-			engine.draw(gc);
+			engine.draw(list);
 			
 		}
 
 		for (ParticleEmitter thruster : getRCSThrusters()) {
 
-			thruster.alignWith(this);
-			thruster.draw(gc);
+			thruster.draw(list);
 
 		}
 
-		gc.setFill(getColor());
+		list.setFill(getColor());
 		
 		// Rocket nose cone
-		gc.fillArc(getX() - getCenterTankWidth() / 2, getY(), 
+		list.fillArc(getX() - getCenterTankWidth() / 2, getY(), 
 				getCenterTankWidth(), getNoseConeHeight() * 2, 
 				0, 180, ArcType.ROUND);
 		
 		// Center tank
-		gc.fillRect(getX() - getCenterTankWidth() / 2, 
+		list.fillRect(getX() - getCenterTankWidth() / 2, 
 				getY() + getNoseConeHeight(), 
 				getCenterTankWidth(), getCenterTankHeight());
 		
-		drawFins(gc);
+		drawFins(list);
 		
-		gc.restore();
+		list.restore();
 		
 	}
 	
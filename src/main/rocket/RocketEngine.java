@@ -1,6 +1,6 @@
 package rocket;
 
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.ArcType;
 import util.Entity;
@@ -32,6 +32,7 @@ public class RocketEngine extends Entity {
 		setColor(Color.GRAY);
 		this.emitter = new ParticleEmitter(groundY, new Color[] {Color.RED, Color.ORANGE}, 
 				0, getHeight());
+		this.emitter.setParent(this);
 	
 	}
 	
@@ -53,6 +54,7 @@ public class RocketEngine extends Entity {
 		setColor(Color.GRAY);
 		this.emitter = new ParticleEmitter(groundY, new Color[] {Color.RED, Color.ORANGE}, 
 				0, getHeight());
+		this.emitter.setParent(this);
 		this.width = width;
 		this.height = height;
 		setxOffset(xOffset);
@@ -156,16 +158,36 @@ public class RocketEngine extends Entity {
 	 * @param emitter the RocketEngine's new ParticleEmitter
 	 */
 	public void setEmitter(ParticleEmitter emitter) {
+		
 		this.emitter = emitter;
+		emitter.setParent(this);
+		
+	}
+
+	@Override
+	public void copyStateFrom(Entity source) {
+		
+		super.copyStateFrom(source);
+		
+		if (source instanceof RocketEngine) {
+			
+			RocketEngine engine = (RocketEngine) source;
+			setOn(engine.isOn());
+			setFuelBurnRate(engine.getFuelBurnRate());
+			setThrustPower(engine.getThrustPower());
+			getEmitter().copyStateFrom(engine.getEmitter());
+			
+		}
+		
 	}
 
 	@Override
-	public void draw(GraphicsContext gc) {
+	public void draw(DisplayList list) {
 		
-		emitter.draw(gc);
+		emitter.draw(list);
 		
-		gc.setFill(getColor());
-		gc.fillArc(getX() - getWidth() / 2, getY(), getWidth(), getHeight() * 2, 
+		list.setFill(getColor());
+		list.fillArc(getX() - getWidth() / 2, getY(), getWidth(), getHeight() * 2, 
 				0, 180, ArcType.ROUND);
 		
 	}
@@ -173,7 +195,6 @@ public class RocketEngine extends Entity {
 	@Override
 	public void tick(double timeElapsed) {
 		
-		getEmitter().alignWith(this);
 		getEmitter().setOn(this.isOn());
 		getEmitter().tick(timeElapsed);
 		
@@ -9,9 +9,11 @@ import java.util.Random;
  */
 public class UserControlledRocket extends Rocket {
 
-	double targetAngle = 90;
-	boolean shouldFireEngines = false;
-	boolean shouldFireRCS = false;
+	// Set by keyboard handling on the JavaFX thread and read by the
+	// simulation thread
+	volatile double targetAngle = 90;
+	volatile boolean shouldFireEngines = false;
+	volatile boolean shouldFireRCS = false;
 	
 	/**
 	 * Creates a UserControlledRocket at (x, y) with the given fuel and ground
@@ -148,15 +150,12 @@ public class UserControlledRocket extends Rocket {
 
 		} 
 		
-		for (RocketEngine engine : getEngines()) {
-			
-			engine.tick(timeElapsed);
-			
+		if (isParticleEffectsEnabled()) {
+			tickParticleEffects(timeElapsed);
 		}
 		
 		for (ParticleEmitter rcsThruster : getRCSThrusters()) {
 			
-			rcsThruster.tick(timeElapsed);
 			if (!shouldFireRCS) {
 				
 				rcsThruster.setOn(false);
@@ -0,0 +1,603 @@
+package simulation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rocket.Rocket;
+import rocket.UserControlledRocket;
+import util.Vector2D;
+
+/**
+ * Estimates how likely a Rocket is to land safely from where it is now, by
+ * flying many short landings from its current state in the background and
+ * counting how many of them land.
+ *
+ * Each landing is flown headlessly on a worker thread's own World and
+ * UserControlledRocket, by a default policy with noise added, so the
+ * landings spread out the way a pilot's would: the engines fire once the
+ * Rocket falls faster than a speed that shrinks near the ground, with that
+ * speed scaled differently for every landing, and the Rocket leans against
+ * its sideways drift, off by a little every tick. A landing still in the
+ * air when the horizon passes counts as a crash.
+ *
+ * Estimates are requested from the drawing thread, which only copies the
+ * Rocket's state and hands the landings to the worker pool, so it never
+ * waits for them. Each estimate's landings are split into chunks, and a
+ * chunk stops early once its estimate is cancelled. Worker threads only
+ * count landings in their own estimate; the requesting thread decides
+ * which estimate is shown, so a cancelled or reset estimate that finishes
+ * late is never seen. The latest finished estimate can be read at any time
+ * from any thread.
+ */
+public class LandingProbabilityEstimator {
+
+	// The landings one task flies before another task takes over
+	private static final int CHUNK_SIZE = 32;
+
+	// Ticks between checks for cancellation within a landing
+	private static final int TICKS_PER_CHECK = 64;
+
+	// The default policy: engines fire above this falling speed, plus a
+	// share of the height, and the Rocket leans up to this far from upright
+	private static final double POLICY_BASE_SPEED = 20;
+	private static final double POLICY_SPEED_PER_HEIGHT = 0.25;
+	private static final double POLICY_MAX_LEAN = 20;
+	private static final double POLICY_LEAN_SPEED = 100;
+
+	private final ExecutorService workers;
+	private final int threads;
+
+	// Each worker thread flies its landings on a World of its own
+	private final ThreadLocal<Rollout> rollouts = ThreadLocal.withInitial(Rollout::new);
+
+	private volatile int rolloutCount = 256;
+	private volatile double horizon = 30; // seconds
+	private volatile double timeStep = 1.0 / 60; // seconds
+	private volatile double estimatesPerSecond = 4;
+	private volatile double speedNoise = 0.2;
+	private volatile double angleNoise = 5; // degrees
+
+	// Only written by the thread requesting estimates: the estimate started
+	// last, and the last one that finished before it
+	private volatile Estimate current;
+	private volatile Estimate finished;
+
+	// Only touched by the thread requesting estimates
+	private long nextRequestTime = Long.MIN_VALUE;
+	private long seed = 1;
+
+	/**
+	 * Creates a LandingProbabilityEstimator with a worker thread for every
+	 * core but one, which is left for the simulation and drawing threads.
+	 */
+	public LandingProbabilityEstimator() {
+		this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	/**
+	 * Creates a LandingProbabilityEstimator.
+	 * @param threads the number of worker threads to fly landings on
+	 */
+	public LandingProbabilityEstimator(int threads) {
+
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Thread count must be positive");
+		}
+
+		this.threads = threads;
+
+		AtomicInteger created = new AtomicInteger();
+
+		workers = Executors.newFixedThreadPool(threads, task -> {
+
+			Thread worker = new Thread(task, "Landing estimator " + created.incrementAndGet());
+			worker.setDaemon(true);
+			worker.setPriority(Thread.MIN_PRIORITY);
+			return worker;
+
+		});
+
+	}
+
+	/**
+	 * Gets the number of worker threads landings are flown on.
+	 * @return the thread count
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Gets the number of landings flown for each estimate.
+	 * @return the rollout count
+	 */
+	public int getRolloutCount() {
+		return rolloutCount;
+	}
+
+	/**
+	 * Sets the number of landings flown for each estimate.
+	 * @param rolloutCount the new rollout count
+	 */
+	public void setRolloutCount(int rolloutCount) {
+
+		if (rolloutCount <= 0) {
+			throw new IllegalArgumentException("Rollout count must be positive");
+		}
+
+		this.rolloutCount = rolloutCount;
+
+	}
+
+	/**
+	 * Gets the simulated time after which a landing still in the air counts
+	 * as a crash.
+	 * @return the horizon, in seconds
+	 */
+	public double getHorizon() {
+		return horizon;
+	}
+
+	/**
+	 * Sets the simulated time after which a landing still in the air counts
+	 * as a crash.
+	 * @param horizon the new horizon, in seconds
+	 */
+	public void setHorizon(double horizon) {
+
+		if (horizon <= 0) {
+			throw new IllegalArgumentException("Horizon must be positive");
+		}
+
+		this.horizon = horizon;
+
+	}
+
+	/**
+	 * Gets the simulated time each tick of a landing advances.
+	 * @return the time step, in seconds
+	 */
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * Sets the simulated time each tick of a landing advances.
+	 * @param timeStep the new time step, in seconds
+	 */
+	public void setTimeStep(double timeStep) {
+
+		if (timeStep <= 0) {
+			throw new IllegalArgumentException("Time step must be positive");
+		}
+
+		this.timeStep = timeStep;
+
+	}
+
+	/**
+	 * Gets the most estimates started per second.
+	 * @return the estimate rate
+	 */
+	public double getEstimatesPerSecond() {
+		return estimatesPerSecond;
+	}
+
+	/**
+	 * Sets the most estimates started per second.
+	 * @param estimatesPerSecond the new estimate rate
+	 */
+	public void setEstimatesPerSecond(double estimatesPerSecond) {
+
+		if (estimatesPerSecond <= 0) {
+			throw new IllegalArgumentException("Estimate rate must be positive");
+		}
+
+		this.estimatesPerSecond = estimatesPerSecond;
+
+	}
+
+	/**
+	 * Gets the standard deviation of the factor each landing scales the
+	 * default policy's falling speed by.
+	 * @return the speed noise
+	 */
+	public double getSpeedNoise() {
+		return speedNoise;
+	}
+
+	/**
+	 * Sets the standard deviation of the factor each landing scales the
+	 * default policy's falling speed by.
+	 * @param speedNoise the new speed noise
+	 */
+	public void setSpeedNoise(double speedNoise) {
+
+		if (speedNoise < 0) {
+			throw new IllegalArgumentException("Speed noise can't be negative");
+		}
+
+		this.speedNoise = speedNoise;
+
+	}
+
+	/**
+	 * Gets the standard deviation of the error added to the default policy's
+	 * target angle every tick.
+	 * @return the angle noise, in degrees
+	 */
+	public double getAngleNoise() {
+		return angleNoise;
+	}
+
+	/**
+	 * Sets the standard deviation of the error added to the default policy's
+	 * target angle every tick.
+	 * @param angleNoise the new angle noise, in degrees
+	 */
+	public void setAngleNoise(double angleNoise) {
+
+		if (angleNoise < 0) {
+			throw new IllegalArgumentException("Angle noise can't be negative");
+		}
+
+		this.angleNoise = angleNoise;
+
+	}
+
+	/**
+	 * Gets the share of the latest finished estimate's landings that landed
+	 * safely.
+	 * @return the landing probability, or NaN if nothing was estimated
+	 * since the last reset
+	 */
+	public double getProbability() {
+
+		Estimate estimate = getFinishedEstimate();
+		return estimate != null ? estimate.getProbability() : Double.NaN;
+
+	}
+
+	/**
+	 * Gets the number of landings the latest finished estimate flew.
+	 * @return the sample count, or 0 if nothing was estimated since the
+	 * last reset
+	 */
+	public int getSampleCount() {
+
+		Estimate estimate = getFinishedEstimate();
+		return estimate != null ? estimate.rollouts : 0;
+
+	}
+
+	/**
+	 * Gets the latest estimate whose landings have all been flown.
+	 * @return the estimate, or null if nothing was estimated since the last
+	 * reset
+	 */
+	private Estimate getFinishedEstimate() {
+
+		Estimate estimate = current;
+
+		if (estimate != null && estimate.isComplete()) {
+			return estimate;
+		}
+
+		return finished;
+
+	}
+
+	/**
+	 * Returns whether an estimate is still being flown.
+	 * @return whether an estimate is in progress
+	 */
+	public boolean isEstimating() {
+		return current != null && !current.isFinished();
+	}
+
+	/**
+	 * Starts estimating from a Rocket's current state, unless an estimate
+	 * was started too recently or is still being flown. Only copies the
+	 * Rocket's state, so it returns right away. Estimates should be
+	 * requested from one thread only.
+	 * @param now the current time, in nanoseconds
+	 * @param rocket the Rocket to estimate from
+	 * @param groundY the ground's top y-coordinate
+	 * @param gravity the World's gravity
+	 * @return whether an estimate was started
+	 */
+	public boolean request(long now, Rocket rocket, double groundY, double gravity) {
+
+		if (now < nextRequestTime || isEstimating() || !rocket.isAirborne()) {
+			return false;
+		}
+
+		nextRequestTime = now + (long) (1_000_000_000 / getEstimatesPerSecond());
+
+		State state = new State(rocket, groundY, gravity);
+		Estimate estimate = new Estimate(getRolloutCount());
+		finished = getFinishedEstimate();
+		current = estimate;
+
+		for (int start = 0; start < estimate.rollouts; start += CHUNK_SIZE) {
+
+			int count = Math.min(CHUNK_SIZE, estimate.rollouts - start);
+			SplittableRandom random = new SplittableRandom(seed++);
+
+			estimate.tasks.add(workers.submit(() -> fly(estimate, state, count, random)));
+
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Cancels the estimate being flown, if there is one. The latest
+	 * finished estimate is kept.
+	 */
+	public void cancel() {
+
+		if (current != null) {
+
+			finished = getFinishedEstimate();
+			current.cancel();
+			current = null;
+
+		}
+
+	}
+
+	/**
+	 * Cancels the estimate being flown and forgets the latest finished one,
+	 * so the next estimate can be requested right away.
+	 */
+	public void reset() {
+
+		cancel();
+		finished = null;
+		nextRequestTime = Long.MIN_VALUE;
+
+	}
+
+	/**
+	 * Cancels the estimate being flown and stops the worker threads.
+	 * Estimates can't be requested afterwards.
+	 */
+	public void shutdown() {
+
+		cancel();
+		workers.shutdownNow();
+
+	}
+
+	/**
+	 * Flies one chunk of an estimate's landings, and adds them to the
+	 * estimate's counts unless it was cancelled.
+	 * @param estimate the estimate the landings belong to
+	 * @param state the state to fly each landing from
+	 * @param count the number of landings to fly
+	 * @param random the random numbers to add noise with
+	 */
+	private void fly(Estimate estimate, State state, int count, SplittableRandom random) {
+
+		Rollout rollout = rollouts.get();
+		int landed = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			if (estimate.isCancelled()) {
+				return;
+			}
+
+			if (rollout.fly(estimate, state, random)) {
+				landed++;
+			}
+
+		}
+
+		if (estimate.isCancelled()) {
+			return;
+		}
+
+		// Landed first, so an estimate seen as complete has every landing
+		estimate.landed.addAndGet(landed);
+		estimate.flown.addAndGet(count);
+
+	}
+
+	/**
+	 * The state of a Rocket at the moment an estimate was requested. Never
+	 * changes, so it can be shared by every worker thread.
+	 */
+	private static class State {
+
+		private final double x;
+		private final double y;
+		private final double xVelocity;
+		private final double yVelocity;
+		private final double direction;
+		private final double fuel;
+		private final double groundY;
+		private final double gravity;
+
+		/**
+		 * Creates a State by copying a Rocket's.
+		 * @param rocket the Rocket to copy
+		 * @param groundY the ground's top y-coordinate
+		 * @param gravity the World's gravity
+		 */
+		private State(Rocket rocket, double groundY, double gravity) {
+
+			x = rocket.getX();
+			y = rocket.getY();
+			xVelocity = rocket.getVelocity().getX();
+			yVelocity = rocket.getVelocity().getY();
+			direction = rocket.getDirection();
+			fuel = rocket.getFuel();
+			this.groundY = groundY;
+			this.gravity = gravity;
+
+		}
+
+	}
+
+	/**
+	 * One estimate's landings: the tasks flying them, and how many have
+	 * been flown and landed so far.
+	 */
+	private static class Estimate {
+
+		private final int rollouts;
+		private final List<Future<?>> tasks = new ArrayList<Future<?>>();
+		private final AtomicInteger flown = new AtomicInteger();
+		private final AtomicInteger landed = new AtomicInteger();
+		private volatile boolean cancelled = false;
+
+		/**
+		 * Creates an Estimate.
+		 * @param rollouts the number of landings to fly
+		 */
+		private Estimate(int rollouts) {
+			this.rollouts = rollouts;
+		}
+
+		/**
+		 * Returns whether the Estimate was cancelled, or the thread flying
+		 * it was interrupted.
+		 * @return whether the landings should stop
+		 */
+		private boolean isCancelled() {
+			return cancelled || Thread.currentThread().isInterrupted();
+		}
+
+		/**
+		 * Returns whether every landing of the Estimate was flown and
+		 * counted. A cancelled Estimate may never be complete.
+		 * @return whether the Estimate is complete
+		 */
+		private boolean isComplete() {
+			return flown.get() == rollouts;
+		}
+
+		/**
+		 * Gets the share of the Estimate's landings that landed safely.
+		 * Only meaningful once the Estimate is complete.
+		 * @return the landing probability
+		 */
+		private double getProbability() {
+			return (double) landed.get() / rollouts;
+		}
+
+		/**
+		 * Returns whether every task of the Estimate is over.
+		 * @return whether the Estimate is finished
+		 */
+		private boolean isFinished() {
+
+			for (Future<?> task : tasks) {
+				if (!task.isDone()) {
+					return false;
+				}
+			}
+
+			return true;
+
+		}
+
+		/**
+		 * Cancels the Estimate. Tasks that haven't started are dropped, and
+		 * the ones flying stop at their next check.
+		 */
+		private void cancel() {
+
+			cancelled = true;
+
+			for (Future<?> task : tasks) {
+				task.cancel(true);
+			}
+
+		}
+
+	}
+
+	/**
+	 * A worker thread's World and Rocket, reused for every landing the
+	 * thread flies.
+	 */
+	private class Rollout {
+
+		private final World world = new World(World.DEFAULT_WINDOW_WIDTH, World.DEFAULT_WINDOW_HEIGHT,
+			ColorPalette.EARTH);
+		private final UserControlledRocket rocket = new UserControlledRocket(0, 0, 0,
+			world.getGroundY());
+		private final Vector2D acceleration = new Vector2D(0.0, 0.0);
+
+		/**
+		 * Creates a Rollout.
+		 */
+		private Rollout() {
+
+			rocket.setParticleEffectsEnabled(false);
+			rocket.setAcceleration(acceleration);
+			world.getObjects().add(rocket);
+			world.setPrimaryRocket(rocket);
+
+		}
+
+		/**
+		 * Flies one landing from a State with the noisy default policy.
+		 * @param estimate the estimate the landing belongs to
+		 * @param state the state to fly from
+		 * @param random the random numbers to add noise with
+		 * @return whether the Rocket landed safely; a cancelled landing
+		 * counts as a crash
+		 */
+		private boolean fly(Estimate estimate, State state, SplittableRandom random) {
+
+			world.setGroundY(state.groundY);
+			acceleration.setY(state.gravity);
+
+			rocket.reset(state.x, state.y, state.fuel);
+			rocket.setDirection(state.direction);
+			rocket.setLandingVelocity(0);
+			rocket.setEnginesOn(false);
+			rocket.setShouldFireEngines(false);
+			rocket.getVelocity().setX(state.xVelocity);
+			rocket.getVelocity().setY(state.yVelocity);
+
+			double timeStep = getTimeStep();
+			int ticks = (int) Math.ceil(getHorizon() / timeStep);
+			double speedScale = Math.max(0, 1 + random.nextGaussian() * getSpeedNoise());
+			double angleNoise = getAngleNoise();
+
+			for (int tick = 0; tick < ticks && rocket.isAirborne(); tick++) {
+
+				if (tick % TICKS_PER_CHECK == 0 && tick > 0 && estimate.isCancelled()) {
+					return false;
+				}
+
+				double height = state.groundY - (rocket.getY() + rocket.getHeight());
+				double safeSpeed = speedScale * (POLICY_BASE_SPEED + POLICY_SPEED_PER_HEIGHT * height);
+
+				rocket.setShouldFireEngines(rocket.getVelocity().getY() > safeSpeed);
+				rocket.setTargetAngle(90 +
+					POLICY_MAX_LEAN * Math.tanh(rocket.getVelocity().getX() / POLICY_LEAN_SPEED) +
+					random.nextGaussian() * angleNoise);
+
+				world.tick(timeStep);
+
+			}
+
+			return !rocket.isAirborne() && rocket.isLandingVelocityAcceptable() &&
+				rocket.isLandingAngleAcceptable();
+
+		}
+
+	}
+
+}
@@ -9,6 +9,9 @@ import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.transform.Scale;
 import javafx.stage.Stage;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -27,26 +30,40 @@ import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import render.DisplayList;
+import render.RenderResources;
+import render.RenderScaleController;
 import rocket.UserControlledRocket;
 import util.Vector2D;
 import ui.CustomButton;
+import ui.HudScheduler;
 import ui.TogglePlayButton;
 import ui.UserInterface;
 import simulation.World;
-import rocket.PIDRocket;
 import rocket.Rocket;
 import simulation.ColorPalette;
 import util.KeyboardControls;
 
 public class Simulation extends Application {
 
-	private final int WIDTH = 800;
-	private final int HEIGHT = 700;
+	private final int WIDTH = (int) World.DEFAULT_WINDOW_WIDTH;
+	private final int HEIGHT = (int) World.DEFAULT_WINDOW_HEIGHT;
+
+	// How often an idle frame loop still redraws, in nanoseconds
+	private final long IDLE_REDRAW_INTERVAL = 500_000_000;
 
 	private Group root;
 	private Stage primaryStage;
 	private Scene simulationScene;
-	private GraphicsContext gc;
+	private GraphicsContext gc; // draws the interface
+	private Canvas worldCanvas;
+	private GraphicsContext worldGc;
+	private final Scale worldCanvasScale = new Scale(1, 1, 0, 0);
+	private double worldRenderScale = 1;
+	private final RenderScaleController renderScaleController = 
+		new RenderScaleController(60);
+	// The indicators sample the Rocket at this rate, not every frame
+	private final HudScheduler hudScheduler = new HudScheduler(15);
 	private AnimationTimer animator;
 
 	private UserInterface userInterface;
@@ -61,7 +78,16 @@ public class Simulation extends Application {
 
 	private UserControlledRocket userRocket;
 	private World world;
+	private SimulationEngine engine;
+	private World drawnWorld; // the World drawn in the latest frame
 	private boolean landingHandled = false;
+	private boolean redrawRequested = true;
+	private boolean userControlled = false;
+
+	// Flies landings from the drawn state in the background to estimate the
+	// user's chance of landing
+	private final LandingProbabilityEstimator landingEstimator = 
+		new LandingProbabilityEstimator();
 
 	private Group landingSummary;
 
@@ -92,12 +118,20 @@ public class Simulation extends Application {
 			world.getGroundY());
 		world.setPrimaryRocket(userRocket);
 		keyboardHandler = new KeyboardControls(userRocket);
+
+		engine = new SimulationEngine(world);
+		drawnWorld = world;
 		
 		animator = new AnimationTimer() {
 			
 			long startTime;
 
 			private long lastUpdate;
+			private long lastRedraw;
+			private long lastDrawnSequence = -1;
+
+			// Reused every frame to record the interface's drawing commands
+			private final DisplayList frameList = new DisplayList();
 
 			@Override
 			public void start() {
@@ -110,8 +144,7 @@ public class Simulation extends Application {
 			
 			public void clearScreen(GraphicsContext gc) {
 				
-				gc.clearRect(-gc.getTransform().getTx(), -gc.getTransform().getTy(),
-						WIDTH, HEIGHT);
+				gc.clearRect(0, 0, gc.getCanvas().getWidth(), gc.getCanvas().getHeight());
 				
 			}
 			
@@ -120,18 +153,108 @@ public class Simulation extends Application {
 
 				// SIMULATION LOOP
 
-				clearScreen(gc);
-
 				double timeSinceLastUpdateSeconds = (now - lastUpdate) / 1_000_000_000.0;
 				
-				world.draw(gc);
-				userInterface.draw(gc);
+				// The World is ticked on the engine's thread; only its
+				// latest snapshot is drawn here
+				getEngine().setPaused(!shouldUpdateSimulator() || 
+					getUserInterface().getTimeIndicator().isForcePaused());
+				WorldSnapshot snapshot = getEngine().getLatestSnapshot();
+				if (snapshot != null) {
+					drawnWorld = snapshot.getWorld();
+				}
+				userInterface.calibrateElements(drawnWorld.getPrimaryRocket());
+				
+				/*
+					While the user flies, estimate their chance of landing
+					from the drawn state a few times a second. Requesting an
+					estimate only copies the Rocket, so the frame never waits
+					for the landings to be flown
+				*/
+				if (isUserControlled()) {
+					
+					if (getEngine().isPaused() || !drawnWorld.getPrimaryRocket().isAirborne()) {
+						landingEstimator.cancel();
+					} else {
+						landingEstimator.request(now, drawnWorld.getPrimaryRocket(), 
+							world.getGroundY(), world.getGravity());
+					}
+					
+					getUserInterface().getLandingProbabilityIndicator().setProbability(
+						landingEstimator.getProbability());
+					
+				}
+				
+				/*
+					Only redraw when the World or the interface changed. While
+					paused or landed, frames are skipped except for an 
+					occasional keepalive redraw
+				*/
+				boolean worldChanged = snapshot != null && 
+					snapshot.getSequence() != lastDrawnSequence;
+				
+				if (worldChanged || isRedrawRequested() || 
+						now - lastRedraw >= IDLE_REDRAW_INTERVAL) {
+					
+					// Adapt the World's resolution to recent frame times, 
+					// counting only frames drawn back to back
+					if (lastRedraw == lastUpdate && renderScaleController.recordFrame(
+							timeSinceLastUpdateSeconds)) {
+						setWorldRenderScale(renderScaleController.getScale());
+					}
+					
+					clearScreen(worldGc);
+					
+					// The World is drawn scaled down to its Canvas's 
+					// resolution, and the Canvas is scaled back up
+					worldGc.save();
+					worldGc.scale(worldRenderScale, worldRenderScale);
+					
+					// Snapshots come with their World's drawing commands
+					// already recorded
+					if (snapshot != null) {
+						snapshot.getDisplayList().replay(worldGc);
+					} else {
+						frameList.clear();
+						drawnWorld.draw(frameList);
+						frameList.replay(worldGc);
+					}
+					
+					worldGc.restore();
+					
+					lastDrawnSequence = snapshot != null ? snapshot.getSequence() : -1;
+					lastRedraw = now;
+					setRedrawRequested(false);
+					
+				}
+				
+				/*
+					The interface is drawn on its own Canvas at full 
+					resolution, and keeps what it drew between frames. Only
+					elements that visibly changed are redrawn, at the HUD's 
+					own refresh rate, unless the interface's layout changed.
+					Layout changes are drawn every frame so sliding the 
+					sidebar stays smooth
+				*/
+				frameList.clear();
+				
+				if (userInterface.needsFullRepaint()) {
+					
+					clearScreen(gc);
+					userInterface.draw(frameList);
+					hudScheduler.markRefreshed(now);
+					
+				} else if (hudScheduler.poll(now)) {
+					
+					userInterface.drawChanges(frameList);
+					
+				}
 				
-				if (shouldUpdateSimulator()) {
-					world.tick(timeSinceLastUpdateSeconds);
+				if (!frameList.isEmpty()) {
+					frameList.replay(gc);
 				}
 				
-				if (!world.getPrimaryRocket().isAirborne() && !isLandingHandled()) {
+				if (!drawnWorld.getPrimaryRocket().isAirborne() && !isLandingHandled()) {
 
 					/*
 						If a Rocket just landed, show the landing summary
@@ -145,6 +268,10 @@ public class Simulation extends Application {
 				}
 				userInterface.tick(timeSinceLastUpdateSeconds);
 				
+				if (userInterface.isTransitioning()) {
+					setRedrawRequested(true);
+				}
+				
 				lastUpdate = now;
 
 			}
@@ -162,14 +289,26 @@ public class Simulation extends Application {
 	 */
 	public void resetConfiguration() {
 
+		getEngine().stop();
+		landingEstimator.reset();
+		setUserControlled(false);
 		world.getObjects().clear();
 		getUserInterface().reset();
+		getUserInterface().setLandingProbabilityShown(false);
+		setRedrawRequested(true);
 		if (root.getChildren().contains(landingSummary)) {
 			root.getChildren().remove(landingSummary);
 		}
 
 	}
 
+	@Override
+	public void stop() {
+
+		landingEstimator.shutdown();
+
+	}
+
 	@Override
 	public void start(Stage stage) throws Exception {
 
@@ -181,6 +320,13 @@ public class Simulation extends Application {
 		getPrimaryStage().setWidth(WIDTH); 
 		getPrimaryStage().setHeight(HEIGHT);
 
+		// The World and the interface are drawn on separate Canvases so the
+		// World's resolution can change without affecting the interface
+		worldCanvas = new Canvas(getPrimaryStage().getWidth(), getPrimaryStage().getHeight());
+		worldCanvas.getTransforms().add(worldCanvasScale);
+		worldGc = worldCanvas.getGraphicsContext2D();
+		root.getChildren().add(worldCanvas);
+		
 		Canvas canvas = new Canvas(getPrimaryStage().getWidth(), getPrimaryStage().getHeight());
 		gc = canvas.getGraphicsContext2D();
 		root.getChildren().add(canvas);
@@ -210,8 +356,30 @@ public class Simulation extends Application {
 		
 		scene.setOnKeyPressed(keyboardHandler);
 		scene.setOnKeyReleased(keyboardHandler);
+
+		// Any input may change what is drawn, so wake the frame loop
+		scene.addEventFilter(KeyEvent.ANY, event -> setRedrawRequested(true));
+		scene.addEventFilter(MouseEvent.MOUSE_CLICKED, event -> setRedrawRequested(true));
 	}
 	
+	/**
+	 * Sets the resolution the World is drawn at, as a fraction of the
+	 * window's resolution. The World's Canvas is resized to match, and
+	 * scaled so it still fills the window.
+	 * @param scale the World's render scale, where 1 is full resolution
+	 */
+	private void setWorldRenderScale(double scale) {
+		
+		worldRenderScale = scale;
+		worldCanvas.setWidth(Math.ceil(WIDTH * scale));
+		worldCanvas.setHeight(Math.ceil(HEIGHT * scale));
+		
+		// The node transform undoes the scale the World is drawn with
+		worldCanvasScale.setX(1 / scale);
+		worldCanvasScale.setY(1 / scale);
+		
+	}
+
 	/**
 	 * Gets the GraphicsContext used to draw on the primary Stage's Canvas.
 	 * @return the primary Stage's Canvas's GraphicsContext
@@ -228,6 +396,14 @@ public class Simulation extends Application {
 		return animator;
 	}
 
+	/**
+	 * Gets the SimulationEngine which ticks the World on its own thread.
+	 * @return the simulation engine
+	 */
+	private SimulationEngine getEngine() {
+		return engine;
+	}
+
 	/**
 	 * Gets the stage used to display the simulation.
 	 * @return the primary stage
@@ -333,6 +509,68 @@ public class Simulation extends Application {
 		return landingHandled;
 	}
 
+	/**
+	 * Returns whether the user is flying the Rocket, rather than the
+	 * autopilot.
+	 * @return whether the current landing is user-controlled
+	 */
+	public boolean isUserControlled() {
+		return userControlled;
+	}
+
+	/**
+	 * Sets whether the user is flying the Rocket, rather than the autopilot.
+	 * @param userControlled whether the current landing is user-controlled
+	 */
+	public void setUserControlled(boolean userControlled) {
+		this.userControlled = userControlled;
+	}
+
+	/**
+	 * Gets the estimator of the user's chance of landing.
+	 * @return the LandingProbabilityEstimator
+	 */
+	public LandingProbabilityEstimator getLandingEstimator() {
+		return landingEstimator;
+	}
+
+	/**
+	 * Gets the number of times per second the interface's indicators are
+	 * refreshed.
+	 * @return the HUD refresh rate
+	 */
+	public double getHudRefreshRate() {
+		return hudScheduler.getRefreshRate();
+	}
+
+	/**
+	 * Sets the number of times per second the interface's indicators are
+	 * refreshed. The sidebar's slide animation is unaffected.
+	 * @param hudRefreshRate the new HUD refresh rate
+	 */
+	public void setHudRefreshRate(double hudRefreshRate) {
+		hudScheduler.setRefreshRate(hudRefreshRate);
+	}
+
+	/**
+	 * Returns whether the next frame should be redrawn even if the World
+	 * hasn't changed.
+	 * @return whether a redraw was requested
+	 */
+	public boolean isRedrawRequested() {
+		return redrawRequested;
+	}
+
+	/**
+	 * Sets whether the next frame should be redrawn even if the World hasn't
+	 * changed. Should be set whenever something drawn changes outside of the
+	 * simulation, such as after user input.
+	 * @param redrawRequested whether a redraw is requested
+	 */
+	public void setRedrawRequested(boolean redrawRequested) {
+		this.redrawRequested = redrawRequested;
+	}
+
 	/**
 	 * Determines if the simulator should update by checking the state of the
 	 * UserInterface's TogglePlayButton. Will return true if the button's state
@@ -368,6 +606,7 @@ public class Simulation extends Application {
 	public void setPalette(ColorPalette palette) {
 		this.palette = palette;
 		world.setPalette(palette);
+		setRedrawRequested(true);
 	}
 
 	public static void main(String[] args) {
@@ -393,19 +632,19 @@ public class Simulation extends Application {
 
 		private String headingFontFamily = "Tahoma";
 		private int headingFontSize = 50;
-		private Font headingFont = Font.font(headingFontFamily, FontWeight.BOLD, FontPosture.REGULAR, headingFontSize);
+		private Font headingFont = RenderResources.getFont(headingFontFamily, FontWeight.BOLD, FontPosture.REGULAR, headingFontSize);
 
 		private String subheadingFontFamily = "Arial";
 		private int subheadingFontSize = 26;
-		private Font subheadingFont = Font.font(subheadingFontFamily, FontWeight.THIN, FontPosture.ITALIC, subheadingFontSize);
+		private Font subheadingFont = RenderResources.getFont(subheadingFontFamily, FontWeight.THIN, FontPosture.ITALIC, subheadingFontSize);
 
 		private String buttonFontFamily = "Tahoma";
 		private int buttonFontSize = 18;
-		private Font buttonFont = Font.font(buttonFontFamily, FontWeight.BOLD, FontPosture.REGULAR, buttonFontSize);
+		private Font buttonFont = RenderResources.getFont(buttonFontFamily, FontWeight.BOLD, FontPosture.REGULAR, buttonFontSize);
 
 		private String optionFontFamily = "Tahoma";
 		private int optionFontSize = 24;
-		private Font optionFont = Font.font(optionFontFamily, FontWeight.BOLD, FontPosture.REGULAR, optionFontSize);
+		private Font optionFont = RenderResources.getFont(optionFontFamily, FontWeight.BOLD, FontPosture.REGULAR, optionFontSize);
 		
 		private String paletteSelectorFontFamily = "Tahoma";
 		private double paletteSelectorFontSize = 18;
@@ -559,12 +798,12 @@ public class Simulation extends Application {
 			
 			Text title = new Text("Rocket Simulator");
 			title.setFont(headingFont);
-			title.setFill(Color.web(getTextColorHex()));
+			title.setFill(RenderResources.getColor(getTextColorHex()));
 			title.setTranslateY(-getHeight() / 4);
 	
 			Text author = new Text("");
 			author.setFont(subheadingFont);
-			author.setFill(Color.web(getTextColorHex()));
+			author.setFill(RenderResources.getColor(getTextColorHex()));
 			author.setTranslateY(
 				title.getTranslateY() + title.getLayoutBounds().getHeight());
 	
@@ -690,9 +929,9 @@ public class Simulation extends Application {
 		public Group getLandingSummary() {
 
 			boolean acceptableVelocity = 
-				world.getPrimaryRocket().getLandingVelocity() < world.getPrimaryRocket().getAcceptableLandingVelocity();
+				drawnWorld.getPrimaryRocket().isLandingVelocityAcceptable();
 			boolean acceptableAngle = 
-				Math.abs(world.getPrimaryRocket().getDirection() - 90) <= world.getPrimaryRocket().getLandingAngleMargin();
+				drawnWorld.getPrimaryRocket().isLandingAngleAcceptable();
 			boolean crash = !(acceptableVelocity && acceptableAngle);
 
 			// distance between largest element and the box edge
@@ -703,15 +942,15 @@ public class Simulation extends Application {
 			String landingMessage = crash ? "Crash" : "Successful Landing";
 
 			Text landingMessageText = new Text(landingMessage);
-			landingMessageText.setFont(Font.font("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 26));
-			landingMessageText.setFill(Color.web(getTextColorHex()));
+			landingMessageText.setFont(RenderResources.getFont("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 26));
+			landingMessageText.setFill(RenderResources.getColor(getTextColorHex()));
 			landingMessageText.setStyle("-fx-text-fill: " + getTextColorHex() + ";");
 			landingMessageText.setTranslateY(boxY + 20 + boxMargin);
 			landingMessageText.setTranslateX(WIDTH / 2 - 
 			landingMessageText.getLayoutBounds().getWidth() / 2);
 
-			Text velocityTextBox = new Text("Velocity: " + (int) world.getPrimaryRocket().getLandingVelocity());
-			velocityTextBox.setFont(Font.font("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 20));
+			Text velocityTextBox = new Text("Velocity: " + (int) drawnWorld.getPrimaryRocket().getLandingVelocity());
+			velocityTextBox.setFont(RenderResources.getFont("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 20));
 			velocityTextBox.setTranslateY(
 				landingMessageText.getTranslateY() + 
 				landingMessageText.getLayoutBounds().getHeight() + textMargin);
@@ -719,11 +958,11 @@ public class Simulation extends Application {
 			if (!acceptableVelocity) {
 				velocityTextBox.setFill(Color.YELLOW);
 			} else {
-				velocityTextBox.setFill(Color.web(getTextColorHex()));
+				velocityTextBox.setFill(RenderResources.getColor(getTextColorHex()));
 			}
 			
-			Text angleTextBox = new Text("Angle: " + (int) world.getPrimaryRocket().getDirection() + "\u00B0");
-			angleTextBox.setFont(Font.font("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 20));
+			Text angleTextBox = new Text("Angle: " + (int) drawnWorld.getPrimaryRocket().getDirection() + "\u00B0");
+			angleTextBox.setFont(RenderResources.getFont("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 20));
 			angleTextBox.setTranslateY(
 				velocityTextBox.getTranslateY() + 
 				velocityTextBox.getLayoutBounds().getHeight() + textMargin);
@@ -731,17 +970,17 @@ public class Simulation extends Application {
 			if (!acceptableAngle) {
 				angleTextBox.setFill(Color.YELLOW);
 			} else {
-				angleTextBox.setFill(Color.web(getTextColorHex()));
+				angleTextBox.setFill(RenderResources.getColor(getTextColorHex()));
 			}
 
 			double fuelConsumedProportion = 
-				(getInitialFuel() - world.getPrimaryRocket().getFuel()) / getInitialFuel();
+				(getInitialFuel() - drawnWorld.getPrimaryRocket().getFuel()) / getInitialFuel();
 			
 			Text fuelUsedText = new Text(
 				"Fuel Consumed: " + (int) (fuelConsumedProportion * 100) + "%"
 			);
-			fuelUsedText.setFont(Font.font("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 20));
-			fuelUsedText.setFill(Color.web(getTextColorHex()));
+			fuelUsedText.setFont(RenderResources.getFont("Tahoma", FontWeight.BOLD, FontPosture.REGULAR, 20));
+			fuelUsedText.setFill(RenderResources.getColor(getTextColorHex()));
 			fuelUsedText.setTranslateY(
 				angleTextBox.getTranslateY() + 
 				angleTextBox.getLayoutBounds().getHeight() + textMargin
@@ -773,7 +1012,7 @@ public class Simulation extends Application {
 			backgroundBox.setArcHeight(10);
 			backgroundBox.setStrokeWidth(3);
 			backgroundBox.setStroke(Color.BLACK);
-			backgroundBox.setFill(Color.web(getBackgroundColorHex()));
+			backgroundBox.setFill(RenderResources.getColor(getBackgroundColorHex()));
 
 			Group landingSummary = new Group();
 			landingSummary.getChildren().addAll(
@@ -794,7 +1033,7 @@ public class Simulation extends Application {
 			// Create the rocket
 			double rocketX = WIDTH  / 2;
 			double xVelocity = Math.random() * getMaxSpeed() * 2 - getMaxSpeed();
-			Vector2D acceleration = new Vector2D(0.0, World.GRAVITY);
+			Vector2D acceleration = new Vector2D(0.0, world.getGravity());
 			Rocket autoRocket = new Rocket(rocketX, 
 				world.getGroundY() - getInitialRocketHeight(),
 				getInitialFuel(), 
@@ -802,12 +1041,15 @@ public class Simulation extends Application {
 			autoRocket.getVelocity().setX(xVelocity);
 			autoRocket.setAcceleration(acceleration);
 			setLandingHandled(false);
+			setUserControlled(false);
+			userInterface.setLandingProbabilityShown(false);
 
 			world.getObjects().add(autoRocket);
 			world.setPrimaryRocket(autoRocket);
 			userInterface.calibrateElements(autoRocket);
 
 			stage.setScene(getSimulationScene()); 
+			getEngine().start();
 			animator.start();
 	
 		}
@@ -823,7 +1065,7 @@ public class Simulation extends Application {
 	
 			// Create the rocket
 			double xVelocity = Math.random() * getMaxSpeed() * 2 - getMaxSpeed();
-			Vector2D acceleration = new Vector2D(0.0, World.GRAVITY);
+			Vector2D acceleration = new Vector2D(0.0, world.getGravity());
 			double rocketX = WIDTH  / 2;
 			
 			userRocket.reset(rocketX, world.getGroundY() - getInitialRocketHeight(), getInitialFuel());
@@ -833,12 +1075,15 @@ public class Simulation extends Application {
 			userRocket.setAcceleration(acceleration);
 
 			setLandingHandled(false);
+			setUserControlled(true);
+			userInterface.setLandingProbabilityShown(true);
 	
 			world.getObjects().add(userRocket);
 			world.setPrimaryRocket(userRocket);
 			userInterface.calibrateElements(userRocket);
 
 			stage.setScene(getSimulationScene());
+			getEngine().start();
 			animator.start();
 	
 		}
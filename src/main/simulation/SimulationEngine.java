@@ -0,0 +1,228 @@
+package simulation;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a World's simulation on its own thread, separate from the JavaFX
+ * application thread that draws it.
+ * The World is ticked at a fixed rate, and after each update a snapshot of
+ * the World is published through a SnapshotBuffer. The drawing thread only
+ * ever reads snapshots, so slow frames don't slow the simulation down and
+ * the simulation never has to wait for a frame to finish.
+ *
+ * While the engine is running, only the engine's thread may change the
+ * World. Changes like adding objects should be made while it is stopped.
+ */
+public class SimulationEngine implements Runnable {
+
+	// The most ticks to run at once when catching up after a stall. Any time
+	// beyond this is dropped instead of run in a burst
+	private static final int MAX_TICKS_PER_UPDATE = 5;
+
+	private final World world;
+	private final SnapshotBuffer<WorldSnapshot> snapshots =
+			new SnapshotBuffer<WorldSnapshot>(WorldSnapshot::new);
+
+	private volatile double tickRate = 60; // ticks per second
+	private volatile boolean paused = false;
+	private volatile boolean running = false;
+
+	private Thread thread;
+	private long sequence = 0;
+
+	/**
+	 * Creates a SimulationEngine that updates the given World.
+	 * @param world the World to simulate
+	 */
+	public SimulationEngine(World world) {
+
+		this.world = world;
+
+	}
+
+	/**
+	 * Gets the World this engine updates.
+	 * @return the simulated World
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Gets the number of times per second the World is ticked.
+	 * @return the tick rate
+	 */
+	public double getTickRate() {
+		return tickRate;
+	}
+
+	/**
+	 * Sets the number of times per second the World is ticked. Exhaust 
+	 * particles are emitted once per tick, so this also sets how dense the
+	 * exhaust looks.
+	 * @param tickRate the new tick rate
+	 */
+	public void setTickRate(double tickRate) {
+
+		if (tickRate <= 0) {
+			throw new IllegalArgumentException("Tick rate must be positive");
+		}
+
+		this.tickRate = tickRate;
+
+	}
+
+	/**
+	 * Returns whether the simulation is paused.
+	 * @return whether the simulation is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Sets whether the simulation is paused. A paused engine keeps its thread
+	 * but parks it without ticking the World until it is unpaused.
+	 * @param paused whether the simulation should be paused
+	 */
+	public void setPaused(boolean paused) {
+
+		boolean resuming = this.paused && !paused;
+		this.paused = paused;
+
+		if (resuming && thread != null) {
+			LockSupport.unpark(thread);
+		}
+
+	}
+
+	/**
+	 * Returns whether the engine's thread is running.
+	 * @return whether the engine is running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Gets the newest snapshot of the World. The snapshot may be drawn until
+	 * the next call. Only one thread, normally the JavaFX application
+	 * thread, may call this.
+	 * @return the newest snapshot, or null if the engine was never started
+	 */
+	public WorldSnapshot getLatestSnapshot() {
+		return snapshots.getLatest();
+	}
+
+	/**
+	 * Publishes a snapshot of the World's current state and starts ticking it
+	 * on a new thread. Does nothing if the engine is already running.
+	 */
+	public void start() {
+
+		if (isRunning()) {
+			return;
+		}
+
+		// Publish the starting state so there is something to draw right away
+		publishSnapshot();
+
+		running = true;
+		thread = new Thread(this, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/**
+	 * Stops ticking the World and waits for the engine's thread to finish.
+	 * Afterwards the World may be changed from any thread.
+	 */
+	public void stop() {
+
+		if (!isRunning()) {
+			return;
+		}
+
+		running = false;
+		LockSupport.unpark(thread);
+
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		thread = null;
+
+	}
+
+	/**
+	 * Copies the World into the back snapshot and publishes it.
+	 */
+	private void publishSnapshot() {
+
+		snapshots.getBackBuffer().copyFrom(world, ++sequence);
+		snapshots.publish();
+
+	}
+
+	/**
+	 * Ticks the World at a fixed rate until the engine is stopped.
+	 */
+	@Override
+	public void run() {
+
+		long lastUpdate = System.nanoTime();
+		double unsimulatedTime = 0; // seconds
+
+		while (running) {
+
+			double tickLength = 1 / getTickRate();
+			long now = System.nanoTime();
+			unsimulatedTime += (now - lastUpdate) / 1_000_000_000.0;
+			lastUpdate = now;
+
+			if (isPaused()) {
+
+				// Nothing changes while paused, so sleep until woken
+				unsimulatedTime = 0;
+				LockSupport.park(this);
+				lastUpdate = System.nanoTime();
+				continue;
+
+			}
+
+			int ticks = 0;
+			while (unsimulatedTime >= tickLength && ticks < MAX_TICKS_PER_UPDATE) {
+
+				world.tick(tickLength);
+				unsimulatedTime -= tickLength;
+				ticks++;
+
+			}
+
+			if (ticks == MAX_TICKS_PER_UPDATE) {
+				unsimulatedTime = Math.min(unsimulatedTime, tickLength);
+			}
+
+			if (ticks > 0) {
+				publishSnapshot();
+			}
+
+			// Sleep until the next tick is due
+			LockSupport.parkNanos((long) ((tickLength - unsimulatedTime) * 1_000_000_000));
+
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+package simulation;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free triple buffer for handing snapshots from one writer thread to
+ * one reader thread. The writer fills the back buffer and publishes it; the
+ * reader takes the newest published buffer. Neither thread ever waits for
+ * the other, and each side owns its buffer exclusively until it swaps it, so
+ * snapshots can be reused instead of allocated.
+ * @param <T> the type of snapshot held by the buffer
+ */
+public class SnapshotBuffer<T> {
+
+	// The middle buffer's index is stored in the low bits, and FRESH is set
+	// when the writer has published a buffer that the reader hasn't taken yet
+	private static final int INDEX_MASK = 0b11;
+	private static final int FRESH = 0b100;
+
+	private final Object [] buffers = new Object[3];
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private int back = 0; // only touched by the writer
+	private int front = 2; // only touched by the reader
+	private boolean hasPublished = false; // only touched by the reader
+
+	/**
+	 * Creates a SnapshotBuffer whose three buffers are created by the given
+	 * Supplier.
+	 * @param factory creates each of the three buffers
+	 */
+	public SnapshotBuffer(Supplier<T> factory) {
+
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = factory.get();
+		}
+
+	}
+
+	/**
+	 * Gets the buffer the writer should fill next. Only the writer thread
+	 * may call this.
+	 * @return the back buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBackBuffer() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Publishes the back buffer so the reader can take it, and gives the
+	 * writer a new back buffer. Only the writer thread may call this.
+	 */
+	public void publish() {
+
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+
+	}
+
+	/**
+	 * Gets the newest published buffer. The reader owns the returned buffer
+	 * until its next call. Only the reader thread may call this.
+	 * @return the newest published buffer, or null if nothing has been
+	 * published yet
+	 */
+	@SuppressWarnings("unchecked")
+	public T getLatest() {
+
+		if ((middle.get() & FRESH) != 0) {
+
+			front = middle.getAndSet(front) & INDEX_MASK;
+			hasPublished = true;
+
+		}
+
+		return hasPublished ? (T) buffers[front] : null;
+
+	}
+
+}
@@ -1,7 +1,7 @@
 
 package simulation;
 import java.util.ArrayList;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import util.Entity;
 import rocket.Rocket;
 
@@ -13,6 +13,12 @@ public class World {
 	private ArrayList<Entity> objects = new ArrayList<Entity>();
 	
 	public static final double GRAVITY = 100; // pixels/second^2
+
+	// The size of the simulator's window, which decides where the ground is;
+	// headless Worlds use it too so their landings match the window's
+	public static final double DEFAULT_WINDOW_WIDTH = 800;
+	public static final double DEFAULT_WINDOW_HEIGHT = 700;
+	private double gravity = GRAVITY;
 	private double groundHeight = 100;
 	private double groundY;
 	
@@ -49,7 +55,7 @@ public class World {
 	 * Gets the width of the window this World occupies.
 	 * @return the window width
 	 */
-	private double getWindowWidth() {
+	public double getWindowWidth() {
 		return windowWidth;
 	}
 
@@ -177,6 +183,24 @@ public class World {
 		
 	}
 
+	/**
+	 * Gets the acceleration of gravity in this World. Every World has its
+	 * own, so Worlds running on different threads share nothing.
+	 * @return this World's gravity, in pixels/second^2
+	 */
+	public double getGravity() {
+		return gravity;
+	}
+
+	/**
+	 * Sets the acceleration of gravity in this World. Rockets already in 
+	 * the World keep the acceleration they were given.
+	 * @param gravity this World's new gravity, in pixels/second^2
+	 */
+	public void setGravity(double gravity) {
+		this.gravity = gravity;
+	}
+
 	/**
 	 * Gets the Rocket currently involved with simulation in this world.
 	 * @return this World's primary Rocket
@@ -197,7 +221,7 @@ public class World {
 	 * Gets the color palette to use when drawing this World's objects
 	 * @return this World's color palette
 	 */
-	private ColorPalette getPalette() {
+	public ColorPalette getPalette() {
 		return this.palette;
 	}
 
@@ -220,8 +244,8 @@ public class World {
 			getPrimaryRocket().stop();
 		}
 		
-		for (Entity entity: getObjects()) {
-			entity.tick(timeElapsed);
+		for (int i = 0; i < getObjects().size(); i++) {
+			getObjects().get(i).tick(timeElapsed);
 		}
 		
 	}
@@ -229,18 +253,18 @@ public class World {
 	/**
 	 * Fills the Canvas with a sky color. Other landscape elements, like the
 	 * ground and mountains, should be drawn over this background sky.
-	 * @param gc the GraphicsContext used to draw the World
+	 * @param list the DisplayList used to draw the World
 	 */
-	public void drawSky(GraphicsContext gc) {
+	public void drawSky(DisplayList list) {
 		
-		gc.setFill(getPalette().getSkyColor());
+		list.setFill(getPalette().getSkyColor());
 		
-		double leftX = -gc.getTransform().getTx();
-		double topY = -gc.getTransform().getTy();
+		double leftX = -list.getTranslateX();
+		double topY = -list.getTranslateY();
 		
 		// topY is essentially the top Y coordinate of the moving Canvas window
 		// that the player sees
-		gc.fillRect(leftX, 
+		list.fillRect(leftX, 
 				topY, 
 				getWindowWidth(), getWindowHeight());
 
@@ -248,68 +272,68 @@ public class World {
 	
 	/**
 	 * Draws the ground level with color filled below it
-	 * @param gc The GraphicsContext for the Canvas to draw the ground on
+	 * @param list The DisplayList for the Canvas to draw the ground on
 	 */
-	public void drawGround(GraphicsContext gc) {
+	public void drawGround(DisplayList list) {
 		
-		gc.setFill(getPalette().getGroundColor());
-		double leftX = -gc.getTransform().getTx();
+		list.setFill(getPalette().getGroundColor());
+		double leftX = -list.getTranslateX();
 		double topY = getWindowHeight() - getGroundHeight();
 		// Stretch the ground rectangle to the bottom of the screen
-		double height = topY + getGroundHeight() - gc.getTransform().getTy();
-		gc.fillRect(leftX, topY, getWindowWidth(), height);
+		double height = topY + getGroundHeight() - list.getTranslateY();
+		list.fillRect(leftX, topY, getWindowWidth(), height);
 		
 		
 	}
 	
 	/**
-	 * Translates the given GraphicsContext so that the Rocket appears in the
+	 * Translates the given DisplayList so that the Rocket appears in the
 	 * center of the window horizontally.
-	 * @param gc the GraphicsContext used to draw the World
-	 * @param center the Rocket to center the GraphicsContext on horizontally
+	 * @param list the DisplayList used to draw the World
+	 * @param center the Rocket to center the DisplayList on horizontally
 	 */
-	public void centerOnRocketHorizontally(GraphicsContext gc, Rocket center) {
+	public void centerOnRocketHorizontally(DisplayList list, Rocket center) {
 
 		double xTranslate = centerOnRocketHorizontally() ? 
-				-center.getX() - gc.getTransform().getTx() 
+				-center.getX() - list.getTranslateX() 
 				+ getWindowWidth() / 2 : 0;
 		
-		gc.translate(xTranslate, 0);
+		list.translate(xTranslate, 0);
 
 	}
 	
 	/**
-	 * Translates the given GraphicsContext so that the Rocket appears in the
+	 * Translates the given DisplayList so that the Rocket appears in the
 	 * center of the window vertically.
-	 * @param gc the GraphicsContext used to draw the World
-	 * @param center the Rocket to center the GraphicsContext on vertically
+	 * @param list the DisplayList used to draw the World
+	 * @param center the Rocket to center the DisplayList on vertically
 	 */
-	public void centerOnRocketVertically(GraphicsContext gc, Rocket center) {
+	public void centerOnRocketVertically(DisplayList list, Rocket center) {
 
 		double yTranslate = centerOnRocketVertically()? 
 				-center.getY() + center.getHeight() / 2 - 
-				gc.getTransform().getTy() + getWindowHeight() / 2 : 0;
+				list.getTranslateY() + getWindowHeight() / 2 : 0;
 		
-		gc.translate(0, yTranslate);
+		list.translate(0, yTranslate);
 
 	}
 	
 	/**
-	 * Checks whether the GraphicsContext should follow the Rocket horizontally
+	 * Checks whether the DisplayList should follow the Rocket horizontally
 	 * or vertically and performs the necessary translations.
-	 * @param gc the GraphicsContext to translate
+	 * @param list the DisplayList to translate
 	 */
-	public void alignGraphicsContext(GraphicsContext gc) {
+	public void alignDisplayList(DisplayList list) {
 
 		if (centerOnRocketHorizontally()) {
 
-			centerOnRocketHorizontally(gc, getPrimaryRocket());
+			centerOnRocketHorizontally(list, getPrimaryRocket());
 
 		}
 
 		if (centerOnRocketVertically()) {
 
-			centerOnRocketVertically(gc, getPrimaryRocket());
+			centerOnRocketVertically(list, getPrimaryRocket());
 
 		}		
 
@@ -317,21 +341,21 @@ public class World {
 	
 	/**
 	 * Draws the World and all its child objects on the Canvas
-	 * @param gc the GraphicsContext for the Canvas to draw the objects on
+	 * @param list the DisplayList for the Canvas to draw the objects on
 	 */
-	public void draw(GraphicsContext gc) {
+	public void draw(DisplayList list) {
 		
-		alignGraphicsContext(gc);
+		alignDisplayList(list);
 		
-		drawSky(gc);
+		drawSky(list);
 		
-		for (Entity entity : getObjects()) {
+		for (int i = 0; i < getObjects().size(); i++) {
 			
-			entity.draw(gc);
+			getObjects().get(i).draw(list);
 			
 		}
 		
-		drawGround(gc);
+		drawGround(list);
 		
 	}
 	
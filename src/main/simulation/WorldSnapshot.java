@@ -0,0 +1,155 @@
+package simulation;
+import java.util.ArrayList;
+import render.DisplayList;
+import rocket.Rocket;
+import util.Entity;
+
+/**
+ * A copy of a World's state at one point in time, used to draw the World
+ * without touching the objects the simulation thread is updating. The copy
+ * is held in a World of its own whose objects are replicas of the source
+ * World's objects, so it draws exactly like the source would.
+ *
+ * Replicas are created the first time a source object is seen and reused by
+ * every later copy, so taking a snapshot normally allocates nothing.
+ *
+ * Each snapshot also records the drawing commands for its World into a
+ * DisplayList, so the thread that takes the snapshot does the draw
+ * preparation and the JavaFX thread only has to replay the list.
+ */
+public class WorldSnapshot {
+
+	private final World world = new World();
+	private final DisplayList displayList = new DisplayList();
+	private final ArrayList<Entity> sources = new ArrayList<Entity>();
+	private Rocket primaryRocketSource;
+	private Rocket primaryRocketReplica;
+	private long sequence;
+
+	/**
+	 * Gets the World holding this snapshot's copy of the source World.
+	 * @return the snapshot's World
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Gets the drawing commands for this snapshot's World, recorded when the
+	 * snapshot was taken. The commands start from an untransformed Canvas.
+	 * @return the snapshot's DisplayList
+	 */
+	public DisplayList getDisplayList() {
+		return displayList;
+	}
+
+	/**
+	 * Gets the sequence number of this snapshot. Snapshots taken later have
+	 * larger sequence numbers.
+	 * @return the snapshot's sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Copies the state of the given World into this snapshot, and records the
+	 * copy's drawing commands.
+	 * @param source the World to copy
+	 * @param sequence the sequence number of this snapshot
+	 * @throws IllegalArgumentException if the World contains an object that
+	 * can't be copied
+	 */
+	public void copyFrom(World source, long sequence) {
+
+		this.sequence = sequence;
+
+		world.setWindowWidth(source.getWindowWidth());
+		world.setWindowHeight(source.getWindowHeight());
+		world.setGroundY(source.getGroundY());
+		world.setGroundHeight(source.getGroundHeight());
+		world.setCenterOnRocketHorizontally(source.centerOnRocketHorizontally());
+		world.setCenterOnRocketVertically(source.centerOnRocketVertically());
+		world.setPalette(source.getPalette());
+
+		ArrayList<Entity> objects = source.getObjects();
+		ArrayList<Entity> replicas = world.getObjects();
+		Rocket primaryRocket = source.getPrimaryRocket();
+		world.setPrimaryRocket(null);
+
+		for (int i = 0; i < objects.size(); i++) {
+
+			Entity object = objects.get(i);
+
+			// Only create a replica when the source object changed
+			if (i >= sources.size()) {
+
+				sources.add(object);
+				replicas.add(createReplica(object));
+
+			} else if (sources.get(i) != object) {
+
+				sources.set(i, object);
+				replicas.set(i, createReplica(object));
+
+			}
+
+			replicas.get(i).copyStateFrom(object);
+
+			if (object == primaryRocket) {
+				world.setPrimaryRocket((Rocket) replicas.get(i));
+			}
+
+		}
+
+		while (sources.size() > objects.size()) {
+
+			sources.remove(sources.size() - 1);
+			replicas.remove(replicas.size() - 1);
+
+		}
+
+		// The primary Rocket might not be one of the World's objects
+		if (primaryRocket != null && world.getPrimaryRocket() == null) {
+
+			if (primaryRocket != primaryRocketSource) {
+
+				primaryRocketSource = primaryRocket;
+				primaryRocketReplica = (Rocket) createReplica(primaryRocket);
+
+			}
+
+			primaryRocketReplica.copyStateFrom(primaryRocket);
+			world.setPrimaryRocket(primaryRocketReplica);
+
+		}
+
+		displayList.clear();
+		if (world.getPrimaryRocket() != null) {
+			world.draw(displayList);
+		}
+
+	}
+
+	/**
+	 * Creates an object that can hold a copy of the given object's state.
+	 * @param source the object to create a replica of
+	 * @return the replica
+	 * @throws IllegalArgumentException if the object can't be copied
+	 */
+	private Entity createReplica(Entity source) {
+
+		if (source instanceof Rocket) {
+
+			Rocket rocket = (Rocket) source;
+			return new Rocket(rocket.getX(), rocket.getY(), rocket.getFuel(),
+					rocket.getTargetAltitude());
+
+		}
+
+		throw new IllegalArgumentException(
+				"Can't take a snapshot of a " + source.getClass().getSimpleName());
+
+	}
+
+}
@@ -1,18 +1,18 @@
 package ui;
 
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
-import util.Entity;
 import rocket.Rocket;
 
 /**
  * An element that shows the user a simple representation of the Rocket's
  * altitude when drawn.
  */
-public class AltitudeIndicator extends Entity {
+public class AltitudeIndicator extends HudElement {
 	
 	private Rocket rocket;
 	private double maxAltitude;
+	private double pointRadius = 3;
 	
 	/**
 	 * Creates an AltitudeIndicator with the given x and y offsets and
@@ -95,11 +95,11 @@ public class AltitudeIndicator extends Entity {
 	
 	/**
 	 * Draws evenly spaced horizontal lines to represent increments of height.
-	 * @param gc the GraphicsContext used to draw the AltitudeIndicator
+	 * @param list the DisplayList used to draw the AltitudeIndicator
 	 */
-	public void drawTickMarks(GraphicsContext gc) {
+	public void drawTickMarks(DisplayList list) {
 		
-		gc.setFill(Color.BLACK);
+		list.setFill(Color.BLACK);
 		
 		int numTickMarks = 3;
 		
@@ -110,8 +110,8 @@ public class AltitudeIndicator extends Entity {
 		double minorTickHeight = majorTickHeight / 1.5;
 		
 		// Top and bottom 'lines'
-		gc.fillRect(getX() - majorTickWidth / 2, getY(), majorTickWidth, majorTickHeight);
-		gc.fillRect(getX() - majorTickWidth / 2, getY() + getHeight() - majorTickHeight, 
+		list.fillRect(getX() - majorTickWidth / 2, getY(), majorTickWidth, majorTickHeight);
+		list.fillRect(getX() - majorTickWidth / 2, getY() + getHeight() - majorTickHeight, 
 				majorTickWidth, majorTickHeight);
 		
 		double insideHeight = getHeight() - majorTickHeight * 2;
@@ -119,7 +119,7 @@ public class AltitudeIndicator extends Entity {
 		
 		for (int i = 1; i <= numTickMarks; i++) {
 			
-			gc.fillRect(getX() - minorTickWidth / 2, 
+			list.fillRect(getX() - minorTickWidth / 2, 
 					getY() + majorTickHeight + (i * spaceBetweenTicks), 
 					minorTickWidth, minorTickHeight);
 			
@@ -129,11 +129,27 @@ public class AltitudeIndicator extends Entity {
 	
 	/**
 	 * Draws a circle to represent the Rocket and its altitude.
-	 * @param gc the GraphicsContext used to draw the AltitudeIndicator
+	 * @param list the DisplayList used to draw the AltitudeIndicator
 	 */
-	public void drawRocketAltitudePoint(GraphicsContext gc) {
+	public void drawRocketAltitudePoint(DisplayList list) {
 
-		double pointRadius = 3;
+		double scaledAltitudeY = getAltitudePointY();
+
+		if (!Double.isNaN(scaledAltitudeY)) {
+
+			list.setFill(Color.CORNFLOWERBLUE);
+			list.fillOval(getX() - pointRadius, scaledAltitudeY - pointRadius, pointRadius * 2, pointRadius * 2);
+
+		}
+		
+	}
+
+	/**
+	 * Gets the y-coordinate of the center of the Rocket's altitude dot.
+	 * @return the dot's center y-coordinate, or NaN if the dot is outside 
+	 * the AltitudeIndicator
+	 */
+	private double getAltitudePointY() {
 
 		double currentAltitudeProportion = calculateAltitude()
 				/ maxAltitude;
@@ -145,28 +161,39 @@ public class AltitudeIndicator extends Entity {
 		// of the AltitudeIndicator (give or take 2 pixels)
 		if (scaledAltitudeY - pointRadius >= getY() - 2 && scaledAltitudeY + pointRadius <= getY() + getHeight() + 2) {
 
-			gc.setFill(Color.CORNFLOWERBLUE);
-			gc.fillOval(getX() - pointRadius, scaledAltitudeY - pointRadius, pointRadius * 2, pointRadius * 2);
+			return scaledAltitudeY;
 
 		}
-		
+
+		return Double.NaN;
+
 	}
 	
 	@Override
-	public void draw(GraphicsContext gc) {
+	protected void drawBackground(DisplayList list) {
 		
-		if (isVisible()) {
-			
-			gc.setFill(Color.LIGHTGRAY);
-			gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		list.setFill(Color.LIGHTGRAY);
+		list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
 
-			drawTickMarks(gc);
-			
-			drawRocketAltitudePoint(gc);
-		}
-		
+		drawTickMarks(list);
 		
 	}
+
+	@Override
+	protected void drawValue(DisplayList list) {
+
+		drawRocketAltitudePoint(list);
+
+	}
+
+	@Override
+	protected long getValueKey() {
+
+		// The dot's position, to the nearest pixel
+		double pointY = getAltitudePointY();
+		return Double.isNaN(pointY) ? Long.MIN_VALUE : Math.round(pointY - getY());
+
+	}
 	
 	@Override
 	public void tick(double timeElapsed) {
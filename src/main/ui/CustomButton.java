@@ -1,5 +1,5 @@
 package ui;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.control.Button;
 import javafx.scene.paint.Color;
 import util.Entity;
@@ -202,10 +202,20 @@ public abstract class CustomButton extends Button {
 	 */
 	abstract void onClick();
 	
+	/**
+	 * Gets a key for the CustomButton's current look, which changes whenever
+	 * the CustomButton would be drawn differently. Only needs to be 
+	 * overridden by CustomButtons whose look depends on their state.
+	 * @return the CustomButton's render key
+	 */
+	long getRenderKey() {
+		return 0;
+	}
+	
 	/**
 	 * Defines how the CustomButton should be drawn.
-	 * @param gc the GraphicsContext used to draw the CustomButton
+	 * @param list the DisplayList used to draw the CustomButton
 	 */
-	abstract void draw(GraphicsContext gc);
+	abstract void draw(DisplayList list);
 	
 }
\ No newline at end of file
@@ -1,18 +1,19 @@
 package ui;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
-import util.Entity;
+import render.RenderResources;
 import rocket.Rocket;
 
 /**
  * An element that shows the user a visual representation of how much fuel the
  * Rocket has left.
  */
-public class FuelIndicator extends Entity {
+public class FuelIndicator extends HudElement {
 	
 	private Rocket rocket;
 	private double maxFuelLevel;
 	private Color baseColor = Color.LIGHTGRAY;
+	private Color fuelLevelColor = RenderResources.getDarker(Color.LIGHTGREEN);
 	
 	/**
 	 * Creates a FuelIndicator with the given x and y offsets, dimensions, and
@@ -102,11 +103,11 @@ public class FuelIndicator extends Entity {
 
 	/**
 	 * Draws evenly spaced horizontal tick marks on the FuelIndicator.
-	 * @param gc the GraphicsContext used to draw the FuelIndicator
+	 * @param list the DisplayList used to draw the FuelIndicator
 	 */
-	public void drawTickMarks(GraphicsContext gc) {
+	public void drawTickMarks(DisplayList list) {
 		
-		gc.setFill(Color.BLACK);
+		list.setFill(Color.BLACK);
 		
 		int numTickMarks = 3;
 		
@@ -117,8 +118,8 @@ public class FuelIndicator extends Entity {
 		double minorTickHeight = majorTickHeight / 1.5;
 		
 		// Top and bottom 'lines'
-		gc.fillRect(getX() - majorTickWidth / 2, getY(), majorTickWidth, majorTickHeight);
-		gc.fillRect(getX() - majorTickWidth / 2, getY() + getHeight() - majorTickHeight, 
+		list.fillRect(getX() - majorTickWidth / 2, getY(), majorTickWidth, majorTickHeight);
+		list.fillRect(getX() - majorTickWidth / 2, getY() + getHeight() - majorTickHeight, 
 				majorTickWidth, majorTickHeight);
 		
 		double insideHeight = getHeight() - majorTickHeight * 2;
@@ -126,7 +127,7 @@ public class FuelIndicator extends Entity {
 		
 		for (int i = 1; i <= numTickMarks; i++) {
 			
-			gc.fillRect(getX() - minorTickWidth / 2, 
+			list.fillRect(getX() - minorTickWidth / 2, 
 					getY() + majorTickHeight + (i * spaceBetweenTicks), 
 					minorTickWidth, minorTickHeight);
 			
@@ -137,36 +138,66 @@ public class FuelIndicator extends Entity {
 	/**
 	 * Draws a dot to show how much fuel the Rocket has left, relative to the
 	 * maximum fuel level.
-	 * @param gc the GraphicsContext used to draw the FuelIndicator
+	 * @param list the DisplayList used to draw the FuelIndicator
 	 */
-	public void drawRocketFuelLevelPoint(GraphicsContext gc) {
+	public void drawRocketFuelLevelPoint(DisplayList list) {
 
-		double currentFuelProportion = getRocket().getFuel() / getMaxFuelLevel();
-		
-		double barHeight = getHeight() * currentFuelProportion;
+		double barHeight = getFuelBarHeight();
 
-		gc.setFill(Color.LIGHTGREEN.darker());
+		list.setFill(fuelLevelColor);
 
-		gc.fillRoundRect(getX() - getWidth() / 2, getY() + getHeight() - barHeight, 
+		list.fillRoundRect(getX() - getWidth() / 2, getY() + getHeight() - barHeight, 
 				getWidth(), barHeight, 10, 10);
 		
 	}
 	
-	@Override
-	public void draw(GraphicsContext gc) {
+	/**
+	 * Gets the height of the fuel bar for the Rocket's current fuel level.
+	 * @return the fuel bar's height
+	 */
+	private double getFuelBarHeight() {
+
+		double currentFuelProportion = getRocket().getFuel() / getMaxFuelLevel();
 		
-		// Base rectangle
-		if (isVisible()) {
-			
-			gc.setFill(getBaseColor());
-			gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		return getHeight() * currentFuelProportion;
 
-			drawRocketFuelLevelPoint(gc);
-			drawTickMarks(gc);
-		}
+	}
+	
+	@Override
+	protected void drawBackground(DisplayList list) {
 		
+		// Base rectangle
+		list.setFill(getBaseColor());
+		list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
 		
 	}
+
+	@Override
+	protected void drawValue(DisplayList list) {
+
+		drawRocketFuelLevelPoint(list);
+
+	}
+
+	@Override
+	protected void drawForeground(DisplayList list) {
+
+		drawTickMarks(list);
+
+	}
+
+	@Override
+	protected long getValueKey() {
+
+		// The bar's height, to the nearest pixel
+		return Math.round(getFuelBarHeight());
+
+	}
+
+	@Override
+	protected long getLayersKey() {
+		return getBaseColor().hashCode();
+	}
 	
 	@Override
 	public void tick(double timeElapsed) {
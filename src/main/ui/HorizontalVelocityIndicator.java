@@ -1,6 +1,6 @@
 package ui;
 
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 import rocket.Rocket;
 
@@ -44,9 +44,9 @@ public class HorizontalVelocityIndicator extends VelocityIndicator {
 	}
 
 	@Override
-	public String getVelocityText() {
+	protected long getVelocityValue() {
 
-		return ""+Math.min(
+		return Math.min(
             Math.abs(Math.round(getRocket().getVelocity().getX() / 10) * 10), 
             999
         );
@@ -54,9 +54,14 @@ public class HorizontalVelocityIndicator extends VelocityIndicator {
 	}
 
 	@Override
-    protected void drawVelocityArrow(GraphicsContext gc) {
+	protected boolean isVelocityNegative() {
+		return getRocket().getVelocity().getX() < 0;
+	}
+
+	@Override
+    protected void drawVelocityArrow(DisplayList list) {
 
-        gc.setLineWidth(3);
+        list.setLineWidth(3);
         double lineWidth = getHeight() / 2;
 
         double arrowWidth = 10;
@@ -67,24 +72,24 @@ public class HorizontalVelocityIndicator extends VelocityIndicator {
         double lineLeftX = lineCenterX - lineWidth / 2;
         double lineRightX = lineCenterX + lineWidth / 2;
 
-        gc.setStroke(Color.BLACK);
+        list.setStroke(Color.BLACK);
 
-		gc.strokeLine(lineLeftX, lineCenterY, lineRightX, lineCenterY);
+		list.strokeLine(lineLeftX, lineCenterY, lineRightX, lineCenterY);
 		
-        if (getRocket().getVelocity().getX() < 0) {
+        if (isVelocityNegative()) {
             
             // Draw velocity arrow pointed left
-            gc.strokeLine(lineLeftX, lineCenterY, 
+            list.strokeLine(lineLeftX, lineCenterY, 
 				lineLeftX + arrowWidth, lineCenterY + arrowheadHeight / 2);
-			gc.strokeLine(lineLeftX, lineCenterY, 
+			list.strokeLine(lineLeftX, lineCenterY, 
                 lineLeftX + arrowWidth, lineCenterY - arrowheadHeight / 2);
 
         } else {
 
 			// Draw velocity arrow pointed right
-			gc.strokeLine(lineRightX, lineCenterY,
+			list.strokeLine(lineRightX, lineCenterY,
 				lineRightX - arrowWidth, lineCenterY + arrowheadHeight / 2);
-			gc.strokeLine(lineRightX, lineCenterY,
+			list.strokeLine(lineRightX, lineCenterY,
 				lineRightX - arrowWidth, lineCenterY - arrowheadHeight / 2);
 
 		}
@@ -0,0 +1,182 @@
+package ui;
+import render.DisplayList;
+import render.LayerImage;
+import util.Entity;
+
+/**
+ * An interface element that remembers what it last drew, so it is only
+ * redrawn when what it shows has visibly changed.
+ *
+ * An element is drawn in three layers: a background, the value it shows,
+ * and an optional foreground drawn over the value. The background and
+ * foreground don't change while the simulation runs, so they are rendered
+ * into images once and copied afterwards. The value is drawn every time,
+ * and subclasses describe it with a value key: a number that changes
+ * exactly when the drawing of the value would change by at least a pixel.
+ */
+public abstract class HudElement extends Entity {
+
+	// Extra room around the element's bounds for strokes
+	private static final double MARGIN = 2;
+
+	private LayerImage background;
+	private LayerImage foreground;
+	private boolean layersRendered = false;
+	private long layersKey;
+	private double layersWidth;
+	private double layersHeight;
+
+	private boolean drawn = false;
+	private boolean drawnVisible;
+	private long drawnValueKey;
+	private double drawnX;
+	private double drawnY;
+
+	/**
+	 * Creates a HudElement with the given x and y offsets and dimensions.
+	 * @param xOffset the HudElement's x offset
+	 * @param yOffset the HudElement's y offset
+	 * @param width the HudElement's width
+	 * @param height the HudElement's height
+	 */
+	public HudElement(double xOffset, double yOffset, double width,
+			double height) {
+
+		super(xOffset, yOffset, width, height);
+
+	}
+
+	/**
+	 * Draws the parts of the HudElement that are under its value.
+	 * @param list the DisplayList used to draw the HudElement
+	 */
+	protected abstract void drawBackground(DisplayList list);
+
+	/**
+	 * Draws the value the HudElement shows.
+	 * @param list the DisplayList used to draw the HudElement
+	 */
+	protected abstract void drawValue(DisplayList list);
+
+	/**
+	 * Draws the parts of the HudElement that are over its value. Draws
+	 * nothing unless overridden.
+	 * @param list the DisplayList used to draw the HudElement
+	 */
+	protected void drawForeground(DisplayList list) {}
+
+	/**
+	 * Gets a key for the value the HudElement shows, which must change
+	 * whenever the drawn value would visibly change.
+	 * @return the value key
+	 */
+	protected abstract long getValueKey();
+
+	/**
+	 * Gets a key for the background and foreground, which must change
+	 * whenever they should be drawn differently, for example in a different
+	 * color. The layers are rendered again when it changes.
+	 * @return the layers key
+	 */
+	protected long getLayersKey() {
+		return 0;
+	}
+
+	/**
+	 * Gets the left x-coordinate of the area the HudElement draws in.
+	 * @return the left x-coordinate of the HudElement's bounds
+	 */
+	public double getBoundsX() {
+		return getX() - getWidth() / 2 - MARGIN;
+	}
+
+	/**
+	 * Gets the top y-coordinate of the area the HudElement draws in.
+	 * @return the top y-coordinate of the HudElement's bounds
+	 */
+	public double getBoundsY() {
+		return getY() - MARGIN;
+	}
+
+	/**
+	 * Gets the width of the area the HudElement draws in.
+	 * @return the width of the HudElement's bounds
+	 */
+	public double getBoundsWidth() {
+		return getWidth() + MARGIN * 2;
+	}
+
+	/**
+	 * Gets the height of the area the HudElement draws in.
+	 * @return the height of the HudElement's bounds
+	 */
+	public double getBoundsHeight() {
+		return getHeight() + MARGIN * 2;
+	}
+
+	/**
+	 * Returns whether the HudElement would look different if it were drawn
+	 * now, compared to the last time it was drawn.
+	 * @return whether the HudElement needs to be redrawn
+	 */
+	public boolean needsRedraw() {
+
+		return !drawn || isVisible() != drawnVisible || getX() != drawnX ||
+				getY() != drawnY || (isVisible() && getValueKey() != drawnValueKey);
+
+	}
+
+	@Override
+	public void draw(DisplayList list) {
+
+		if (isVisible()) {
+
+			renderLayers();
+
+			background.draw(list, getBoundsX(), getBoundsY());
+			drawValue(list);
+
+			if (foreground != null) {
+				foreground.draw(list, getBoundsX(), getBoundsY());
+			}
+
+			drawnValueKey = getValueKey();
+
+		}
+
+		drawn = true;
+		drawnVisible = isVisible();
+		drawnX = getX();
+		drawnY = getY();
+
+	}
+
+	/**
+	 * Renders the background and foreground into images, unless they are
+	 * already rendered for the HudElement's current size and layers key.
+	 */
+	private void renderLayers() {
+
+		if (layersRendered && getLayersKey() == layersKey &&
+				getWidth() == layersWidth && getHeight() == layersHeight) {
+			return;
+		}
+
+		DisplayList layer = new DisplayList();
+		drawBackground(layer);
+		background = LayerImage.render(layer, getBoundsX(), getBoundsY(),
+				getBoundsWidth(), getBoundsHeight());
+
+		layer.clear();
+		drawForeground(layer);
+		foreground = layer.isEmpty() ? null : LayerImage.render(layer,
+				getBoundsX(), getBoundsY(), getBoundsWidth(), getBoundsHeight());
+
+		layersRendered = true;
+		layersKey = getLayersKey();
+		layersWidth = getWidth();
+		layersHeight = getHeight();
+
+	}
+
+}
@@ -0,0 +1,88 @@
+package ui;
+
+/**
+ * Decides when the interface's indicators should next sample the Rocket and
+ * be redrawn. Nobody can read a fuel level or a velocity changing every
+ * frame, so the indicators refresh at their own, lower rate, and the frame
+ * time saved goes to the World instead.
+ *
+ * Refreshes are scheduled on a fixed grid of times, so the refresh rate
+ * stays steady even when frames arrive at uneven intervals.
+ */
+public class HudScheduler {
+
+	private long refreshInterval; // nanoseconds
+	private long nextRefresh;
+	private boolean started = false;
+
+	/**
+	 * Creates a HudScheduler which refreshes the given number of times per
+	 * second.
+	 * @param refreshRate the number of refreshes per second
+	 */
+	public HudScheduler(double refreshRate) {
+
+		setRefreshRate(refreshRate);
+
+	}
+
+	/**
+	 * Gets the number of times per second the indicators are refreshed.
+	 * @return the refresh rate
+	 */
+	public double getRefreshRate() {
+		return 1_000_000_000.0 / refreshInterval;
+	}
+
+	/**
+	 * Sets the number of times per second the indicators are refreshed.
+	 * @param refreshRate the new refresh rate
+	 */
+	public void setRefreshRate(double refreshRate) {
+
+		if (refreshRate <= 0) {
+			throw new IllegalArgumentException("Refresh rate must be positive");
+		}
+
+		this.refreshInterval = Math.max(1, Math.round(1_000_000_000.0 / refreshRate));
+
+	}
+
+	/**
+	 * Returns whether the indicators should be refreshed at the given time,
+	 * and if so, schedules the next refresh.
+	 * @param now the current time, in nanoseconds
+	 * @return whether a refresh is due
+	 */
+	public boolean poll(long now) {
+
+		if (started && now < nextRefresh) {
+			return false;
+		}
+
+		// Stay on the grid unless a whole interval was missed, such as after
+		// the frame loop was stopped
+		if (started && now - nextRefresh < refreshInterval) {
+			nextRefresh += refreshInterval;
+		} else {
+			nextRefresh = now + refreshInterval;
+		}
+
+		started = true;
+		return true;
+
+	}
+
+	/**
+	 * Records that the indicators were refreshed outside of the schedule,
+	 * so the next refresh is a whole interval away.
+	 * @param now the current time, in nanoseconds
+	 */
+	public void markRefreshed(long now) {
+
+		nextRefresh = now + refreshInterval;
+		started = true;
+
+	}
+
+}
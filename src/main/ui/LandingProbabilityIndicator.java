@@ -0,0 +1,159 @@
+package ui;
+
+import render.DisplayList;
+import javafx.scene.paint.Color;
+import render.CharFormatter;
+import render.GlyphAtlas;
+import render.RenderResources;
+
+/**
+ * An element that shows the user how likely the Rocket is to land safely if
+ * they start flying carefully now, as a percentage and a bar. The
+ * probability is estimated elsewhere and given to the element, which shows
+ * a dash until the first estimate arrives.
+ */
+public class LandingProbabilityIndicator extends HudElement {
+
+	private double probability = Double.NaN;
+
+	private double barHeight = 8;
+	private Color baseColor = Color.LIGHTGRAY;
+	private Color likelyColor = RenderResources.getDarker(Color.LIGHTGREEN);
+	private Color unlikelyColor = Color.SALMON;
+
+	private GlyphAtlas probabilityGlyphs;
+	private char [] probabilityText = new char[24];
+
+	/**
+	 * Creates a LandingProbabilityIndicator with the given x and y offsets
+	 * and dimensions.
+	 * @param xOffset the LandingProbabilityIndicator's x offset
+	 * @param yOffset the LandingProbabilityIndicator's y offset
+	 * @param width the LandingProbabilityIndicator's width
+	 * @param height the LandingProbabilityIndicator's height
+	 */
+	public LandingProbabilityIndicator(double xOffset, double yOffset,
+			double width, double height) {
+
+		super(xOffset, yOffset, width, height);
+
+	}
+
+	/**
+	 * Gets the probability of a safe landing the LandingProbabilityIndicator
+	 * shows.
+	 * @return the probability, or NaN if there is no estimate yet
+	 */
+	public double getProbability() {
+		return probability;
+	}
+
+	/**
+	 * Sets the probability of a safe landing the LandingProbabilityIndicator
+	 * shows.
+	 * @param probability the new probability, from 0 to 1, or NaN if there
+	 * is no estimate yet
+	 */
+	public void setProbability(double probability) {
+		this.probability = probability;
+	}
+
+	/**
+	 * Gets the shown probability as a whole percentage.
+	 * @return the percentage, or -1 if there is no estimate yet
+	 */
+	private long getPercentage() {
+
+		if (Double.isNaN(getProbability())) {
+			return -1;
+		}
+
+		return Math.round(Math.max(0, Math.min(1, getProbability())) * 100);
+
+	}
+
+	/**
+	 * Draws the percentage in the middle of the LandingProbabilityIndicator.
+	 * @param list the DisplayList used to draw the LandingProbabilityIndicator
+	 */
+	private void drawProbabilityText(DisplayList list) {
+
+		if (probabilityGlyphs == null) {
+
+			probabilityGlyphs = RenderResources.getGlyphAtlas(
+					RenderResources.getFont(20), Color.BLACK);
+
+		}
+
+		long percentage = getPercentage();
+		int length;
+
+		if (percentage < 0) {
+			length = CharFormatter.append("--", probabilityText, 0);
+		} else {
+			length = CharFormatter.append(percentage, probabilityText, 0);
+			length = CharFormatter.append('%', probabilityText, length);
+		}
+
+		probabilityGlyphs.drawText(list, probabilityText, length,
+				getX(), getY() + (getHeight() - barHeight) / 2);
+
+	}
+
+	/**
+	 * Draws a bar along the bottom of the LandingProbabilityIndicator, as
+	 * long as the probability is high, in green when a landing is likely
+	 * and red when it isn't.
+	 * @param list the DisplayList used to draw the LandingProbabilityIndicator
+	 */
+	private void drawProbabilityBar(DisplayList list) {
+
+		long percentage = getPercentage();
+
+		if (percentage <= 0) {
+			return;
+		}
+
+		double margin = 4;
+		double barWidth = (getWidth() - margin * 2) * percentage / 100;
+
+		list.setFill(percentage >= 50 ? likelyColor : unlikelyColor);
+		list.fillRoundRect(getX() - getWidth() / 2 + margin,
+				getY() + getHeight() - barHeight - margin, barWidth, barHeight, 4, 4);
+
+	}
+
+	@Override
+	protected void drawBackground(DisplayList list) {
+
+		list.setFill(Color.WHITE);
+		list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		list.setStroke(Color.BLACK);
+		list.setLineWidth(3);
+		list.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+
+		// The empty bar
+		double margin = 4;
+		list.setFill(baseColor);
+		list.fillRoundRect(getX() - getWidth() / 2 + margin,
+				getY() + getHeight() - barHeight - margin, getWidth() - margin * 2, barHeight, 4, 4);
+
+	}
+
+	@Override
+	protected void drawValue(DisplayList list) {
+
+		drawProbabilityBar(list);
+		drawProbabilityText(list);
+
+	}
+
+	@Override
+	protected long getValueKey() {
+		return getPercentage();
+	}
+
+	@Override
+	public void tick(double timeElapsed) {}
+
+}
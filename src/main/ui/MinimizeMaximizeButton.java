@@ -1,5 +1,5 @@
 package ui;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 
 /**
@@ -17,6 +17,10 @@ public class MinimizeMaximizeButton extends CustomButton {
 	
 	private Color symbolColor = Color.RED;
 	
+	// Reusable point buffers for drawing the triangle symbol
+	private final double [] triangleXPoints = new double[3];
+	private final double [] triangleYPoints = new double[3];
+	
 	/**
 	 * Creates a MinimizeMaximizeButton with the given x and y offsets and
 	 * dimensions.
@@ -105,65 +109,56 @@ public class MinimizeMaximizeButton extends CustomButton {
 	/**
 	 * Draws a triangle symbol to represent whether the button's maximized
 	 * state will be set to true or false on the next click.
-	 * @param gc the GraphicsContext used to draw the MinimizeMaximizeButton
+	 * @param list the DisplayList used to draw the MinimizeMaximizeButton
 	 * @param pointedLeft true if the triangle should point left, false if it
 	 * should point right
 	 */
-	public void drawTriangle(GraphicsContext gc, boolean pointedLeft) {
+	public void drawTriangle(DisplayList list, boolean pointedLeft) {
 
-		double [] triangleXPoints;
+		// The triangle's tip is on the left when pointed left
+		double baseX = pointedLeft ? getX() + getSymbolWidth() / 2 : 
+				getX() - getSymbolWidth() / 2;
+		double tipX = pointedLeft ? getX() - getSymbolWidth() / 2 : 
+				getX() + getSymbolWidth() / 2;
 		
-		if (pointedLeft) {
-			
-			triangleXPoints = new double[] {
-
-				getX() + getSymbolWidth() / 2, getX() + getSymbolWidth() / 2, 
-				getX() - getSymbolWidth() / 2
-
-			};
-			
-		} else {
-			
-			triangleXPoints = new double[] {
-
-					getX() - getSymbolWidth() / 2, getX() - getSymbolWidth() / 2, 
-					getX() + getSymbolWidth() / 2
-
-			};
-			
-		}
+		triangleXPoints[0] = baseX;
+		triangleXPoints[1] = baseX;
+		triangleXPoints[2] = tipX;
 		
-		double[] triangleYPoints = new double[] {
-
-				getCenterY() + getSymbolHeight() / 2, getCenterY() - getSymbolHeight() / 2, getCenterY()
+		triangleYPoints[0] = getCenterY() + getSymbolHeight() / 2;
+		triangleYPoints[1] = getCenterY() - getSymbolHeight() / 2;
+		triangleYPoints[2] = getCenterY();
 
-		};
-
-		gc.setFill(getSymbolColor());
-		gc.fillPolygon(triangleXPoints, triangleYPoints, 3);
+		list.setFill(getSymbolColor());
+		list.fillPolygon(triangleXPoints, triangleYPoints, 3);
 
 	}
 	
 	@Override
-	public void draw(GraphicsContext gc) {
+	public void draw(DisplayList list) {
 		
-		gc.setFill(getBaseColor());
-		gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
-		gc.setStroke(getStrokeColor());
-		gc.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		list.setFill(getBaseColor());
+		list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		list.setStroke(getStrokeColor());
+		list.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
 		
 		if (isMaximized()) {
 			
-			drawTriangle(gc, true);
+			drawTriangle(list, true);
 			
 		} else {
 			
-			drawTriangle(gc, false);
+			drawTriangle(list, false);
 			
 		}
 
 	}
 
+	@Override
+	long getRenderKey() {
+		return isMaximized() ? 1 : 0;
+	}
+
 	@Override
 	void onClick() {
 		
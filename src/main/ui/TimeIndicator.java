@@ -1,18 +1,17 @@
 package ui;
 
-import javafx.geometry.VPos;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.ArcType;
-import javafx.scene.text.Font;
-import javafx.scene.text.TextAlignment;
-import util.Entity;
+import render.CharFormatter;
+import render.GlyphAtlas;
+import render.RenderResources;
 
 /**
  * A clock element that shows the user how much time has passed since the start
  * of the simulation.
  */
-public class TimeIndicator extends Entity {
+public class TimeIndicator extends HudElement {
 	
 	private boolean forcePaused = false;
 	private boolean paused = false;
@@ -25,6 +24,9 @@ public class TimeIndicator extends Entity {
 	private double timeLabelWidth = 30; 
 	private double timeLabelHeight = 15;
 	
+	private GlyphAtlas timeLabelGlyphs;
+	private char [] timeLabelText = new char[24];
+	
 	/**
 	 * Creates a TimeIndicator with the given x and y offsets and dimensions.
 	 * @param xOffset the TimeIndicator's x offset
@@ -187,47 +189,75 @@ public class TimeIndicator extends Entity {
 		this.timeLabelHeight = timeLabelHeight;
 	}
 
+	/**
+	 * Writes the text shown in the time label into the time label's buffer.
+	 * @return the length of the time label text
+	 */
+	private int formatTimeLabelText() {
+		
+		int length = CharFormatter.append("T=", timeLabelText, 0);
+		return CharFormatter.append(Math.round(getInternalTime()), 
+				timeLabelText, length);
+		
+	}
+
 	/**
 	 * Draws a clock hand from the center of the TimeIndicator extending 
 	 * to the radius defined by clockRadius. the x and y coordinates of the end
 	 * of the clock hand are determined by the cosine and sine values of the
 	 * clock hand's angle, which is incremented in the 'tick' method of the
 	 * TimeIndicator.
-	 * @param gc the GraphicsContext to draw the clock hand on
+	 * @param list the DisplayList to draw the clock hand on
 	 */
-	private void drawClockHand(GraphicsContext gc) {
+	private void drawClockHand(DisplayList list) {
 		
 		double x1 = getX();
 		//double y1 = getY() + getHeight() / 2 - getTimeLabelHeight();
 		double y1 = getY() + (getHeight() - getTimeLabelHeight()) / 2;
-		double x2 = getX() + Math.cos(Math.toRadians(getClockHandAngle())) 
-				* getClockRadius();
+		double x2 = getX() + getClockHandX();
 		
-		double y2 = (y1) + 
-				Math.sin(Math.toRadians(getClockHandAngle())) 
-				* getClockRadius();
+		double y2 = (y1) + getClockHandY();
 		
-		gc.setStroke(Color.BLACK);
-		gc.strokeLine(x1, y1, x2, y2);
+		list.setLineWidth(3);
+		list.setStroke(Color.BLACK);
+		list.strokeLine(x1, y1, x2, y2);
 		
 	}
+
+	/**
+	 * Gets the horizontal distance from the center of the clock face to the
+	 * end of the clock hand.
+	 * @return the x offset of the end of the clock hand
+	 */
+	private double getClockHandX() {
+		return Math.cos(Math.toRadians(getClockHandAngle())) * getClockRadius();
+	}
+
+	/**
+	 * Gets the vertical distance from the center of the clock face to the
+	 * end of the clock hand.
+	 * @return the y offset of the end of the clock hand
+	 */
+	private double getClockHandY() {
+		return Math.sin(Math.toRadians(getClockHandAngle())) * getClockRadius();
+	}
 	
 	/**
 	 * Draws the circle representing the clock face.
-	 * @param gc The GraphicsContext used to draw the TimeIndicator
+	 * @param list The DisplayList used to draw the TimeIndicator
 	 */
-	private void drawClockFace(GraphicsContext gc) {
+	private void drawClockFace(DisplayList list) {
 		
 		double x1 = getX();
 		double y1 = getY() + (getHeight() - getTimeLabelHeight()) / 2;
 		
-		gc.setFill(Color.WHITE);
-		gc.fillArc(x1 - getClockRadius(), y1 - getClockRadius(), 
+		list.setFill(Color.WHITE);
+		list.fillArc(x1 - getClockRadius(), y1 - getClockRadius(), 
 				getClockRadius() * 2, getClockRadius() * 2, 
 				0, 360, ArcType.CHORD);
 		
-		gc.setStroke(Color.BLACK);
-		gc.strokeArc(x1 - getClockRadius(), y1 - getClockRadius(), 
+		list.setStroke(Color.BLACK);
+		list.strokeArc(x1 - getClockRadius(), y1 - getClockRadius(), 
 				getClockRadius() * 2, getClockRadius() * 2, 
 				0, 360, ArcType.CHORD);
 		
@@ -235,69 +265,95 @@ public class TimeIndicator extends Entity {
 	
 	/**
 	 * Draws a circle representing the clock's central knob.
-	 * @param gc the GraphicsContext used to draw the TimeIndicator
+	 * @param list the DisplayList used to draw the TimeIndicator
 	 */
-	private void drawKnob(GraphicsContext gc) {
+	private void drawKnob(DisplayList list) {
 		
 		double x1 = getX();
 		double y1 = getY() + (getHeight() - getTimeLabelHeight()) / 2;
 		
-		gc.setFill(Color.RED);
-		gc.fillArc(x1 - getKnobRadius(), y1 - getKnobRadius(), 
+		list.setFill(Color.RED);
+		list.fillArc(x1 - getKnobRadius(), y1 - getKnobRadius(), 
 				getKnobRadius() * 2, getKnobRadius() * 2, 
 				0, 360, ArcType.CHORD);
 		
 	}
 	
 	/**
-	 * Draws a textual representation of the time elapsed with a rectangle
-	 * behind it.
-	 * @param gc the GraphicsContext used to draw the TimeIndicator
+	 * Draws the rectangle behind the time label text.
+	 * @param list the DisplayList used to draw the TimeIndicator
 	 */
-	private void drawTimeLabel(GraphicsContext gc) {
+	private void drawTimeLabelBox(DisplayList list) {
 		
-		gc.setFill(Color.WHITE);
+		list.setFill(Color.WHITE);
 		
-		gc.fillRoundRect(getX() - getWidth() / 2, 
+		list.fillRoundRect(getX() - getWidth() / 2, 
 				getY() + getHeight() - getTimeLabelHeight(), 
 				getWidth(), getTimeLabelHeight(), 10, 10);
 		
-		gc.setStroke(Color.BLACK);
-		gc.strokeRoundRect(getX() - getWidth() / 2, 
+		list.setStroke(Color.BLACK);
+		list.strokeRoundRect(getX() - getWidth() / 2, 
 				getY() + getHeight() - getTimeLabelHeight(), 
 				getWidth(), getTimeLabelHeight(), 10, 10);
+
+	}
+
+	/**
+	 * Draws a textual representation of the time elapsed.
+	 * @param list the DisplayList used to draw the TimeIndicator
+	 */
+	private void drawTimeLabel(DisplayList list) {
 		
-		gc.setFill(Color.BLACK);
-		
-		gc.setTextAlign(TextAlignment.CENTER);
-		
-		gc.setFont(new Font(20));
-		
-		gc.setTextBaseline(VPos.CENTER);
+		if (timeLabelGlyphs == null) {
+			
+			timeLabelGlyphs = RenderResources.getGlyphAtlas(
+					RenderResources.getFont(20), Color.BLACK);
+			
+		}
 		
-		gc.fillText("T=" + (Math.round(getInternalTime())), getX(), 
-				getY() + getHeight() - getTimeLabelHeight() / 2 - 1);
+		timeLabelGlyphs.drawText(list, timeLabelText, formatTimeLabelText(), 
+				getX(), getY() + getHeight() - getTimeLabelHeight() / 2 - 1);
 
 	}
 	
 	@Override
-	public void draw(GraphicsContext gc) {
+	protected void drawBackground(DisplayList list) {
 		
-		if (isVisible()) {
-			
-			// Draw base of the UI element
-			gc.setLineWidth(3);
-			gc.setFill(Color.LIGHTGRAY);
-			gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
-			gc.setStroke(Color.BLACK);
-			gc.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
-
-			drawClockFace(gc);
-			drawClockHand(gc);
-			drawKnob(gc);
-			drawTimeLabel(gc);
-			
-		}
+		// Draw base of the UI element
+		list.setLineWidth(3);
+		list.setFill(Color.LIGHTGRAY);
+		list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		list.setStroke(Color.BLACK);
+		list.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+
+		drawClockFace(list);
+		drawTimeLabelBox(list);
+
+	}
+
+	@Override
+	protected void drawValue(DisplayList list) {
+
+		drawClockHand(list);
+		drawTimeLabel(list);
+
+	}
+
+	@Override
+	protected void drawForeground(DisplayList list) {
+
+		drawKnob(list);
+
+	}
+
+	@Override
+	protected long getValueKey() {
+
+		// The end of the clock hand to the nearest pixel, and the shown time
+		long handX = Math.round(getClockHandX()) + 512;
+		long handY = Math.round(getClockHandY()) + 512;
+
+		return (Math.round(getInternalTime()) << 20) | (handX << 10) | handY;
 
 	}
 	
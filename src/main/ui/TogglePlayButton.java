@@ -1,5 +1,5 @@
 package ui;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 
 /**
@@ -17,6 +17,10 @@ public class TogglePlayButton extends CustomButton {
 	private double symbolWidth;
 	private double symbolHeight;
 	
+	// Reusable point buffers for drawing the 'play' symbol
+	private final double [] triangleXPoints = new double[3];
+	private final double [] triangleYPoints = new double[3];
+	
 	/**
 	 * Creates a TogglePlayButton with the given x and y offsets and 
 	 * dimensions.
@@ -123,66 +127,58 @@ public class TogglePlayButton extends CustomButton {
 
 	/**
 	 * Draws the 'play' symbol within the bounds of the TogglePlayButton.
-	 * @param gc the GraphicsContext used to draw the TogglePlayButton
+	 * @param list the DisplayList used to draw the TogglePlayButton
 	 */
-	private void drawPlaySymbol(GraphicsContext gc) {
+	private void drawPlaySymbol(DisplayList list) {
 		
-		double [] triangleXPoints = new double[] {
-				
-				getX() - getSymbolWidth() / 2,
-				getX() - getSymbolWidth() / 2,
-				getX() + getSymbolWidth() / 2
-				
-		};
-
-		double[] triangleYPoints = new double[] {
+		triangleXPoints[0] = getX() - getSymbolWidth() / 2;
+		triangleXPoints[1] = getX() - getSymbolWidth() / 2;
+		triangleXPoints[2] = getX() + getSymbolWidth() / 2;
 
-				getCenterY() + getSymbolHeight() / 2,
-				getCenterY() - getSymbolHeight() / 2,
-				getCenterY() 
-				
-		};
+		triangleYPoints[0] = getCenterY() + getSymbolHeight() / 2;
+		triangleYPoints[1] = getCenterY() - getSymbolHeight() / 2;
+		triangleYPoints[2] = getCenterY();
 		
-		gc.setFill(getPlayButtonColor());
-		gc.fillPolygon(triangleXPoints, triangleYPoints, 3);
+		list.setFill(getPlayButtonColor());
+		list.fillPolygon(triangleXPoints, triangleYPoints, 3);
 		
 	}
 	
 	/**
 	 * Draws the 'pause' symbol within the bounds of the TogglePlayButton.
-	 * @param gc the GraphicsContext used to draw the TogglePlayButton
+	 * @param list the DisplayList used to draw the TogglePlayButton
 	 */
-	private void drawPauseSymbol(GraphicsContext gc) {
+	private void drawPauseSymbol(DisplayList list) {
 		
-		gc.setFill(getPauseButtonColor());
+		list.setFill(getPauseButtonColor());
 		
 		double pauseBarWidth = getSymbolWidth() / 3;
-		gc.fillRect(getX() - getSymbolWidth() / 2, getCenterY() - getSymbolHeight() / 2, 
+		list.fillRect(getX() - getSymbolWidth() / 2, getCenterY() - getSymbolHeight() / 2, 
 				pauseBarWidth, getSymbolHeight());
 		
-		gc.fillRect(getX() + getSymbolWidth() / 2 - pauseBarWidth, getCenterY() - getSymbolHeight() / 2, 
+		list.fillRect(getX() + getSymbolWidth() / 2 - pauseBarWidth, getCenterY() - getSymbolHeight() / 2, 
 				pauseBarWidth, getSymbolHeight());
 		
 		
 	}
 
 	@Override
-	public void draw(GraphicsContext gc) {
+	public void draw(DisplayList list) {
 		
 		if (isVisible()) {
 
-			gc.setFill(getBaseColor());
-			gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
-			gc.setStroke(getStrokeColor());
-			gc.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+			list.setFill(getBaseColor());
+			list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+			list.setStroke(getStrokeColor());
+			list.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
 
 			if (getState().equals("PLAY")) {
 
-				drawPlaySymbol(gc);
+				drawPlaySymbol(list);
 
 			} else if (getState().equals("PAUSE")) {
 
-				drawPauseSymbol(gc);
+				drawPauseSymbol(list);
 
 			}
 			
@@ -190,6 +186,19 @@ public class TogglePlayButton extends CustomButton {
 		
 	}
 
+	@Override
+	long getRenderKey() {
+
+		if (getState().equals("PLAY")) {
+			return 1;
+		} else if (getState().equals("PAUSE")) {
+			return 2;
+		}
+
+		return 0;
+
+	}
+
 	@Override
 	void onClick() {
 		
@@ -1,7 +1,8 @@
 package ui;
 import java.util.ArrayList;
 
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
+import render.LayerImage;
 import javafx.scene.paint.Color;
 import util.Entity;
 import rocket.Rocket;
@@ -31,15 +32,27 @@ public class UserInterface extends Entity {
 
 	private HorizontalVelocityIndicator horizontalVelocityIndicator;
 
+	private LandingProbabilityIndicator landingProbabilityIndicator;
+
+	// Whether the LandingProbabilityIndicator is shown while maximized
+	private boolean landingProbabilityShown = false;
+
 	private MinimizeMaximizeButton minimizeMaximizeButton;
 
 	ArrayList<CustomButton> buttons = new ArrayList<CustomButton>();
-	ArrayList<Entity> interfaceElements = new ArrayList<Entity>();
+	ArrayList<HudElement> interfaceElements = new ArrayList<HudElement>();
 	
 	private double transitionSpeed = 2;
 
 	private double elementVerticalSpacing = 15;
 
+	// The layout the UserInterface was last fully drawn with
+	private boolean layoutDrawn = false;
+	private long drawnLayoutKey;
+
+	// The panel behind the elements, copied when only an element is redrawn
+	private LayerImage panelLayer;
+
 
 	/**
 	 * Creates a UserInterface with the given center x and y coordinates and
@@ -62,15 +75,9 @@ public class UserInterface extends Entity {
 		setHeight(height);
 		
 		createElements(rocket, rocketInitialHeight);
-
-		Entity bottomElement = getInterfaceElements().get(
-			getInterfaceElements().size() - 1);
-		double bottomElementBottomY = bottomElement.getyOffset() + bottomElement.getHeight();
-			
-		double togglePlayButtonTopY = bottomElementBottomY + 
-			getElementVerticalSpacing();
 		
-		createButtons(togglePlayButtonTopY);
+		createButtons(getTogglePlayButtonTopY());
+		alignButtons();
 		
 	}
 
@@ -92,13 +99,65 @@ public class UserInterface extends Entity {
 		setVerticalVelocityIndicator(new VerticalVelocityIndicator(maxWidth / 4, 70, 50, rocket));
 		setHorizontalVelocityIndicator(new HorizontalVelocityIndicator(maxWidth / 4, 70, 50, rocket));
 
+		setLandingProbabilityIndicator(new LandingProbabilityIndicator(maxWidth / 4, 0, 70, 40));
+
 		interfaceElements.add(getAltitudeIndicator());
 		interfaceElements.add(getFuelIndicator());
 		interfaceElements.add(getTimeIndicator());
 		interfaceElements.add(getHorizontalVelocityIndicator());
 		interfaceElements.add(getVerticalVelocityIndicator());
+		interfaceElements.add(getLandingProbabilityIndicator());
+
+		// The elements follow the UserInterface wherever it moves
+		for (int i = 0; i < interfaceElements.size(); i++) {
+			interfaceElements.get(i).setParent(this);
+		}
+
+		setUniformYOffsets(getLaidOutElements());
+
+	}
+
+	/**
+	 * Gets the elements that take up room in the sidebar. A hidden 
+	 * LandingProbabilityIndicator leaves no gap.
+	 * @return the elements to lay out, from top to bottom
+	 */
+	private ArrayList<HudElement> getLaidOutElements() {
+
+		ArrayList<HudElement> elements = new ArrayList<HudElement>(getInterfaceElements());
+
+		if (!isLandingProbabilityShown()) {
+			elements.remove(getLandingProbabilityIndicator());
+		}
+
+		return elements;
+
+	}
+
+	/**
+	 * Gets the top y-coordinate of the TogglePlayButton, which sits below 
+	 * the bottom element.
+	 * @return the TogglePlayButton's y offset
+	 */
+	private double getTogglePlayButtonTopY() {
+
+		ArrayList<HudElement> elements = getLaidOutElements();
+		HudElement bottomElement = elements.get(elements.size() - 1);
+		double bottomElementBottomY = bottomElement.getyOffset() + bottomElement.getHeight();
+			
+		return bottomElementBottomY + getElementVerticalSpacing();
+
+	}
 
-		setUniformYOffsets(getInterfaceElements());
+	/**
+	 * Spaces out the elements again and moves the TogglePlayButton below 
+	 * them, after an element was shown or hidden.
+	 */
+	private void layOutElements() {
+
+		setUniformYOffsets(getLaidOutElements());
+		getTogglePlayButton().setyOffset(getTogglePlayButtonTopY());
+		alignButtons();
 
 	}
 
@@ -127,9 +186,9 @@ public class UserInterface extends Entity {
 	 * to the <code>elementVerticalSpacing</code> variable.
 	 * @param elements the elements to space out vertically
 	 */
-	private void setUniformYOffsets(ArrayList<Entity> elements) {
+	private void setUniformYOffsets(ArrayList<HudElement> elements) {
 
-		Entity aboveEntity = elements.get(0);
+		HudElement aboveEntity = elements.get(0);
 
 		for (int i = 1; i < elements.size(); i++) {
 
@@ -165,9 +224,27 @@ public class UserInterface extends Entity {
 		getTimeIndicator().setInternalTime(0);
 		getTimeIndicator().setPaused(false);
 		getTimeIndicator().setForcePaused(false);
+		getLandingProbabilityIndicator().setProbability(Double.NaN);
 
 	}
 	
+	/**
+	 * Returns whether the UserInterface is still sliding between its 
+	 * minimized and maximized widths.
+	 * @return whether the UserInterface is transitioning
+	 */
+	public boolean isTransitioning() {
+
+		// The width only approaches the maximized width, so stop counting it
+		// as a transition once it is within half a pixel
+		if (isMaximized()) {
+			return getMaxWidth() - getWidth() > 0.5;
+		}
+
+		return getWidth() > getMinWidth();
+
+	}
+
 	/**
 	 * Gets the width of the UserInterface when it is minimized.
 	 * @return the minimized width
@@ -333,6 +410,50 @@ public class UserInterface extends Entity {
 		this.horizontalVelocityIndicator = horizontalVelocityIndicator;
 	}
 
+	/**
+	 * Gets the UserInterface's LandingProbabilityIndicator.
+	 * @return the UserInterface's LandingProbabilityIndicator
+	 */
+	public LandingProbabilityIndicator getLandingProbabilityIndicator() {
+		return this.landingProbabilityIndicator;
+	}
+
+	/**
+	 * Sets the UserInterface's LandingProbabilityIndicator.
+	 * @param landingProbabilityIndicator the UserInterface's new 
+	 * LandingProbabilityIndicator
+	 */
+	public void setLandingProbabilityIndicator(LandingProbabilityIndicator landingProbabilityIndicator) {
+		this.landingProbabilityIndicator = landingProbabilityIndicator;
+	}
+
+	/**
+	 * Returns whether the LandingProbabilityIndicator is shown while the
+	 * UserInterface is maximized. It is only useful while the user flies.
+	 * @return whether the landing probability is shown
+	 */
+	public boolean isLandingProbabilityShown() {
+		return landingProbabilityShown;
+	}
+
+	/**
+	 * Sets whether the LandingProbabilityIndicator is shown while the
+	 * UserInterface is maximized. The elements below it and the 
+	 * TogglePlayButton move to make room for it, or to close the gap.
+	 * @param landingProbabilityShown whether the landing probability should
+	 * be shown
+	 */
+	public void setLandingProbabilityShown(boolean landingProbabilityShown) {
+
+		if (this.landingProbabilityShown != landingProbabilityShown) {
+
+			this.landingProbabilityShown = landingProbabilityShown;
+			layOutElements();
+
+		}
+
+	}
+
 	/**
 	 * Gets all the CustomButtons associated with the UserInterface.
 	 * @return the UserInterface's buttons
@@ -353,7 +474,7 @@ public class UserInterface extends Entity {
 	 * Gets the list of all the UserInterface elements.
 	 * @return the interface elements
 	 */
-	public ArrayList<Entity> getInterfaceElements() {
+	public ArrayList<HudElement> getInterfaceElements() {
 		return interfaceElements;
 	}
 
@@ -361,7 +482,7 @@ public class UserInterface extends Entity {
 	 * Sets the list of all the UserInterface elements.
 	 * @param interfaceElements the interface elements
 	 */
-	public void setInterfaceElements(ArrayList<Entity> interfaceElements) {
+	public void setInterfaceElements(ArrayList<HudElement> interfaceElements) {
 		this.interfaceElements = interfaceElements;
 	}
 
@@ -403,6 +524,8 @@ public class UserInterface extends Entity {
 	@Override
 	public void tick(double timeElapsed) {
 
+		double previousWidth = getWidth();
+
 		// Derive the UI's maximized state from the minimize/maximize button
 		if (isMaximized() != getMinimizeMaximizeButton().isMaximized()) {
 			setMaximized(getMinimizeMaximizeButton().isMaximized());
@@ -418,6 +541,12 @@ public class UserInterface extends Entity {
 			double widthDiff = getMaxWidth() - getWidth();
 			setWidth(getWidth() + widthDiff / getTransitionSpeed());
 
+			// The width only approaches the maximized width, so snap to it
+			// once the difference can't be seen
+			if (getMaxWidth() - getWidth() <= 0.5) {
+				setWidth(getMaxWidth());
+			}
+
 		} else if (!isMaximized() && getWidth() > getMinWidth()) {
 
 			/*
@@ -428,6 +557,10 @@ public class UserInterface extends Entity {
 			double widthDiff = getWidth() - getMinWidth();
 			setWidth(widthDiff / (1 + 1 / getTransitionSpeed()));
 
+			if (getWidth() - getMinWidth() <= 0.5) {
+				setWidth(getMinWidth());
+			}
+
 		}
 
 		/*
@@ -436,7 +569,9 @@ public class UserInterface extends Entity {
 		*/
 		getMinimizeMaximizeButton().setxOffset((getWidth() + getMinimizeMaximizeButton().getWidth()) / 2);
 
-		for (CustomButton button : getButtons()) {
+		for (int i = 0; i < getButtons().size(); i++) {
+
+			CustomButton button = getButtons().get(i);
 
 			if (button.getClass() != MinimizeMaximizeButton.class) {
 
@@ -447,55 +582,207 @@ public class UserInterface extends Entity {
 			
 		}
 
+		// The buttons' offsets only change with the width
+		if (getWidth() != previousWidth) {
+			alignButtons();
+		}
+
 		// Derive the TimeIndicator's paused state from the TogglePlayButton's state
 		boolean timeIndicatorShouldPause = !getTogglePlayButton().getState().equals("PAUSE");
 		getTimeIndicator().setPaused(timeIndicatorShouldPause);
 
-		for (Entity element : getInterfaceElements()) {
+		for (int i = 0; i < getInterfaceElements().size(); i++) {
 			
+			HudElement element = getInterfaceElements().get(i);
+			element.setxOffset(getWidth() / 4);
 			element.tick(timeElapsed);
-			element.setVisible(isMaximized());
+			element.setVisible(isMaximized() && 
+				(element != getLandingProbabilityIndicator() || isLandingProbabilityShown()));
 			
 		}
 		
 	}
 	
-	@Override
-	public void draw(GraphicsContext gc) {
+	/**
+	 * Returns whether the UserInterface's layout changed since it was last
+	 * fully drawn, so everything has to be drawn again. Otherwise, only the
+	 * elements whose values changed have to be redrawn.
+	 * @return whether the whole UserInterface needs to be redrawn
+	 */
+	public boolean needsFullRepaint() {
+		return !layoutDrawn || getLayoutKey() != drawnLayoutKey;
+	}
+
+	/**
+	 * Gets a key for the UserInterface's layout: its position and size, and
+	 * the position and look of its buttons.
+	 * @return the layout key
+	 */
+	private long getLayoutKey() {
+
+		long key = Double.hashCode(getX());
+		key = key * 31 + Double.hashCode(getY());
+		key = key * 31 + Double.hashCode(getWidth());
+		key = key * 31 + Double.hashCode(getHeight());
+		key = key * 31 + (isVisible() ? 1 : 0);
+
+		for (int i = 0; i < getButtons().size(); i++) {
+
+			CustomButton button = getButtons().get(i);
+			key = key * 31 + (button.isDisabled() ? 1 : 0);
+			key = key * 31 + Double.hashCode(button.getxOffset());
+			key = key * 31 + Double.hashCode(button.getyOffset());
+			key = key * 31 + button.getRenderKey();
+
+		}
+
+		return key;
+
+	}
+
+	/**
+	 * Lines the UserInterface up with the left edge of the Canvas. Its 
+	 * elements follow it, and its buttons are moved along if it moved.
+	 * @param list the DisplayList the UserInterface will be drawn on
+	 */
+	private void alignWithCanvas(DisplayList list) {
+
+		double canvasLeftX = -list.getTranslateX();
+		double canvasTopY = -list.getTranslateY();
 		
-		double canvasLeftX = -gc.getTransform().getTx();
-		double canvasTopY = -gc.getTransform().getTy();
+		if (canvasLeftX + getxOffset() != getX() || canvasTopY + getyOffset() != getY()) {
+			
+			alignWith(canvasLeftX, canvasTopY);
+			alignButtons();
+			
+		}
+
+	}
+
+	/**
+	 * Lines the UserInterface's buttons up with the UserInterface. Buttons
+	 * are JavaFX nodes rather than Entities, so they are moved by hand 
+	 * whenever the UserInterface or their offsets change.
+	 */
+	private void alignButtons() {
+
+		for (int i = 0; i < getButtons().size(); i++) {
+			
+			getButtons().get(i).alignWith(this);
+			
+		}
+
+	}
+
+	/**
+	 * Redraws only the elements that changed since they were last drawn. 
+	 * Each changed element's area is cleared and the panel behind it is 
+	 * copied back before the element is drawn again, so the rest of the 
+	 * Canvas is left as it is. Should only be used when 
+	 * <code>needsFullRepaint</code> returns false.
+	 * @param list the DisplayList used to draw the changes
+	 */
+	public void drawChanges(DisplayList list) {
+
+		alignWithCanvas(list);
+
+		for (int i = 0; i < getInterfaceElements().size(); i++) {
+			
+			HudElement element = getInterfaceElements().get(i);
+
+			if (element.needsRedraw()) {
+
+				double x = element.getBoundsX();
+				double y = element.getBoundsY();
+				double width = element.getBoundsWidth();
+				double height = element.getBoundsHeight();
+
+				list.clearRect(x, y, width, height);
+
+				if (isVisible()) {
+					getPanelLayer().drawRegion(list, x, y, width, height);
+				}
+
+				element.draw(list);
+
+			}
+			
+		}
+
+	}
+
+	/**
+	 * Gets the panel behind the elements as an image, rendering it again if
+	 * the UserInterface moved or changed size.
+	 * @return the rendered panel
+	 */
+	private LayerImage getPanelLayer() {
+
+		// Leave room for the panel's stroke
+		double margin = 2;
+		double x = getX() - getWidth() / 2 - margin;
+		double y = getY() - margin;
+		double width = getWidth() + margin * 2;
+		double height = getHeight() + margin * 2;
+
+		if (panelLayer == null || panelLayer.getX() != x || panelLayer.getY() != y ||
+				panelLayer.getWidth() != width || panelLayer.getHeight() != height) {
+
+			DisplayList panel = new DisplayList();
+			drawPanel(panel);
+			panelLayer = LayerImage.render(panel, x, y, width, height);
+
+		}
+
+		return panelLayer;
+
+	}
+
+	/**
+	 * Draws the panel behind the elements.
+	 * @param list the DisplayList used to draw the panel
+	 */
+	private void drawPanel(DisplayList list) {
+
+		list.setFill(Color.GRAY);
+		list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+		list.setStroke(Color.BLACK);
+		list.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+
+	}
+	
+	@Override
+	public void draw(DisplayList list) {
 		
-		alignWith(canvasLeftX, canvasTopY);
+		alignWithCanvas(list);
 		
 		if (isVisible()) {
 			
-			gc.setFill(Color.GRAY);
-			gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
-			gc.setStroke(Color.BLACK);
-			gc.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+			drawPanel(list);
 		
 		}
 
-		for (Entity element : getInterfaceElements()) {
+		for (int i = 0; i < getInterfaceElements().size(); i++) {
 			
-			element.alignWith(this);
-			element.setxOffset(getWidth() / 4);
-			element.draw(gc);
+			getInterfaceElements().get(i).draw(list);
 			
 		}
 
-		for (CustomButton button : getButtons()) {
+		for (int i = 0; i < getButtons().size(); i++) {
+			
+			CustomButton button = getButtons().get(i);
 			
 			if (!button.isDisabled()) {
 				
-				button.alignWith(this);
-				button.draw(gc);
+				button.draw(list);
 			
 			}
 			
 		}
+
+		layoutDrawn = true;
+		drawnLayoutKey = getLayoutKey();
 		
 	}
 	
-}
\ No newline at end of file
+}
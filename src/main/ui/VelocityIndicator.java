@@ -1,10 +1,10 @@
 package ui;
 
-import javafx.geometry.VPos;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.text.TextAlignment;
+import render.DisplayList;
 import javafx.scene.paint.Color;
-import util.Entity;
+import render.CharFormatter;
+import render.GlyphAtlas;
+import render.RenderResources;
 import rocket.Rocket;
 
 /**
@@ -13,10 +13,13 @@ import rocket.Rocket;
  * implement the way the arrow and velocity are displayed as those aspects are
  * specific to which velocity (horizontal/vertical) is being displayed.
  */
-public abstract class VelocityIndicator extends Entity {
+public abstract class VelocityIndicator extends HudElement {
 	
 	private Rocket rocket;
 	
+	private GlyphAtlas velocityGlyphs;
+	private char [] velocityText = new char[24];
+	
 	/**
 	 * Creates a VelocityIndicator with the given x and y offsets and 
 	 * dimensions and passes it a Rocket to track the velocity of.
@@ -54,63 +57,75 @@ public abstract class VelocityIndicator extends Entity {
 	/**
 	 * Draws a velocity arrow within the bounds of the VelocityIndicator
 	 * representing the direction of velocity.
-	 * @param gc the GraphicsContext used to draw the VelocityIndicator
+	 * @param list the DisplayList used to draw the VelocityIndicator
 	 */
-    protected abstract void drawVelocityArrow(GraphicsContext gc);
+    protected abstract void drawVelocityArrow(DisplayList list);
 
 	/**
-	 * Gets a String representing the Rocket's velocity.
-	 * @return the Rocket's velocity text
+	 * Gets the velocity value shown in the VelocityIndicator's text box.
+	 * @return the Rocket's displayed velocity
 	 */
-    protected abstract String getVelocityText();
+    protected abstract long getVelocityValue();
+
+	/**
+	 * Returns whether the velocity shown by the VelocityIndicator is 
+	 * negative, which decides the way the velocity arrow points.
+	 * @return true if the Rocket's displayed velocity is negative
+	 */
+    protected abstract boolean isVelocityNegative();
 
 	/**
 	 * Draws the Rocket's velocity text box.
-	 * @param gc the GraphicsContext to draw the VelocityIndicator on
+	 * @param list the DisplayList to draw the VelocityIndicator on
 	 */
-    private void drawVelocityText(GraphicsContext gc) {
-		
-		gc.setFill(Color.WHITE);
+    private void drawVelocityText(DisplayList list) {
 		
-		gc.setFill(Color.BLACK);
-		
-		gc.setTextAlign(TextAlignment.CENTER);
-		
-		gc.setTextBaseline(VPos.CENTER); 
+		if (velocityGlyphs == null) {
+			
+			velocityGlyphs = RenderResources.getGlyphAtlas(
+					RenderResources.getFont(20), Color.BLACK);
+			
+		}
 		
-        gc.fillText(
-            getVelocityText(),
-            getX() + getWidth() / 6, 
-			getY() + getHeight() / 2);
+		int length = CharFormatter.append(getVelocityValue(), velocityText, 0);
+		velocityGlyphs.drawText(list, velocityText, length, 
+				getX() + getWidth() / 6, getY() + getHeight() / 2);
 
     }
 	
 	/**
 	 * Draws a background box covering the bounds of the VelocityIndicator.
-	 * @param gc the GraphicsContext used to draw the VelocityIndicator
+	 * @param list the DisplayList used to draw the VelocityIndicator
 	 */
-    private void drawBackgroundBox(GraphicsContext gc) {
+    private void drawBackgroundBox(DisplayList list) {
 
-        gc.setFill(Color.WHITE);
-        gc.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
-        gc.setStroke(Color.BLACK);
-        gc.setLineWidth(3);
-        gc.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+        list.setFill(Color.WHITE);
+        list.fillRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
+        list.setStroke(Color.BLACK);
+        list.setLineWidth(3);
+        list.strokeRoundRect(getX() - getWidth() / 2, getY(), getWidth(), getHeight(), 10, 10);
 
     }
 
 	@Override
-	public void draw(GraphicsContext gc) {
+	protected void drawBackground(DisplayList list) {
 		
-		if (isVisible()) {
-            
-            drawBackgroundBox(gc);
-            drawVelocityArrow(gc);
-            drawVelocityText(gc);
-
-		}
+        drawBackgroundBox(list);
 		
     }
+
+	@Override
+	protected void drawValue(DisplayList list) {
+
+        drawVelocityArrow(list);
+        drawVelocityText(list);
+
+	}
+
+	@Override
+	protected long getValueKey() {
+		return getVelocityValue() * 2 + (isVelocityNegative() ? 1 : 0);
+	}
     
     @Override
 	public void tick(double timeElapsed) {}
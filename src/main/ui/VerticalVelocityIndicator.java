@@ -1,6 +1,6 @@
 package ui;
 
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 import rocket.Rocket;
 
@@ -44,9 +44,9 @@ public class VerticalVelocityIndicator extends VelocityIndicator {
 	}
 
 	@Override
-	public String getVelocityText() {
+	protected long getVelocityValue() {
 
-		return ""+Math.min(
+		return Math.min(
             Math.abs(Math.round(getRocket().getVelocity().getY() / 10) * 10), 
             999
         );
@@ -54,33 +54,38 @@ public class VerticalVelocityIndicator extends VelocityIndicator {
 	}
 
 	@Override
-    protected void drawVelocityArrow(GraphicsContext gc) {
+	protected boolean isVelocityNegative() {
+		return getRocket().getVelocity().getY() < 0;
+	}
+
+	@Override
+    protected void drawVelocityArrow(DisplayList list) {
 
-        gc.setLineWidth(3);
+        list.setLineWidth(3);
         double arrowWidth = getWidth() / 5;
         double arrowheadHeight = 10;
         double lineCenterX = getX() - getWidth() / 4;
         double lineTopY = getY() + getHeight() / 4;
         double lineBottomY = getY() + 3 * getHeight() / 4;
 
-        gc.setStroke(Color.BLACK);
+        list.setStroke(Color.BLACK);
 
-        gc.strokeLine(lineCenterX, lineTopY, lineCenterX, lineBottomY);
+        list.strokeLine(lineCenterX, lineTopY, lineCenterX, lineBottomY);
 
-        if (getRocket().getVelocity().getY() < 0) {
+        if (isVelocityNegative()) {
             
             // Draw velocity arrow pointed down
-            gc.strokeLine(lineCenterX - arrowWidth / 2, lineTopY + arrowheadHeight, 
+            list.strokeLine(lineCenterX - arrowWidth / 2, lineTopY + arrowheadHeight, 
                 lineCenterX, lineTopY);
-            gc.strokeLine(lineCenterX + arrowWidth / 2, lineTopY + arrowheadHeight, 
+            list.strokeLine(lineCenterX + arrowWidth / 2, lineTopY + arrowheadHeight, 
                 lineCenterX, lineTopY);
 
         } else {
 
             // Draw velocity arrow pointed up
-            gc.strokeLine(lineCenterX - arrowWidth / 2, lineBottomY - arrowheadHeight, 
+            list.strokeLine(lineCenterX - arrowWidth / 2, lineBottomY - arrowheadHeight, 
                 lineCenterX, lineBottomY);
-            gc.strokeLine(lineCenterX + arrowWidth / 2, lineBottomY - arrowheadHeight, 
+            list.strokeLine(lineCenterX + arrowWidth / 2, lineBottomY - arrowheadHeight, 
                 lineCenterX, lineBottomY);
 
         }
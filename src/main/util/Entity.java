@@ -1,6 +1,6 @@
 
 package util;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 
 /**
@@ -22,6 +22,19 @@ public abstract class Entity {
 	private Vector2D acceleration = new Vector2D();
 	
 	private boolean visible = true;
+
+	/*
+		An Entity with a parent is placed relative to it: its offsets and
+		direction offset are local, and its x, y and direction are derived
+		from the parent's. Derived values are cached, and recomputed only
+		when the Entity's local values change or when the parent's transform
+		version shows that the parent moved.
+	*/
+	private Entity parent;
+	private double directionOffset = 0;
+	private long transformVersion = 0;
+	private long parentTransformVersion = -1;
+	private boolean transformDirty = true;
 	
 	public Entity() {}
 	
@@ -105,10 +118,10 @@ public abstract class Entity {
 	}
 
 	/**
-	 * Draws the Entity on a Canvas
-	 * @param gc the Canvas's GraphicsContext
+	 * Draws the Entity on a Canvas by recording its drawing commands
+	 * @param list the DisplayList to record the drawing commands in
 	 */
-	public abstract void draw(GraphicsContext gc);
+	public abstract void draw(DisplayList list);
 	
 	/**
 	 * Updates the Entity
@@ -121,15 +134,31 @@ public abstract class Entity {
 	 * @return the x of the Entity
 	 */
 	public double getX() {
+		
+		updateTransform();
 		return x;
+		
 	}
 
 	/**
-	 * Sets the middle x coordinate of the Entity
+	 * Sets the middle x coordinate of the Entity. If the Entity has a 
+	 * parent, its x offset is changed so that it ends up at the given x.
 	 * @param x the new x
 	 */
 	public void setX(double x) {
-		this.x = x;
+		
+		if (getParent() != null) {
+			
+			this.xOffset = x - getParent().getX();
+			transformDirty = true;
+			
+		} else {
+			
+			this.x = x;
+			transformVersion++;
+			
+		}
+		
 	}
 
 	/**
@@ -137,15 +166,31 @@ public abstract class Entity {
 	 * @return the y of the Entity
 	 */
 	public double getY() {
+		
+		updateTransform();
 		return y;
+		
 	}
 
 	/**
-	 * Sets the top y coordinate of the Entity
+	 * Sets the top y coordinate of the Entity. If the Entity has a parent,
+	 * its y offset is changed so that it ends up at the given y.
 	 * @param y the new y
 	 */
 	public void setY(double y) {
-		this.y = y;
+		
+		if (getParent() != null) {
+			
+			this.yOffset = y - getParent().getY();
+			transformDirty = true;
+			
+		} else {
+			
+			this.y = y;
+			transformVersion++;
+			
+		}
+		
 	}
 
 	/**
@@ -181,7 +226,8 @@ public abstract class Entity {
 	}
 
 	/**
-	 * Gets the Entity's x offset, used when the Entity is drawn.
+	 * Gets the Entity's x offset from its parent, or from the point it is 
+	 * aligned with.
 	 * @return the Entity's x offset
 	 */
 	public double getxOffset() {
@@ -189,15 +235,20 @@ public abstract class Entity {
 	}
 
 	/**
-	 * Sets the Entity's x offset, used when the Entity is drawn.
+	 * Sets the Entity's x offset from its parent, or from the point it is 
+	 * aligned with.
 	 * @param xOffset the Entity's new x offset
 	 */
 	public void setxOffset(double xOffset) {
+		
 		this.xOffset = xOffset;
+		transformDirty = true;
+		
 	}
 
 	/**
-	 * Gets the Entity's y offset, used when the Entity is drawn.
+	 * Gets the Entity's y offset from its parent, or from the point it is 
+	 * aligned with.
 	 * @return the Entity's y offset
 	 */
 	public double getyOffset() {
@@ -205,11 +256,15 @@ public abstract class Entity {
 	}
 
 	/**
-	 * Sets the Entity's y offset, used when the Entity is drawn.
+	 * Sets the Entity's y offset from its parent, or from the point it is 
+	 * aligned with.
 	 * @param yOffset the Entity's new y offset
 	 */
 	public void setyOffset(double yOffset) {
+		
 		this.yOffset = yOffset;
+		transformDirty = true;
+		
 	}
 
 	/**
@@ -218,16 +273,104 @@ public abstract class Entity {
 	 * @return the angle between the Entity and the x-axis
 	 */
 	public double getDirection() {
+		
+		updateTransform();
 		return direction;
+		
 	}
 
 	/**
 	 * Sets the angle from the positive x-axis counterclockwise to the top of
-	 * the Entity
+	 * the Entity. If the Entity has a parent, its direction offset is changed
+	 * so that it ends up facing the given direction.
 	 * @param direction the new angle between the Entity and the x-axis
 	 */
 	public void setDirection(double direction) {
-		this.direction = direction;
+		
+		if (getParent() != null) {
+			
+			this.directionOffset = direction - getParent().getDirection();
+			transformDirty = true;
+			
+		} else {
+			
+			this.direction = direction;
+			transformVersion++;
+			
+		}
+		
+	}
+
+	/**
+	 * Gets the angle the Entity is turned by relative to its parent.
+	 * @return the Entity's direction offset
+	 */
+	public double getDirectionOffset() {
+		return directionOffset;
+	}
+
+	/**
+	 * Sets the angle the Entity is turned by relative to its parent.
+	 * @param directionOffset the Entity's new direction offset
+	 */
+	public void setDirectionOffset(double directionOffset) {
+		
+		this.directionOffset = directionOffset;
+		transformDirty = true;
+		
+	}
+
+	/**
+	 * Gets the Entity that this Entity is placed relative to.
+	 * @return the Entity's parent, or null if it has none
+	 */
+	public Entity getParent() {
+		return parent;
+	}
+
+	/**
+	 * Sets the Entity that this Entity is placed relative to. From then on,
+	 * the Entity follows its parent: its position is the parent's position
+	 * plus its offsets, and its direction is the parent's direction plus its
+	 * direction offset. Offsets are in the parent's unrotated frame, since 
+	 * parents draw their children inside their own rotation.
+	 * @param parent the Entity's new parent, or null to detach it
+	 */
+	public void setParent(Entity parent) {
+		
+		// Keep the current position if the Entity is being detached
+		updateTransform();
+		
+		this.parent = parent;
+		transformDirty = true;
+		transformVersion++;
+		
+	}
+
+	/**
+	 * Recomputes the Entity's x, y and direction from its parent's if its 
+	 * offsets changed or its parent moved since they were last computed.
+	 */
+	private void updateTransform() {
+		
+		if (parent == null) {
+			return;
+		}
+		
+		parent.updateTransform();
+		
+		if (transformDirty || parentTransformVersion != parent.transformVersion) {
+			
+			x = parent.x + xOffset;
+			y = parent.y + yOffset;
+			direction = parent.direction + directionOffset;
+			
+			parentTransformVersion = parent.transformVersion;
+			transformDirty = false;
+			transformVersion++;
+			
+		}
+		
 	}
 
 	/**
@@ -262,6 +405,27 @@ public abstract class Entity {
 		this.acceleration = acceleration;
 	}
 
+	/**
+	 * Gets the speed the Entity moves at in the World. An Entity moves along
+	 * with its parent, so its parents' velocities are added to its own.
+	 * @return the magnitude of the Entity's velocity in the World
+	 */
+	public double getWorldSpeed() {
+		
+		double velocityX = 0;
+		double velocityY = 0;
+		
+		for (Entity entity = this; entity != null; entity = entity.parent) {
+			
+			velocityX += entity.getVelocity().getX();
+			velocityY += entity.getVelocity().getY();
+			
+		}
+		
+		return Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+		
+	}
+
 	/**
 	 * Adds the x and y components of the Entity's velocity vector to its x and
 	 * y position.
@@ -332,23 +496,35 @@ public abstract class Entity {
 	}
 
 	/**
-	 * Aligns this Entity to another Entity by matching the other Entity's 
-	 * position, adding this Entity's offsets to that position, and then 
-	 * matching the other Entity's velocity and direction.
-	 * @param target the Entity to align this Entity with
+	 * Copies the state of another Entity onto this one, so that this Entity
+	 * draws the same way the other one would. Values are copied, so the two
+	 * Entities don't share any objects afterwards. Subclasses with more state
+	 * should extend this.
+	 * @param source the Entity to copy the state of
 	 */
-	public void alignWith(Entity target) {
+	public void copyStateFrom(Entity source) {
 
-		setX(target.getX() + getxOffset());
-		setY(target.getY() + getyOffset());
-		setVelocity(target.getVelocity());
-		setDirection(target.getDirection());
+		setX(source.getX());
+		setY(source.getY());
+		setWidth(source.getWidth());
+		setHeight(source.getHeight());
+		setxOffset(source.getxOffset());
+		setyOffset(source.getyOffset());
+		setDirection(source.getDirection());
+		setDirectionOffset(source.getDirectionOffset());
+		setColor(source.getColor());
+		setVisible(source.isVisible());
+		getVelocity().setX(source.getVelocity().getX());
+		getVelocity().setY(source.getVelocity().getY());
+		getAcceleration().setX(source.getAcceleration().getX());
+		getAcceleration().setY(source.getAcceleration().getY());
 
 	}
 
 	/**
 	 * Aligns the Entity with a point by setting this Entity's position to the
-	 * given point with this Entity's offsets added on.
+	 * given point with this Entity's offsets added on. Entities with a parent
+	 * follow it instead, and shouldn't be aligned.
 	 * @param x the x-coordinate of the point to align with
 	 * @param y the y-coordinate of the point to align with
 	 */
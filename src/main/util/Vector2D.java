@@ -1,5 +1,5 @@
 package util;
-import javafx.scene.canvas.GraphicsContext;
+import render.DisplayList;
 import javafx.scene.paint.Color;
 
 public class Vector2D {
@@ -115,14 +115,14 @@ public class Vector2D {
 	 * @param tailY	the y-coordinate of the point to draw this vector from
 	 * @param color	the color to use when drawing this vector
 	 * @param lineWidth the line width to use when drawing this vector
-	 * @param gc the GraphicsContext used when drawing this vector
+	 * @param list the DisplayList used when drawing this vector
 	 */
 	public void draw(double tailX, double tailY, Color color, 
-			double lineWidth, GraphicsContext gc) {
+			double lineWidth, DisplayList list) {
 		
-		gc.setStroke(color);
-		gc.setLineWidth(lineWidth);
-		gc.strokeLine(tailX, tailY, tailX + getX(), tailY + getY());
+		list.setStroke(color);
+		list.setLineWidth(lineWidth);
+		list.strokeLine(tailX, tailY, tailX + getX(), tailY + getY());
 		
 	}
 	
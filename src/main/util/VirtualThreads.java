@@ -0,0 +1,91 @@
+package util;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gives access to virtual threads when the running Java has them. The
+ * project is built for Java 17, which has no virtual threads, so the
+ * executor is looked up by name when the class is loaded. On Java 21 and
+ * later, thousands of simulations can each block on their own virtual
+ * thread while sharing a handful of carrier threads.
+ */
+public final class VirtualThreads {
+
+	private static final Method NEW_EXECUTOR = findExecutorFactory();
+
+	private VirtualThreads() {}
+
+	/**
+	 * Checks whether the running Java can create virtual threads.
+	 * @return true if virtual threads are available
+	 */
+	public static boolean isAvailable() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 * @return the executor
+	 * @throws UnsupportedOperationException if virtual threads aren't
+	 * available
+	 */
+	public static ExecutorService newThreadPerTaskExecutor() {
+
+		if (NEW_EXECUTOR == null) {
+			throw new UnsupportedOperationException("Virtual threads need Java 21 or later, running " +
+				System.getProperty("java.version"));
+		}
+
+		return createExecutor(NEW_EXECUTOR);
+
+	}
+
+	/**
+	 * Looks up the factory method for virtual thread executors, and checks
+	 * that it works. On Java 19 and 20 it exists but fails without preview
+	 * features enabled.
+	 * @return the factory method, or null if virtual threads aren't
+	 * available
+	 */
+	private static Method findExecutorFactory() {
+
+		try {
+
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			createExecutor(method).shutdown();
+			return method;
+
+		} catch (NoSuchMethodException | RuntimeException e) {
+
+			return null;
+
+		}
+
+	}
+
+	/**
+	 * Calls a factory method for virtual thread executors.
+	 * @param method the factory method
+	 * @return the executor it created
+	 */
+	private static ExecutorService createExecutor(Method method) {
+
+		try {
+
+			return (ExecutorService) method.invoke(null);
+
+		} catch (IllegalAccessException e) {
+
+			throw new UnsupportedOperationException(e);
+
+		} catch (InvocationTargetException e) {
+
+			throw new UnsupportedOperationException(e.getCause());
+
+		}
+
+	}
+
+}